@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.analysis.commongrams;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.AnalyzerWrapper;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CharsRefBuilder;
+
+/**
+ * An {@link Analyzer} used at index time to wrap another analyzer and overlay
+ * the bigrams of {@link CommonGramsFilter} on the tokens of some fields, so
+ * that phrases of common words can be rewritten against these bigrams by a
+ * {@link CommonGramsQueryRewriter} at query time.
+ * <p>
+ * The common words can be given, or picked from the statistics of an existing
+ * index with {@link #commonWords(IndexReader, String, float)}: only pairs that
+ * involve a word at least that frequent are indexed as bigrams.
+ * <p>
+ * The wrapped analyzer, not this one, should be used to parse queries.
+ */
+public final class CommonGramsAnalyzerWrapper extends AnalyzerWrapper {
+
+  /** The default minimum percentage (1%) of index documents which must contain a word for it to be common. */
+  public static final float DEFAULT_MIN_DOC_FREQ_PERCENT = 0.01f;
+
+  private final Analyzer delegate;
+  private final Set<String> fields;
+  private final CharArraySet commonWords;
+
+  /**
+   * Creates a new CommonGramsAnalyzerWrapper.
+   *
+   * @param delegate Analyzer whose TokenStream will be filtered
+   * @param fields Fields whose tokens are overlaid with bigrams
+   * @param commonWords Words that form a bigram with the words that precede and follow them
+   */
+  public CommonGramsAnalyzerWrapper(Analyzer delegate, Collection<String> fields, CharArraySet commonWords) {
+    super(delegate.getReuseStrategy());
+    this.delegate = delegate;
+    this.fields = new HashSet<>(fields);
+    this.commonWords = commonWords;
+  }
+
+  /** Returns the common words that bigrams are built for. */
+  public CharArraySet getCommonWords() {
+    return commonWords;
+  }
+
+  @Override
+  protected Analyzer getWrappedAnalyzer(String fieldName) {
+    return delegate;
+  }
+
+  @Override
+  protected TokenStreamComponents wrapComponents(String fieldName, TokenStreamComponents components) {
+    if (fields.contains(fieldName) == false) {
+      return components;
+    }
+    return new TokenStreamComponents(components.getTokenizer(),
+        new CommonGramsFilter(components.getTokenStream(), commonWords));
+  }
+
+  /**
+   * Returns the words of the given field that more than the given percentage
+   * of documents contain. Bigrams that are already indexed in the field are
+   * ignored.
+   *
+   * @param indexReader IndexReader to identify the common words from
+   * @param field Field to identify the common words of
+   * @param minPercentDocs The percentage (between 0.0 and 1.0) of index documents that must
+   *                       contain a word for it to be common
+   * @throws IOException Can be thrown while reading from the IndexReader
+   */
+  public static CharArraySet commonWords(IndexReader indexReader, String field, float minPercentDocs) throws IOException {
+    final int minDocFreq = (int) (indexReader.numDocs() * minPercentDocs);
+    final CharArraySet commonWords = new CharArraySet(16, false);
+    final Terms terms = MultiFields.getTerms(indexReader, field);
+    if (terms != null) {
+      final CharsRefBuilder spare = new CharsRefBuilder();
+      final TermsEnum te = terms.iterator();
+      BytesRef text;
+      while ((text = te.next()) != null) {
+        if (te.docFreq() > minDocFreq) {
+          spare.copyUTF8Bytes(text);
+          final String word = spare.toString();
+          if (word.indexOf(CommonGramsFilter.SEPARATOR) == -1) {
+            commonWords.add(word);
+          }
+        }
+      }
+    }
+    return commonWords;
+  }
+}
@@ -51,7 +51,7 @@ import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 public final class CommonGramsFilter extends TokenFilter {
 
   public static final String GRAM_TYPE = "gram";
-  private static final char SEPARATOR = '_';
+  static final char SEPARATOR = '_';
 
   private final CharArraySet commonWords;
 
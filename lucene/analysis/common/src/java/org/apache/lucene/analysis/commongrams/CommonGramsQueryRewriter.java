@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.analysis.commongrams;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+
+/**
+ * Rewrites exact phrases of a field indexed with {@link CommonGramsFilter},
+ * typically through a {@link CommonGramsAnalyzerWrapper}, so that each pair
+ * of adjacent words that involves a common word is looked up as a single
+ * bigram term instead of intersecting the long position lists of the common
+ * words. For instance with "the" and "of" as common words, the phrase
+ * "the lord of the rings" is rewritten to a phrase of the bigrams "the_lord",
+ * "of_the" and "the_rings": the bigram "lord_of" is left out as its words are
+ * already covered by the others.
+ * <p>
+ * {@link PhraseQuery PhraseQueries} without slop and ordered
+ * {@link SpanNearQuery SpanNearQueries} without slop over
+ * {@link SpanTermQuery SpanTermQueries} are rewritten, including when they
+ * are nested in boolean, boost, constant-score and disjunction-max queries.
+ * The rewritten query matches the same documents as long as the common words
+ * are the ones that the field was indexed with and the analysis did not
+ * leave position gaps, for instance by removing stop words, before
+ * building the bigrams.
+ * <p>
+ * Queries should be parsed with the analyzer wrapped by the
+ * {@link CommonGramsAnalyzerWrapper}, so that phrases are made of single
+ * words, and then rewritten with {@link #rewrite(Query)}.
+ */
+public final class CommonGramsQueryRewriter {
+
+  private final String field;
+  private final CharArraySet commonWords;
+
+  /**
+   * Creates a new CommonGramsQueryRewriter.
+   *
+   * @param field Field whose phrases are rewritten
+   * @param commonWords The common words that the field was indexed with
+   */
+  public CommonGramsQueryRewriter(String field, CharArraySet commonWords) {
+    this.field = field;
+    this.commonWords = commonWords;
+  }
+
+  /** Returns the given query with its phrases rewritten against bigrams, or the query itself if nothing could be rewritten. */
+  public Query rewrite(Query query) {
+    if (query instanceof PhraseQuery) {
+      return rewritePhrase((PhraseQuery) query);
+    } else if (query instanceof SpanNearQuery) {
+      return rewriteSpanNear((SpanNearQuery) query);
+    } else if (query instanceof BooleanQuery) {
+      final BooleanQuery bq = (BooleanQuery) query;
+      final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+      builder.setMinimumNumberShouldMatch(bq.getMinimumNumberShouldMatch());
+      boolean changed = false;
+      for (BooleanClause clause : bq) {
+        final Query rewritten = rewrite(clause.getQuery());
+        changed |= rewritten != clause.getQuery();
+        builder.add(rewritten, clause.getOccur());
+      }
+      return changed ? builder.build() : query;
+    } else if (query instanceof BoostQuery) {
+      final BoostQuery boostQuery = (BoostQuery) query;
+      final Query rewritten = rewrite(boostQuery.getQuery());
+      return rewritten != boostQuery.getQuery() ? new BoostQuery(rewritten, boostQuery.getBoost()) : query;
+    } else if (query instanceof ConstantScoreQuery) {
+      final Query inner = ((ConstantScoreQuery) query).getQuery();
+      final Query rewritten = rewrite(inner);
+      return rewritten != inner ? new ConstantScoreQuery(rewritten) : query;
+    } else if (query instanceof DisjunctionMaxQuery) {
+      final DisjunctionMaxQuery dmq = (DisjunctionMaxQuery) query;
+      final List<Query> disjuncts = new ArrayList<>();
+      boolean changed = false;
+      for (Query disjunct : dmq) {
+        final Query rewritten = rewrite(disjunct);
+        changed |= rewritten != disjunct;
+        disjuncts.add(rewritten);
+      }
+      return changed ? new DisjunctionMaxQuery(disjuncts, dmq.getTieBreakerMultiplier()) : query;
+    }
+    return query;
+  }
+
+  private Query rewritePhrase(PhraseQuery query) {
+    final Term[] terms = query.getTerms();
+    if (query.getSlop() != 0 || terms.length < 2 || terms[0].field().equals(field) == false) {
+      return query;
+    }
+    final int[] positions = query.getPositions();
+    final Term[] words = new Term[terms.length];
+    final int[] wordPositions = new int[terms.length];
+    final int numWords = toBigrams(terms, positions, words, wordPositions);
+    if (numWords == -1) {
+      return query;
+    }
+    if (numWords == 1) {
+      return new TermQuery(words[0]);
+    }
+    final PhraseQuery.Builder builder = new PhraseQuery.Builder();
+    for (int i = 0; i < numWords; i++) {
+      builder.add(words[i], wordPositions[i]);
+    }
+    return builder.build();
+  }
+
+  private Query rewriteSpanNear(SpanNearQuery query) {
+    final SpanQuery[] clauses = query.getClauses();
+    if (query.getSlop() != 0 || query.isInOrder() == false || clauses.length < 2 || query.getField().equals(field) == false) {
+      return query;
+    }
+    final Term[] terms = new Term[clauses.length];
+    final int[] positions = new int[clauses.length];
+    for (int i = 0; i < clauses.length; i++) {
+      if (clauses[i] instanceof SpanTermQuery == false) {
+        return query;
+      }
+      terms[i] = ((SpanTermQuery) clauses[i]).getTerm();
+      positions[i] = i;
+    }
+    final Term[] words = new Term[terms.length];
+    final int[] wordPositions = new int[terms.length];
+    final int numWords = toBigrams(terms, positions, words, wordPositions);
+    if (numWords == -1) {
+      return query;
+    }
+    if (numWords == 1) {
+      return new SpanTermQuery(words[0]);
+    }
+    final SpanNearQuery.Builder builder = SpanNearQuery.newOrderedNearQuery(field);
+    for (int i = 0; i < numWords; i++) {
+      if (i > 0 && wordPositions[i] > wordPositions[i - 1] + 1) {
+        builder.addGap(wordPositions[i] - wordPositions[i - 1] - 1);
+      }
+      builder.addClause(new SpanTermQuery(words[i]));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Replaces the given consecutive words with the bigrams that cover them,
+   * and the words that are not part of any bigram, in order of position.
+   * Returns the number of terms written to {@code words} and
+   * {@code wordPositions}, or -1 if the phrase has no bigram or its words are
+   * not at consecutive positions.
+   */
+  private int toBigrams(Term[] terms, int[] positions, Term[] words, int[] wordPositions) {
+    final int n = terms.length;
+    final boolean[] common = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      if (i > 0 && positions[i] != positions[i - 1] + 1) {
+        return -1;
+      }
+      common[i] = commonWords.contains(terms[i].text());
+    }
+
+    // the bigram of words i and i+1 is indexed if either of them is common
+    final boolean[] bigram = new boolean[n];
+    boolean hasBigram = false;
+    for (int i = 0; i + 1 < n; i++) {
+      bigram[i] = common[i] || common[i + 1];
+      hasBigram |= bigram[i];
+    }
+    if (hasBigram == false) {
+      return -1;
+    }
+    // a bigram whose both words are covered by the previous and the next bigrams is redundant,
+    // eg. "of_the" in "lord_of of_the the_rings"
+    for (int i = 1; i + 1 < n; i++) {
+      if (bigram[i - 1] && bigram[i] && bigram[i + 1]) {
+        bigram[i] = false;
+      }
+    }
+
+    int numWords = 0;
+    for (int i = 0; i < n; i++) {
+      if (bigram[i]) {
+        final String text = terms[i].text() + CommonGramsFilter.SEPARATOR + terms[i + 1].text();
+        words[numWords] = new Term(field, text);
+        wordPositions[numWords++] = positions[i];
+      } else if (i == 0 || bigram[i - 1] == false) {
+        // not covered by any bigram
+        words[numWords] = terms[i];
+        wordPositions[numWords++] = positions[i];
+      }
+    }
+    return numWords;
+  }
+}
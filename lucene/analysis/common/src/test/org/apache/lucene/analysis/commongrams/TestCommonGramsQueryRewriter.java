@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.analysis.commongrams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.BaseTokenStreamTestCase;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.analysis.MockTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.store.Directory;
+
+public class TestCommonGramsQueryRewriter extends BaseTokenStreamTestCase {
+
+  private static final String[] WORDS = { "the", "of", "a", "lord", "rings", "who", "be", "not", "to", "or" };
+
+  public void testRewritePhrase() {
+    CommonGramsQueryRewriter rewriter = new CommonGramsQueryRewriter("f", new CharArraySet(Arrays.asList("the", "of"), false));
+
+    PhraseQuery expected = new PhraseQuery.Builder()
+        .add(new Term("f", "the_lord"), 0)
+        .add(new Term("f", "of_the"), 2)
+        .add(new Term("f", "the_rings"), 3)
+        .build();
+    assertEquals(expected, rewriter.rewrite(new PhraseQuery("f", "the", "lord", "of", "the", "rings")));
+
+    // words that are not part of a bigram are kept
+    expected = new PhraseQuery.Builder()
+        .add(new Term("f", "lord"), 0)
+        .add(new Term("f", "rings"), 1)
+        .add(new Term("f", "rings_of"), 2)
+        .build();
+    assertEquals(expected, rewriter.rewrite(new PhraseQuery("f", "lord", "rings", "rings", "of")));
+
+    assertEquals(new TermQuery(new Term("f", "the_who")), rewriter.rewrite(new PhraseQuery("f", "the", "who")));
+
+    // not rewritten: no common word, sloppy, other field, position gaps
+    Query query = new PhraseQuery("f", "lord", "rings");
+    assertSame(query, rewriter.rewrite(query));
+    query = new PhraseQuery(1, "f", "the", "who");
+    assertSame(query, rewriter.rewrite(query));
+    query = new PhraseQuery("g", "the", "who");
+    assertSame(query, rewriter.rewrite(query));
+    query = new PhraseQuery.Builder().add(new Term("f", "the"), 0).add(new Term("f", "who"), 2).build();
+    assertSame(query, rewriter.rewrite(query));
+  }
+
+  public void testRewriteNested() {
+    CommonGramsQueryRewriter rewriter = new CommonGramsQueryRewriter("f", new CharArraySet(Arrays.asList("the"), false));
+    Query query = new BooleanQuery.Builder()
+        .add(new BoostQuery(new PhraseQuery("f", "the", "who"), 2f), Occur.SHOULD)
+        .add(new TermQuery(new Term("f", "who")), Occur.MUST)
+        .build();
+    Query expected = new BooleanQuery.Builder()
+        .add(new BoostQuery(new TermQuery(new Term("f", "the_who")), 2f), Occur.SHOULD)
+        .add(new TermQuery(new Term("f", "who")), Occur.MUST)
+        .build();
+    assertEquals(expected, rewriter.rewrite(query));
+
+    SpanQuery spanQuery = SpanNearQuery.newOrderedNearQuery("f")
+        .addClause(new SpanTermQuery(new Term("f", "the")))
+        .addClause(new SpanTermQuery(new Term("f", "who")))
+        .addClause(new SpanTermQuery(new Term("f", "and")))
+        .addClause(new SpanTermQuery(new Term("f", "the")))
+        .build();
+    SpanQuery expectedSpans = SpanNearQuery.newOrderedNearQuery("f")
+        .addClause(new SpanTermQuery(new Term("f", "the_who")))
+        .addGap(1)
+        .addClause(new SpanTermQuery(new Term("f", "and_the")))
+        .build();
+    assertEquals(expectedSpans, rewriter.rewrite(spanQuery));
+  }
+
+  public void testCommonWords() throws Exception {
+    Directory dir = newDirectory();
+    Analyzer analyzer = new MockAnalyzer(random(), MockTokenizer.WHITESPACE, false);
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, analyzer);
+    for (int i = 0; i < 100; i++) {
+      Document doc = new Document();
+      doc.add(new TextField("f", i % 2 == 0 ? "the lord" : "the rings of power", Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    assertEquals(new HashSet<>(Arrays.asList("the")), toStrings(CommonGramsAnalyzerWrapper.commonWords(reader, "f", 0.6f)));
+    assertEquals(new HashSet<>(Arrays.asList("the", "lord", "rings", "of", "power")), toStrings(CommonGramsAnalyzerWrapper.commonWords(reader, "f", 0.4f)));
+    reader.close();
+    dir.close();
+    analyzer.close();
+  }
+
+  private static Set<String> toStrings(CharArraySet set) {
+    Set<String> strings = new HashSet<>();
+    for (Object o : set) {
+      strings.add(new String((char[]) o));
+    }
+    return strings;
+  }
+
+  /** Rewritten phrases must match the same documents as the original ones. */
+  public void testRandomPhrases() throws Exception {
+    CharArraySet commonWords = new CharArraySet(Arrays.asList("the", "of", "a", "to"), false);
+    Directory dir = newDirectory();
+    Analyzer analyzer = new CommonGramsAnalyzerWrapper(new MockAnalyzer(random(), MockTokenizer.WHITESPACE, false),
+        Arrays.asList("f"), commonWords);
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, analyzer);
+    List<String[]> docs = new ArrayList<>();
+    int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      String[] words = randomWords(1 + random().nextInt(20));
+      docs.add(words);
+      Document doc = new Document();
+      doc.add(new TextField("f", String.join(" ", words), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    CommonGramsQueryRewriter rewriter = new CommonGramsQueryRewriter("f", commonWords);
+    for (int iter = 0; iter < 100; iter++) {
+      String[] phrase;
+      if (random().nextBoolean()) {
+        phrase = randomWords(2 + random().nextInt(4));
+      } else {
+        // a phrase that occurs in some doc
+        String[] words = docs.get(random().nextInt(docs.size()));
+        int length = Math.min(words.length, 2 + random().nextInt(4));
+        int start = random().nextInt(words.length - length + 1);
+        phrase = Arrays.copyOfRange(words, start, start + length);
+      }
+      if (phrase.length < 2) {
+        continue;
+      }
+      PhraseQuery phraseQuery = new PhraseQuery("f", phrase);
+      assertSameMatches(searcher, phraseQuery, rewriter.rewrite(phraseQuery));
+
+      SpanNearQuery.Builder builder = SpanNearQuery.newOrderedNearQuery("f");
+      for (String word : phrase) {
+        builder.addClause(new SpanTermQuery(new Term("f", word)));
+      }
+      SpanNearQuery spanQuery = builder.build();
+      assertSameMatches(searcher, spanQuery, rewriter.rewrite(spanQuery));
+    }
+    reader.close();
+    dir.close();
+    analyzer.close();
+  }
+
+  private static String[] randomWords(int count) {
+    String[] words = new String[count];
+    for (int i = 0; i < count; i++) {
+      words[i] = WORDS[random().nextInt(WORDS.length)];
+    }
+    return words;
+  }
+
+  private static void assertSameMatches(IndexSearcher searcher, Query expected, Query actual) throws Exception {
+    Set<Integer> expectedDocs = new HashSet<>();
+    for (ScoreDoc hit : searcher.search(expected, searcher.getIndexReader().maxDoc()).scoreDocs) {
+      expectedDocs.add(hit.doc);
+    }
+    Set<Integer> actualDocs = new HashSet<>();
+    for (ScoreDoc hit : searcher.search(actual, searcher.getIndexReader().maxDoc()).scoreDocs) {
+      actualDocs.add(hit.doc);
+    }
+    assertEquals(expected + " vs " + actual, expectedDocs, actualDocs);
+  }
+}
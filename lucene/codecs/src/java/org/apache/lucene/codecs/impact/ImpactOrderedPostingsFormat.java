@@ -0,0 +1,389 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.impact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * <p>
+ * A {@link PostingsFormat} that, in addition to the document-ordered postings
+ * of a delegate format, stores the postings of frequent terms partitioned by
+ * quantized impact, from the highest impact to the lowest. This allows
+ * score-at-a-time evaluation of top-k queries that stops as soon as the
+ * remaining postings cannot change the top hits, see {@link ImpactOrderedQuery}.
+ * </p>
+ * <p>
+ * The impact of a document is its term frequency, saturated at
+ * {@link ImpactPostings#MAX_IMPACT}. Only fields that index frequencies
+ * are covered, and only terms that occur in at least {@code minDocFreq}
+ * documents; postings of other terms are sorted in memory when needed.
+ * </p>
+ * <p>
+ * The format of the imp file is as follows:
+ * </p>
+ * <ul>
+ * <li>ImpactPostings (.imp) --&gt; Header, DelegatePostingsFormatName,
+ * TermPostings<sup>NumTerms</sup>, NumFields, FieldIndex<sup>NumFields</sup>,
+ * DirOffset, Footer</li>
+ * <li>TermPostings --&gt; NumSegments, Segment<sup>NumSegments</sup></li>
+ * <li>Segment --&gt; Impact, DocCount, DocDelta<sup>DocCount</sup></li>
+ * <li>FieldIndex --&gt; FieldNumber, TermIndex</li>
+ * <li>TermIndex --&gt; {@link FST FST&lt;Int64&gt;} mapping each term to the
+ * file pointer of its TermPostings</li>
+ * <li>Header --&gt; {@link CodecUtil#writeIndexHeader IndexHeader}</li>
+ * <li>DelegatePostingsFormatName --&gt; {@link DataOutput#writeString(String)
+ * String} The name of a ServiceProvider registered {@link PostingsFormat}</li>
+ * <li>Impact --&gt; {@link DataOutput#writeByte Byte}</li>
+ * <li>NumSegments, DocCount, DocDelta, NumFields, FieldNumber --&gt;
+ * {@link DataOutput#writeVInt VInt}</li>
+ * <li>DirOffset --&gt; {@link DataOutput#writeLong Uint64}</li>
+ * <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
+ * </ul>
+ * <p>
+ * Segments are written from the highest impact to the lowest and documents
+ * are delta-encoded within a segment.
+ * </p>
+ * @lucene.experimental
+ */
+public final class ImpactOrderedPostingsFormat extends PostingsFormat {
+
+  public static final String IMPACT_CODEC_NAME = "ImpactOrdered";
+  public static final int VERSION_START = 0;
+  public static final int VERSION_CURRENT = VERSION_START;
+
+  /** Default minimum document frequency of a term to be stored ordered by impact. */
+  public static final int DEFAULT_MIN_DOC_FREQ = 128;
+
+  /** Extension of impact-ordered postings file */
+  static final String IMPACT_EXTENSION = "imp";
+
+  private final PostingsFormat delegatePostingsFormat;
+  private final int minDocFreq;
+
+  /**
+   * Creates an impact-ordered postings format.
+   *
+   * @param delegatePostingsFormat
+   *          The PostingsFormat that records the document-ordered postings.
+   * @param minDocFreq
+   *          Terms that occur in fewer documents are not stored ordered by
+   *          impact, as sorting their postings in memory is cheap.
+   */
+  public ImpactOrderedPostingsFormat(PostingsFormat delegatePostingsFormat, int minDocFreq) {
+    super(IMPACT_CODEC_NAME);
+    if (minDocFreq < 1) {
+      throw new IllegalArgumentException("minDocFreq must be >= 1, got " + minDocFreq);
+    }
+    this.delegatePostingsFormat = delegatePostingsFormat;
+    this.minDocFreq = minDocFreq;
+  }
+
+  /** Creates an impact-ordered postings format on top of {@link Lucene50PostingsFormat}. */
+  public ImpactOrderedPostingsFormat() {
+    this(new Lucene50PostingsFormat(), DEFAULT_MIN_DOC_FREQ);
+  }
+
+  @Override
+  public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+    FieldsConsumer fieldsConsumer = delegatePostingsFormat.fieldsConsumer(state);
+    boolean success = false;
+    try {
+      FieldsConsumer consumer = new ImpactOrderedFieldsConsumer(fieldsConsumer, state);
+      success = true;
+      return consumer;
+    } finally {
+      if (!success) {
+        IOUtils.closeWhileHandlingException(fieldsConsumer);
+      }
+    }
+  }
+
+  @Override
+  public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+    return new ImpactOrderedFieldsProducer(state);
+  }
+
+  static class ImpactOrderedFieldsProducer extends FieldsProducer {
+
+    private final IndexInput impactsIn;
+    private final Map<String,FST<Long>> indexByFieldName = new HashMap<>();
+    private FieldsProducer delegateFieldsProducer;
+
+    ImpactOrderedFieldsProducer(SegmentReadState state) throws IOException {
+      String impactFileName = IndexFileNames.segmentFileName(
+          state.segmentInfo.name, state.segmentSuffix, IMPACT_EXTENSION);
+      impactsIn = state.directory.openInput(impactFileName, state.context);
+      boolean success = false;
+      try {
+        CodecUtil.checkIndexHeader(impactsIn, IMPACT_CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+        PostingsFormat delegatePostingsFormat = PostingsFormat.forName(impactsIn.readString());
+        // NOTE: data file is too costly to verify checksum against all the bytes on open,
+        // but for now we at least verify proper structure of the checksum footer
+        CodecUtil.retrieveChecksum(impactsIn);
+
+        impactsIn.seek(impactsIn.length() - CodecUtil.footerLength() - Long.BYTES);
+        impactsIn.seek(impactsIn.readLong());
+        final int numFields = impactsIn.readVInt();
+        for (int i = 0; i < numFields; i++) {
+          FieldInfo fieldInfo = state.fieldInfos.fieldInfo(impactsIn.readVInt());
+          indexByFieldName.put(fieldInfo.name, new FST<>(impactsIn, PositiveIntOutputs.getSingleton()));
+        }
+
+        delegateFieldsProducer = delegatePostingsFormat.fieldsProducer(state);
+        success = true;
+      } finally {
+        if (!success) {
+          IOUtils.closeWhileHandlingException(impactsIn, delegateFieldsProducer);
+        }
+      }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return delegateFieldsProducer.iterator();
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOUtils.close(impactsIn, delegateFieldsProducer);
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+      Terms terms = delegateFieldsProducer.terms(field);
+      FST<Long> index = indexByFieldName.get(field);
+      if (terms == null || index == null) {
+        return terms;
+      }
+      return new ImpactOrderedTerms(terms, index, impactsIn);
+    }
+
+    @Override
+    public int size() {
+      return delegateFieldsProducer.size();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      long sizeInBytes = delegateFieldsProducer.ramBytesUsed();
+      for (Map.Entry<String,FST<Long>> entry : indexByFieldName.entrySet()) {
+        sizeInBytes += entry.getKey().length() * Character.BYTES;
+        sizeInBytes += entry.getValue().ramBytesUsed();
+      }
+      return sizeInBytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      List<Accountable> resources = new ArrayList<>();
+      resources.addAll(Accountables.namedAccountables("field", indexByFieldName));
+      resources.add(Accountables.namedAccountable("delegate", delegateFieldsProducer));
+      return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+      CodecUtil.checksumEntireFile(impactsIn);
+      delegateFieldsProducer.checkIntegrity();
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "(fields=" + indexByFieldName.size() + ",delegate=" + delegateFieldsProducer + ")";
+    }
+  }
+
+  class ImpactOrderedFieldsConsumer extends FieldsConsumer {
+
+    private final FieldsConsumer delegateFieldsConsumer;
+    private final SegmentWriteState state;
+    private final IndexOutput impactsOut;
+
+    private int[] docs = new int[16];
+    private int[] impacts = new int[16];
+    private int[] counts = new int[ImpactPostings.MAX_IMPACT + 1];
+    private int[] offsets = new int[ImpactPostings.MAX_IMPACT + 1];
+    private int[] sortedDocs = new int[16];
+
+    ImpactOrderedFieldsConsumer(FieldsConsumer fieldsConsumer, SegmentWriteState state) throws IOException {
+      this.delegateFieldsConsumer = fieldsConsumer;
+      this.state = state;
+      String impactFileName = IndexFileNames.segmentFileName(
+          state.segmentInfo.name, state.segmentSuffix, IMPACT_EXTENSION);
+      impactsOut = state.directory.createOutput(impactFileName, state.context);
+      boolean success = false;
+      try {
+        CodecUtil.writeIndexHeader(impactsOut, IMPACT_CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+        // remember the name of the postings format we will delegate to
+        impactsOut.writeString(delegatePostingsFormat.getName());
+        success = true;
+      } finally {
+        if (!success) {
+          IOUtils.closeWhileHandlingException(impactsOut);
+        }
+      }
+    }
+
+    @Override
+    public void write(Fields fields) throws IOException {
+      // Delegate must write first: it may have opened files
+      // on creating the class and write() will close them
+      delegateFieldsConsumer.write(fields);
+
+      Map<FieldInfo,FST<Long>> indexes = new HashMap<>();
+      IntsRefBuilder scratch = new IntsRefBuilder();
+      for (String field : fields) {
+        Terms terms = fields.terms(field);
+        if (terms == null) {
+          continue;
+        }
+        FieldInfo fieldInfo = state.fieldInfos.fieldInfo(field);
+        if (fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) < 0) {
+          continue;
+        }
+
+        Builder<Long> builder = null;
+        TermsEnum termsEnum = terms.iterator();
+        PostingsEnum postingsEnum = null;
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+          postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.FREQS);
+          int numDocs = 0;
+          for (int doc = postingsEnum.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postingsEnum.nextDoc()) {
+            if (numDocs == docs.length) {
+              docs = ArrayUtil.grow(docs, numDocs + 1);
+              impacts = ArrayUtil.grow(impacts, docs.length);
+            }
+            docs[numDocs] = doc;
+            impacts[numDocs] = ImpactPostings.impact(postingsEnum.freq());
+            numDocs++;
+          }
+          if (numDocs < minDocFreq) {
+            continue;
+          }
+          if (builder == null) {
+            builder = new Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+          }
+          builder.add(Util.toIntsRef(term, scratch), impactsOut.getFilePointer());
+          writeTermPostings(numDocs);
+        }
+
+        if (builder != null) {
+          FST<Long> index = builder.finish();
+          if (index != null) {
+            indexes.put(fieldInfo, index);
+          }
+        }
+      }
+
+      final long dirOffset = impactsOut.getFilePointer();
+      impactsOut.writeVInt(indexes.size());
+      for (Map.Entry<FieldInfo,FST<Long>> entry : indexes.entrySet()) {
+        impactsOut.writeVInt(entry.getKey().number);
+        entry.getValue().save(impactsOut);
+      }
+      impactsOut.writeLong(dirOffset);
+      CodecUtil.writeFooter(impactsOut);
+    }
+
+    private void writeTermPostings(int numDocs) throws IOException {
+      // stable counting sort of the buffered docs by decreasing impact
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < numDocs; i++) {
+        counts[impacts[i]]++;
+      }
+      int numSegments = 0;
+      int upto = 0;
+      for (int impact = ImpactPostings.MAX_IMPACT; impact > 0; impact--) {
+        offsets[impact] = upto;
+        upto += counts[impact];
+        if (counts[impact] > 0) {
+          numSegments++;
+        }
+      }
+      if (sortedDocs.length < numDocs) {
+        sortedDocs = new int[ArrayUtil.oversize(numDocs, Integer.BYTES)];
+      }
+      for (int i = 0; i < numDocs; i++) {
+        sortedDocs[offsets[impacts[i]]++] = docs[i];
+      }
+
+      impactsOut.writeVInt(numSegments);
+      upto = 0;
+      for (int impact = ImpactPostings.MAX_IMPACT; impact > 0; impact--) {
+        final int count = counts[impact];
+        if (count == 0) {
+          continue;
+        }
+        impactsOut.writeByte((byte) impact);
+        impactsOut.writeVInt(count);
+        int lastDoc = 0;
+        for (int i = upto; i < upto + count; i++) {
+          impactsOut.writeVInt(sortedDocs[i] - lastDoc);
+          lastDoc = sortedDocs[i];
+        }
+        upto += count;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOUtils.close(impactsOut, delegateFieldsConsumer);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ImpactOrderedPostingsFormat(" + delegatePostingsFormat + ",minDocFreq=" + minDocFreq + ")";
+  }
+}
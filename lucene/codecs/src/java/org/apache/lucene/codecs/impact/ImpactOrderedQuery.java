@@ -0,0 +1,592 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.impact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+
+/**
+ * A query that only matches the top {@code k} hits of a {@link TermQuery} or
+ * of a pure disjunction of term queries, found with score-at-a-time
+ * evaluation of {@link ImpactPostings}.
+ * <p>
+ * The score of a document is the sum, over the matching terms, of
+ * {@code boost * idf * impact / (impact + k1)}, where idf is the BM25 inverse
+ * document frequency and the impact is the saturated term frequency, see
+ * {@link ImpactPostings#impact(int)}. Since it does not depend on the length
+ * of the document, the score of a document can be bounded from the impacts of
+ * the postings which have not been read yet: segments of postings are read
+ * from the highest contribution to the lowest, and evaluation stops as soon
+ * as no remaining posting can bring a new document in the top hits. Scores of
+ * the top hits are then computed exactly from the document-ordered postings.
+ * <p>
+ * An optional budget on the number of postings to read makes evaluation
+ * stop earlier, in which case the top hits are approximate.
+ * <p>
+ * Top hits are computed per segment, so this query is only useful for
+ * collecting the top {@code k} hits, eg. with {@link IndexSearcher#search(Query, int)}.
+ * Per segment, evaluation uses memory proportional to {@code maxDoc}.
+ *
+ * @see ImpactOrderedPostingsFormat
+ * @lucene.experimental
+ */
+public final class ImpactOrderedQuery extends Query {
+
+  /** Term frequency saturation parameter. */
+  public static final float K1 = 1.2f;
+
+  private final Query query;
+  private final int k;
+  private final long maxPostings;
+  private final Map<Term,Float> termBoosts = new LinkedHashMap<>();
+
+  /**
+   * Creates a query that matches the exact top {@code k} hits of {@code query},
+   * which must be a {@link TermQuery} or a {@link BooleanQuery} made only of
+   * {@link BooleanClause.Occur#SHOULD} term queries, optionally wrapped in
+   * {@link BoostQuery}s.
+   */
+  public ImpactOrderedQuery(Query query, int k) {
+    this(query, k, Long.MAX_VALUE);
+  }
+
+  /**
+   * Same as {@link #ImpactOrderedQuery(Query, int)}, but stops evaluation of a
+   * segment once {@code maxPostings} postings have been read, which makes the
+   * top hits approximate.
+   */
+  public ImpactOrderedQuery(Query query, int k, long maxPostings) {
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be >= 1, got " + k);
+    }
+    if (maxPostings < 1) {
+      throw new IllegalArgumentException("maxPostings must be >= 1, got " + maxPostings);
+    }
+    this.query = Objects.requireNonNull(query);
+    this.k = k;
+    this.maxPostings = maxPostings;
+    extractTerms(query, 1f);
+  }
+
+  private void extractTerms(Query q, float boost) {
+    if (q instanceof TermQuery) {
+      termBoosts.merge(((TermQuery) q).getTerm(), boost, Float::sum);
+    } else if (q instanceof BoostQuery) {
+      BoostQuery bq = (BoostQuery) q;
+      extractTerms(bq.getQuery(), boost * bq.getBoost());
+    } else if (q instanceof BooleanQuery) {
+      BooleanQuery bq = (BooleanQuery) q;
+      if (bq.getMinimumNumberShouldMatch() > 0) {
+        throw new IllegalArgumentException("Only pure disjunctions are supported, got " + q);
+      }
+      for (BooleanClause clause : bq) {
+        if (clause.getOccur() != BooleanClause.Occur.SHOULD) {
+          throw new IllegalArgumentException("Only pure disjunctions are supported, got " + q);
+        }
+        extractTerms(clause.getQuery(), boost);
+      }
+    } else {
+      throw new IllegalArgumentException("Only term queries and disjunctions of term queries are supported, got " + q);
+    }
+  }
+
+  /** Returns the wrapped query. */
+  public Query getQuery() {
+    return query;
+  }
+
+  /** Returns the number of hits to find per segment. */
+  public int getK() {
+    return k;
+  }
+
+  /** Returns the maximum number of postings to read per segment. */
+  public long getMaxPostings() {
+    return maxPostings;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost) throws IOException {
+    final Term[] terms = new Term[termBoosts.size()];
+    final float[] weights = new float[terms.length];
+    int i = 0;
+    for (Map.Entry<Term,Float> entry : termBoosts.entrySet()) {
+      Term term = entry.getKey();
+      TermContext termContext = TermContext.build(searcher.getTopReaderContext(), term);
+      TermStatistics termStats = searcher.termStatistics(term, termContext);
+      CollectionStatistics collectionStats = searcher.collectionStatistics(term.field());
+      terms[i] = term;
+      weights[i] = boost * entry.getValue() * idf(termStats.docFreq(), collectionStats);
+      i++;
+    }
+    return new ImpactOrderedWeight(terms, weights);
+  }
+
+  /** BM25 inverse document frequency. */
+  private static float idf(long docFreq, CollectionStatistics collectionStats) {
+    final long docCount = collectionStats.docCount() == -1 ? collectionStats.maxDoc() : collectionStats.docCount();
+    return (float) Math.log(1 + (docCount - docFreq + 0.5D) / (docFreq + 0.5D));
+  }
+
+  /** Returns the contribution of a term with the given weight and impact. */
+  static float score(float weight, int impact) {
+    return weight * impact / (impact + K1);
+  }
+
+  private class ImpactOrderedWeight extends Weight {
+
+    private final Term[] terms;
+    private final float[] weights;
+
+    ImpactOrderedWeight(Term[] terms, float[] weights) {
+      super(ImpactOrderedQuery.this);
+      this.terms = terms;
+      this.weights = weights;
+    }
+
+    @Override
+    public void extractTerms(Set<Term> termSet) {
+      termSet.addAll(Arrays.asList(terms));
+    }
+
+    @Override
+    public Scorer scorer(LeafReaderContext context) throws IOException {
+      final LeafReader reader = context.reader();
+      final int[] hits = topHits(reader);
+      if (hits.length == 0) {
+        return null;
+      }
+      Arrays.sort(hits);
+      final float[] scores = new float[hits.length];
+      final int[] freqs = new int[hits.length];
+      for (int i = 0; i < terms.length; i++) {
+        PostingsEnum postings = postings(reader, terms[i]);
+        if (postings == null) {
+          continue;
+        }
+        for (int j = 0; j < hits.length; j++) {
+          int doc = postings.docID() < hits[j] ? postings.advance(hits[j]) : postings.docID();
+          if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+            break;
+          }
+          if (doc == hits[j]) {
+            scores[j] += score(weights[i], ImpactPostings.impact(postings.freq()));
+            freqs[j]++;
+          }
+        }
+      }
+      return new TopHitsScorer(this, hits, scores, freqs);
+    }
+
+    /** Returns the top hits of the given segment, in no particular order. */
+    private int[] topHits(LeafReader reader) throws IOException {
+      final int numTerms = terms.length;
+      final ImpactPostings[] postings = new ImpactPostings[numTerms];
+      // upper bound of the contribution of each term to the documents it has not been read for yet
+      final float[] bounds = new float[numTerms];
+      for (int i = 0; i < numTerms; i++) {
+        if (weights[i] > 0) {
+          postings[i] = ImpactOrderedTerms.impactPostings(reader.terms(terms[i].field()), terms[i].bytes());
+          if (postings[i] != null && postings[i].nextSegment()) {
+            bounds[i] = score(weights[i], postings[i].impact());
+          }
+        }
+      }
+
+      final Bits liveDocs = reader.getLiveDocs();
+      final TopHitsQueue queue = new TopHitsQueue(Math.min(k, reader.maxDoc()));
+      // greatest partial score of a document that is not in the queue
+      float maxOutside = 0;
+      long budget = maxPostings;
+      int[] docs = new int[0];
+
+      while (budget > 0) {
+        int next = -1;
+        float remaining = 0;
+        for (int i = 0; i < numTerms; i++) {
+          remaining += bounds[i];
+          if (bounds[i] > 0 && (next == -1 || bounds[i] > bounds[next])) {
+            next = i;
+          }
+        }
+        if (next == -1) {
+          break;
+        }
+        if (queue.size() == k && queue.score(queue.top()) > maxOutside + remaining) {
+          // no document can enter the top hits anymore
+          break;
+        }
+
+        final ImpactPostings segment = postings[next];
+        final float contribution = bounds[next];
+        if (docs.length < segment.docCount()) {
+          docs = new int[ArrayUtil.oversize(segment.docCount(), Integer.BYTES)];
+        }
+        final int count = segment.readDocs(docs);
+        for (int j = 0; j < count; j++) {
+          final int doc = docs[j];
+          if (liveDocs != null && liveDocs.get(doc) == false) {
+            continue;
+          }
+          final int slot = queue.addScore(doc, contribution);
+          if (queue.contains(slot)) {
+            queue.updateScore(slot);
+          } else if (queue.size() < k) {
+            queue.add(slot);
+          } else if (queue.lessThan(queue.top(), slot)) {
+            maxOutside = Math.max(maxOutside, queue.score(queue.updateTop(slot)));
+          } else {
+            maxOutside = Math.max(maxOutside, queue.score(slot));
+          }
+        }
+        budget -= count;
+        bounds[next] = segment.nextSegment() ? score(weights[next], segment.impact()) : 0;
+      }
+
+      return queue.docs();
+    }
+
+    private PostingsEnum postings(LeafReader reader, Term term) throws IOException {
+      final Terms terms = reader.terms(term.field());
+      if (terms == null) {
+        return null;
+      }
+      final TermsEnum termsEnum = terms.iterator();
+      if (termsEnum.seekExact(term.bytes()) == false) {
+        return null;
+      }
+      return termsEnum.postings(null, PostingsEnum.FREQS);
+    }
+
+    @Override
+    public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+      Scorer scorer = scorer(context);
+      if (scorer == null || scorer.iterator().advance(doc) != doc) {
+        return Explanation.noMatch("not a top " + k + " hit of the segment");
+      }
+      List<Explanation> details = new ArrayList<>();
+      for (int i = 0; i < terms.length; i++) {
+        PostingsEnum postings = postings(context.reader(), terms[i]);
+        if (postings != null && postings.advance(doc) == doc) {
+          int impact = ImpactPostings.impact(postings.freq());
+          details.add(Explanation.match(score(weights[i], impact), "weight(" + terms[i] + "), product of:",
+              Explanation.match(weights[i], "boost * idf"),
+              Explanation.match(impact / (impact + K1), "impact / (impact + k1), computed from:",
+                  Explanation.match(impact, "impact"),
+                  Explanation.match(K1, "parameter k1"))));
+        }
+      }
+      return Explanation.match(scorer.score(), "sum of:", details);
+    }
+  }
+
+  /**
+   * A min-heap of the current top hits, ordered by partial score and then by
+   * decreasing doc id. The partial scores of all documents read so far are kept
+   * in an open addressing hash table, so that memory grows with the number of
+   * candidates rather than with the number of documents of the segment. The heap
+   * refers to documents by their slot in the table, and the table also keeps
+   * track of the position of each slot in the heap so that its score can be
+   * increased in place.
+   */
+  private static final class TopHitsQueue {
+
+    private static final int EMPTY = -1;
+    private static final int MAX_BITS = 30;
+
+    private final int[] heap;
+    private int size;
+
+    // hash table of candidates, indexed by slot
+    private int[] docs;
+    private float[] scores;
+    // position of each slot in the heap, 0 if absent
+    private int[] positions;
+    private int shift;
+    private int numCandidates;
+
+    TopHitsQueue(int maxSize) {
+      this.heap = new int[maxSize + 1];
+      // room for twice the number of top hits before the table needs to grow
+      final int bits = 64 - Long.numberOfLeadingZeros(Math.max(16, 4L * maxSize) - 1);
+      allocate(Math.min(bits, MAX_BITS));
+    }
+
+    private void allocate(int bits) {
+      docs = new int[1 << bits];
+      Arrays.fill(docs, EMPTY);
+      scores = new float[1 << bits];
+      positions = new int[1 << bits];
+      shift = 32 - bits;
+    }
+
+    private int hash(int doc) {
+      // fibonacci hashing spreads the dense doc ids of a segment over the table
+      return (doc * 0x9E3779B9) >>> shift;
+    }
+
+    /** Returns the slot of {@code doc}, or the empty slot where it should be inserted. */
+    private int find(int doc) {
+      final int mask = docs.length - 1;
+      int slot = hash(doc);
+      while (docs[slot] != EMPTY && docs[slot] != doc) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /** Adds {@code score} to the partial score of {@code doc} and returns the slot of {@code doc}. */
+    int addScore(int doc, float score) {
+      int slot = find(doc);
+      if (docs[slot] == EMPTY) {
+        if (numCandidates + 1 > (docs.length >>> 2) * 3) {
+          grow();
+          slot = find(doc);
+        }
+        docs[slot] = doc;
+        numCandidates++;
+      }
+      scores[slot] += score;
+      return slot;
+    }
+
+    private void grow() {
+      final int[] oldDocs = docs;
+      final float[] oldScores = scores;
+      final int[] oldPositions = positions;
+      final int bits = 33 - shift;
+      if (bits > MAX_BITS) {
+        throw new IllegalStateException("Too many candidate hits: " + numCandidates);
+      }
+      allocate(bits);
+      for (int oldSlot = 0; oldSlot < oldDocs.length; oldSlot++) {
+        if (oldDocs[oldSlot] != EMPTY) {
+          final int slot = find(oldDocs[oldSlot]);
+          docs[slot] = oldDocs[oldSlot];
+          scores[slot] = oldScores[oldSlot];
+          final int position = oldPositions[oldSlot];
+          positions[slot] = position;
+          if (position != 0) {
+            heap[position] = slot;
+          }
+        }
+      }
+    }
+
+    float score(int slot) {
+      return scores[slot];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int top() {
+      return heap[1];
+    }
+
+    boolean contains(int slot) {
+      return positions[slot] != 0;
+    }
+
+    /** Whether {@code a} is a worse hit than {@code b}. */
+    boolean lessThan(int a, int b) {
+      return scores[a] < scores[b] || (scores[a] == scores[b] && docs[a] > docs[b]);
+    }
+
+    void add(int slot) {
+      size++;
+      heap[size] = slot;
+      positions[slot] = size;
+      upHeap(size);
+    }
+
+    /** Replaces the top of the heap with {@code slot} and returns the evicted slot. */
+    int updateTop(int slot) {
+      int evicted = heap[1];
+      positions[evicted] = 0;
+      heap[1] = slot;
+      positions[slot] = 1;
+      downHeap(1);
+      return evicted;
+    }
+
+    /** Restores the heap order after the score of {@code slot}, which is in the heap, increased. */
+    void updateScore(int slot) {
+      downHeap(positions[slot]);
+    }
+
+    int[] docs() {
+      final int[] topDocs = new int[size];
+      for (int i = 0; i < size; i++) {
+        topDocs[i] = docs[heap[i + 1]];
+      }
+      return topDocs;
+    }
+
+    private void upHeap(int i) {
+      final int slot = heap[i];
+      int j = i >>> 1;
+      while (j > 0 && lessThan(slot, heap[j])) {
+        heap[i] = heap[j];
+        positions[heap[i]] = i;
+        i = j;
+        j = i >>> 1;
+      }
+      heap[i] = slot;
+      positions[slot] = i;
+    }
+
+    private void downHeap(int i) {
+      final int slot = heap[i];
+      int j = i << 1;
+      if (j < size && lessThan(heap[j + 1], heap[j])) {
+        j++;
+      }
+      while (j <= size && lessThan(heap[j], slot)) {
+        heap[i] = heap[j];
+        positions[heap[i]] = i;
+        i = j;
+        j = i << 1;
+        if (j < size && lessThan(heap[j + 1], heap[j])) {
+          j++;
+        }
+      }
+      heap[i] = slot;
+      positions[slot] = i;
+    }
+  }
+
+  /** Iterates over the top hits of a segment, in doc id order. */
+  private static final class TopHitsScorer extends Scorer {
+
+    private final int[] docs;
+    private final float[] scores;
+    private final int[] freqs;
+    private int i = -1;
+    private int doc = -1;
+
+    TopHitsScorer(Weight weight, int[] docs, float[] scores, int[] freqs) {
+      super(weight);
+      this.docs = docs;
+      this.scores = scores;
+      this.freqs = freqs;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public float score() {
+      return scores[i];
+    }
+
+    @Override
+    public int freq() {
+      return freqs[i];
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      return new DocIdSetIterator() {
+
+        @Override
+        public int docID() {
+          return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+          return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+          while (++i < docs.length) {
+            if (docs[i] >= target) {
+              return doc = docs[i];
+            }
+          }
+          return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() {
+          return docs.length;
+        }
+      };
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    StringBuilder buffer = new StringBuilder("ImpactOrdered(");
+    buffer.append(query.toString(field));
+    buffer.append(", k=").append(k);
+    if (maxPostings != Long.MAX_VALUE) {
+      buffer.append(", maxPostings=").append(maxPostings);
+    }
+    return buffer.append(")").toString();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) &&
+        query.equals(((ImpactOrderedQuery) other).query) &&
+        k == ((ImpactOrderedQuery) other).k &&
+        maxPostings == ((ImpactOrderedQuery) other).maxPostings;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = classHash();
+    h = 31 * h + query.hashCode();
+    h = 31 * h + k;
+    h = 31 * h + Long.hashCode(maxPostings);
+    return h;
+  }
+}
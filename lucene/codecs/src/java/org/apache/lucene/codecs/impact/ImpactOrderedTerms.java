@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.impact;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.FilterLeafReader.FilterTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * {@link Terms} of a field written with {@link ImpactOrderedPostingsFormat}:
+ * in addition to the document-ordered postings of the delegate format, they
+ * give access to the {@link ImpactPostings} of their terms.
+ *
+ * @lucene.experimental
+ */
+public final class ImpactOrderedTerms extends FilterTerms {
+
+  private final FST<Long> index;
+  private final IndexInput impactsIn;
+
+  ImpactOrderedTerms(Terms in, FST<Long> index, IndexInput impactsIn) {
+    super(in);
+    this.index = index;
+    this.impactsIn = impactsIn;
+  }
+
+  /**
+   * Returns the impact-ordered postings of the given term, or null if the term
+   * does not exist or was too infrequent to be stored ordered by impact.
+   */
+  public ImpactPostings impactPostings(BytesRef term) throws IOException {
+    Long fp = Util.get(index, term);
+    if (fp == null) {
+      return null;
+    }
+    IndexInput in = impactsIn.clone();
+    in.seek(fp);
+    return new ImpactPostings.OnDisk(in);
+  }
+
+  /**
+   * Returns the impact-ordered postings of the given term, reading them from
+   * the index when possible and otherwise sorting its document-ordered
+   * postings in memory. Returns null if the term does not exist.
+   */
+  public static ImpactPostings impactPostings(Terms terms, BytesRef term) throws IOException {
+    if (terms == null) {
+      return null;
+    }
+    if (terms instanceof ImpactOrderedTerms) {
+      ImpactPostings postings = ((ImpactOrderedTerms) terms).impactPostings(term);
+      if (postings != null) {
+        return postings;
+      }
+    }
+    TermsEnum termsEnum = terms.iterator();
+    if (termsEnum.seekExact(term) == false) {
+      return null;
+    }
+    return ImpactPostings.fromPostings(termsEnum);
+  }
+}
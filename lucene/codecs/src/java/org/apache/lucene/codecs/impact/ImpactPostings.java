@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.impact;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * The postings of a single term, partitioned into segments of documents
+ * that share the same quantized impact. Segments are returned from the
+ * highest impact to the lowest, and the documents of a segment are in
+ * increasing order.
+ * <p>
+ * Call {@link #nextSegment()} to position on a segment, at which point
+ * {@link #impact()} and {@link #docCount()} are available before the
+ * documents are read with {@link #readDocs(int[])}.
+ *
+ * @lucene.experimental
+ */
+public abstract class ImpactPostings {
+
+  /** The greatest impact, any higher frequency is quantized to this value. */
+  public static final int MAX_IMPACT = 255;
+
+  /** Returns the quantized impact of a term that occurs {@code freq} times in a document. */
+  public static int impact(int freq) {
+    assert freq > 0;
+    return Math.min(freq, MAX_IMPACT);
+  }
+
+  /** Sole constructor. */
+  protected ImpactPostings() {
+  }
+
+  /** Moves to the next segment, returning false once all segments have been consumed. */
+  public abstract boolean nextSegment() throws IOException;
+
+  /** Returns the impact, between 1 and {@link #MAX_IMPACT}, of the current segment. */
+  public abstract int impact();
+
+  /** Returns the number of documents in the current segment. */
+  public abstract int docCount();
+
+  /**
+   * Reads the documents of the current segment into {@code docs}, which must
+   * have room for at least {@link #docCount()} entries, and returns their count.
+   * This may only be called once per segment.
+   */
+  public abstract int readDocs(int[] docs) throws IOException;
+
+  /**
+   * Returns impact-ordered postings for the term the given {@link TermsEnum}
+   * is positioned on, built in memory from its document-ordered postings.
+   * This is the fallback for terms that the index does not store ordered by
+   * impact.
+   */
+  public static ImpactPostings fromPostings(TermsEnum termsEnum) throws IOException {
+    final int[] counts = new int[MAX_IMPACT + 1];
+    int[] docs = new int[Math.max(1, termsEnum.docFreq())];
+    int[] impacts = new int[docs.length];
+    int numDocs = 0;
+    PostingsEnum postings = termsEnum.postings(null, PostingsEnum.FREQS);
+    for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+      if (numDocs == docs.length) {
+        docs = ArrayUtil.grow(docs, numDocs + 1);
+        impacts = ArrayUtil.grow(impacts, docs.length);
+      }
+      final int impact = impact(postings.freq());
+      docs[numDocs] = doc;
+      impacts[numDocs] = impact;
+      counts[impact]++;
+      numDocs++;
+    }
+    return new InMemory(docs, impacts, numDocs, counts);
+  }
+
+  /** Impact-ordered postings that were sorted in memory. */
+  private static class InMemory extends ImpactPostings {
+
+    private final int[] sortedDocs;
+    private final int[] segmentImpacts;
+    private final int[] segmentStarts;
+    private int segment = -1;
+
+    InMemory(int[] docs, int[] impacts, int numDocs, int[] counts) {
+      int numSegments = 0;
+      for (int count : counts) {
+        if (count > 0) {
+          numSegments++;
+        }
+      }
+      segmentImpacts = new int[numSegments];
+      segmentStarts = new int[numSegments + 1];
+      final int[] offsets = new int[counts.length];
+      int upto = 0;
+      int s = 0;
+      for (int impact = MAX_IMPACT; impact > 0; impact--) {
+        if (counts[impact] > 0) {
+          segmentImpacts[s] = impact;
+          segmentStarts[s] = upto;
+          offsets[impact] = upto;
+          upto += counts[impact];
+          s++;
+        }
+      }
+      segmentStarts[numSegments] = upto;
+      // stable counting sort, so docs stay in order within a segment
+      sortedDocs = new int[numDocs];
+      for (int i = 0; i < numDocs; i++) {
+        sortedDocs[offsets[impacts[i]]++] = docs[i];
+      }
+    }
+
+    @Override
+    public boolean nextSegment() {
+      return ++segment < segmentImpacts.length;
+    }
+
+    @Override
+    public int impact() {
+      return segmentImpacts[segment];
+    }
+
+    @Override
+    public int docCount() {
+      return segmentStarts[segment + 1] - segmentStarts[segment];
+    }
+
+    @Override
+    public int readDocs(int[] docs) {
+      final int count = docCount();
+      System.arraycopy(sortedDocs, segmentStarts[segment], docs, 0, count);
+      return count;
+    }
+  }
+
+  /** Impact-ordered postings read from an {@link ImpactOrderedPostingsFormat} file. */
+  static class OnDisk extends ImpactPostings {
+
+    private final IndexInput in;
+    private int remainingSegments;
+    private int impact;
+    private int docCount;
+    private boolean docsRead = true;
+
+    OnDisk(IndexInput in) throws IOException {
+      this.in = in;
+      remainingSegments = in.readVInt();
+    }
+
+    @Override
+    public boolean nextSegment() throws IOException {
+      if (docsRead == false) {
+        // skip the documents of the current segment
+        for (int i = 0; i < docCount; i++) {
+          in.readVInt();
+        }
+      }
+      if (remainingSegments == 0) {
+        return false;
+      }
+      remainingSegments--;
+      impact = in.readByte() & 0xFF;
+      docCount = in.readVInt();
+      docsRead = false;
+      return true;
+    }
+
+    @Override
+    public int impact() {
+      return impact;
+    }
+
+    @Override
+    public int docCount() {
+      return docCount;
+    }
+
+    @Override
+    public int readDocs(int[] docs) throws IOException {
+      assert docsRead == false;
+      int doc = 0;
+      for (int i = 0; i < docCount; i++) {
+        doc += in.readVInt();
+        docs[i] = doc;
+      }
+      docsRead = true;
+      return docCount;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.impact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestImpactOrderedQuery extends LuceneTestCase {
+
+  private static final String FIELD = "body";
+
+  public void testRandom() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(TestUtil.alwaysPostingsFormat(
+        new ImpactOrderedPostingsFormat(new Lucene50PostingsFormat(), TestUtil.nextInt(random(), 1, 50))));
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+    final int numTerms = TestUtil.nextInt(random(), 2, 10);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+      StringBuilder text = new StringBuilder();
+      final int numTokens = random().nextInt(20);
+      for (int j = 0; j < numTokens; j++) {
+        // skewed, so that some terms have high frequencies
+        text.append(" t").append(random().nextInt(1 + random().nextInt(numTerms)));
+      }
+      doc.add(new TextField(FIELD, text.toString(), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    final int numDeletes = random().nextInt(numDocs / 10);
+    for (int i = 0; i < numDeletes; i++) {
+      w.deleteDocuments(new Term("id", Integer.toString(random().nextInt(numDocs))));
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    for (int iter = 0; iter < 50; iter++) {
+      final int numClauses = TestUtil.nextInt(random(), 1, Math.min(4, numTerms));
+      Query query;
+      List<Term> terms = new ArrayList<>();
+      float[] boosts = new float[numClauses];
+      if (numClauses == 1 && random().nextBoolean()) {
+        terms.add(new Term(FIELD, "t" + random().nextInt(numTerms)));
+        boosts[0] = 1f;
+        query = new TermQuery(terms.get(0));
+      } else {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        List<Integer> ords = new ArrayList<>();
+        for (int i = 0; i < numTerms; i++) {
+          ords.add(i);
+        }
+        Collections.shuffle(ords, random());
+        for (int i = 0; i < numClauses; i++) {
+          Term term = new Term(FIELD, "t" + ords.get(i));
+          terms.add(term);
+          boosts[i] = random().nextBoolean() ? 1f : 1 + random().nextInt(5);
+          Query clause = new TermQuery(term);
+          if (boosts[i] != 1f) {
+            clause = new BoostQuery(clause, boosts[i]);
+          }
+          builder.add(clause, Occur.SHOULD);
+        }
+        query = builder.build();
+      }
+
+      final int k = TestUtil.nextInt(random(), 1, 20);
+      float[] expected = exactScores(searcher, terms, boosts);
+      float[] sorted = expected.clone();
+      Arrays.sort(sorted);
+
+      TopDocs topDocs = searcher.search(new ImpactOrderedQuery(query, k), k);
+      int numMatches = 0;
+      for (float score : expected) {
+        if (score > 0) {
+          numMatches++;
+        }
+      }
+      assertEquals(Math.min(k, numMatches), topDocs.scoreDocs.length);
+      for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+        ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+        assertEquals(expected[scoreDoc.doc], scoreDoc.score, 1e-5f);
+        assertEquals(sorted[sorted.length - 1 - i], scoreDoc.score, 1e-5f);
+      }
+      if (topDocs.scoreDocs.length > 0) {
+        ScoreDoc top = topDocs.scoreDocs[0];
+        assertEquals(top.score, searcher.explain(new ImpactOrderedQuery(query, k), top.doc).getValue(), 1e-5f);
+      }
+
+      // with a budget, hits are approximate but their scores are exact
+      TopDocs approximate = searcher.search(new ImpactOrderedQuery(query, k, TestUtil.nextInt(random(), 1, 100)), k);
+      assertTrue(approximate.scoreDocs.length <= k);
+      for (ScoreDoc scoreDoc : approximate.scoreDocs) {
+        assertEquals(expected[scoreDoc.doc], scoreDoc.score, 1e-5f);
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+  /** Brute-force scores of all documents, indexed by top-level doc id. */
+  private static float[] exactScores(IndexSearcher searcher, List<Term> terms, float[] boosts) throws IOException {
+    IndexReader reader = searcher.getIndexReader();
+    float[] scores = new float[reader.maxDoc()];
+    CollectionStatistics collectionStats = searcher.collectionStatistics(FIELD);
+    long docCount = collectionStats.docCount() == -1 ? collectionStats.maxDoc() : collectionStats.docCount();
+    for (int i = 0; i < terms.size(); i++) {
+      Term term = terms.get(i);
+      int docFreq = reader.docFreq(term);
+      float weight = 1f * boosts[i] * (float) Math.log(1 + (docCount - docFreq + 0.5D) / (docFreq + 0.5D));
+      for (LeafReaderContext context : reader.leaves()) {
+        LeafReader leafReader = context.reader();
+        if (leafReader.terms(FIELD) == null) {
+          continue;
+        }
+        TermsEnum termsEnum = leafReader.terms(FIELD).iterator();
+        if (termsEnum.seekExact(term.bytes()) == false) {
+          continue;
+        }
+        Bits liveDocs = leafReader.getLiveDocs();
+        PostingsEnum postings = termsEnum.postings(null, PostingsEnum.FREQS);
+        for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+          if (liveDocs == null || liveDocs.get(doc)) {
+            int impact = ImpactPostings.impact(postings.freq());
+            scores[context.docBase + doc] += weight * impact / (impact + ImpactOrderedQuery.K1);
+          }
+        }
+      }
+    }
+    return scores;
+  }
+
+  public void testOnlyDisjunctions() {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    builder.add(new TermQuery(new Term(FIELD, "a")), Occur.SHOULD);
+    builder.add(new TermQuery(new Term(FIELD, "b")), Occur.MUST);
+    expectThrows(IllegalArgumentException.class, () -> new ImpactOrderedQuery(builder.build(), 10));
+
+    BooleanQuery.Builder nested = new BooleanQuery.Builder();
+    nested.add(new TermQuery(new Term(FIELD, "a")), Occur.SHOULD);
+    nested.add(new TermQuery(new Term(FIELD, "b")), Occur.SHOULD);
+    nested.setMinimumNumberShouldMatch(2);
+    expectThrows(IllegalArgumentException.class, () -> new ImpactOrderedQuery(nested.build(), 10));
+  }
+
+  public void testEqualsAndHashCode() {
+    Query q = new TermQuery(new Term(FIELD, "a"));
+    assertEquals(new ImpactOrderedQuery(q, 10), new ImpactOrderedQuery(q, 10));
+    assertEquals(new ImpactOrderedQuery(q, 10).hashCode(), new ImpactOrderedQuery(q, 10).hashCode());
+    assertFalse(new ImpactOrderedQuery(q, 10).equals(new ImpactOrderedQuery(q, 5)));
+    assertFalse(new ImpactOrderedQuery(q, 10).equals(new ImpactOrderedQuery(q, 10, 100)));
+  }
+}
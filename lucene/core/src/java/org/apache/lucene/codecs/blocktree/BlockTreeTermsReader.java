@@ -36,7 +36,9 @@ import org.apache.lucene.index.SegmentReadState;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.PrefixQuery;  // javadocs
 import org.apache.lucene.search.TermRangeQuery;  // javadocs
+import org.apache.lucene.store.BufferedIndexInput;
 import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RandomAccessInput;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.BytesRef;
@@ -140,8 +142,50 @@ public final class BlockTreeTermsReader extends FieldsProducer {
 
   final boolean anyAutoPrefixTerms;
 
-  /** Sole constructor. */
+  /** How the terms index FST of each field is loaded. */
+  public enum FSTLoadMode {
+    /** Copy the terms index FST to the heap. */
+    ON_HEAP,
+    /** Read the terms index FST directly from the terms index file,
+     *  which is kept open as long as this reader. */
+    OFF_HEAP,
+    /** Read the terms index FST directly from the terms index file
+     *  if it supports unbuffered random access, such as when it is
+     *  memory-mapped, otherwise copy it to the heap. */
+    AUTO
+  }
+
+  private static volatile FSTLoadMode defaultFSTLoadMode = FSTLoadMode.ON_HEAP;
+
+  /** Sets the {@link FSTLoadMode} used by readers that are created
+   *  without an explicit one, such as those of the default postings
+   *  format.  This only affects segments opened afterwards. */
+  public static void setDefaultFSTLoadMode(FSTLoadMode fstLoadMode) {
+    if (fstLoadMode == null) {
+      throw new IllegalArgumentException("fstLoadMode must not be null");
+    }
+    defaultFSTLoadMode = fstLoadMode;
+  }
+
+  /** Returns the default {@link FSTLoadMode}.
+   *  @see #setDefaultFSTLoadMode(FSTLoadMode) */
+  public static FSTLoadMode getDefaultFSTLoadMode() {
+    return defaultFSTLoadMode;
+  }
+
+  /** Open input to the terms index file (_X.tip), only kept open
+   *  when the terms index is read off-heap. */
+  private final IndexInput indexIn;
+
+  /** Creates a reader that loads the terms index according to
+   *  {@link #getDefaultFSTLoadMode()}. */
   public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state) throws IOException {
+    this(postingsReader, state, defaultFSTLoadMode);
+  }
+
+  /** Creates a reader that loads the terms index according to
+   *  {@code fstLoadMode}. */
+  public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state, FSTLoadMode fstLoadMode) throws IOException {
     boolean success = false;
     IndexInput indexIn = null;
     
@@ -176,6 +220,8 @@ public final class BlockTreeTermsReader extends FieldsProducer {
       indexIn = state.directory.openInput(indexName, state.context);
       CodecUtil.checkIndexHeader(indexIn, TERMS_INDEX_CODEC_NAME, version, version, state.segmentInfo.getId(), state.segmentSuffix);
       CodecUtil.checksumEntireFile(indexIn);
+      final boolean offHeapIndex = fstLoadMode == FSTLoadMode.OFF_HEAP
+          || (fstLoadMode == FSTLoadMode.AUTO && indexIn instanceof RandomAccessInput && (indexIn instanceof BufferedIndexInput) == false);
 
       // Have PostingsReader init itself
       postingsReader.init(termsIn, state);
@@ -233,13 +279,18 @@ public final class BlockTreeTermsReader extends FieldsProducer {
         final long indexStartFP = indexIn.readVLong();
         FieldReader previous = fields.put(fieldInfo.name,       
                                           new FieldReader(this, fieldInfo, numTerms, rootCode, sumTotalTermFreq, sumDocFreq, docCount,
-                                                          indexStartFP, longsSize, indexIn, minTerm, maxTerm));
+                                                          indexStartFP, longsSize, indexIn, offHeapIndex, minTerm, maxTerm));
         if (previous != null) {
           throw new CorruptIndexException("duplicate field: " + fieldInfo.name, termsIn);
         }
       }
       
-      indexIn.close();
+      if (offHeapIndex) {
+        this.indexIn = indexIn;
+      } else {
+        this.indexIn = null;
+        indexIn.close();
+      }
       success = true;
     } finally {
       if (!success) {
@@ -273,7 +324,7 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   @Override
   public void close() throws IOException {
     try {
-      IOUtils.close(termsIn, postingsReader);
+      IOUtils.close(termsIn, indexIn, postingsReader);
     } finally { 
       // Clear so refs to terms index is GCable even if
       // app hangs onto us:
@@ -90,6 +90,7 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
   private final BlockState state;
   private final long numChunks; // number of compressed blocks written
   private final long numDirtyChunks; // number of incomplete compressed blocks written
+  private final long dictionaryLength; // number of bytes of the compression dictionary
   private boolean closed;
 
   // used by clone
@@ -106,6 +107,7 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     this.numDocs = reader.numDocs;
     this.numChunks = reader.numChunks;
     this.numDirtyChunks = reader.numDirtyChunks;
+    this.dictionaryLength = reader.dictionaryLength;
     this.merging = merging;
     this.state = new BlockState();
     this.closed = false;
@@ -159,6 +161,9 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       chunkSize = fieldsStream.readVInt();
       packedIntsVersion = fieldsStream.readVInt();
       decompressor = compressionMode.newDecompressor();
+      final long dictionaryStart = fieldsStream.getFilePointer();
+      decompressor.readDictionary(fieldsStream);
+      dictionaryLength = fieldsStream.getFilePointer() - dictionaryStart;
       this.merging = false;
       this.state = new BlockState();
       
@@ -650,6 +655,10 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     return numDirtyChunks;
   }
 
+  long getDictionaryLength() {
+    return dictionaryLength;
+  }
+
   int getPackedIntsVersion() {
     return packedIntsVersion;
   }
@@ -89,6 +89,7 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
   
   private long numChunks; // number of compressed blocks written
   private long numDirtyChunks; // number of incomplete compressed blocks written
+  private boolean dictionaryWritten; // whether the compression dictionary precedes the first chunk
 
   /** Sole constructor. */
   public CompressingStoredFieldsWriter(Directory directory, SegmentInfo si, String segmentSuffix, IOContext context,
@@ -215,7 +216,18 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
         numBufferedDocs >= maxDocsPerChunk;
   }
 
+  private void writeDictionary(byte[] sample, int len) throws IOException {
+    // the dictionary goes right before the first chunk so that readers find it without a pointer
+    assert dictionaryWritten == false;
+    compressor.writeDictionary(sample, 0, len, fieldsStream);
+    dictionaryWritten = true;
+  }
+
   private void flush() throws IOException {
+    if (dictionaryWritten == false) {
+      // the first chunk of the segment is the sample
+      writeDictionary(bufferedDocs.getBytes(), bufferedDocs.getPosition());
+    }
     indexWriter.writeIndex(numBufferedDocs, fieldsStream.getFilePointer());
 
     // transform end offsets into lengths
@@ -465,6 +477,9 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
     if (docBase != numDocs) {
       throw new RuntimeException("Wrote " + docBase + " docs, finish called with numDocs=" + numDocs);
     }
+    if (dictionaryWritten == false) {
+      writeDictionary(bufferedDocs.getBytes(), 0);
+    }
     indexWriter.finish(numDocs, fieldsStream.getFilePointer());
     fieldsStream.writeVLong(numChunks);
     fieldsStream.writeVLong(numDirtyChunks);
@@ -531,6 +546,7 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
       } else if (matchingFieldsReader.getCompressionMode() == compressionMode && 
                  matchingFieldsReader.getChunkSize() == chunkSize && 
                  matchingFieldsReader.getPackedIntsVersion() == PackedInts.VERSION_CURRENT &&
+                 matchingFieldsReader.getDictionaryLength() == 0 &&
                  liveDocs == null &&
                  !tooDirty(matchingFieldsReader)) { 
         // optimized merge, raw byte copy
@@ -545,6 +561,10 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
           flush();
           numDirtyChunks++; // incomplete: we had to force this flush
         }
+        if (dictionaryWritten == false) {
+          // same compression mode as a reader without a dictionary: writes nothing
+          writeDictionary(bufferedDocs.getBytes(), 0);
+        }
         
         // iterate over each chunk. we use the stored fields index to find chunk boundaries,
         // read the docstart + doccount from the chunk header (we write a new header, since doc numbers will change),
@@ -25,6 +25,7 @@ import java.util.zip.Inflater;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.GrowableByteArrayDataOutput;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 
@@ -113,6 +114,62 @@ public abstract class CompressionMode {
 
   };
 
+  /**
+   * This compression mode is similar to {@link #FAST_DECOMPRESSION}, but it
+   * splits data into sub-blocks that are compressed independently, except
+   * that all of them may refer to a small dictionary made of the first bytes
+   * of the data. The offsets of the sub-blocks are recorded so that only the
+   * dictionary and the sub-blocks that contain the requested bytes need to be
+   * decompressed. This mode is best used with large chunks, that compress
+   * well, when documents are mostly loaded one at a time.
+   */
+  public static final CompressionMode FAST_DECOMPRESSION_SUB_BLOCKS = new CompressionMode() {
+
+    @Override
+    public Compressor newCompressor() {
+      return new LZ4SubBlocksCompressor();
+    }
+
+    @Override
+    public Decompressor newDecompressor() {
+      return new LZ4SubBlocksDecompressor();
+    }
+
+    @Override
+    public String toString() {
+      return "FAST_DECOMPRESSION_SUB_BLOCKS";
+    }
+
+  };
+
+  /**
+   * This compression mode is similar to {@link #HIGH_COMPRESSION}, but every
+   * chunk is compressed with a preset dictionary that is sampled from the
+   * first chunk of the segment. This helps with small documents that share a
+   * lot of content, such as documents that have the same fields, which
+   * otherwise compress poorly since each chunk is compressed independently.
+   * Since the dictionary makes up for the lack of context, this mode can be
+   * used with smaller chunks, which are cheaper to decompress.
+   */
+  public static final CompressionMode HIGH_COMPRESSION_WITH_DICTIONARY = new CompressionMode() {
+
+    @Override
+    public Compressor newCompressor() {
+      return new DeflateCompressor(6, DEFLATE_DICTIONARY_LENGTH);
+    }
+
+    @Override
+    public Decompressor newDecompressor() {
+      return new DeflateDecompressor(true);
+    }
+
+    @Override
+    public String toString() {
+      return "HIGH_COMPRESSION_WITH_DICTIONARY";
+    }
+
+  };
+
   /** Sole constructor. */
   protected CompressionMode() {}
 
@@ -182,14 +239,176 @@ public abstract class CompressionMode {
 
   }
 
+  /** Maximum length of deflate dictionaries, half the deflate window so
+   *  that chunks of up to the same size can still refer to all of it. */
+  static final int DEFLATE_DICTIONARY_LENGTH = 16 * 1024;
+
+  /** Length of the slices of the sample that make up a dictionary. */
+  static final int DICTIONARY_SLICE_LENGTH = 256;
+
+  /** Number of sub-blocks of {@link #FAST_DECOMPRESSION_SUB_BLOCKS}, on top of the dictionary. */
+  static final int NUM_SUB_BLOCKS = 10;
+
+  /** Ratio of the length of a sub-block to the length of the dictionary. */
+  static final int SUB_BLOCK_DICTIONARY_FACTOR = 2;
+
+  private static final class LZ4SubBlocksDecompressor extends Decompressor {
+
+    private int[] compressedLengths;
+    private byte[] buffer;
+
+    LZ4SubBlocksDecompressor() {
+      compressedLengths = new int[NUM_SUB_BLOCKS + 1];
+      buffer = BytesRef.EMPTY_BYTES;
+    }
+
+    @Override
+    public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
+      assert offset + length <= originalLength;
+      if (length == 0) {
+        bytes.length = 0;
+        return;
+      }
+      final int dictLength = in.readVInt();
+      final int blockLength = in.readVInt();
+      if (dictLength > originalLength || (blockLength == 0 && dictLength < originalLength)) {
+        throw new CorruptIndexException("Invalid sub-blocks: dictLength=" + dictLength + ", blockLength=" + blockLength
+            + ", originalLength=" + originalLength, in);
+      }
+      final int numBlocks = blockLength == 0 ? 0 : (originalLength - dictLength + blockLength - 1) / blockLength;
+      if (numBlocks > NUM_SUB_BLOCKS) {
+        throw new CorruptIndexException("Too many sub-blocks: " + numBlocks, in);
+      }
+      for (int i = 0; i <= numBlocks; ++i) {
+        compressedLengths[i] = in.readVInt();
+      }
+
+      // add 7 padding bytes, this is not necessary but can help decompression run faster
+      buffer = ArrayUtil.grow(buffer, dictLength + blockLength + 7);
+      decompressBlock(in, 0, dictLength);
+
+      // position in the original data of bytes.bytes[0]
+      final int outStart;
+      bytes.offset = bytes.length = 0;
+      if (offset < dictLength) {
+        outStart = 0;
+        bytes.bytes = ArrayUtil.grow(bytes.bytes, dictLength);
+        System.arraycopy(buffer, 0, bytes.bytes, 0, dictLength);
+        bytes.length = dictLength;
+      } else {
+        outStart = dictLength + (offset - dictLength) / blockLength * blockLength;
+      }
+
+      for (int i = 0; i < numBlocks; ++i) {
+        final int blockStart = dictLength + i * blockLength;
+        if (blockStart >= offset + length) {
+          break;
+        }
+        final int blockEnd = Math.min(blockStart + blockLength, originalLength);
+        if (blockEnd <= offset) {
+          // before the requested bytes: skip
+          in.skipBytes(compressedLengths[i + 1]);
+          continue;
+        }
+        decompressBlock(in, dictLength, blockEnd - blockStart);
+        bytes.bytes = ArrayUtil.grow(bytes.bytes, bytes.length + blockEnd - blockStart);
+        System.arraycopy(buffer, dictLength, bytes.bytes, bytes.length, blockEnd - blockStart);
+        bytes.length += blockEnd - blockStart;
+      }
+
+      bytes.offset = offset - outStart;
+      bytes.length = length;
+    }
+
+    /** Decompress a block of <code>len</code> bytes to <code>buffer[dOff:]</code>. */
+    private void decompressBlock(DataInput in, int dOff, int len) throws IOException {
+      final int decompressedLength = LZ4.decompress(in, dOff + len, buffer, dOff) - dOff;
+      if (decompressedLength != len) {
+        throw new CorruptIndexException("Corrupted: lengths mismatch: " + decompressedLength + " != " + len, in);
+      }
+    }
+
+    @Override
+    public Decompressor clone() {
+      return new LZ4SubBlocksDecompressor();
+    }
+
+  }
+
+  private static final class LZ4SubBlocksCompressor extends Compressor {
+
+    private final LZ4.HCHashTable ht;
+    private final GrowableByteArrayDataOutput compressed;
+    private final int[] compressedLengths;
+    private byte[] buffer;
+
+    LZ4SubBlocksCompressor() {
+      ht = new LZ4.HCHashTable();
+      compressed = new GrowableByteArrayDataOutput(1024);
+      compressedLengths = new int[NUM_SUB_BLOCKS + 1];
+      buffer = BytesRef.EMPTY_BYTES;
+    }
+
+    @Override
+    public void compress(byte[] bytes, int off, int len, DataOutput out) throws IOException {
+      final int dictLength = len / (NUM_SUB_BLOCKS * SUB_BLOCK_DICTIONARY_FACTOR + 1);
+      final int blockLength = (len - dictLength + NUM_SUB_BLOCKS - 1) / NUM_SUB_BLOCKS;
+      out.writeVInt(dictLength);
+      out.writeVInt(blockLength);
+
+      // the dictionary, followed by the block being compressed
+      buffer = ArrayUtil.grow(buffer, dictLength + blockLength);
+      System.arraycopy(bytes, off, buffer, 0, dictLength);
+
+      compressed.reset();
+      LZ4.compressHC(buffer, 0, dictLength, compressed, ht);
+      compressedLengths[0] = compressed.getPosition();
+      int numBlocks = 0;
+      for (int start = dictLength; start < len; start += blockLength) {
+        final int l = Math.min(blockLength, len - start);
+        System.arraycopy(bytes, off + start, buffer, dictLength, l);
+        final int compressedStart = compressed.getPosition();
+        LZ4.compressHC(buffer, 0, dictLength, l, compressed, ht);
+        compressedLengths[++numBlocks] = compressed.getPosition() - compressedStart;
+      }
+
+      // lengths come first so that decompression can skip sub-blocks
+      for (int i = 0; i <= numBlocks; ++i) {
+        out.writeVInt(compressedLengths[i]);
+      }
+      out.writeBytes(compressed.getBytes(), compressed.getPosition());
+    }
+
+  }
+
   private static final class DeflateDecompressor extends Decompressor {
 
     final Inflater decompressor;
+    final boolean useDictionary;
     byte[] compressed;
+    byte[] dictionary;
 
     DeflateDecompressor() {
+      this(false);
+    }
+
+    DeflateDecompressor(boolean useDictionary) {
+      this.useDictionary = useDictionary;
       decompressor = new Inflater(true);
       compressed = new byte[0];
+      dictionary = new byte[0];
+    }
+
+    @Override
+    public void readDictionary(DataInput in) throws IOException {
+      if (useDictionary) {
+        final int length = in.readVInt();
+        if (length > DEFLATE_DICTIONARY_LENGTH) {
+          throw new CorruptIndexException("Invalid dictionary length: " + length, in);
+        }
+        dictionary = new byte[length];
+        in.readBytes(dictionary, 0, length);
+      }
     }
 
     @Override
@@ -208,6 +427,9 @@ public abstract class CompressionMode {
       compressed[compressedLength] = 0; // explicitly set dummy byte to 0
 
       decompressor.reset();
+      if (dictionary.length > 0) {
+        decompressor.setDictionary(dictionary);
+      }
       // extra "dummy byte"
       decompressor.setInput(compressed, 0, paddedLength);
 
@@ -231,7 +453,9 @@ public abstract class CompressionMode {
 
     @Override
     public Decompressor clone() {
-      return new DeflateDecompressor();
+      final DeflateDecompressor clone = new DeflateDecompressor(useDictionary);
+      clone.dictionary = dictionary;
+      return clone;
     }
 
   }
@@ -239,16 +463,49 @@ public abstract class CompressionMode {
   private static class DeflateCompressor extends Compressor {
 
     final Deflater compressor;
+    final int maxDictionaryLength;
     byte[] compressed;
+    byte[] dictionary;
+    int dictionaryLength;
 
     DeflateCompressor(int level) {
+      this(level, 0);
+    }
+
+    DeflateCompressor(int level, int maxDictionaryLength) {
       compressor = new Deflater(level, true);
       compressed = new byte[64];
+      this.maxDictionaryLength = maxDictionaryLength;
+      dictionary = new byte[maxDictionaryLength];
+    }
+
+    @Override
+    public void writeDictionary(byte[] bytes, int off, int len, DataOutput out) throws IOException {
+      if (maxDictionaryLength == 0) {
+        return;
+      }
+      if (len <= maxDictionaryLength) {
+        System.arraycopy(bytes, off, dictionary, 0, len);
+        dictionaryLength = len;
+      } else {
+        // take evenly spaced slices so that the dictionary covers all documents of the sample
+        final int numSlices = maxDictionaryLength / DICTIONARY_SLICE_LENGTH;
+        final long stride = len / numSlices;
+        for (int i = 0; i < numSlices; ++i) {
+          System.arraycopy(bytes, off + (int) (i * stride), dictionary, i * DICTIONARY_SLICE_LENGTH, DICTIONARY_SLICE_LENGTH);
+        }
+        dictionaryLength = numSlices * DICTIONARY_SLICE_LENGTH;
+      }
+      out.writeVInt(dictionaryLength);
+      out.writeBytes(dictionary, dictionaryLength);
     }
 
     @Override
     public void compress(byte[] bytes, int off, int len, DataOutput out) throws IOException {
       compressor.reset();
+      if (dictionaryLength > 0) {
+        compressor.setDictionary(dictionary, 0, dictionaryLength);
+      }
       compressor.setInput(bytes, off, len);
       compressor.finish();
 
@@ -36,4 +36,15 @@ public abstract class Compressor {
    */
   public abstract void compress(byte[] bytes, int off, int len, DataOutput out) throws IOException;
 
+  /**
+   * Build a dictionary out of <code>bytes</code>, a sample of the data that
+   * will be compressed, write it to <code>out</code> and use it for all
+   * subsequent calls to {@link #compress}. The dictionary is read back with
+   * {@link Decompressor#readDictionary}. The default implementation does not
+   * use a dictionary and writes nothing. Compressed data may only be copied
+   * from one stream to another if neither of them has a dictionary.
+   */
+  public void writeDictionary(byte[] bytes, int off, int len, DataOutput out) throws IOException {
+  }
+
 }
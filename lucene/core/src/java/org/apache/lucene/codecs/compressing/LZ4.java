@@ -411,15 +411,33 @@ final class LZ4 {
    * but can safely be reused.
    */
   public static void compressHC(byte[] src, int srcOff, int srcLen, DataOutput out, HCHashTable ht) throws IOException {
+    compressHC(src, srcOff, 0, srcLen, out, ht);
+  }
 
+  /**
+   * Compress <code>src[dictOff+dictLen:dictOff+dictLen+srcLen]</code> into
+   * <code>out</code> like {@link #compressHC(byte[], int, int, DataOutput, HCHashTable)},
+   * except that matches may also refer to the <code>dictLen</code> bytes that
+   * precede the data to compress. These bytes are not written to
+   * <code>out</code>: they must be in <code>dest</code> before the
+   * decompressed data when calling {@link #decompress}.
+   */
+  public static void compressHC(byte[] src, int dictOff, int dictLen, int srcLen, DataOutput out, HCHashTable ht) throws IOException {
+
+    final int srcOff = dictOff + dictLen;
     final int srcEnd = srcOff + srcLen;
     final int matchLimit = srcEnd - LAST_LITERALS;
     final int mfLimit = matchLimit - MIN_MATCH;
 
     int sOff = srcOff;
-    int anchor = sOff++;
+    int anchor = sOff;
+    if (dictLen == 0) {
+      // nothing to refer to
+      ++sOff;
+    }
 
-    ht.reset(srcOff);
+    // positions of the dictionary are added to the hash table on the first lookup
+    ht.reset(dictOff);
     final Match match0 = new Match();
     final Match match1 = new Match();
     final Match match2 = new Match();
@@ -18,6 +18,10 @@ package org.apache.lucene.codecs.lucene70;
 
 
 import static org.apache.lucene.codecs.lucene70.Lucene70DocValuesFormat.DIRECT_MONOTONIC_BLOCK_SHIFT;
+import static org.apache.lucene.codecs.lucene70.Lucene70DocValuesFormat.NUMERIC_BLOCK_DELTA;
+import static org.apache.lucene.codecs.lucene70.Lucene70DocValuesFormat.NUMERIC_BLOCK_LINEAR;
+import static org.apache.lucene.codecs.lucene70.Lucene70DocValuesFormat.NUMERIC_BLOCK_PATCHED;
+import static org.apache.lucene.codecs.lucene70.Lucene70DocValuesFormat.NUMERIC_BLOCK_SIZE;
 
 import java.io.Closeable; // javadocs
 import java.io.IOException;
@@ -51,6 +55,8 @@ import org.apache.lucene.util.MathUtil;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.packed.DirectMonotonicWriter;
 import org.apache.lucene.util.packed.DirectWriter;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
 
 /** writer for {@link Lucene70DocValuesFormat} */
 final class Lucene70DocValuesConsumer extends DocValuesConsumer implements Closeable {
@@ -198,12 +204,23 @@ final class Lucene70DocValuesConsumer extends DocValuesConsumer implements Close
       }
     }
 
-    meta.writeByte((byte) numBitsPerValue);
+    // values that are hard to compress globally, eg. because of a few outliers, may compress
+    // much better block by block, but only pay the price of block lookups if it saves space
+    boolean blocks = false;
+    if (encode == null && numBitsPerValue != 0 && numBitsPerValue < 64 && numValues > NUMERIC_BLOCK_SIZE) {
+      final long singleBlockSize = numValues * numBitsPerValue / 8;
+      final long multipleBlocksSize = writeValuesMultipleBlocks(valuesProducer, field, min, gcd, null);
+      blocks = multipleBlocksSize < singleBlockSize * 0.9;
+    }
+
+    meta.writeByte((byte) (blocks ? -1 : numBitsPerValue));
     meta.writeLong(min);
     meta.writeLong(gcd);
     long startOffset = data.getFilePointer();
     meta.writeLong(startOffset);
-    if (numBitsPerValue != 0) {
+    if (blocks) {
+      writeValuesMultipleBlocks(valuesProducer, field, min, gcd, data);
+    } else if (numBitsPerValue != 0) {
       values = valuesProducer.getSortedNumeric(field);
       DirectWriter writer = DirectWriter.getInstance(data, numValues, numBitsPerValue);
       for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
@@ -223,6 +240,177 @@ final class Lucene70DocValuesConsumer extends DocValuesConsumer implements Close
     return new long[] {numDocsWithValue, numValues};
   }
 
+  /**
+   * Write values as independently compressed blocks followed by a jump table of block offsets,
+   * or only compute the number of bytes this would take if {@code out} is null.
+   */
+  private static long writeValuesMultipleBlocks(DocValuesProducer valuesProducer, FieldInfo field,
+      long min, long gcd, IndexOutput out) throws IOException {
+    final long[] buffer = new long[NUMERIC_BLOCK_SIZE];
+    final long[] scratch = new long[NUMERIC_BLOCK_SIZE];
+    final PackedLongValues.Builder offsets = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+    long size = 0;
+    int upto = 0;
+    SortedNumericDocValues values = valuesProducer.getSortedNumeric(field);
+    for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+      for (int i = 0, count = values.docValueCount(); i < count; ++i) {
+        buffer[upto++] = (values.nextValue() - min) / gcd;
+        if (upto == NUMERIC_BLOCK_SIZE) {
+          offsets.add(size);
+          size += writeBlock(buffer, upto, scratch, out);
+          upto = 0;
+        }
+      }
+    }
+    if (upto > 0) {
+      offsets.add(size);
+      size += writeBlock(buffer, upto, scratch, out);
+    }
+    if (out != null) {
+      for (PackedLongValues.Iterator it = offsets.build().iterator(); it.hasNext(); ) {
+        out.writeLong(it.next());
+      }
+    }
+    return size + offsets.size() * Long.BYTES;
+  }
+
+  /** Number of bytes that {@link DirectWriter} needs to write {@code numValues} values. */
+  private static long directWriterSize(int numValues, int bitsPerValue) {
+    if (bitsPerValue == 0) {
+      return 0;
+    }
+    // DirectWriter pads data with 3 bytes so that reads never go out of bounds
+    return PackedInts.Format.PACKED.byteCount(PackedInts.VERSION_CURRENT, numValues, bitsPerValue) + 3;
+  }
+
+  /**
+   * Write a block of non-negative values with the encoding that requires the fewest bytes, or
+   * only compute this number of bytes if {@code out} is null.
+   */
+  private static long writeBlock(long[] values, int numValues, long[] scratch, IndexOutput out) throws IOException {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < numValues; ++i) {
+      min = Math.min(min, values[i]);
+      max = Math.max(max, values[i]);
+    }
+
+    byte encoding = NUMERIC_BLOCK_DELTA;
+    int bitsPerValue = min == max ? 0 : DirectWriter.unsignedBitsRequired(max - min);
+    long base = min;
+    long size = 10 + directWriterSize(numValues, bitsPerValue);
+
+    // linear: deviations from the line going through the first and last values
+    float avgInc = 0;
+    if (bitsPerValue != 0 && numValues > 1) {
+      final float inc = (float) ((double) (values[numValues - 1] - values[0]) / (numValues - 1));
+      long minDelta = Long.MAX_VALUE;
+      long maxDelta = Long.MIN_VALUE;
+      for (int i = 0; i < numValues; ++i) {
+        final long delta = values[i] - values[0] - (long) (inc * i);
+        minDelta = Math.min(minDelta, delta);
+        maxDelta = Math.max(maxDelta, delta);
+      }
+      if (maxDelta - minDelta >= 0) { // no overflow
+        final int linearBitsPerValue = minDelta == maxDelta ? 0 : DirectWriter.unsignedBitsRequired(maxDelta - minDelta);
+        final long linearSize = 14 + directWriterSize(numValues, linearBitsPerValue);
+        if (linearSize < size) {
+          encoding = NUMERIC_BLOCK_LINEAR;
+          bitsPerValue = linearBitsPerValue;
+          base = values[0] + minDelta;
+          avgInc = inc;
+          size = linearSize;
+        }
+      }
+    }
+
+    // patched: find the densest window of values for every number of bits per value, the
+    // largest code marks exceptions whose values are stored on the side
+    int numExceptions = 0;
+    final int deltaBitsPerValue = min == max ? 0 : DirectWriter.unsignedBitsRequired(max - min);
+    if (deltaBitsPerValue > 1) {
+      System.arraycopy(values, 0, scratch, 0, numValues);
+      Arrays.sort(scratch, 0, numValues);
+      for (int bpv = 1; bpv < deltaBitsPerValue; bpv = DirectWriter.unsignedBitsRequired(1L << bpv)) {
+        final long maxCode = (1L << bpv) - 2;
+        int maxCount = 0;
+        long windowStart = 0;
+        for (int lo = 0, hi = 0; lo < numValues && numValues - lo > maxCount; ++lo) {
+          while (hi < numValues && scratch[hi] - scratch[lo] <= maxCode) {
+            hi++;
+          }
+          if (hi - lo > maxCount) {
+            maxCount = hi - lo;
+            windowStart = scratch[lo];
+          }
+        }
+        final int patchedNumExceptions = numValues - maxCount;
+        final long patchedSize = 14 + 12L * patchedNumExceptions + directWriterSize(numValues, bpv);
+        if (patchedSize < size) {
+          encoding = NUMERIC_BLOCK_PATCHED;
+          bitsPerValue = bpv;
+          base = windowStart;
+          numExceptions = patchedNumExceptions;
+          size = patchedSize;
+        }
+      }
+    }
+
+    if (out == null) {
+      return size;
+    }
+
+    final long startFP = out.getFilePointer();
+    out.writeByte(encoding);
+    out.writeByte((byte) bitsPerValue);
+    out.writeLong(base);
+    switch (encoding) {
+      case NUMERIC_BLOCK_DELTA:
+        if (bitsPerValue != 0) {
+          DirectWriter writer = DirectWriter.getInstance(out, numValues, bitsPerValue);
+          for (int i = 0; i < numValues; ++i) {
+            writer.add(values[i] - base);
+          }
+          writer.finish();
+        }
+        break;
+      case NUMERIC_BLOCK_LINEAR:
+        out.writeInt(Float.floatToIntBits(avgInc));
+        if (bitsPerValue != 0) {
+          DirectWriter writer = DirectWriter.getInstance(out, numValues, bitsPerValue);
+          for (int i = 0; i < numValues; ++i) {
+            writer.add(values[i] - base - (long) (avgInc * i));
+          }
+          writer.finish();
+        }
+        break;
+      case NUMERIC_BLOCK_PATCHED:
+        final long maxCode = (1L << bitsPerValue) - 2;
+        out.writeInt(numExceptions);
+        for (int i = 0; i < numValues; ++i) {
+          if (values[i] - base < 0 || values[i] - base > maxCode) {
+            out.writeInt(i);
+          }
+        }
+        for (int i = 0; i < numValues; ++i) {
+          if (values[i] - base < 0 || values[i] - base > maxCode) {
+            out.writeLong(values[i]);
+          }
+        }
+        DirectWriter writer = DirectWriter.getInstance(out, numValues, bitsPerValue);
+        for (int i = 0; i < numValues; ++i) {
+          final long delta = values[i] - base;
+          writer.add(delta < 0 || delta > maxCode ? maxCode + 1 : delta);
+        }
+        writer.finish();
+        break;
+      default:
+        throw new AssertionError();
+    }
+    assert out.getFilePointer() - startFP == size;
+    return size;
+  }
+
   @Override
   public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
     meta.writeInt(field.number);
@@ -74,6 +74,17 @@ import org.apache.lucene.util.packed.DirectWriter;
  *        as blocks of bitpacked integers, encoding the deviation from the expected delta.
  *    <li>Const-compressed: when there is only one possible value, no per-document data is needed and
  *        this value is encoded alone.
+ *    <li>Block-compressed: when it saves space, values are split into blocks of 16384 values that are
+ *        compressed independently, each with the cheapest of the following encodings. A jump table of
+ *        block offsets keeps lookups random-access.
+ *        <ul>
+ *          <li>Delta: values are written as bitpacked deltas from the minimum value of the block.
+ *          <li>Linear: values are written as bitpacked deviations from a linear function, which
+ *              suits monotonic runs such as timestamps.
+ *          <li>Patched: values that fall within a narrow range are bitpacked as deltas from its lower
+ *              bound while outliers are stored separately as exceptions. This also captures blocks
+ *              where a single value is much more frequent than others.
+ *        </ul>
  * </ul>
  * <p>
  * {@link DocValuesType#BINARY BINARY}:
@@ -137,7 +148,8 @@ public final class Lucene70DocValuesFormat extends DocValuesFormat {
   static final String META_CODEC = "Lucene70DocValuesMetadata";
   static final String META_EXTENSION = "dvm";
   static final int VERSION_START = 0;
-  static final int VERSION_CURRENT = VERSION_START;
+  static final int VERSION_NUMERIC_BLOCKS = 1;
+  static final int VERSION_CURRENT = VERSION_NUMERIC_BLOCKS;
 
   // indicates docvalues type
   static final byte NUMERIC = 0;
@@ -150,6 +162,16 @@ public final class Lucene70DocValuesFormat extends DocValuesFormat {
   static final int MONOTONIC_BLOCK_SIZE = 16384;
   static final int DIRECT_MONOTONIC_BLOCK_SHIFT = 16;
 
+  // block-compressed numerics use 16k blocks
+  static final int NUMERIC_BLOCK_SHIFT = 14;
+  static final int NUMERIC_BLOCK_SIZE = 1 << NUMERIC_BLOCK_SHIFT;
+  static final int NUMERIC_BLOCK_MASK = NUMERIC_BLOCK_SIZE - 1;
+
+  // per-block encodings of block-compressed numerics
+  static final byte NUMERIC_BLOCK_DELTA = 0;
+  static final byte NUMERIC_BLOCK_LINEAR = 1;
+  static final byte NUMERIC_BLOCK_PATCHED = 2;
+
   static final int TERMS_DICT_BLOCK_SHIFT = 4;
   static final int TERMS_DICT_BLOCK_SIZE = 1 << TERMS_DICT_BLOCK_SHIFT;
   static final int TERMS_DICT_BLOCK_MASK = TERMS_DICT_BLOCK_SIZE - 1;
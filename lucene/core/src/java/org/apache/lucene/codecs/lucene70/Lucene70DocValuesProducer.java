@@ -427,6 +427,14 @@ final class Lucene70DocValuesProducer extends DocValuesProducer implements Close
             return entry.minValue;
           }
         };
+      } else if (entry.bitsPerValue == -1) {
+        final LongValues values = getNumericValues(entry);
+        return new DenseNumericDocValues(maxDoc) {
+          @Override
+          public long longValue() throws IOException {
+            return values.get(doc);
+          }
+        };
       } else {
         final RandomAccessInput slice = data.randomAccessSlice(entry.valuesOffset, entry.valuesLength);
         final LongValues values = DirectReader.getInstance(slice, entry.bitsPerValue);
@@ -459,6 +467,14 @@ final class Lucene70DocValuesProducer extends DocValuesProducer implements Close
             return entry.minValue;
           }
         };
+      } else if (entry.bitsPerValue == -1) {
+        final LongValues values = getNumericValues(entry);
+        return new SparseNumericDocValues(disi) {
+          @Override
+          public long longValue() throws IOException {
+            return values.get(disi.index());
+          }
+        };
       } else {
         final RandomAccessInput slice = data.randomAccessSlice(entry.valuesOffset, entry.valuesLength);
         final LongValues values = DirectReader.getInstance(slice, entry.bitsPerValue);
@@ -492,6 +508,9 @@ final class Lucene70DocValuesProducer extends DocValuesProducer implements Close
           return entry.minValue;
         }
       };
+    } else if (entry.bitsPerValue == -1) {
+      final RandomAccessInput slice = data.randomAccessSlice(entry.valuesOffset, entry.valuesLength);
+      return new BlockedNumericValues(slice, entry.valuesLength, entry.numValues, entry.minValue, entry.gcd);
     } else {
       final RandomAccessInput slice = data.randomAccessSlice(entry.valuesOffset, entry.valuesLength);
       final LongValues values = DirectReader.getInstance(slice, entry.bitsPerValue);
@@ -526,6 +545,136 @@ final class Lucene70DocValuesProducer extends DocValuesProducer implements Close
     }
   }
 
+  /**
+   * Return the encoding of every block of the values of the given numeric or sorted numeric
+   * field, or {@code null} if its values are not compressed in independent blocks.
+   */
+  // package-private for testing
+  byte[] getNumericBlockEncodings(FieldInfo field) throws IOException {
+    NumericEntry entry = numerics.get(field.name);
+    if (entry == null) {
+      entry = sortedNumerics.get(field.name);
+    }
+    if (entry.bitsPerValue != -1) {
+      return null;
+    }
+    final RandomAccessInput slice = data.randomAccessSlice(entry.valuesOffset, entry.valuesLength);
+    final int numBlocks = Math.toIntExact((entry.numValues + Lucene70DocValuesFormat.NUMERIC_BLOCK_MASK) >>> Lucene70DocValuesFormat.NUMERIC_BLOCK_SHIFT);
+    final long jumpTableOffset = entry.valuesLength - (long) numBlocks * Long.BYTES;
+    final byte[] encodings = new byte[numBlocks];
+    for (int block = 0; block < numBlocks; ++block) {
+      encodings[block] = slice.readByte(slice.readLong(jumpTableOffset + (long) block * Long.BYTES));
+    }
+    return encodings;
+  }
+
+  /**
+   * Values that have been compressed in independent blocks. The header of the current block is
+   * cached so that sequential lookups only pay for a block switch every {@link Lucene70DocValuesFormat#NUMERIC_BLOCK_SIZE}
+   * values.
+   */
+  private static class BlockedNumericValues extends LongValues {
+
+    private static final LongValues ZEROES = new LongValues() {
+      @Override
+      public long get(long index) {
+        return 0;
+      }
+    };
+
+    private final RandomAccessInput slice;
+    private final long jumpTableOffset;
+    private final long minValue, gcd;
+
+    private long block = -1;
+    private byte encoding;
+    private LongValues codes;
+    private long base;
+    private float avgInc;
+    private long maxCode;
+    private int numExceptions;
+    private long exceptionsOffset;
+
+    BlockedNumericValues(RandomAccessInput slice, long length, long numValues, long minValue, long gcd) {
+      this.slice = slice;
+      final long numBlocks = (numValues + Lucene70DocValuesFormat.NUMERIC_BLOCK_MASK) >>> Lucene70DocValuesFormat.NUMERIC_BLOCK_SHIFT;
+      this.jumpTableOffset = length - numBlocks * Long.BYTES;
+      this.minValue = minValue;
+      this.gcd = gcd;
+    }
+
+    @Override
+    public long get(long index) {
+      try {
+        final long block = index >>> Lucene70DocValuesFormat.NUMERIC_BLOCK_SHIFT;
+        if (block != this.block) {
+          readBlockHeader(block);
+        }
+        final int i = (int) (index & Lucene70DocValuesFormat.NUMERIC_BLOCK_MASK);
+        final long value;
+        switch (encoding) {
+          case Lucene70DocValuesFormat.NUMERIC_BLOCK_DELTA:
+            value = base + codes.get(i);
+            break;
+          case Lucene70DocValuesFormat.NUMERIC_BLOCK_LINEAR:
+            value = base + (long) (avgInc * i) + codes.get(i);
+            break;
+          case Lucene70DocValuesFormat.NUMERIC_BLOCK_PATCHED:
+            final long code = codes.get(i);
+            value = code > maxCode ? exception(i) : base + code;
+            break;
+          default:
+            throw new AssertionError();
+        }
+        return minValue + gcd * value;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private void readBlockHeader(long block) throws IOException {
+      long offset = slice.readLong(jumpTableOffset + block * Long.BYTES);
+      encoding = slice.readByte(offset);
+      final int bitsPerValue = slice.readByte(offset + 1);
+      base = slice.readLong(offset + 2);
+      offset += 10;
+      switch (encoding) {
+        case Lucene70DocValuesFormat.NUMERIC_BLOCK_DELTA:
+          break;
+        case Lucene70DocValuesFormat.NUMERIC_BLOCK_LINEAR:
+          avgInc = Float.intBitsToFloat(slice.readInt(offset));
+          offset += Integer.BYTES;
+          break;
+        case Lucene70DocValuesFormat.NUMERIC_BLOCK_PATCHED:
+          maxCode = (1L << bitsPerValue) - 2;
+          numExceptions = slice.readInt(offset);
+          exceptionsOffset = offset + Integer.BYTES;
+          offset = exceptionsOffset + (long) numExceptions * (Integer.BYTES + Long.BYTES);
+          break;
+        default:
+          throw new CorruptIndexException("Invalid block encoding: " + encoding, slice.toString());
+      }
+      codes = bitsPerValue == 0 ? ZEROES : DirectReader.getInstance(slice, bitsPerValue, offset);
+      this.block = block;
+    }
+
+    private long exception(int index) throws IOException {
+      int lo = 0, hi = numExceptions - 1;
+      while (lo <= hi) {
+        final int mid = (lo + hi) >>> 1;
+        final int midIndex = slice.readInt(exceptionsOffset + (long) mid * Integer.BYTES);
+        if (midIndex < index) {
+          lo = mid + 1;
+        } else if (midIndex > index) {
+          hi = mid - 1;
+        } else {
+          return slice.readLong(exceptionsOffset + (long) numExceptions * Integer.BYTES + (long) mid * Long.BYTES);
+        }
+      }
+      throw new CorruptIndexException("Missing exception for index " + index, slice.toString());
+    }
+  }
+
   private static abstract class DenseBinaryDocValues extends BinaryDocValues {
 
     final int maxDoc;
@@ -36,9 +36,11 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.StringHelper;
 
 /* Tracks the stream of {@link BufferedDeletes}.
  * When DocumentsWriterPerThread flushes, its buffered
@@ -373,9 +375,15 @@ class BufferedUpdatesStream implements Accountable {
     final SegmentReader reader;
     final int startDelCount;
 
+    Terms terms;
     TermsEnum termsEnum;
     PostingsEnum postingsEnum;
     BytesRef term;
+    // the greatest term of the current field, or null if not computed yet
+    BytesRef maxTerm;
+    // false if the last seek failed, in which case term is only a lower bound
+    boolean positioned;
+    final BytesRefBuilder lowerBound = new BytesRefBuilder();
     boolean any;
 
     public SegmentState(IndexWriter.ReaderPool pool, SegmentCommitInfo info) throws IOException {
@@ -483,11 +491,14 @@ class BufferedUpdatesStream implements Accountable {
 
     long delTermVisitedCount = 0;
     long segTermVisitedCount = 0;
+    long seekExactCount = 0;
+    long seekCeilCount = 0;
 
     FieldTermIterator iter = updates.termIterator();
 
     String field = null;
     SegmentQueue queue = null;
+    final BytesRefBuilder lastTerm = new BytesRefBuilder();
 
     BytesRef term;
 
@@ -505,21 +516,37 @@ class BufferedUpdatesStream implements Accountable {
           Terms terms = state.reader.fields().terms(field);
           if (terms != null) {
             segTermCount += terms.size();
+            state.terms = terms;
             state.termsEnum = terms.iterator();
             state.term = state.termsEnum.next();
             if (state.term != null) {
+              // only computed when the segment needs to seek, since some terms dictionaries don't store it
+              state.maxTerm = null;
+              state.positioned = true;
               queue.add(state);
             }
           }
         }
 
         assert checkDeleteTerm(null);
+        lastTerm.clear();
       }
 
       assert checkDeleteTerm(term);
 
       delTermVisitedCount++;
 
+      // How to seek segments to this delete term. Terms dictionaries resolve a seek by walking
+      // their terms index from the prefix this term shares with the term the enum is on, so when
+      // the delete term shares at least half of its bytes with the previous one, as with
+      // sequential or time-ordered ids, a seekExact that misses is cheap to repeat, and it can
+      // be rejected early, eg. by a bloom filter or by the terms index. Far apart delete terms,
+      // such as random ids, instead pay a full seek every time: seekCeil then positions the enum
+      // on the next term of the segment, so that following delete terms that sort before it do
+      // not need any seek.
+      final boolean seekExact = lastTerm.length() > 0 && 2 * StringHelper.bytesDifference(lastTerm.get(), term) >= term.length;
+      lastTerm.copyBytes(term);
+
       long delGen = iter.delGen();
 
       while (queue.size() != 0) {
@@ -532,22 +559,48 @@ class BufferedUpdatesStream implements Accountable {
 
         if (cmp < 0) {
           break;
-        } else if (cmp == 0) {
+        } else if (cmp == 0 && state.positioned) {
           // fall through
         } else {
-          TermsEnum.SeekStatus status = state.termsEnum.seekCeil(term);
-          if (status == TermsEnum.SeekStatus.FOUND) {
-            // fallthrough
-          } else {
+          if (state.maxTerm == null) {
+            state.maxTerm = BytesRef.deepCopyOf(state.terms.getMax());
+          }
+          if (term.compareTo(state.maxTerm) > 0) {
+            // No more terms in this segment, which is common with time-ordered ids
+            queue.pop();
+            continue;
+          }
+          if (seekExact == false) {
+            seekCeilCount++;
+            TermsEnum.SeekStatus status = state.termsEnum.seekCeil(term);
+            if (status == TermsEnum.SeekStatus.END) {
+              // No more terms in this segment
+              queue.pop();
+              continue;
+            }
+            state.positioned = true;
             if (status == TermsEnum.SeekStatus.NOT_FOUND) {
               state.term = state.termsEnum.term();
               queue.updateTop();
-            } else {
-              // No more terms in this segment
-              queue.pop();
+              continue;
             }
-
-            continue;
+            // fallthrough
+          } else {
+            seekExactCount++;
+            if (state.termsEnum.seekExact(term) == false) {
+              // seekExact can be much cheaper than seekCeil when the term does not
+              // exist, for instance by checking a bloom filter or the terms index.
+              // The enum is now unpositioned, but we know that the next term of
+              // this segment, if any, is greater than the smallest term after the
+              // delete term
+              state.lowerBound.copyBytes(term);
+              state.lowerBound.append((byte) 0);
+              state.term = state.lowerBound.get();
+              state.positioned = false;
+              queue.updateTop();
+              continue;
+            }
+            state.positioned = true;
           }
         }
 
@@ -594,11 +647,11 @@ class BufferedUpdatesStream implements Accountable {
 
     if (infoStream.isEnabled("BD")) {
       infoStream.message("BD",
-                         String.format(Locale.ROOT, "applyTermDeletes took %.1f msec for %d segments and %d packets; %d del terms visited; %d seg terms visited",
+                         String.format(Locale.ROOT, "applyTermDeletes took %.1f msec for %d segments and %d packets; %d del terms visited; %d seg terms visited; %d seekExact; %d seekCeil",
                                        (System.nanoTime()-startNS)/1000000.,
                                        numReaders,
                                        updates.terms.size(),
-                                       delTermVisitedCount, segTermVisitedCount));
+                                       delTermVisitedCount, segTermVisitedCount, seekExactCount, seekCeilCount));
     }
 
     return delTermVisitedCount;
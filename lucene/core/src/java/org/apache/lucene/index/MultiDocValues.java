@@ -22,6 +22,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.index.MultiTermsEnum.TermsEnumIndex;
 import org.apache.lucene.index.MultiTermsEnum.TermsEnumWithSlice;
@@ -31,6 +35,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.InPlaceMergeSorter;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
 
@@ -688,7 +693,11 @@ public class MultiDocValues {
       private final int[] newToOld, oldToNew;
 
       SegmentMap(long[] weights) {
-        newToOld = map(weights);
+        this(map(weights));
+      }
+
+      SegmentMap(int[] newToOld) {
+        this.newToOld = newToOld;
         oldToNew = inverse(newToOld);
         assert Arrays.equals(newToOld, inverse(oldToNew));
       }
@@ -755,81 +764,443 @@ public class MultiDocValues {
 
       // enums are not sorted, so let's sort to save memory
       final SegmentMap segmentMap = new SegmentMap(weights);
-      return new OrdinalMap(owner, subs, segmentMap, acceptableOverheadRatio);
+      final TermsEnum[] sortedSubs = new TermsEnum[subs.length];
+      for (int i = 0; i < subs.length; ++i) {
+        sortedSubs[i] = subs[segmentMap.newToOld(i)];
+      }
+      final Partition partition = Partition.map(sortedSubs, new long[subs.length], acceptableOverheadRatio);
+      return new OrdinalMap(owner, segmentMap, partition, acceptableOverheadRatio);
     }
 
-    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
+    /**
+     * Create an ordinal map for {@code field} over the given leaves, which must
+     * have either {@link DocValuesType#SORTED} or {@link DocValuesType#SORTED_SET}
+     * doc values for this field, if any. The term space is split into up to
+     * {@code numPartitions} ranges of terms that are merged concurrently on
+     * {@code executor}, and partial mappings are then concatenated.
+     * @throws IOException if an I/O error occurred.
+     */
+    public static OrdinalMap build(Object owner, List<LeafReaderContext> leaves, String field,
+        float acceptableOverheadRatio, ExecutorService executor, int numPartitions) throws IOException {
+      final int numSegments = leaves.size();
+      if (numSegments == 0) {
+        return build(owner, new TermsEnum[0], new long[0], acceptableOverheadRatio);
+      }
+      final long[] weights = new long[numSegments];
+      for (int i = 0; i < numSegments; ++i) {
+        weights[i] = DocValues.getSortedSet(leaves.get(i).reader(), field).getValueCount();
+      }
+      final SegmentMap segmentMap = new SegmentMap(weights);
 
-    /** Cache key of whoever asked for this awful thing */
-    public final Object owner;
-    // globalOrd -> (globalOrd - segmentOrd) where segmentOrd is the the ordinal in the first segment that contains this term
-    final PackedLongValues globalOrdDeltas;
-    // globalOrd -> first segment container
-    final PackedLongValues firstSegments;
-    // for every segment, segmentOrd -> globalOrd
-    final LongValues segmentToGlobalOrds[];
-    // the map from/to segment ids
-    final SegmentMap segmentMap;
-    // ram usage
-    final long ramBytesUsed;
-    
-    OrdinalMap(Object owner, TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
-      // create the ordinal mappings by pulling a termsenum over each sub's 
-      // unique terms, and walking a multitermsenum over those
-      this.owner = owner;
-      this.segmentMap = segmentMap;
-      // even though we accept an overhead ratio, we keep these ones with COMPACT
-      // since they are only used to resolve values given a global ord, which is
-      // slow anyway
-      PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
-      PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
-      final PackedLongValues.Builder[] ordDeltas = new PackedLongValues.Builder[subs.length];
+      // pick boundaries from the segment that has the most unique terms
+      final SortedSetDocValues largest = DocValues.getSortedSet(leaves.get(segmentMap.newToOld(0)).reader(), field);
+      final long largestValueCount = largest.getValueCount();
+      numPartitions = (int) Math.min(numPartitions, largestValueCount);
+      if (numPartitions <= 1) {
+        final TermsEnum[] subs = new TermsEnum[numSegments];
+        for (int i = 0; i < numSegments; ++i) {
+          subs[i] = DocValues.getSortedSet(leaves.get(segmentMap.newToOld(i)).reader(), field).termsEnum();
+        }
+        final Partition partition = Partition.map(subs, new long[numSegments], acceptableOverheadRatio);
+        return new OrdinalMap(owner, segmentMap, partition, acceptableOverheadRatio);
+      }
+      final BytesRef[] boundaries = new BytesRef[numPartitions + 1];
+      for (int i = 1; i < numPartitions; ++i) {
+        boundaries[i] = BytesRef.deepCopyOf(largest.lookupOrd(largestValueCount * i / numPartitions));
+      }
+
+      final List<Future<Partition>> futures = new ArrayList<>(numPartitions);
+      for (int i = 0; i < numPartitions; ++i) {
+        final BytesRef lowerTerm = boundaries[i];
+        final BytesRef upperTerm = boundaries[i + 1];
+        futures.add(executor.submit(new Callable<Partition>() {
+          @Override
+          public Partition call() throws IOException {
+            // doc values instances are not thread-safe, so every partition pulls its own
+            final TermsEnum[] subs = new TermsEnum[numSegments];
+            final long[] startOrds = new long[numSegments];
+            for (int i = 0; i < numSegments; ++i) {
+              final SortedSetDocValues values = DocValues.getSortedSet(leaves.get(segmentMap.newToOld(i)).reader(), field);
+              final TermsEnum termsEnum = values.termsEnum();
+              if (lowerTerm == null) {
+                startOrds[i] = 0;
+              } else if (termsEnum.seekCeil(lowerTerm) == TermsEnum.SeekStatus.END) {
+                startOrds[i] = values.getValueCount();
+              } else {
+                startOrds[i] = termsEnum.ord();
+              }
+              subs[i] = new TermRangeTermsEnum(values.termsEnum(), lowerTerm, upperTerm);
+            }
+            return Partition.map(subs, startOrds, acceptableOverheadRatio);
+          }
+        }));
+      }
+
+      final Partition[] partitions = new Partition[numPartitions];
+      for (int i = 0; i < numPartitions; ++i) {
+        try {
+          partitions[i] = futures.get(i).get();
+        } catch (InterruptedException e) {
+          throw new ThreadInterruptedException(e);
+        } catch (ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          }
+          throw new RuntimeException(cause);
+        }
+      }
+      return new OrdinalMap(owner, segmentMap, Partition.concat(partitions, numSegments, acceptableOverheadRatio), acceptableOverheadRatio);
+    }
+
+    /**
+     * Create an ordinal map by updating a {@code previous} ordinal map, which
+     * is typically useful after a reopen. Segments that were already covered
+     * by the previous map do not need to be merged again: instead, the global
+     * terms of the previous map are merged with the terms of new segments and
+     * the previous mappings are shifted accordingly.
+     * @param owner a cache key
+     * @param values doc values for every segment
+     * @param previous a map that was built over a subset of {@code values}
+     * @param previousSegments for every segment, its index in {@code previous}
+     *             or -1 if it is a new segment. Every segment of {@code previous}
+     *             must be present exactly once.
+     * @throws IOException if an I/O error occurred.
+     */
+    public static OrdinalMap build(Object owner, SortedSetDocValues[] values, OrdinalMap previous,
+        int[] previousSegments, float acceptableOverheadRatio) throws IOException {
+      if (values.length != previousSegments.length) {
+        throw new IllegalArgumentException("values and previousSegments must have the same length");
+      }
+      final int numPreviousSegments = previous.segmentToGlobalOrds.length;
+      final int[] previousToNew = new int[numPreviousSegments];
+      Arrays.fill(previousToNew, -1);
+      int numNewSegments = 0;
+      for (int i = 0; i < values.length; ++i) {
+        final int previousSegment = previousSegments[i];
+        if (previousSegment == -1) {
+          numNewSegments++;
+        } else if (previousSegment < 0 || previousSegment >= numPreviousSegments || previousToNew[previousSegment] != -1) {
+          throw new IllegalArgumentException("Invalid or duplicate previous segment: " + previousSegment);
+        } else {
+          previousToNew[previousSegment] = i;
+        }
+      }
+      if (numPreviousSegments + numNewSegments != values.length) {
+        throw new IllegalArgumentException("Every segment of the previous map must be present");
+      }
+
+      // previous segments keep their order so that the first segment of
+      // previous global ords is still the first one, new segments come next
+      final int[] newSegments = new int[numNewSegments];
+      final long[] newWeights = new long[numNewSegments];
+      for (int i = 0, j = 0; i < values.length; ++i) {
+        if (previousSegments[i] == -1) {
+          newSegments[j] = i;
+          newWeights[j] = values[i].getValueCount();
+          j++;
+        }
+      }
+      final SegmentMap newSegmentMap = new SegmentMap(newWeights);
+      final int[] newToOld = new int[values.length];
+      for (int i = 0; i < numPreviousSegments; ++i) {
+        newToOld[i] = previousToNew[previous.segmentMap.newToOld(i)];
+      }
+      for (int i = 0; i < numNewSegments; ++i) {
+        newToOld[numPreviousSegments + i] = newSegments[newSegmentMap.newToOld(i)];
+      }
+      final SegmentMap segmentMap = new SegmentMap(newToOld);
+
+      // merge the global terms of the previous map with terms of new segments
+      final PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      final PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+      final PackedLongValues.Builder previousToNewGlobalOrds = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      final PackedLongValues.Builder[] ordDeltas = new PackedLongValues.Builder[values.length];
       for (int i = 0; i < ordDeltas.length; i++) {
         ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
       }
-      long[] ordDeltaBits = new long[subs.length];
-      long segmentOrds[] = new long[subs.length];
-      ReaderSlice slices[] = new ReaderSlice[subs.length];
-      TermsEnumIndex indexes[] = new TermsEnumIndex[slices.length];
-      for (int i = 0; i < slices.length; i++) {
+      final long[] ordDeltaBits = new long[values.length];
+      final long[] segmentOrds = new long[values.length];
+      final ReaderSlice[] slices = new ReaderSlice[numNewSegments + 1];
+      final TermsEnumIndex[] indexes = new TermsEnumIndex[slices.length];
+      for (int i = 0; i < numNewSegments; i++) {
         slices[i] = new ReaderSlice(0, 0, i);
-        indexes[i] = new TermsEnumIndex(subs[segmentMap.newToOld(i)], i);
+        indexes[i] = new TermsEnumIndex(values[newToOld[numPreviousSegments + i]].termsEnum(), i);
       }
-      MultiTermsEnum mte = new MultiTermsEnum(slices);
+      // the previous global terms come last
+      slices[numNewSegments] = new ReaderSlice(0, 0, numNewSegments);
+      indexes[numNewSegments] = new TermsEnumIndex(new GlobalTermsEnum(previous, values, previousToNew), numNewSegments);
+      final MultiTermsEnum mte = new MultiTermsEnum(slices);
       mte.reset(indexes);
       long globalOrd = 0;
-      while (mte.next() != null) {        
+      while (mte.next() != null) {
         TermsEnumWithSlice matches[] = mte.getMatchArray();
         int firstSegmentIndex = Integer.MAX_VALUE;
         long globalOrdDelta = Long.MAX_VALUE;
         for (int i = 0; i < mte.getMatchCount(); i++) {
-          int segmentIndex = matches[i].index;
+          if (matches[i].index == numNewSegments) {
+            // previous segments come first so they own the first segment
+            final long previousGlobalOrd = matches[i].terms.ord();
+            previousToNewGlobalOrds.add(globalOrd - previousGlobalOrd);
+            firstSegmentIndex = (int) previous.firstSegments.get(previousGlobalOrd);
+            globalOrdDelta = globalOrd - previous.getFirstSegmentOrd(previousGlobalOrd);
+            break;
+          }
+        }
+        for (int i = 0; i < mte.getMatchCount(); i++) {
+          if (matches[i].index == numNewSegments) {
+            continue;
+          }
+          int segmentIndex = numPreviousSegments + matches[i].index;
           long segmentOrd = matches[i].terms.ord();
           long delta = globalOrd - segmentOrd;
-          // We compute the least segment where the term occurs. In case the
-          // first segment contains most (or better all) values, this will
-          // help save significant memory
           if (segmentIndex < firstSegmentIndex) {
             firstSegmentIndex = segmentIndex;
             globalOrdDelta = delta;
           }
-          // for each per-segment ord, map it back to the global term.
           while (segmentOrds[segmentIndex] <= segmentOrd) {
             ordDeltaBits[segmentIndex] |= delta;
             ordDeltas[segmentIndex].add(delta);
             segmentOrds[segmentIndex]++;
           }
         }
-        // for each unique term, just mark the first segment index/delta where it occurs
-        assert firstSegmentIndex < segmentOrds.length;
+        assert firstSegmentIndex < values.length;
         firstSegments.add(firstSegmentIndex);
         globalOrdDeltas.add(globalOrdDelta);
         globalOrd++;
       }
-      this.firstSegments = firstSegments.build();
-      this.globalOrdDeltas = globalOrdDeltas.build();
+
+      // shift mappings of previous segments, this doesn't need to compare terms
+      final PackedLongValues previousToNewGlobalOrdDeltas = previousToNewGlobalOrds.build();
+      for (int i = 0; i < numPreviousSegments; ++i) {
+        final LongValues previousGlobalOrds = previous.segmentToGlobalOrds[i];
+        for (long segmentOrd = 0, valueCount = values[newToOld[i]].getValueCount(); segmentOrd < valueCount; ++segmentOrd) {
+          final long previousGlobalOrd = previousGlobalOrds.get(segmentOrd);
+          final long delta = previousGlobalOrd + previousToNewGlobalOrdDeltas.get(previousGlobalOrd) - segmentOrd;
+          ordDeltaBits[i] |= delta;
+          ordDeltas[i].add(delta);
+        }
+      }
+
+      final Partition partition = new Partition(globalOrdDeltas, firstSegments, ordDeltas, ordDeltaBits, globalOrd);
+      return new OrdinalMap(owner, segmentMap, partition, acceptableOverheadRatio);
+    }
+
+    /** A {@link TermsEnum} that only returns terms that are in {@code [lowerTerm, upperTerm)}. */
+    private static class TermRangeTermsEnum extends FilteredTermsEnum {
+
+      private final BytesRef upperTerm;
+
+      TermRangeTermsEnum(TermsEnum in, BytesRef lowerTerm, BytesRef upperTerm) {
+        super(in, lowerTerm != null);
+        if (lowerTerm != null) {
+          setInitialSeekTerm(lowerTerm);
+        }
+        this.upperTerm = upperTerm;
+      }
+
+      @Override
+      protected AcceptStatus accept(BytesRef term) {
+        if (upperTerm != null && term.compareTo(upperTerm) >= 0) {
+          return AcceptStatus.END;
+        }
+        return AcceptStatus.YES;
+      }
+    }
+
+    /** A {@link TermsEnum} over the global terms of an {@link OrdinalMap}, whose ords are global ords. */
+    private static class GlobalTermsEnum extends TermsEnum {
+
+      private final OrdinalMap map;
+      private final SortedSetDocValues[] values;
+      private final int[] previousToNew;
+      private long ord = -1;
+      private BytesRef term;
+
+      GlobalTermsEnum(OrdinalMap map, SortedSetDocValues[] values, int[] previousToNew) {
+        this.map = map;
+        this.values = values;
+        this.previousToNew = previousToNew;
+      }
+
+      @Override
+      public BytesRef next() throws IOException {
+        if (++ord >= map.getValueCount()) {
+          return term = null;
+        }
+        final SortedSetDocValues segmentValues = values[previousToNew[map.getFirstSegmentNumber(ord)]];
+        return term = segmentValues.lookupOrd(map.getFirstSegmentOrd(ord));
+      }
+
+      @Override
+      public BytesRef term() {
+        return term;
+      }
+
+      @Override
+      public long ord() {
+        return ord;
+      }
+
+      @Override
+      public SeekStatus seekCeil(BytesRef text) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void seekExact(long ord) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int docFreq() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long totalTermFreq() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public PostingsEnum postings(PostingsEnum reuse, int flags) {
+        throw new UnsupportedOperationException();
+      }
+    }
+
+    /** The mapping of a contiguous range of global ordinals. */
+    private static class Partition {
+
+      /**
+       * Map the terms of the given enums, which must be sorted by segment map
+       * order, starting at the given ordinal for every enum.
+       */
+      static Partition map(TermsEnum[] subs, long[] startOrds, float acceptableOverheadRatio) throws IOException {
+        // create the ordinal mappings by pulling a termsenum over each sub's
+        // unique terms, and walking a multitermsenum over those
+        // even though we accept an overhead ratio, we keep these ones with COMPACT
+        // since they are only used to resolve values given a global ord, which is
+        // slow anyway
+        PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+        final PackedLongValues.Builder[] ordDeltas = new PackedLongValues.Builder[subs.length];
+        for (int i = 0; i < ordDeltas.length; i++) {
+          ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
+        }
+        long[] ordDeltaBits = new long[subs.length];
+        long segmentOrds[] = startOrds.clone();
+        ReaderSlice slices[] = new ReaderSlice[subs.length];
+        TermsEnumIndex indexes[] = new TermsEnumIndex[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+          slices[i] = new ReaderSlice(0, 0, i);
+          indexes[i] = new TermsEnumIndex(subs[i], i);
+        }
+        MultiTermsEnum mte = new MultiTermsEnum(slices);
+        mte.reset(indexes);
+        long globalOrd = 0;
+        while (mte.next() != null) {
+          TermsEnumWithSlice matches[] = mte.getMatchArray();
+          int firstSegmentIndex = Integer.MAX_VALUE;
+          long globalOrdDelta = Long.MAX_VALUE;
+          for (int i = 0; i < mte.getMatchCount(); i++) {
+            int segmentIndex = matches[i].index;
+            long segmentOrd = matches[i].terms.ord();
+            long delta = globalOrd - segmentOrd;
+            // We compute the least segment where the term occurs. In case the
+            // first segment contains most (or better all) values, this will
+            // help save significant memory
+            if (segmentIndex < firstSegmentIndex) {
+              firstSegmentIndex = segmentIndex;
+              globalOrdDelta = delta;
+            }
+            // for each per-segment ord, map it back to the global term.
+            while (segmentOrds[segmentIndex] <= segmentOrd) {
+              ordDeltaBits[segmentIndex] |= delta;
+              ordDeltas[segmentIndex].add(delta);
+              segmentOrds[segmentIndex]++;
+            }
+          }
+          // for each unique term, just mark the first segment index/delta where it occurs
+          assert firstSegmentIndex < segmentOrds.length;
+          firstSegments.add(firstSegmentIndex);
+          globalOrdDeltas.add(globalOrdDelta);
+          globalOrd++;
+        }
+        return new Partition(globalOrdDeltas, firstSegments, ordDeltas, ordDeltaBits, globalOrd);
+      }
+
+      /** Concatenate partitions that cover consecutive ranges of terms. */
+      static Partition concat(Partition[] partitions, int numSegments, float acceptableOverheadRatio) {
+        PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+        final PackedLongValues.Builder[] ordDeltas = new PackedLongValues.Builder[numSegments];
+        for (int i = 0; i < ordDeltas.length; i++) {
+          ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
+        }
+        final long[] ordDeltaBits = new long[numSegments];
+        long offset = 0;
+        for (Partition partition : partitions) {
+          for (PackedLongValues.Iterator it = partition.globalOrdDeltas.build().iterator(); it.hasNext(); ) {
+            globalOrdDeltas.add(it.next() + offset);
+          }
+          for (PackedLongValues.Iterator it = partition.firstSegments.build().iterator(); it.hasNext(); ) {
+            firstSegments.add(it.next());
+          }
+          for (int i = 0; i < numSegments; ++i) {
+            for (PackedLongValues.Iterator it = partition.ordDeltas[i].build().iterator(); it.hasNext(); ) {
+              final long delta = it.next() + offset;
+              ordDeltaBits[i] |= delta;
+              ordDeltas[i].add(delta);
+            }
+          }
+          offset += partition.valueCount;
+        }
+        return new Partition(globalOrdDeltas, firstSegments, ordDeltas, ordDeltaBits, offset);
+      }
+
+      // globalOrd -> (globalOrd - segmentOrd), relative to the first ordinal of the partition
+      final PackedLongValues.Builder globalOrdDeltas;
+      // globalOrd -> first segment container
+      final PackedLongValues.Builder firstSegments;
+      // for every segment, segmentOrd -> (globalOrd - segmentOrd)
+      final PackedLongValues.Builder[] ordDeltas;
+      final long[] ordDeltaBits;
+      final long valueCount;
+
+      Partition(PackedLongValues.Builder globalOrdDeltas, PackedLongValues.Builder firstSegments,
+          PackedLongValues.Builder[] ordDeltas, long[] ordDeltaBits, long valueCount) {
+        this.globalOrdDeltas = globalOrdDeltas;
+        this.firstSegments = firstSegments;
+        this.ordDeltas = ordDeltas;
+        this.ordDeltaBits = ordDeltaBits;
+        this.valueCount = valueCount;
+      }
+    }
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
+
+    /** Cache key of whoever asked for this awful thing */
+    public final Object owner;
+    // globalOrd -> (globalOrd - segmentOrd) where segmentOrd is the the ordinal in the first segment that contains this term
+    final PackedLongValues globalOrdDeltas;
+    // globalOrd -> first segment container
+    final PackedLongValues firstSegments;
+    // for every segment, segmentOrd -> globalOrd
+    final LongValues segmentToGlobalOrds[];
+    // the map from/to segment ids
+    final SegmentMap segmentMap;
+    // ram usage
+    final long ramBytesUsed;
+    
+    OrdinalMap(Object owner, SegmentMap segmentMap, Partition partition, float acceptableOverheadRatio) {
+      this.owner = owner;
+      this.segmentMap = segmentMap;
+      this.firstSegments = partition.firstSegments.build();
+      this.globalOrdDeltas = partition.globalOrdDeltas.build();
+      final PackedLongValues.Builder[] ordDeltas = partition.ordDeltas;
+      final long[] ordDeltaBits = partition.ordDeltaBits;
       // ordDeltas is typically the bottleneck, so let's see what we can do to make it faster
-      segmentToGlobalOrds = new LongValues[subs.length];
+      segmentToGlobalOrds = new LongValues[ordDeltas.length];
       long ramBytesUsed = BASE_RAM_BYTES_USED + this.globalOrdDeltas.ramBytesUsed()
           + this.firstSegments.ramBytesUsed() + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
           + segmentMap.ramBytesUsed();
@@ -26,6 +26,7 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FloatPoint;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.bkd.BKDWriter;
 
@@ -206,6 +207,25 @@ public abstract class PointValues {
      *  docID order. */
     void visit(int docID, byte[] packedValue) throws IOException;
 
+    /** Similar to {@link #visit(int)}, but a bulk visit: called with all documents of a leaf cell
+     *  that's fully contained by the query. The default implementation calls {@link #visit(int)}
+     *  for each document. */
+    default void visit(DocIdSetIterator iterator) throws IOException {
+      for (int docID = iterator.nextDoc(); docID != DocIdSetIterator.NO_MORE_DOCS; docID = iterator.nextDoc()) {
+        visit(docID);
+      }
+    }
+
+    /** Similar to {@link #visit(int, byte[])}, but a bulk visit: called with all documents of a leaf
+     *  cell that crosses the query and that share the same {@code packedValue}, so that the value only
+     *  needs to be checked once. The default implementation calls {@link #visit(int, byte[])} for
+     *  each document. */
+    default void visit(DocIdSetIterator iterator, byte[] packedValue) throws IOException {
+      for (int docID = iterator.nextDoc(); docID != DocIdSetIterator.NO_MORE_DOCS; docID = iterator.nextDoc()) {
+        visit(docID, packedValue);
+      }
+    }
+
     /** Called for non-leaf cells to test how the cell relates to the query, to
      *  determine how to further recurse down the tree. */
     Relation compare(byte[] minPackedValue, byte[] maxPackedValue);
@@ -220,6 +240,15 @@ public abstract class PointValues {
    *  to test whether each document is deleted, if necessary. */
   public abstract void intersect(IntersectVisitor visitor) throws IOException;
 
+  /** Estimate the number of points that would be visited by {@link #intersect}
+   * with the given {@link IntersectVisitor}. This should run many times faster
+   * than {@link #intersect(IntersectVisitor)}. The default implementation
+   * returns {@link #size()}, which is an upper bound.
+   * @lucene.experimental */
+  public long estimatePointCount(IntersectVisitor visitor) {
+    return size();
+  }
+
   /** Returns minimum value for each dimension, packed, or null if {@link #size} is <code>0</code> */
   public abstract byte[] getMinPackedValue() throws IOException;
 
@@ -39,6 +39,7 @@ final class ExactPhraseScorer extends Scorer {
 
   private final DocIdSetIterator conjunction;
   private final PostingsAndPosition[] postings;
+  private final int[] minFreqs; // in the order of postings, null if no terms are repeated
 
   private int freq;
 
@@ -62,6 +63,7 @@ final class ExactPhraseScorer extends Scorer {
     conjunction = ConjunctionDISI.intersectIterators(iterators);
     assert TwoPhaseIterator.unwrap(conjunction) == null;
     this.postings = postingsAndPositions.toArray(new PostingsAndPosition[postingsAndPositions.size()]);
+    this.minFreqs = PhraseQuery.PostingsAndFreq.minFreqs(postings);
     this.matchCost = matchCost;
   }
 
@@ -70,6 +72,9 @@ final class ExactPhraseScorer extends Scorer {
     return new TwoPhaseIterator(conjunction) {
       @Override
       public boolean matches() throws IOException {
+        if (minFreqs != null && hasMinFreqs() == false) {
+          return false;
+        }
         return phraseFreq() > 0;
       }
 
@@ -120,22 +125,44 @@ final class ExactPhraseScorer extends Scorer {
     return true;
   }
 
+  /** Check that repeated terms occur at least as many times in the current doc as in the phrase. */
+  private boolean hasMinFreqs() throws IOException {
+    for (int i = 0; i < minFreqs.length; ++i) {
+      if (postings[i].postings.freq() < minFreqs[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private int phraseFreq() throws IOException {
     // reset state
     final PostingsAndPosition[] postings = this.postings;
-    for (PostingsAndPosition posting : postings) {
+    int leadIndex = 0;
+    for (int i = 0; i < postings.length; ++i) {
+      final PostingsAndPosition posting = postings[i];
       posting.freq = posting.postings.freq();
       posting.pos = posting.postings.nextPosition();
       posting.upTo = 1;
+      if (posting.freq < postings[leadIndex].freq) {
+        leadIndex = i;
+      }
     }
 
+    // lead with the least frequent term of the doc: we stop as soon as it
+    // runs out of positions, so the positions of the other terms that come
+    // after its last position are never decoded
+    final PostingsAndPosition lead = postings[leadIndex];
+
     int freq = 0;
-    final PostingsAndPosition lead = postings[0];
 
     advanceHead:
     while (true) {
       final int phrasePos = lead.pos - lead.offset;
-      for (int j = 1; j < postings.length; ++j) {
+      for (int j = 0; j < postings.length; ++j) {
+        if (j == leadIndex) {
+          continue;
+        }
         final PostingsAndPosition posting = postings[j];
         final int expectedPos = phrasePos + posting.offset;
 
@@ -34,7 +34,12 @@ import org.apache.lucene.util.automaton.LevenshteinAutomata;
  * <p>This query uses {@link MultiTermQuery.TopTermsBlendedFreqScoringRewrite}
  * as default. So terms will be collected and scored according to their
  * edit distance. Only the top terms are used for building the {@link BooleanQuery}.
- * It is not recommended to change the rewrite mode for fuzzy queries.
+ * It is not recommended to change the rewrite mode for fuzzy queries, but
+ * the top terms of each segment can be collected in parallel by setting a
+ * {@link MultiTermQuery.TopTermsBlendedFreqScoringRewrite} that has an executor.
+ *
+ * <p>The Levenshtein automata of recently searched terms are cached across
+ * queries, so repeating a fuzzy query does not build them again.
  * 
  * <p>At most, this query will match terms up to 
  * {@value org.apache.lucene.util.automaton.LevenshteinAutomata#MAXIMUM_SUPPORTED_DISTANCE} edits. 
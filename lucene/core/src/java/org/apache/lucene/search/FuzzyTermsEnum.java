@@ -35,6 +35,8 @@ import org.apache.lucene.util.automaton.LevenshteinAutomata;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /** Subclass of TermsEnum for enumerating all terms that are similar
  * to the specified filter term.
@@ -79,6 +81,19 @@ public final class FuzzyTermsEnum extends TermsEnum {
 
   // True (the default, in FuzzyQuery) if a transposition should count as a single edit:
   final boolean transpositions;
+
+  /** Maximum number of terms whose automata are kept in {@link #AUTOMATA_CACHE}. */
+  static final int MAX_CACHED_AUTOMATA = 1024;
+
+  // Process-wide LRU cache of the compiled automata of recently searched terms, so that
+  // applications that run the same fuzzy queries repeatedly only build them once:
+  private static final Map<AutomataKey,CompiledAutomaton[]> AUTOMATA_CACHE =
+      new LinkedHashMap<AutomataKey,CompiledAutomaton[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<AutomataKey,CompiledAutomaton[]> eldest) {
+          return size() > MAX_CACHED_AUTOMATA;
+        }
+      };
   
   /**
    * Constructor for enumeration of all terms from specified <code>reader</code> which share a prefix of
@@ -130,18 +145,9 @@ public final class FuzzyTermsEnum extends TermsEnum {
 
     CompiledAutomaton[] prevAutomata = dfaAtt.automata();
     if (prevAutomata == null) {
-      prevAutomata = new CompiledAutomaton[maxEdits+1];
-
-      LevenshteinAutomata builder = 
-        new LevenshteinAutomata(UnicodeUtil.newString(termText, realPrefixLength, termText.length - realPrefixLength), transpositions);
+      prevAutomata = getAutomata(utf16, termText, maxEdits, realPrefixLength, transpositions);
 
-      String prefix = UnicodeUtil.newString(termText, 0, realPrefixLength);
-      for (int i = 0; i <= maxEdits; i++) {
-        Automaton a = builder.toAutomaton(i, prefix);
-        prevAutomata[i] = new CompiledAutomaton(a, true, false);
-      }
-
-      // first segment computes the automata, and we share with subsequent segments via this Attribute:
+      // first segment looks up the automata, and we share with subsequent segments via this Attribute:
       dfaAtt.setAutomata(prevAutomata);
     }
 
@@ -151,6 +157,88 @@ public final class FuzzyTermsEnum extends TermsEnum {
     bottomChanged(null);
   }
   
+  /**
+   * Returns the compiled automata, indexed by edit distance, that accept terms
+   * within 0..maxEdits edits of the given term. Automata only depend on the
+   * term text and the fuzzy parameters, so they are cached across queries.
+   */
+  private static CompiledAutomaton[] getAutomata(String text, int[] termText, int maxEdits, int prefixLength,
+      boolean transpositions) {
+    final AutomataKey key = new AutomataKey(text, maxEdits, prefixLength, transpositions);
+    synchronized (AUTOMATA_CACHE) {
+      CompiledAutomaton[] automata = AUTOMATA_CACHE.get(key);
+      if (automata != null) {
+        return automata;
+      }
+    }
+
+    // build outside of the lock, two threads may build the same automata but they are equal
+    final CompiledAutomaton[] automata = new CompiledAutomaton[maxEdits+1];
+    LevenshteinAutomata builder = 
+      new LevenshteinAutomata(UnicodeUtil.newString(termText, prefixLength, termText.length - prefixLength), transpositions);
+
+    String prefix = UnicodeUtil.newString(termText, 0, prefixLength);
+    for (int i = 0; i <= maxEdits; i++) {
+      Automaton a = builder.toAutomaton(i, prefix);
+      automata[i] = new CompiledAutomaton(a, true, false);
+    }
+
+    synchronized (AUTOMATA_CACHE) {
+      AUTOMATA_CACHE.put(key, automata);
+    }
+    return automata;
+  }
+
+  /** Clears the cache of compiled automata, only for testing. */
+  static void clearAutomataCache() {
+    synchronized (AUTOMATA_CACHE) {
+      AUTOMATA_CACHE.clear();
+    }
+  }
+
+  /** Returns the number of cached automata arrays, only for testing. */
+  static int automataCacheSize() {
+    synchronized (AUTOMATA_CACHE) {
+      return AUTOMATA_CACHE.size();
+    }
+  }
+
+  /** Key of the automata cache. */
+  private static final class AutomataKey {
+    private final String text;
+    private final int maxEdits;
+    private final int prefixLength;
+    private final boolean transpositions;
+
+    AutomataKey(String text, int maxEdits, int prefixLength, boolean transpositions) {
+      this.text = text;
+      this.maxEdits = maxEdits;
+      this.prefixLength = prefixLength;
+      this.transpositions = transpositions;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof AutomataKey == false) {
+        return false;
+      }
+      AutomataKey that = (AutomataKey) obj;
+      return text.equals(that.text)
+          && maxEdits == that.maxEdits
+          && prefixLength == that.prefixLength
+          && transpositions == that.transpositions;
+    }
+
+    @Override
+    public int hashCode() {
+      int h = text.hashCode();
+      h = 31 * h + maxEdits;
+      h = 31 * h + prefixLength;
+      h = 31 * h + Boolean.hashCode(transpositions);
+      return h;
+    }
+  }
+
   /**
    * return an automata-based enum for matching up to editDistance from
    * lastTerm, if possible
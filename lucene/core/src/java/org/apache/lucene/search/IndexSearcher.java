@@ -739,6 +739,14 @@ public class IndexSearcher {
     return weight;
   }
 
+  /**
+   * Returns the {@link ExecutorService} that this searcher uses to search
+   * segments in parallel, or null if it searches them sequentially.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
   /**
    * Returns this searchers the top-level {@link IndexReaderContext}.
    * @see IndexReader#getContext()
@@ -93,4 +93,17 @@ public interface LeafCollector {
    */
   void collect(int doc) throws IOException;
 
+  /**
+   * Optionally returns an iterator over the documents that may still be
+   * competitive, so that bulk scorers can skip the others instead of
+   * collecting them. The collector may change the documents that this iterator
+   * matches as it collects, but only documents that are greater than the last
+   * collected document. The default implementation returns null, which means
+   * that every document must be collected.
+   * @lucene.experimental
+   */
+  default DocIdSetIterator competitiveIterator() throws IOException {
+    return null;
+  }
+
 }
@@ -50,10 +50,25 @@ public final class MatchAllDocsQuery extends Query {
             FakeScorer scorer = new FakeScorer();
             scorer.score = score;
             collector.setScorer(scorer);
-            for (int doc = min; doc < max; ++doc) {
-              scorer.doc = doc;
-              if (acceptDocs == null || acceptDocs.get(doc)) {
-                collector.collect(doc);
+            final DocIdSetIterator competitiveIterator = collector.competitiveIterator();
+            if (competitiveIterator != null) {
+              // only visit documents that the collector still considers competitive
+              int doc = competitiveIterator.docID();
+              if (doc < min) {
+                doc = competitiveIterator.advance(min);
+              }
+              for (; doc < max; doc = competitiveIterator.nextDoc()) {
+                scorer.doc = doc;
+                if (acceptDocs == null || acceptDocs.get(doc)) {
+                  collector.collect(doc);
+                }
+              }
+            } else {
+              for (int doc = min; doc < max; ++doc) {
+                scorer.doc = doc;
+                if (acceptDocs == null || acceptDocs.get(doc)) {
+                  collector.collect(doc);
+                }
               }
             }
             return max == maxDoc ? DocIdSetIterator.NO_MORE_DOCS : max;
@@ -19,6 +19,7 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.index.FilteredTermsEnum; // javadocs
 import org.apache.lucene.index.IndexReader;
@@ -149,6 +150,15 @@ public abstract class MultiTermQuery extends Query {
     public TopTermsScoringBooleanQueryRewrite(int size) {
       super(size);
     }
+
+    /**
+     * Create a TopTermsScoringBooleanQueryRewrite for at most <code>size</code> terms,
+     * collecting the terms of each segment in parallel on the given executor.
+     * @see TopTermsRewrite#TopTermsRewrite(int, ExecutorService)
+     */
+    public TopTermsScoringBooleanQueryRewrite(int size, ExecutorService executor) {
+      super(size, executor);
+    }
     
     @Override
     protected int getMaxSize() {
@@ -199,6 +209,15 @@ public abstract class MultiTermQuery extends Query {
       super(size);
     }
 
+    /**
+     * Create a TopTermsBlendedFreqScoringRewrite for at most <code>size</code> terms,
+     * collecting the terms of each segment in parallel on the given executor.
+     * @see TopTermsRewrite#TopTermsRewrite(int, ExecutorService)
+     */
+    public TopTermsBlendedFreqScoringRewrite(int size, ExecutorService executor) {
+      super(size, executor);
+    }
+
     @Override
     protected int getMaxSize() {
       return BooleanQuery.getMaxClauseCount();
@@ -245,6 +264,15 @@ public abstract class MultiTermQuery extends Query {
     public TopTermsBoostOnlyBooleanQueryRewrite(int size) {
       super(size);
     }
+
+    /**
+     * Create a TopTermsBoostOnlyBooleanQueryRewrite for at most <code>size</code> terms,
+     * collecting the terms of each segment in parallel on the given executor.
+     * @see TopTermsRewrite#TopTermsRewrite(int, ExecutorService)
+     */
+    public TopTermsBoostOnlyBooleanQueryRewrite(int size, ExecutorService executor) {
+      super(size, executor);
+    }
     
     @Override
     protected int getMaxSize() {
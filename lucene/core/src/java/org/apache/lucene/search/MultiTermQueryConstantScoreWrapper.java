@@ -18,9 +18,14 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PostingsEnum;
@@ -32,6 +37,7 @@ import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.DocIdSetBuilder;
+import org.apache.lucene.util.ThreadInterruptedException;
 
 /**
  * This class also provides the functionality behind
@@ -39,13 +45,23 @@ import org.apache.lucene.util.DocIdSetBuilder;
  * It tries to rewrite per-segment as a boolean query
  * that returns a constant score and otherwise fills a
  * bit set with matches and builds a Scorer on top of
- * this bit set.
+ * this bit set. If the {@link IndexSearcher} has an
+ * executor and this query is bulk-scored, which means that
+ * all segments are going to be visited, the next few segments
+ * are rewritten in parallel on it while a segment is scored.
  */
 final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends Query {
 
   // mtq that matches 16 terms or less will be executed as a regular disjunction
   private static final int BOOLEAN_REWRITE_TERM_COUNT_THRESHOLD = 16;
 
+  // cost estimation gives up on mtqs that match more terms than that
+  private static final int COST_ESTIMATION_TERM_COUNT_THRESHOLD = 1024;
+
+  // number of segments that are rewritten ahead of a bulk-scored segment, which bounds the
+  // rewrites that keep running and the doc id sets that are kept if the search stops early
+  static final int PREFETCH_SEGMENT_COUNT = 4;
+
   private static class TermAndState {
     final BytesRef term;
     final TermState state;
@@ -60,6 +76,9 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
     }
   }
 
+  // marks rewrite tasks whose result was consumed
+  private static final FutureTask<WeightOrDocIdSet> CONSUMED = new FutureTask<>(() -> null);
+
   private static class WeightOrDocIdSet {
     final Weight weight;
     final DocIdSet set;
@@ -109,8 +128,13 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
 
   @Override
   public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost) throws IOException {
+    final ExecutorService executor = searcher.getExecutor();
+    final List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
     return new ConstantScoreWeight(this, boost) {
 
+      /** Per-segment rewrites that run on the searcher's executor, created when the first segment is bulk-scored. */
+      private volatile AtomicReferenceArray<FutureTask<WeightOrDocIdSet>> rewriteTasks;
+
       /** Try to collect terms from the given terms enum and return true iff all
        *  terms could be collected. If {@code false} is returned, the enum is
        *  left positioned on the next term. */
@@ -130,8 +154,66 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
       /**
        * On the given leaf context, try to either rewrite to a disjunction if
        * there are few terms, or build a bitset containing matching docs.
+       * If {@code prefetch} is true and the searcher has an executor, the next
+       * {@link #PREFETCH_SEGMENT_COUNT} segments are rewritten in parallel: this
+       * should only be used when all segments are going to be visited.
        */
-      private WeightOrDocIdSet rewrite(LeafReaderContext context) throws IOException {
+      private WeightOrDocIdSet rewrite(LeafReaderContext context, boolean prefetch) throws IOException {
+        if (executor == null || leaves.size() <= 1 || leaves.get(context.ord) != context) {
+          return doRewrite(context);
+        }
+        final AtomicReferenceArray<FutureTask<WeightOrDocIdSet>> tasks = prefetch ? rewriteTasks() : rewriteTasks;
+        if (tasks == null) {
+          // no prefetching: only rewrite the segment that is needed
+          return doRewrite(context);
+        }
+        final FutureTask<WeightOrDocIdSet> task = tasks.getAndSet(context.ord, CONSUMED);
+        if (prefetch) {
+          final int end = Math.min(context.ord + PREFETCH_SEGMENT_COUNT, leaves.size() - 1);
+          for (int ord = context.ord + 1; ord <= end; ++ord) {
+            prefetch(tasks, leaves.get(ord));
+          }
+        }
+        if (task == null || task == CONSUMED) {
+          // this segment was not prefetched, or already consumed: do not keep its doc id set around, and rewrite again
+          return doRewrite(context);
+        }
+        // runs the rewrite in the current thread if the executor has not started it yet,
+        // so that we never wait on a task that is still queued behind busy threads
+        task.run();
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          throw new ThreadInterruptedException(e);
+        } catch (ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new RuntimeException(cause);
+        }
+      }
+
+      private synchronized AtomicReferenceArray<FutureTask<WeightOrDocIdSet>> rewriteTasks() {
+        if (rewriteTasks == null) {
+          rewriteTasks = new AtomicReferenceArray<>(leaves.size());
+        }
+        return rewriteTasks;
+      }
+
+      /** Start rewriting the given segment on the executor, unless it was already started or consumed. */
+      private void prefetch(AtomicReferenceArray<FutureTask<WeightOrDocIdSet>> tasks, LeafReaderContext leaf) {
+        final FutureTask<WeightOrDocIdSet> task = new FutureTask<>(() -> doRewrite(leaf));
+        if (tasks.compareAndSet(leaf.ord, null, task)) {
+          executor.execute(task);
+        }
+      }
+
+      private WeightOrDocIdSet doRewrite(LeafReaderContext context) throws IOException {
         final Terms terms = context.reader().terms(query.field);
         if (terms == null) {
           // field does not exist
@@ -190,7 +272,8 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
 
       @Override
       public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
-        final WeightOrDocIdSet weightOrBitSet = rewrite(context);
+        // bulk scorers are pulled by IndexSearcher for every segment
+        final WeightOrDocIdSet weightOrBitSet = rewrite(context, true);
         if (weightOrBitSet.weight != null) {
           return weightOrBitSet.weight.bulkScorer(context);
         } else {
@@ -202,9 +285,67 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
         }
       }
 
+      /**
+       * Estimate the number of matching documents by summing up the document
+       * frequencies of the matching terms. Gives up and returns maxDoc if there
+       * are too many terms to enumerate them cheaply.
+       */
+      private long estimateCost(LeafReaderContext context, Terms terms) throws IOException {
+        final int maxDoc = context.reader().maxDoc();
+        final TermsEnum termsEnum = query.getTermsEnum(terms);
+        long cost = 0;
+        for (int i = 0; i < COST_ESTIMATION_TERM_COUNT_THRESHOLD; ++i) {
+          if (termsEnum.next() == null) {
+            return Math.min(cost, maxDoc);
+          }
+          cost += termsEnum.docFreq();
+          if (cost >= maxDoc) {
+            return maxDoc;
+          }
+        }
+        return termsEnum.next() == null ? cost : maxDoc;
+      }
+
+      @Override
+      public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+        final Terms terms = context.reader().terms(query.field);
+        if (terms == null) {
+          // field does not exist
+          return null;
+        }
+        final Weight weight = this;
+        // terms are only rewritten once the scorer is needed, so that the cost
+        // can be used to decide how to execute this query first
+        return new ScorerSupplier() {
+
+          long cost = -1;
+
+          @Override
+          public Scorer get(boolean randomAccess) throws IOException {
+            Scorer scorer = scorer(context);
+            if (scorer == null) {
+              scorer = new ConstantScoreScorer(weight, score(), DocIdSetIterator.empty());
+            }
+            return scorer;
+          }
+
+          @Override
+          public long cost() {
+            if (cost == -1) {
+              try {
+                cost = estimateCost(context, terms);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            }
+            return cost;
+          }
+        };
+      }
+
       @Override
       public Scorer scorer(LeafReaderContext context) throws IOException {
-        final WeightOrDocIdSet weightOrBitSet = rewrite(context);
+        final WeightOrDocIdSet weightOrBitSet = rewrite(context, false);
         if (weightOrBitSet.weight != null) {
           return weightOrBitSet.weight.scorer(context);
         } else {
@@ -348,6 +348,50 @@ public class PhraseQuery extends Query {
       if (terms == null) return other.terms == null;
       return Arrays.equals(terms, other.terms);
     }
+
+    /**
+     * Returns, for each of the given postings, the frequency that a document
+     * needs at least in order to match the phrase, which is the number of
+     * distinct positions of the phrase that have the same terms, or null if no
+     * terms are repeated at distinct positions. Both exact and sloppy phrases
+     * need a different document position for every such phrase position, which
+     * lets scorers reject documents without decoding any position. Terms that
+     * are repeated at the same position, as produced by analysis chains that
+     * emit duplicate tokens, can match the same document position.
+     */
+    static int[] minFreqs(PostingsAndFreq[] postings) {
+      int[] minFreqs = null;
+      for (int i = 0; i < postings.length; i++) {
+        if (postings[i].terms == null) {
+          continue;
+        }
+        int distinctPositions = 1;
+        for (int j = 0; j < postings.length; j++) {
+          if (i != j && Arrays.equals(postings[i].terms, postings[j].terms)
+              && postings[i].position != postings[j].position && isFirstAtPosition(postings, j)) {
+            distinctPositions++;
+          }
+        }
+        if (distinctPositions > 1) {
+          if (minFreqs == null) {
+            minFreqs = new int[postings.length];
+            Arrays.fill(minFreqs, 1);
+          }
+          minFreqs[i] = distinctPositions;
+        }
+      }
+      return minFreqs;
+    }
+
+    /** Returns true if no postings before {@code index} have the same terms and position. */
+    private static boolean isFirstAtPosition(PostingsAndFreq[] postings, int index) {
+      for (int k = 0; k < index; k++) {
+        if (postings[k].position == postings[index].position && Arrays.equals(postings[k].terms, postings[index].terms)) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   private class PhraseWeight extends Weight {
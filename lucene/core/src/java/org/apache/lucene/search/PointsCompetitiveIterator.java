@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.PointValues.IntersectVisitor;
+import org.apache.lucene.index.PointValues.Relation;
+import org.apache.lucene.util.DocIdSetBuilder;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * A {@link DocIdSetIterator} over the documents of a segment that may still
+ * be competitive for a numeric sort, computed from the points of the sort
+ * field. Every time the collector tells it the new bottom value of its queue,
+ * it may narrow down the documents that it matches to those whose value
+ * compares better than or equal to the bottom.
+ * <p>
+ * Values are compared in the sortable long space of
+ * {@link NumericUtils}, so that all numeric types share the same logic.
+ */
+final class PointsCompetitiveIterator extends DocIdSetIterator {
+
+  // only replace the competitive documents if that divides their number by at least this factor
+  private static final int MIN_SKIP_FACTOR = 8;
+
+  // past this number of updates of the bottom value, only try to narrow down documents every 32 updates
+  private static final int MAX_EAGER_UPDATES = 256;
+
+  /**
+   * Returns an iterator for the given segment and sort, or null if the segment
+   * has no points for the sort field or they do not have the expected format.
+   * @param topValue the value of the top of the previous page, or null
+   */
+  static PointsCompetitiveIterator create(LeafReaderContext context, SortField sortField, Object topValue) throws IOException {
+    assert sortField.getCanUsePoints();
+    final PointValues values = context.reader().getPointValues(sortField.getField());
+    if (values == null) {
+      return null;
+    }
+    final SortField.Type type = sortField.getType();
+    final int bytesPerDim = type == SortField.Type.INT || type == SortField.Type.FLOAT ? Integer.BYTES : Long.BYTES;
+    if (values.getNumDimensions() != 1 || values.getBytesPerDimension() != bytesPerDim) {
+      return null;
+    }
+    Object missingValue = sortField.getMissingValue();
+    if (missingValue == null) {
+      // same default as the numeric comparators
+      switch (type) {
+        case INT:
+          missingValue = 0;
+          break;
+        case LONG:
+          missingValue = 0L;
+          break;
+        case FLOAT:
+          missingValue = 0f;
+          break;
+        case DOUBLE:
+          missingValue = 0d;
+          break;
+        default:
+          throw new AssertionError();
+      }
+    }
+    return new PointsCompetitiveIterator(context.reader().maxDoc(), values, sortField.getField(), type,
+        sortField.getReverse(), sortableLong(type, missingValue), topValue);
+  }
+
+  /** Encodes a value of the given type so that longs compare like values. */
+  private static long sortableLong(SortField.Type type, Object value) {
+    switch (type) {
+      case INT:
+        return (Integer) value;
+      case LONG:
+        return (Long) value;
+      case FLOAT:
+        return NumericUtils.floatToSortableInt((Float) value);
+      case DOUBLE:
+        return NumericUtils.doubleToSortableLong((Double) value);
+      default:
+        throw new AssertionError();
+    }
+  }
+
+  private final int maxDoc;
+  private final PointValues values;
+  private final String field;
+  private final SortField.Type type;
+  private final int bytesPerDim;
+  private final boolean reverse;
+  private final long missingValue;
+  private final boolean hasTopValue;
+  private final long topValue;
+
+  private DocIdSetIterator competitive;
+  private long competitiveCost;
+  private int doc = -1;
+  private int updates;
+
+  private PointsCompetitiveIterator(int maxDoc, PointValues values, String field, SortField.Type type, boolean reverse,
+      long missingValue, Object topValue) throws IOException {
+    this.maxDoc = maxDoc;
+    this.values = values;
+    this.field = field;
+    this.type = type;
+    this.bytesPerDim = values.getBytesPerDimension();
+    this.reverse = reverse;
+    this.missingValue = missingValue;
+    this.hasTopValue = topValue != null;
+    this.topValue = topValue == null ? 0 : sortableLong(type, topValue);
+    this.competitive = DocIdSetIterator.all(maxDoc);
+    this.competitiveCost = maxDoc;
+    if (hasTopValue) {
+      // documents that sort before the previous page have been collected already
+      update(null, 0, -1);
+    }
+  }
+
+  private long decode(byte[] packedValue) {
+    return bytesPerDim == Integer.BYTES
+        ? NumericUtils.sortableBytesToInt(packedValue, 0)
+        : NumericUtils.sortableBytesToLong(packedValue, 0);
+  }
+
+  /**
+   * Called when the bottom of the queue changed, possibly narrowing down the
+   * competitive documents to those that are greater than {@code lastDoc} and
+   * compare better than or equal to the bottom value.
+   * @param comparator the comparator of the sort field, or null if the queue is not full yet
+   * @param bottomSlot the slot of the bottom of the queue
+   * @param lastDoc the last collected document, -1 if no document was collected in this segment
+   */
+  void update(FieldComparator<?> comparator, int bottomSlot, int lastDoc) throws IOException {
+    if (++updates > MAX_EAGER_UPDATES && (updates & 0x1f) != 0) {
+      return;
+    }
+
+    final boolean hasBottomValue = comparator != null;
+    final long bottomValue = hasBottomValue ? sortableLong(type, comparator.value(bottomSlot)) : 0;
+    final long lower, upper;
+    if (reverse == false) {
+      lower = hasTopValue ? topValue : Long.MIN_VALUE;
+      upper = hasBottomValue ? bottomValue : Long.MAX_VALUE;
+    } else {
+      lower = hasBottomValue ? bottomValue : Long.MIN_VALUE;
+      upper = hasTopValue ? topValue : Long.MAX_VALUE;
+    }
+    if (missingValue >= lower && missingValue <= upper) {
+      // documents without a value might be competitive, but they are not indexed in points
+      return;
+    }
+
+    final DocIdSetBuilder builder = new DocIdSetBuilder(maxDoc, values, field);
+    final IntersectVisitor visitor = new IntersectVisitor() {
+
+      DocIdSetBuilder.BulkAdder adder;
+
+      @Override
+      public void grow(int count) {
+        adder = builder.grow(count);
+      }
+
+      @Override
+      public void visit(int docID) {
+        if (docID > lastDoc) {
+          adder.add(docID);
+        }
+      }
+
+      @Override
+      public void visit(int docID, byte[] packedValue) {
+        if (docID > lastDoc) {
+          final long value = decode(packedValue);
+          if (value >= lower && value <= upper) {
+            adder.add(docID);
+          }
+        }
+      }
+
+      @Override
+      public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+        final long min = decode(minPackedValue);
+        final long max = decode(maxPackedValue);
+        if (min > upper || max < lower) {
+          return Relation.CELL_OUTSIDE_QUERY;
+        } else if (min >= lower && max <= upper) {
+          return Relation.CELL_INSIDE_QUERY;
+        }
+        return Relation.CELL_CROSSES_QUERY;
+      }
+    };
+
+    if (lower <= upper) {
+      final long estimate = values.estimatePointCount(visitor);
+      if (estimate * MIN_SKIP_FACTOR > competitiveCost) {
+        // not worth it: iterating the points would cost more than it saves
+        return;
+      }
+      values.intersect(visitor);
+    }
+    final DocIdSetIterator iterator = builder.build().iterator();
+    competitive = iterator == null ? DocIdSetIterator.empty() : iterator;
+    competitiveCost = competitive.cost();
+  }
+
+  @Override
+  public int docID() {
+    return doc;
+  }
+
+  @Override
+  public int nextDoc() throws IOException {
+    if (doc == NO_MORE_DOCS) {
+      return NO_MORE_DOCS;
+    }
+    return advance(doc + 1);
+  }
+
+  @Override
+  public int advance(int target) throws IOException {
+    // the competitive documents may have been replaced since the last call,
+    // in which case the new iterator is not positioned yet
+    int d = competitive.docID();
+    if (d < target) {
+      d = competitive.advance(target);
+    }
+    return doc = d;
+  }
+
+  @Override
+  public long cost() {
+    return competitiveCost;
+  }
+}
@@ -17,6 +17,10 @@
 package org.apache.lucene.search;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -51,7 +55,41 @@ public abstract class ScoringRewrite<B> extends TermCollectingRewrite<B> {
    *  exceeds {@link BooleanQuery#getMaxClauseCount}.
    *
    *  @see MultiTermQuery#setRewriteMethod */
-  public final static ScoringRewrite<BooleanQuery.Builder> SCORING_BOOLEAN_REWRITE = new ScoringRewrite<BooleanQuery.Builder>() {
+  public final static ScoringRewrite<BooleanQuery.Builder> SCORING_BOOLEAN_REWRITE = new ScoringBooleanRewrite(null);
+  
+  /** Like {@link #SCORING_BOOLEAN_REWRITE} except
+   *  scores are not computed.  Instead, each matching
+   *  document receives a constant score equal to the
+   *  query's boost.
+   * 
+   *  <p><b>NOTE</b>: This rewrite method will hit {@link
+   *  BooleanQuery.TooManyClauses} if the number of terms
+   *  exceeds {@link BooleanQuery#getMaxClauseCount}.
+   *
+   *  @see MultiTermQuery#setRewriteMethod */
+  public final static RewriteMethod CONSTANT_SCORE_BOOLEAN_REWRITE = new ConstantScoreBooleanRewrite(SCORING_BOOLEAN_REWRITE);
+
+  /** Like {@link #SCORING_BOOLEAN_REWRITE}, but the terms of each segment are
+   *  collected in parallel on the given executor, and then merged. Create one
+   *  instance per executor and reuse it, since rewrite methods are part of the
+   *  equality of queries. */
+  public static ScoringRewrite<BooleanQuery.Builder> scoringBooleanRewrite(ExecutorService executor) {
+    return new ScoringBooleanRewrite(Objects.requireNonNull(executor));
+  }
+
+  /** Like {@link #CONSTANT_SCORE_BOOLEAN_REWRITE}, but the terms of each segment
+   *  are collected in parallel on the given executor, and then merged.
+   *  @see #scoringBooleanRewrite(ExecutorService) */
+  public static RewriteMethod constantScoreBooleanRewrite(ExecutorService executor) {
+    return new ConstantScoreBooleanRewrite(scoringBooleanRewrite(executor));
+  }
+
+  private static final class ScoringBooleanRewrite extends ScoringRewrite<BooleanQuery.Builder> {
+
+    ScoringBooleanRewrite(ExecutorService executor) {
+      super(executor);
+    }
+
     @Override
     protected BooleanQuery.Builder getTopLevelBuilder() {
       return new BooleanQuery.Builder();
@@ -74,26 +112,33 @@ public abstract class ScoringRewrite<B> extends TermCollectingRewrite<B> {
       if (count > BooleanQuery.getMaxClauseCount())
         throw new BooleanQuery.TooManyClauses();
     }
-  };
-  
-  /** Like {@link #SCORING_BOOLEAN_REWRITE} except
-   *  scores are not computed.  Instead, each matching
-   *  document receives a constant score equal to the
-   *  query's boost.
-   * 
-   *  <p><b>NOTE</b>: This rewrite method will hit {@link
-   *  BooleanQuery.TooManyClauses} if the number of terms
-   *  exceeds {@link BooleanQuery#getMaxClauseCount}.
-   *
-   *  @see MultiTermQuery#setRewriteMethod */
-  public final static RewriteMethod CONSTANT_SCORE_BOOLEAN_REWRITE = new RewriteMethod() {
+  }
+
+  private static final class ConstantScoreBooleanRewrite extends RewriteMethod {
+    private final ScoringRewrite<BooleanQuery.Builder> scoringRewrite;
+
+    ConstantScoreBooleanRewrite(ScoringRewrite<BooleanQuery.Builder> scoringRewrite) {
+      this.scoringRewrite = scoringRewrite;
+    }
+
     @Override
     public Query rewrite(IndexReader reader, MultiTermQuery query) throws IOException {
-      final Query bq = SCORING_BOOLEAN_REWRITE.rewrite(reader, query);
+      final Query bq = scoringRewrite.rewrite(reader, query);
       // strip the scores off
       return new ConstantScoreQuery(bq);
     }
-  };
+  }
+
+  /** Creates a rewrite that collects the terms of each segment sequentially. */
+  protected ScoringRewrite() {
+    this(null);
+  }
+
+  /** Creates a rewrite that collects the terms of each segment in parallel on
+   *  the given executor, or sequentially if it is null. */
+  protected ScoringRewrite(ExecutorService executor) {
+    super(executor);
+  }
 
   /** This method is called after every new term to check if the number of max clauses
    * (e.g. in BooleanQuery) is not exceeded. Throws the corresponding {@link RuntimeException}. */
@@ -102,8 +147,19 @@ public abstract class ScoringRewrite<B> extends TermCollectingRewrite<B> {
   @Override
   public final Query rewrite(final IndexReader reader, final MultiTermQuery query) throws IOException {
     final B builder = getTopLevelBuilder();
-    final ParallelArraysTermCollector col = new ParallelArraysTermCollector();
-    collectTerms(reader, query, col);
+    final ParallelArraysTermCollector col;
+    final int numLeaves = reader.leaves().size();
+    if (executor == null || numLeaves <= 1) {
+      col = new ParallelArraysTermCollector();
+      collectTerms(reader, query, col);
+    } else {
+      final List<ParallelArraysTermCollector> collectors = new ArrayList<>(numLeaves);
+      for (int i = 0; i < numLeaves; ++i) {
+        collectors.add(new ParallelArraysTermCollector());
+      }
+      collectTermsPerLeaf(reader, query, collectors);
+      col = merge(collectors);
+    }
     
     final int size = col.terms.size();
     if (size > 0) {
@@ -120,6 +176,31 @@ public abstract class ScoringRewrite<B> extends TermCollectingRewrite<B> {
     return build(builder);
   }
 
+  /** Merges the terms that were collected for each segment, in segment order. */
+  private ParallelArraysTermCollector merge(List<ParallelArraysTermCollector> collectors) throws IOException {
+    final ParallelArraysTermCollector merged = new ParallelArraysTermCollector();
+    final BytesRef bytes = new BytesRef();
+    for (int ord = 0; ord < collectors.size(); ++ord) {
+      final ParallelArraysTermCollector col = collectors.get(ord);
+      for (int i = 0; i < col.terms.size(); ++i) {
+        col.terms.get(i, bytes);
+        final TermContext termState = col.array.termState[i];
+        final int e = merged.terms.add(bytes);
+        if (e < 0) {
+          // term already seen in a previous segment: register this segment's state
+          final int pos = (-e)-1;
+          merged.array.termState[pos].register(termState.get(ord), ord, termState.docFreq(), termState.totalTermFreq());
+          assert merged.array.boost[pos] == col.array.boost[i] : "boost should be equal in all segment TermsEnums";
+        } else {
+          merged.array.boost[e] = col.array.boost[i];
+          merged.array.termState[e] = termState;
+          checkMaxClauseCount(merged.terms.size());
+        }
+      }
+    }
+    return merged;
+  }
+
   final class ParallelArraysTermCollector extends TermCollector {
     final TermFreqBoostByteStart array = new TermFreqBoostByteStart(16);
     final BytesRefHash terms = new BytesRefHash(new ByteBlockPool(new ByteBlockPool.DirectAllocator()), 16, array);
@@ -33,6 +33,7 @@ final class SloppyPhraseScorer extends Scorer {
 
   private final DocIdSetIterator conjunction;
   private final PhrasePositions[] phrasePositions;
+  private final int[] minFreqs; // in the order of phrasePositions, null if no terms are repeated
 
   private float sloppyFreq; //phrase frequency in current doc as computed by phraseFreq().
 
@@ -71,6 +72,7 @@ final class SloppyPhraseScorer extends Scorer {
     }
     conjunction = ConjunctionDISI.intersectIterators(Arrays.asList(iterators));
     assert TwoPhaseIterator.unwrap(conjunction) == null;
+    minFreqs = PhraseQuery.PostingsAndFreq.minFreqs(postings);
     this.matchCost = matchCost;
   }
 
@@ -560,11 +562,29 @@ final class SloppyPhraseScorer extends Scorer {
   @Override
   public String toString() { return "scorer(" + weight + ")"; }
 
+  /**
+   * Repeating pps can never share a position, so a doc can only match if
+   * repeated terms occur at least as many times in it as in the phrase.
+   * This is checked on frequencies, before decoding any position.
+   */
+  private boolean hasMinFreqs() throws IOException {
+    for (int i = 0; i < minFreqs.length; ++i) {
+      if (phrasePositions[i].postings.freq() < minFreqs[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public TwoPhaseIterator twoPhaseIterator() {
     return new TwoPhaseIterator(conjunction) {
       @Override
       public boolean matches() throws IOException {
+        if (minFreqs != null && hasMinFreqs() == false) {
+          sloppyFreq = 0F;
+          return false;
+        }
         sloppyFreq = phraseFreq(); // check for phrase
         return sloppyFreq != 0F;
       }
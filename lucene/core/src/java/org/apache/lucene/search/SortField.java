@@ -323,6 +323,36 @@ public class SortField {
     return bytesComparator;
   }
 
+  private boolean canUsePoints = false;
+
+  /**
+   * Allows {@link TopFieldCollector}s that do not need to count all hits to
+   * skip non-competitive documents using the points of this field. This must
+   * only be enabled on {@link Type#INT}, {@link Type#LONG}, {@link Type#FLOAT}
+   * and {@link Type#DOUBLE} sorts when every document also indexes its single
+   * doc value as a one-dimension point of the same type under the same field
+   * name, eg. with {@link org.apache.lucene.document.LongPoint}.
+   * @lucene.experimental
+   */
+  public void setCanUsePoints() {
+    switch (type) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        canUsePoints = true;
+        break;
+      default:
+        throw new IllegalStateException("Points can only be used to sort on numeric fields, got " + type);
+    }
+  }
+
+  /** Returns whether this sort may skip documents using points.
+   * @see #setCanUsePoints() */
+  public boolean getCanUsePoints() {
+    return canUsePoints;
+  }
+
   /** Returns the {@link FieldComparator} to use for
    * sorting.
    *
@@ -18,6 +18,12 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.IndexReader;
@@ -28,10 +34,21 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.AttributeSource;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.ThreadInterruptedException;
 
 abstract class TermCollectingRewrite<B> extends MultiTermQuery.RewriteMethod {
-  
-  
+
+  /** Executor that collects the terms of each segment in parallel, or null to collect them sequentially. */
+  final ExecutorService executor;
+
+  TermCollectingRewrite() {
+    this(null);
+  }
+
+  TermCollectingRewrite(ExecutorService executor) {
+    this.executor = executor;
+  }
+
   /** Return a suitable builder for the top-level Query for holding all expanded terms. */
   protected abstract B getTopLevelBuilder() throws IOException;
 
@@ -49,24 +66,74 @@ abstract class TermCollectingRewrite<B> extends MultiTermQuery.RewriteMethod {
   final void collectTerms(IndexReader reader, MultiTermQuery query, TermCollector collector) throws IOException {
     IndexReaderContext topReaderContext = reader.getContext();
     for (LeafReaderContext context : topReaderContext.leaves()) {
-      final Terms terms = context.reader().terms(query.field);
-      if (terms == null) {
-        // field does not exist
-        continue;
-      }
+      if (!collectTerms(topReaderContext, context, query, collector))
+        return; // interrupt whole term collection, so also don't iterate other subReaders
+    }
+  }
+
+  /** Collects the terms of a single segment, returns false if the collector interrupted the collection. */
+  final boolean collectTerms(IndexReaderContext topReaderContext, LeafReaderContext context, MultiTermQuery query,
+      TermCollector collector) throws IOException {
+    final Terms terms = context.reader().terms(query.field);
+    if (terms == null) {
+      // field does not exist
+      return true;
+    }
+
+    final TermsEnum termsEnum = getTermsEnum(query, terms, collector.attributes);
+    assert termsEnum != null;
+
+    if (termsEnum == TermsEnum.EMPTY)
+      return true;
 
-      final TermsEnum termsEnum = getTermsEnum(query, terms, collector.attributes);
-      assert termsEnum != null;
-
-      if (termsEnum == TermsEnum.EMPTY)
-        continue;
-      
-      collector.setReaderContext(topReaderContext, context);
-      collector.setNextEnum(termsEnum);
-      BytesRef bytes;
-      while ((bytes = termsEnum.next()) != null) {
-        if (!collector.collect(bytes))
-          return; // interrupt whole term collection, so also don't iterate other subReaders
+    collector.setReaderContext(topReaderContext, context);
+    collector.setNextEnum(termsEnum);
+    BytesRef bytes;
+    while ((bytes = termsEnum.next()) != null) {
+      if (!collector.collect(bytes))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Collects the terms of every segment into its own collector, running
+   * segments in parallel on {@link #executor}. There must be one collector
+   * per segment, in segment order. Collectors have distinct attributes, so term enums cannot
+   * share state across segments.
+   */
+  final void collectTermsPerLeaf(IndexReader reader, final MultiTermQuery query,
+      List<? extends TermCollector> collectors) throws IOException {
+    final IndexReaderContext topReaderContext = reader.getContext();
+    final List<LeafReaderContext> leaves = topReaderContext.leaves();
+    assert collectors.size() == leaves.size();
+    final List<Future<?>> futures = new ArrayList<>(leaves.size());
+    for (int i = 0; i < leaves.size(); ++i) {
+      final LeafReaderContext context = leaves.get(i);
+      final TermCollector collector = collectors.get(i);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          collectTerms(topReaderContext, context, query, collector);
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
       }
     }
   }
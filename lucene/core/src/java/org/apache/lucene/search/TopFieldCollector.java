@@ -44,12 +44,15 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final LeafFieldComparator comparator;
     final int reverseMul;
     final boolean mayNeedScoresTwice;
+    final PointsCompetitiveIterator competitiveIterator;
     Scorer scorer;
 
-    OneComparatorLeafCollector(LeafFieldComparator comparator, int reverseMul, boolean mayNeedScoresTwice) {
+    OneComparatorLeafCollector(LeafFieldComparator comparator, int reverseMul, boolean mayNeedScoresTwice,
+        PointsCompetitiveIterator competitiveIterator) {
       this.comparator = comparator;
       this.reverseMul = reverseMul;
       this.mayNeedScoresTwice = mayNeedScoresTwice;
+      this.competitiveIterator = competitiveIterator;
     }
 
     @Override
@@ -60,6 +63,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       this.scorer = scorer;
       comparator.setScorer(scorer);
     }
+
+    @Override
+    public DocIdSetIterator competitiveIterator() {
+      return competitiveIterator;
+    }
   }
 
   private static abstract class MultiComparatorLeafCollector implements LeafCollector {
@@ -69,14 +77,17 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final LeafFieldComparator firstComparator;
     final int firstReverseMul;
     final boolean mayNeedScoresTwice;
+    final PointsCompetitiveIterator competitiveIterator;
     Scorer scorer;
 
-    MultiComparatorLeafCollector(LeafFieldComparator[] comparators, int[] reverseMul, boolean mayNeedScoresTwice) {
+    MultiComparatorLeafCollector(LeafFieldComparator[] comparators, int[] reverseMul, boolean mayNeedScoresTwice,
+        PointsCompetitiveIterator competitiveIterator) {
       this.comparators = comparators;
       this.reverseMul = reverseMul;
       firstComparator = comparators[0];
       firstReverseMul = reverseMul[0];
       this.mayNeedScoresTwice = mayNeedScoresTwice;
+      this.competitiveIterator = competitiveIterator;
     }
 
     protected final int compareBottom(int doc) throws IOException {
@@ -129,6 +140,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
         comparator.setScorer(scorer);
       }
     }
+
+    @Override
+    public DocIdSetIterator competitiveIterator() {
+      return competitiveIterator;
+    }
   }
 
   /*
@@ -143,8 +159,8 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final boolean mayNeedScoresTwice;
 
     public SimpleFieldCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields,
-        boolean trackDocScores, boolean trackMaxScore) {
-      super(queue, numHits, fillFields, sort.needsScores() || trackDocScores || trackMaxScore);
+        boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits) {
+      super(sort, queue, numHits, fillFields, sort.needsScores() || trackDocScores || trackMaxScore, trackMaxScore, trackTotalHits);
       this.queue = queue;
       if (trackMaxScore) {
         maxScore = Float.NEGATIVE_INFINITY; // otherwise we would keep NaN
@@ -163,9 +179,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
+      final PointsCompetitiveIterator competitiveIterator = competitiveIterator(context, null);
 
       if (comparators.length == 1) {
-        return new OneComparatorLeafCollector(comparators[0], reverseMul[0], mayNeedScoresTwice) {
+        return new OneComparatorLeafCollector(comparators[0], reverseMul[0], mayNeedScoresTwice, competitiveIterator) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -194,6 +211,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
               comparator.copy(bottom.slot, doc);
               updateBottom(doc, score);
               comparator.setBottom(bottom.slot);
+              updateCompetitiveIterator(competitiveIterator, doc);
             } else {
               // Startup transient: queue hasn't gathered numHits yet
               final int slot = totalHits - 1;
@@ -207,13 +225,14 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
               add(slot, doc, score);
               if (queueFull) {
                 comparator.setBottom(bottom.slot);
+                updateCompetitiveIterator(competitiveIterator, doc);
               }
             }
           }
 
         };
       } else {
-        return new MultiComparatorLeafCollector(comparators, reverseMul, mayNeedScoresTwice) {
+        return new MultiComparatorLeafCollector(comparators, reverseMul, mayNeedScoresTwice, competitiveIterator) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -242,6 +261,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
               copy(bottom.slot, doc);
               updateBottom(doc, score);
               setBottom(bottom.slot);
+              updateCompetitiveIterator(competitiveIterator, doc);
             } else {
               // Startup transient: queue hasn't gathered numHits yet
               final int slot = totalHits - 1;
@@ -255,6 +275,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
               add(slot, doc, score);
               if (queueFull) {
                 setBottom(bottom.slot);
+                updateCompetitiveIterator(competitiveIterator, doc);
               }
             }
           }
@@ -278,8 +299,8 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final boolean mayNeedScoresTwice;
 
     public PagingFieldCollector(Sort sort, FieldValueHitQueue<Entry> queue, FieldDoc after, int numHits, boolean fillFields,
-                                boolean trackDocScores, boolean trackMaxScore) {
-      super(queue, numHits, fillFields, trackDocScores || trackMaxScore || sort.needsScores());
+                                boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits) {
+      super(sort, queue, numHits, fillFields, trackDocScores || trackMaxScore || sort.needsScores(), trackMaxScore, trackTotalHits);
       this.queue = queue;
       this.trackDocScores = trackDocScores;
       this.trackMaxScore = trackMaxScore;
@@ -302,7 +323,9 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
       docBase = context.docBase;
       final int afterDoc = after.doc - docBase;
-      return new MultiComparatorLeafCollector(queue.getComparators(context), queue.getReverseMul(), mayNeedScoresTwice) {
+      final PointsCompetitiveIterator competitiveIterator = competitiveIterator(context, after.fields[0]);
+      return new MultiComparatorLeafCollector(queue.getComparators(context), queue.getReverseMul(), mayNeedScoresTwice,
+          competitiveIterator) {
 
         @Override
         public void collect(int doc) throws IOException {
@@ -345,6 +368,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
             updateBottom(doc, score);
 
             setBottom(bottom.slot);
+            updateCompetitiveIterator(competitiveIterator, doc);
           } else {
             collectedHits++;
 
@@ -362,6 +386,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
             queueFull = collectedHits == numHits;
             if (queueFull) {
               setBottom(bottom.slot);
+              updateCompetitiveIterator(competitiveIterator, doc);
             }
           }
         }
@@ -385,17 +410,48 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   boolean queueFull;
   int docBase;
   final boolean needsScores;
+  // the sort field whose points are used to skip non-competitive documents, or null
+  final SortField pointsSortField;
 
   // Declaring the constructor private prevents extending this class by anyone
   // else. Note that the class cannot be final since it's extended by the
   // internal versions. If someone will define a constructor with any other
   // visibility, then anyone will be able to extend the class, which is not what
   // we want.
-  private TopFieldCollector(PriorityQueue<Entry> pq, int numHits, boolean fillFields, boolean needsScores) {
+  private TopFieldCollector(Sort sort, FieldValueHitQueue<Entry> pq, int numHits, boolean fillFields, boolean needsScores,
+      boolean trackMaxScore, boolean trackTotalHits) {
     super(pq);
     this.needsScores = needsScores;
     this.numHits = numHits;
     this.fillFields = fillFields;
+    final SortField firstSortField = sort.getSort()[0];
+    if (trackTotalHits == false && trackMaxScore == false
+        && firstSortField.getCanUsePoints()
+        && firstSortField.getClass() == SortField.class) { // not multi-valued
+      this.pointsSortField = firstSortField;
+    } else {
+      this.pointsSortField = null;
+    }
+  }
+
+  /** Returns an iterator over the competitive documents of the given segment, or null if all docs must be collected. */
+  final PointsCompetitiveIterator competitiveIterator(LeafReaderContext context, Object topValue) throws IOException {
+    if (pointsSortField == null) {
+      return null;
+    }
+    final PointsCompetitiveIterator iterator = PointsCompetitiveIterator.create(context, pointsSortField, topValue);
+    if (iterator != null && queueFull) {
+      // the queue was filled on previous segments
+      iterator.update(((FieldValueHitQueue<Entry>) pq).getComparators()[0], bottom.slot, -1);
+    }
+    return iterator;
+  }
+
+  /** Tells the competitive iterator, if any, that the bottom of the queue changed after collecting {@code doc}. */
+  final void updateCompetitiveIterator(PointsCompetitiveIterator iterator, int doc) throws IOException {
+    if (iterator != null) {
+      iterator.update(((FieldValueHitQueue<Entry>) pq).getComparators()[0], bottom.slot, doc);
+    }
   }
 
   @Override
@@ -480,6 +536,46 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
       boolean fillFields, boolean trackDocScores, boolean trackMaxScore)
       throws IOException {
+    return create(sort, numHits, after, fillFields, trackDocScores, trackMaxScore, true);
+  }
+
+  /**
+   * Creates a new {@link TopFieldCollector} from the given
+   * arguments.
+   *
+   * <p><b>NOTE</b>: The instances returned by this method
+   * pre-allocate a full array of length
+   * <code>numHits</code>.
+   *
+   * @param sort
+   *          the sort criteria (SortFields).
+   * @param numHits
+   *          the number of results to collect.
+   * @param after
+   *          only hits after this FieldDoc will be collected, or null
+   * @param fillFields
+   *          specifies whether the actual field values should be returned on
+   *          the results (FieldDoc).
+   * @param trackDocScores
+   *          specifies whether document scores should be tracked and set on the
+   *          results.
+   * @param trackMaxScore
+   *          specifies whether the query's maxScore should be tracked and set
+   *          on the resulting {@link TopDocs}.
+   * @param trackTotalHits
+   *          specifies whether all matching documents must be counted. If
+   *          false, {@code trackMaxScore} is false and the primary sort field
+   *          {@link SortField#setCanUsePoints() can use points}, the collector
+   *          gives the query an iterator over the documents that can still be
+   *          competitive, so that it skips the others. In that case
+   *          {@link TopDocs#totalHits} is a lower bound of the number of hits.
+   * @return a {@link TopFieldCollector} instance which will sort the results by
+   *         the sort criteria.
+   * @throws IOException if there is a low-level I/O error
+   */
+  public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
+      boolean fillFields, boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits)
+      throws IOException {
 
     if (sort.fields.length == 0) {
       throw new IllegalArgumentException("Sort must contain at least one field");
@@ -492,7 +588,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     FieldValueHitQueue<Entry> queue = FieldValueHitQueue.create(sort.fields, numHits);
 
     if (after == null) {
-      return new SimpleFieldCollector(sort, queue, numHits, fillFields, trackDocScores, trackMaxScore);
+      return new SimpleFieldCollector(sort, queue, numHits, fillFields, trackDocScores, trackMaxScore, trackTotalHits);
     } else {
       if (after.fields == null) {
         throw new IllegalArgumentException("after.fields wasn't set; you must pass fillFields=true for the previous search");
@@ -502,7 +598,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
         throw new IllegalArgumentException("after.fields has " + after.fields.length + " values but sort has " + sort.getSort().length);
       }
 
-      return new PagingFieldCollector(sort, queue, after, numHits, fillFields, trackDocScores, trackMaxScore);
+      return new PagingFieldCollector(sort, queue, after, numHits, fillFields, trackDocScores, trackMaxScore, trackTotalHits);
     }
   }
 
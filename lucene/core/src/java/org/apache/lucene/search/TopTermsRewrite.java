@@ -18,10 +18,13 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -49,6 +52,19 @@ public abstract class TopTermsRewrite<B> extends TermCollectingRewrite<B> {
    * <code>size</code>, then it will be used instead. 
    */
   public TopTermsRewrite(int size) {
+    this(size, null);
+  }
+
+  /**
+   * Create a TopTermsRewrite for at most <code>size</code> terms, which
+   * collects the top terms of each segment in parallel on the given executor
+   * and then merges them. Segments do not share the boost of the worst
+   * competitive term, so this does more work in total than a sequential
+   * rewrite but takes less time on indexes with many segments. A null
+   * executor collects segments sequentially.
+   */
+  public TopTermsRewrite(int size, ExecutorService executor) {
+    super(executor);
     this.size = size;
   }
   
@@ -63,96 +79,20 @@ public abstract class TopTermsRewrite<B> extends TermCollectingRewrite<B> {
   @Override
   public final Query rewrite(final IndexReader reader, final MultiTermQuery query) throws IOException {
     final int maxSize = Math.min(size, getMaxSize());
-    final PriorityQueue<ScoreTerm> stQueue = new PriorityQueue<>();
-    collectTerms(reader, query, new TermCollector() {
-      private final MaxNonCompetitiveBoostAttribute maxBoostAtt =
-        attributes.addAttribute(MaxNonCompetitiveBoostAttribute.class);
-      
-      private final Map<BytesRef,ScoreTerm> visitedTerms = new HashMap<>();
-      
-      private TermsEnum termsEnum;
-      private BoostAttribute boostAtt;        
-      private ScoreTerm st;
-      
-      @Override
-      public void setNextEnum(TermsEnum termsEnum) {
-        this.termsEnum = termsEnum;
-        
-        assert compareToLastTerm(null);
-
-        // lazy init the initial ScoreTerm because comparator is not known on ctor:
-        if (st == null)
-          st = new ScoreTerm(new TermContext(topReaderContext));
-        boostAtt = termsEnum.attributes().addAttribute(BoostAttribute.class);
-      }
-    
-      // for assert:
-      private BytesRefBuilder lastTerm;
-      private boolean compareToLastTerm(BytesRef t) {
-        if (lastTerm == null && t != null) {
-          lastTerm = new BytesRefBuilder();
-          lastTerm.append(t);
-        } else if (t == null) {
-          lastTerm = null;
-        } else {
-          assert lastTerm.get().compareTo(t) < 0: "lastTerm=" + lastTerm + " t=" + t;
-          lastTerm.copyBytes(t);
-        }
-        return true;
+    final PriorityQueue<ScoreTerm> stQueue;
+    final int numLeaves = reader.leaves().size();
+    if (executor == null || numLeaves <= 1) {
+      final TopTermsCollector collector = new TopTermsCollector(maxSize);
+      collectTerms(reader, query, collector);
+      stQueue = collector.stQueue;
+    } else {
+      final List<TopTermsCollector> collectors = new ArrayList<>(numLeaves);
+      for (int i = 0; i < numLeaves; ++i) {
+        collectors.add(new TopTermsCollector(maxSize));
       }
-  
-      @Override
-      public boolean collect(BytesRef bytes) throws IOException {
-        final float boost = boostAtt.getBoost();
-
-        // make sure within a single seg we always collect
-        // terms in order
-        assert compareToLastTerm(bytes);
-
-        //System.out.println("TTR.collect term=" + bytes.utf8ToString() + " boost=" + boost + " ord=" + readerContext.ord);
-        // ignore uncompetitive hits
-        if (stQueue.size() == maxSize) {
-          final ScoreTerm t = stQueue.peek();
-          if (boost < t.boost)
-            return true;
-          if (boost == t.boost && bytes.compareTo(t.bytes.get()) > 0)
-            return true;
-        }
-        ScoreTerm t = visitedTerms.get(bytes);
-        final TermState state = termsEnum.termState();
-        assert state != null;
-        if (t != null) {
-          // if the term is already in the PQ, only update docFreq of term in PQ
-          assert t.boost == boost : "boost should be equal in all segment TermsEnums";
-          t.termState.register(state, readerContext.ord, termsEnum.docFreq(), termsEnum.totalTermFreq());
-        } else {
-          // add new entry in PQ, we must clone the term, else it may get overwritten!
-          st.bytes.copyBytes(bytes);
-          st.boost = boost;
-          visitedTerms.put(st.bytes.get(), st);
-          assert st.termState.docFreq() == 0;
-          st.termState.register(state, readerContext.ord, termsEnum.docFreq(), termsEnum.totalTermFreq());
-          stQueue.offer(st);
-          // possibly drop entries from queue
-          if (stQueue.size() > maxSize) {
-            st = stQueue.poll();
-            visitedTerms.remove(st.bytes.get());
-            st.termState.clear(); // reset the termstate! 
-          } else {
-            st = new ScoreTerm(new TermContext(topReaderContext));
-          }
-          assert stQueue.size() <= maxSize : "the PQ size must be limited to maxSize";
-          // set maxBoostAtt with values to help FuzzyTermsEnum to optimize
-          if (stQueue.size() == maxSize) {
-            t = stQueue.peek();
-            maxBoostAtt.setMaxNonCompetitiveBoost(t.boost);
-            maxBoostAtt.setCompetitiveTerm(t.bytes.get());
-          }
-        }
-       
-        return true;
-      }
-    });
+      collectTermsPerLeaf(reader, query, collectors);
+      stQueue = merge(collectors, maxSize);
+    }
     
     final B b = getTopLevelBuilder();
     final ScoreTerm[] scoreTerms = stQueue.toArray(new ScoreTerm[stQueue.size()]);
@@ -167,6 +107,132 @@ public abstract class TopTermsRewrite<B> extends TermCollectingRewrite<B> {
     return build(b);
   }
 
+  /**
+   * Merges the top terms of every segment. Since the boost of a term does not
+   * depend on the segment, the global top terms are the top terms of the
+   * union of the per-segment queues.
+   */
+  private static PriorityQueue<ScoreTerm> merge(List<TopTermsCollector> collectors, int maxSize) {
+    final Map<BytesRef,ScoreTerm> mergedTerms = new HashMap<>();
+    for (int ord = 0; ord < collectors.size(); ++ord) {
+      for (ScoreTerm st : collectors.get(ord).stQueue) {
+        final ScoreTerm t = mergedTerms.get(st.bytes.get());
+        if (t == null) {
+          mergedTerms.put(st.bytes.get(), st);
+        } else {
+          assert t.boost == st.boost : "boost should be equal in all segment TermsEnums";
+          t.termState.register(st.termState.get(ord), ord, st.termState.docFreq(), st.termState.totalTermFreq());
+        }
+      }
+    }
+    final PriorityQueue<ScoreTerm> stQueue = new PriorityQueue<>();
+    for (ScoreTerm st : mergedTerms.values()) {
+      stQueue.offer(st);
+      if (stQueue.size() > maxSize) {
+        stQueue.poll();
+      }
+    }
+    return stQueue;
+  }
+
+  /** Collects the top terms into a priority queue of at most {@code maxSize} terms. */
+  private static final class TopTermsCollector extends TermCollector {
+    private final int maxSize;
+    final PriorityQueue<ScoreTerm> stQueue = new PriorityQueue<>();
+
+    private final MaxNonCompetitiveBoostAttribute maxBoostAtt =
+      attributes.addAttribute(MaxNonCompetitiveBoostAttribute.class);
+    
+    private final Map<BytesRef,ScoreTerm> visitedTerms = new HashMap<>();
+    
+    private TermsEnum termsEnum;
+    private BoostAttribute boostAtt;        
+    private ScoreTerm st;
+
+    TopTermsCollector(int maxSize) {
+      this.maxSize = maxSize;
+    }
+    
+    @Override
+    public void setNextEnum(TermsEnum termsEnum) {
+      this.termsEnum = termsEnum;
+      
+      assert compareToLastTerm(null);
+
+      // lazy init the initial ScoreTerm because comparator is not known on ctor:
+      if (st == null)
+        st = new ScoreTerm(new TermContext(topReaderContext));
+      boostAtt = termsEnum.attributes().addAttribute(BoostAttribute.class);
+    }
+  
+    // for assert:
+    private BytesRefBuilder lastTerm;
+    private boolean compareToLastTerm(BytesRef t) {
+      if (lastTerm == null && t != null) {
+        lastTerm = new BytesRefBuilder();
+        lastTerm.append(t);
+      } else if (t == null) {
+        lastTerm = null;
+      } else {
+        assert lastTerm.get().compareTo(t) < 0: "lastTerm=" + lastTerm + " t=" + t;
+        lastTerm.copyBytes(t);
+      }
+      return true;
+    }
+
+    @Override
+    public boolean collect(BytesRef bytes) throws IOException {
+      final float boost = boostAtt.getBoost();
+
+      // make sure within a single seg we always collect
+      // terms in order
+      assert compareToLastTerm(bytes);
+
+      //System.out.println("TTR.collect term=" + bytes.utf8ToString() + " boost=" + boost + " ord=" + readerContext.ord);
+      // ignore uncompetitive hits
+      if (stQueue.size() == maxSize) {
+        final ScoreTerm t = stQueue.peek();
+        if (boost < t.boost)
+          return true;
+        if (boost == t.boost && bytes.compareTo(t.bytes.get()) > 0)
+          return true;
+      }
+      ScoreTerm t = visitedTerms.get(bytes);
+      final TermState state = termsEnum.termState();
+      assert state != null;
+      if (t != null) {
+        // if the term is already in the PQ, only update docFreq of term in PQ
+        assert t.boost == boost : "boost should be equal in all segment TermsEnums";
+        t.termState.register(state, readerContext.ord, termsEnum.docFreq(), termsEnum.totalTermFreq());
+      } else {
+        // add new entry in PQ, we must clone the term, else it may get overwritten!
+        st.bytes.copyBytes(bytes);
+        st.boost = boost;
+        visitedTerms.put(st.bytes.get(), st);
+        assert st.termState.docFreq() == 0;
+        st.termState.register(state, readerContext.ord, termsEnum.docFreq(), termsEnum.totalTermFreq());
+        stQueue.offer(st);
+        // possibly drop entries from queue
+        if (stQueue.size() > maxSize) {
+          st = stQueue.poll();
+          visitedTerms.remove(st.bytes.get());
+          st.termState.clear(); // reset the termstate! 
+        } else {
+          st = new ScoreTerm(new TermContext(topReaderContext));
+        }
+        assert stQueue.size() <= maxSize : "the PQ size must be limited to maxSize";
+        // set maxBoostAtt with values to help FuzzyTermsEnum to optimize
+        if (stQueue.size() == maxSize) {
+          t = stQueue.peek();
+          maxBoostAtt.setMaxNonCompetitiveBoost(t.boost);
+          maxBoostAtt.setCompetitiveTerm(t.bytes.get());
+        }
+      }
+     
+      return true;
+    }
+  }
+
   @Override
   public int hashCode() {
     return 31 * size;
@@ -18,6 +18,7 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Set;
 
 import org.apache.lucene.index.IndexReaderContext;
@@ -102,6 +103,40 @@ public abstract class Weight {
    */
   public abstract Scorer scorer(LeafReaderContext context) throws IOException;
 
+  /**
+   * Optional method that delegates to scorer(context) by default. Override it
+   * for queries that can decide lazily how to build their {@link Scorer}, for
+   * instance depending on whether it will be used to lead iteration or only
+   * to verify matches found by other clauses.
+   * <p>
+   * <b>NOTE:</b> null can be returned if no documents will be scored by this
+   * query.
+   *
+   * @param context
+   *          the {@link org.apache.lucene.index.LeafReaderContext} for which to return the {@link ScorerSupplier}.
+   *
+   * @return a {@link ScorerSupplier} that will be used to build the {@link Scorer}
+   * @throws IOException if there is a low-level I/O error
+   * @lucene.experimental
+   */
+  public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+    final Scorer scorer = scorer(context);
+    if (scorer == null) {
+      return null;
+    }
+    return new ScorerSupplier() {
+      @Override
+      public Scorer get(boolean randomAccess) {
+        return scorer;
+      }
+
+      @Override
+      public long cost() {
+        return scorer.iterator().cost();
+      }
+    };
+  }
+
   /**
    * Optional method, to return a {@link BulkScorer} to
    * score the query and send hits to a {@link Collector}.
@@ -202,7 +237,12 @@ public abstract class Weight {
      *  hotspot.
      *  See <a href="https://issues.apache.org/jira/browse/LUCENE-5487">LUCENE-5487</a> */
     static void scoreAll(LeafCollector collector, DocIdSetIterator iterator, TwoPhaseIterator twoPhase, Bits acceptDocs) throws IOException {
+      // only visit documents that the collector still considers competitive
+      final DocIdSetIterator competitiveIterator = collector.competitiveIterator();
       if (twoPhase == null) {
+        if (competitiveIterator != null) {
+          iterator = ConjunctionDISI.intersectIterators(Arrays.asList(iterator, competitiveIterator));
+        }
         for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
           if (acceptDocs == null || acceptDocs.get(doc)) {
             collector.collect(doc);
@@ -210,7 +250,10 @@ public abstract class Weight {
         }
       } else {
         // The scorer has an approximation, so run the approximation first, then check acceptDocs, then confirm
-        final DocIdSetIterator approximation = twoPhase.approximation();
+        DocIdSetIterator approximation = twoPhase.approximation();
+        if (competitiveIterator != null) {
+          approximation = ConjunctionDISI.intersectIterators(Arrays.asList(approximation, competitiveIterator));
+        }
         for (int doc = approximation.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = approximation.nextDoc()) {
           if ((acceptDocs == null || acceptDocs.get(doc)) && twoPhase.matches()) {
             collector.collect(doc);
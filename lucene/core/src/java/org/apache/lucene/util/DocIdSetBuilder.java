@@ -43,6 +43,13 @@ public final class DocIdSetBuilder {
    *  @see DocIdSetBuilder#grow */
   public static abstract class BulkAdder {
     public abstract void add(int doc);
+
+    /** Add all documents of the given iterator. */
+    public void add(DocIdSetIterator iterator) throws IOException {
+      for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+        add(doc);
+      }
+    }
   }
 
   private static class FixedBitSetAdder extends BulkAdder {
@@ -253,11 +253,9 @@ public class CompiledAutomaton {
     sinkState = findSinkState(this.automaton);
   }
 
-  private Transition transition = new Transition();
-  
   //private static final boolean DEBUG = BlockTreeTermsWriter.DEBUG;
 
-  private BytesRef addTail(int state, BytesRefBuilder term, int idx, int leadLabel) {
+  private BytesRef addTail(int state, BytesRefBuilder term, int idx, int leadLabel, Transition transition) {
     //System.out.println("addTail state=" + state + " term=" + term.utf8ToString() + " idx=" + idx + " leadLabel=" + (char) leadLabel);
     //System.out.println(automaton.toDot());
     // Find biggest transition that's < label
@@ -364,6 +362,8 @@ public class CompiledAutomaton {
     }
 
     final List<Integer> stack = new ArrayList<>();
+    // local, since compiled automata may be shared across threads
+    final Transition transition = new Transition();
 
     int idx = 0;
     while (true) {
@@ -424,7 +424,7 @@ public class CompiledAutomaton {
 
         //if (DEBUG) System.out.println("  label=" + (char) label + " idx=" + idx);
 
-        return addTail(state, output, idx, label);
+        return addTail(state, output, idx, label, transition);
         
       } else {
         output.grow(1+idx);
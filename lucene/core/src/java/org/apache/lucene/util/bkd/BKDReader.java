@@ -21,6 +21,7 @@ import java.io.IOException;
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.ByteArrayDataInput;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.Accountable;
@@ -462,6 +463,7 @@ public final class BKDReader extends PointValues implements Accountable {
   public static final class IntersectState {
     final IndexInput in;
     final int[] scratchDocIDs;
+    final BKDReaderDocIDSetIterator scratchIterator;
     final byte[] scratchPackedValue;
     final int[] commonPrefixLengths;
 
@@ -476,7 +478,8 @@ public final class BKDReader extends PointValues implements Accountable {
       this.in = in;
       this.visitor = visitor;
       this.commonPrefixLengths = new int[numDims];
-      this.scratchDocIDs = new int[maxPointsInLeafNode];
+      this.scratchIterator = new BKDReaderDocIDSetIterator(maxPointsInLeafNode);
+      this.scratchDocIDs = scratchIterator.docIDs;
       this.scratchPackedValue = new byte[packedBytesLength];
       this.index = indexVisitor;
     }
@@ -493,7 +496,7 @@ public final class BKDReader extends PointValues implements Accountable {
     if (state.index.isLeafNode()) {
       //System.out.println("ADDALL");
       if (state.index.nodeExists()) {
-        visitDocIDs(state.in, state.index.getLeafBlockFP(), state.visitor);
+        visitDocIDs(state, state.index.getLeafBlockFP());
       }
       // TODO: we can assert that the first value here in fact matches what the index claimed?
     } else {
@@ -529,22 +532,14 @@ public final class BKDReader extends PointValues implements Accountable {
     int count = readDocIDs(state.in, index.getLeafBlockFP(), state.scratchDocIDs);
 
     // Again, this time reading values and checking with the visitor
-    visitDocValues(state.commonPrefixLengths, state.scratchPackedValue, state.in, state.scratchDocIDs, count, state.visitor);
+    visitDocValues(state.commonPrefixLengths, state.scratchPackedValue, state.in, state.scratchIterator, count, state.visitor);
   }
 
-  private void visitDocIDs(IndexInput in, long blockFP, IntersectVisitor visitor) throws IOException {
-    // Leaf node
-    in.seek(blockFP);
-
-    // How many points are stored in this leaf cell:
-    int count = in.readVInt();
-    visitor.grow(count);
-
-    if (version < BKDWriter.VERSION_COMPRESSED_DOC_IDS) {
-      DocIdsWriter.readInts32(in, count, visitor);
-    } else {
-      DocIdsWriter.readInts(in, count, visitor);
-    }
+  private void visitDocIDs(IntersectState state, long blockFP) throws IOException {
+    // Leaf node: hand all docs over at once
+    int count = readDocIDs(state.in, blockFP, state.scratchDocIDs);
+    state.visitor.grow(count);
+    state.visitor.visit(state.scratchIterator.reset(0, count));
   }
 
   int readDocIDs(IndexInput in, long blockFP, int[] docIDs) throws IOException {
@@ -562,7 +557,7 @@ public final class BKDReader extends PointValues implements Accountable {
     return count;
   }
 
-  void visitDocValues(int[] commonPrefixLengths, byte[] scratchPackedValue, IndexInput in, int[] docIDs, int count, IntersectVisitor visitor) throws IOException {
+  void visitDocValues(int[] commonPrefixLengths, byte[] scratchPackedValue, IndexInput in, BKDReaderDocIDSetIterator scratchIterator, int count, IntersectVisitor visitor) throws IOException {
     visitor.grow(count);
 
     readCommonPrefixes(commonPrefixLengths, scratchPackedValue, in);
@@ -572,9 +567,33 @@ public final class BKDReader extends PointValues implements Accountable {
         : readCompressedDim(in);
 
     if (compressedDim == -1) {
-      visitRawDocValues(commonPrefixLengths, scratchPackedValue, in, docIDs, count, visitor);
+      if (version >= BKDWriter.VERSION_COMPRESSED_VALUES) {
+        // all values in this block are equal
+        visitor.visit(scratchIterator.reset(0, count), scratchPackedValue);
+      } else {
+        visitRawDocValues(commonPrefixLengths, scratchPackedValue, in, scratchIterator.docIDs, count, visitor);
+      }
+    } else if (compressedDim == -2) {
+      visitLowCardinalityDocValues(commonPrefixLengths, scratchPackedValue, in, scratchIterator, count, visitor);
     } else {
-      visitCompressedDocValues(commonPrefixLengths, scratchPackedValue, in, docIDs, count, visitor, compressedDim);
+      visitCompressedDocValues(commonPrefixLengths, scratchPackedValue, in, scratchIterator.docIDs, count, visitor, compressedDim);
+    }
+  }
+
+  // Read each distinct value once, followed by the number of docs that share it
+  private void visitLowCardinalityDocValues(int[] commonPrefixLengths, byte[] scratchPackedValue, IndexInput in, BKDReaderDocIDSetIterator scratchIterator, int count, IntersectVisitor visitor) throws IOException {
+    int i;
+    for (i = 0; i < count; ) {
+      final int cardinality = in.readVInt();
+      for(int dim=0;dim<numDims;dim++) {
+        int prefix = commonPrefixLengths[dim];
+        in.readBytes(scratchPackedValue, dim*bytesPerDim + prefix, bytesPerDim - prefix);
+      }
+      visitor.visit(scratchIterator.reset(i, cardinality), scratchPackedValue);
+      i += cardinality;
+    }
+    if (i != count) {
+      throw new CorruptIndexException("Sub blocks do not add up to the expected count: " + count + " != " + i, in);
     }
   }
 
@@ -614,7 +633,8 @@ public final class BKDReader extends PointValues implements Accountable {
 
   private int readCompressedDim(IndexInput in) throws IOException {
     int compressedDim = in.readByte();
-    if (compressedDim < -1 || compressedDim >= numDims) {
+    final int minCompressedDim = version < BKDWriter.VERSION_LOW_CARDINALITY_LEAVES ? -1 : -2;
+    if (compressedDim < minCompressedDim || compressedDim >= numDims) {
       throw new CorruptIndexException("Got compressedDim="+compressedDim, in);
     }
     return compressedDim;
@@ -631,6 +651,54 @@ public final class BKDReader extends PointValues implements Accountable {
     }
   }
 
+  @Override
+  public long estimatePointCount(IntersectVisitor visitor) {
+    return estimatePointCount(getIntersectState(visitor), minPackedValue, maxPackedValue);
+  }
+
+  /** Same recursion as {@link #intersect(IntersectState, byte[], byte[])}, but
+   *  only calls {@link IntersectVisitor#compare}: cells that are inside the
+   *  query count all their points and crossing leaves count half of theirs. */
+  private long estimatePointCount(IntersectState state, byte[] cellMinPacked, byte[] cellMaxPacked) {
+    Relation r = state.visitor.compare(cellMinPacked, cellMaxPacked);
+
+    if (r == Relation.CELL_OUTSIDE_QUERY) {
+      return 0L;
+    } else if (r == Relation.CELL_INSIDE_QUERY) {
+      return (long) maxPointsInLeafNode * getNumLeaves(state.index.getNodeID());
+    } else if (state.index.isLeafNode()) {
+      return state.index.nodeExists() ? (maxPointsInLeafNode + 1) / 2 : 0L;
+    } else {
+      int splitDim = state.index.getSplitDim();
+      byte[] splitPackedValue = state.index.getSplitPackedValue();
+      BytesRef splitDimValue = state.index.getSplitDimValue();
+
+      System.arraycopy(cellMaxPacked, 0, splitPackedValue, 0, packedBytesLength);
+      System.arraycopy(splitDimValue.bytes, splitDimValue.offset, splitPackedValue, splitDim*bytesPerDim, bytesPerDim);
+      state.index.pushLeft();
+      final long leftCost = estimatePointCount(state, cellMinPacked, splitPackedValue);
+      state.index.pop();
+
+      // Restore the split dim value since it may have been overwritten while recursing:
+      System.arraycopy(splitPackedValue, splitDim*bytesPerDim, splitDimValue.bytes, splitDimValue.offset, bytesPerDim);
+
+      System.arraycopy(cellMinPacked, 0, splitPackedValue, 0, packedBytesLength);
+      System.arraycopy(splitDimValue.bytes, splitDimValue.offset, splitPackedValue, splitDim*bytesPerDim, bytesPerDim);
+      state.index.pushRight();
+      final long rightCost = estimatePointCount(state, splitPackedValue, cellMaxPacked);
+      state.index.pop();
+      return leftCost + rightCost;
+    }
+  }
+
+  /** Returns the number of existing leaves under the given node. */
+  private int getNumLeaves(int nodeID) {
+    if (nodeID >= leafNodeOffset) {
+      return nodeID - leafNodeOffset < leafNodeOffset ? 1 : 0;
+    }
+    return getNumLeaves(2 * nodeID) + getNumLeaves(2 * nodeID + 1);
+  }
+
   private void intersect(IntersectState state, byte[] cellMinPacked, byte[] cellMaxPacked) throws IOException {
 
     /*
@@ -658,7 +726,7 @@ public final class BKDReader extends PointValues implements Accountable {
         int count = readDocIDs(state.in, state.index.getLeafBlockFP(), state.scratchDocIDs);
 
         // Again, this time reading values and checking with the visitor
-        visitDocValues(state.commonPrefixLengths, state.scratchPackedValue, state.in, state.scratchDocIDs, count, state.visitor);
+        visitDocValues(state.commonPrefixLengths, state.scratchPackedValue, state.in, state.scratchIterator, count, state.visitor);
       }
 
     } else {
@@ -738,4 +806,56 @@ public final class BKDReader extends PointValues implements Accountable {
   public boolean isLeafNode(int nodeID) {
     return nodeID >= leafNodeOffset;
   }
+
+  /**
+   * Reusable {@link DocIdSetIterator} over a slice of the doc IDs of a leaf block,
+   * for bulk visits. Doc IDs are not necessarily in order.
+   */
+  static final class BKDReaderDocIDSetIterator extends DocIdSetIterator {
+
+    final int[] docIDs;
+    private int offset;
+    private int length;
+    private int idx;
+    private int docID;
+
+    BKDReaderDocIDSetIterator(int maxPointsInLeafNode) {
+      this.docIDs = new int[maxPointsInLeafNode];
+    }
+
+    /** Positions this iterator before the {@code length} doc IDs starting at {@code offset}. */
+    BKDReaderDocIDSetIterator reset(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+      this.idx = 0;
+      this.docID = -1;
+      return this;
+    }
+
+    @Override
+    public int docID() {
+      return docID;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      if (idx == length) {
+        docID = NO_MORE_DOCS;
+      } else {
+        docID = docIDs[offset + idx];
+        idx++;
+      }
+      return docID;
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      return slowAdvance(target);
+    }
+
+    @Override
+    public long cost() {
+      return length;
+    }
+  }
 }
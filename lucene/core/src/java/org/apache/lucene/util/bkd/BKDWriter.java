@@ -87,7 +87,8 @@ public class BKDWriter implements Closeable {
   public static final int VERSION_COMPRESSED_VALUES = 2;
   public static final int VERSION_IMPLICIT_SPLIT_DIM_1D = 3;
   public static final int VERSION_PACKED_INDEX = 4;
-  public static final int VERSION_CURRENT = VERSION_PACKED_INDEX;
+  public static final int VERSION_LOW_CARDINALITY_LEAVES = 5;
+  public static final int VERSION_CURRENT = VERSION_LOW_CARDINALITY_LEAVES;
 
   /** How many bytes each docs takes in the fixed-width offline format */
   private final int bytesPerDoc;
@@ -348,7 +349,7 @@ public class BKDWriter implements Closeable {
           docsInBlock = bkd.readDocIDs(state.in, state.in.getFilePointer(), state.scratchDocIDs);
           assert docsInBlock > 0;
           docBlockUpto = 0;
-          bkd.visitDocValues(state.commonPrefixLengths, state.scratchPackedValue, state.in, state.scratchDocIDs, docsInBlock, new IntersectVisitor() {
+          bkd.visitDocValues(state.commonPrefixLengths, state.scratchPackedValue, state.in, state.scratchIterator, docsInBlock, new IntersectVisitor() {
             int i = 0;
 
             @Override
@@ -1272,22 +1273,91 @@ public class BKDWriter implements Closeable {
       out.writeByte((byte) -1);
     } else {
       assert commonPrefixLengths[sortedDim] < bytesPerDim;
-      out.writeByte((byte) sortedDim);
-      int compressedByteOffset = sortedDim * bytesPerDim + commonPrefixLengths[sortedDim];
-      commonPrefixLengths[sortedDim]++;
-      for (int i = 0; i < count; ) {
-        // do run-length compression on the byte at compressedByteOffset
-        int runLen = runLen(packedValues, i, Math.min(i + 0xff, count), compressedByteOffset);
-        assert runLen <= 0xff;
-        BytesRef first = packedValues.apply(i);
-        byte prefixByte = first.bytes[first.offset + compressedByteOffset];
-        out.writeByte(prefixByte);
-        out.writeByte((byte) runLen);
-        writeLeafBlockPackedValuesRange(out, commonPrefixLengths, i, i + runLen, packedValues);
-        i += runLen;
-        assert i <= count;
+      final int compressedByteOffset = sortedDim * bytesPerDim + commonPrefixLengths[sortedDim];
+      final int cardinality = leafCardinality(commonPrefixLengths, count, packedValues);
+      // estimate whether storing each distinct value once is cheaper than storing all values
+      final int suffixBytes = packedBytesLength - prefixLenSum;
+      final long lowCardinalityCost = (long) cardinality * (suffixBytes + 1);
+      long highCardinalityCost = 0;
+      if (cardinality < count) {
+        int numRuns = 0;
+        for (int i = 0; i < count; ) {
+          i += runLen(packedValues, i, Math.min(i + 0xff, count), compressedByteOffset);
+          numRuns++;
+        }
+        highCardinalityCost = (long) count * (suffixBytes - 1) + 2 * numRuns;
+      }
+      if (cardinality < count && lowCardinalityCost <= highCardinalityCost) {
+        out.writeByte((byte) -2);
+        writeLowCardinalityLeafBlockPackedValues(out, commonPrefixLengths, count, packedValues);
+      } else {
+        out.writeByte((byte) sortedDim);
+        commonPrefixLengths[sortedDim]++;
+        for (int i = 0; i < count; ) {
+          // do run-length compression on the byte at compressedByteOffset
+          int runLen = runLen(packedValues, i, Math.min(i + 0xff, count), compressedByteOffset);
+          assert runLen <= 0xff;
+          BytesRef first = packedValues.apply(i);
+          byte prefixByte = first.bytes[first.offset + compressedByteOffset];
+          out.writeByte(prefixByte);
+          out.writeByte((byte) runLen);
+          writeLeafBlockPackedValuesRange(out, commonPrefixLengths, i, i + runLen, packedValues);
+          i += runLen;
+          assert i <= count;
+        }
+      }
+    }
+  }
+
+  /** Returns the number of runs of equal values in the leaf block, which is its cardinality since equal values are adjacent. */
+  private int leafCardinality(int[] commonPrefixLengths, int count, IntFunction<BytesRef> packedValues) {
+    BytesRef first = packedValues.apply(0);
+    System.arraycopy(first.bytes, first.offset, scratch1, 0, packedBytesLength);
+    int cardinality = 1;
+    for (int i = 1; i < count; ++i) {
+      BytesRef value = packedValues.apply(i);
+      if (suffixesEqual(commonPrefixLengths, scratch1, value) == false) {
+        System.arraycopy(value.bytes, value.offset, scratch1, 0, packedBytesLength);
+        cardinality++;
+      }
+    }
+    return cardinality;
+  }
+
+  private void writeLowCardinalityLeafBlockPackedValues(DataOutput out, int[] commonPrefixLengths, int count, IntFunction<BytesRef> packedValues) throws IOException {
+    BytesRef first = packedValues.apply(0);
+    System.arraycopy(first.bytes, first.offset, scratch1, 0, packedBytesLength);
+    int runLen = 1;
+    for (int i = 1; i < count; ++i) {
+      BytesRef value = packedValues.apply(i);
+      if (suffixesEqual(commonPrefixLengths, scratch1, value)) {
+        runLen++;
+      } else {
+        writeLowCardinalityRun(out, commonPrefixLengths, runLen, scratch1);
+        System.arraycopy(value.bytes, value.offset, scratch1, 0, packedBytesLength);
+        runLen = 1;
+      }
+    }
+    writeLowCardinalityRun(out, commonPrefixLengths, runLen, scratch1);
+  }
+
+  private void writeLowCardinalityRun(DataOutput out, int[] commonPrefixLengths, int runLen, byte[] packedValue) throws IOException {
+    out.writeVInt(runLen);
+    for(int dim=0;dim<numDims;dim++) {
+      int prefix = commonPrefixLengths[dim];
+      out.writeBytes(packedValue, dim*bytesPerDim + prefix, bytesPerDim - prefix);
+    }
+  }
+
+  private boolean suffixesEqual(int[] commonPrefixLengths, byte[] packedValue, BytesRef other) {
+    for(int dim=0;dim<numDims;dim++) {
+      for (int j = dim*bytesPerDim + commonPrefixLengths[dim]; j < (dim+1)*bytesPerDim; ++j) {
+        if (packedValue[j] != other.bytes[other.offset + j]) {
+          return false;
+        }
       }
     }
+    return true;
   }
 
   private void writeLeafBlockPackedValuesRange(DataOutput out, int[] commonPrefixLengths, int start, int end, IntFunction<BytesRef> packedValues) throws IOException {
@@ -24,6 +24,9 @@ import org.apache.lucene.store.IndexInput;
 
 class DocIdsWriter {
 
+  /** Marker of a block of consecutive doc ids, which is stored as its first doc id. */
+  static final int CONTINUOUS_IDS = -2;
+
   private DocIdsWriter() {}
 
   static void writeDocIds(int[] docIds, int start, int count, DataOutput out) throws IOException {
@@ -36,7 +39,11 @@ class DocIdsWriter {
         break;
       }
     }
-    if (sorted) {
+    if (sorted && count > 0 && docIds[start + count - 1] - docIds[start] == count - 1) {
+      // a run of consecutive doc ids, eg. all docs of a block of a sorted index that share a value
+      out.writeByte((byte) CONTINUOUS_IDS);
+      out.writeVInt(docIds[start]);
+    } else if (sorted) {
       out.writeByte((byte) 0);
       int previous = 0;
       for (int i = 0; i < count; ++i) {
@@ -68,6 +75,9 @@ class DocIdsWriter {
   static void readInts(IndexInput in, int count, int[] docIDs) throws IOException {
     final int bpv = in.readByte();
     switch (bpv) {
+      case CONTINUOUS_IDS:
+        readContinuousIds(in, count, docIDs);
+        break;
       case 0:
         readDeltaVInts(in, count, docIDs);
         break;
@@ -82,6 +92,13 @@ class DocIdsWriter {
     }
   }
 
+  private static void readContinuousIds(IndexInput in, int count, int[] docIDs) throws IOException {
+    final int start = in.readVInt();
+    for (int i = 0; i < count; i++) {
+      docIDs[i] = start + i;
+    }
+  }
+
   private static void readDeltaVInts(IndexInput in, int count, int[] docIDs) throws IOException {
     int doc = 0;
     for (int i = 0; i < count; i++) {
@@ -120,6 +137,9 @@ class DocIdsWriter {
   static void readInts(IndexInput in, int count, IntersectVisitor visitor) throws IOException {
     final int bpv = in.readByte();
     switch (bpv) {
+      case CONTINUOUS_IDS:
+        readContinuousIds(in, count, visitor);
+        break;
       case 0:
         readDeltaVInts(in, count, visitor);
         break;
@@ -134,6 +154,13 @@ class DocIdsWriter {
     }
   }
 
+  private static void readContinuousIds(IndexInput in, int count, IntersectVisitor visitor) throws IOException {
+    final int start = in.readVInt();
+    for (int i = 0; i < count; i++) {
+      visitor.visit(start + i);
+    }
+  }
+
   private static void readDeltaVInts(IndexInput in, int count, IntersectVisitor visitor) throws IOException {
     int doc = 0;
     for (int i = 0; i < count; i++) {
@@ -30,6 +30,7 @@ import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.store.ByteArrayDataOutput;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.InputStreamDataInput;
 import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.store.RAMOutputStream;
@@ -150,6 +151,15 @@ public final class FST<T> implements Accountable {
   /** Used at read time when the FST fits into a single byte[]. */
   final byte[] bytesArray;
 
+  /** Used at read time when the FST bytes are left in the
+   *  {@link IndexInput} it was loaded from.  This slice is never
+   *  read directly: each {@link BytesReader} reads from its own
+   *  sub-slice. */
+  private final IndexInput offHeapBytes;
+
+  /** Number of bytes in {@link #offHeapBytes}. */
+  private final long numOffHeapBytes;
+
   private long startNode = -1;
 
   public final Outputs<T> outputs;
@@ -265,6 +275,8 @@ public final class FST<T> implements Accountable {
     this.outputs = outputs;
     version = VERSION_CURRENT;
     bytesArray = null;
+    offHeapBytes = null;
+    numOffHeapBytes = 0;
     bytes = new BytesStore(bytesPageBits);
     // pad: ensure no node gets address 0 which is reserved to mean
     // the stop state w/ no arcs
@@ -283,6 +295,18 @@ public final class FST<T> implements Accountable {
   /** Load a previously saved FST; maxBlockBits allows you to
    *  control the size of the byte[] pages used to hold the FST bytes. */
   public FST(DataInput in, Outputs<T> outputs, int maxBlockBits) throws IOException {
+    this(in, outputs, maxBlockBits, false);
+  }
+
+  /** Load a previously saved FST.  If {@code offHeap} is true, the
+   *  FST bytes are not copied to the heap but read directly from
+   *  {@code in}, which must then stay open for as long as this FST
+   *  is used.  This is mostly useful for memory-mapped inputs. */
+  public FST(IndexInput in, Outputs<T> outputs, boolean offHeap) throws IOException {
+    this(in, outputs, DEFAULT_MAX_BLOCK_BITS, offHeap);
+  }
+
+  private FST(DataInput in, Outputs<T> outputs, int maxBlockBits, boolean offHeap) throws IOException {
     this.outputs = outputs;
 
     if (maxBlockBits < 1 || maxBlockBits > 30) {
@@ -338,15 +362,28 @@ public final class FST<T> implements Accountable {
     }
 
     long numBytes = in.readVLong();
-    if (numBytes > 1 << maxBlockBits) {
+    if (offHeap) {
+      // leave the bytes where they are and skip over them
+      final IndexInput indexIn = (IndexInput) in;
+      final long offset = indexIn.getFilePointer();
+      offHeapBytes = indexIn.slice("fst", offset, numBytes);
+      numOffHeapBytes = numBytes;
+      indexIn.seek(offset + numBytes);
+      bytes = null;
+      bytesArray = null;
+    } else if (numBytes > 1 << maxBlockBits) {
       // FST is big: we need multiple pages
       bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
       bytesArray = null;
+      offHeapBytes = null;
+      numOffHeapBytes = 0;
     } else {
       // FST fits into a single block: use ByteArrayBytesStoreReader for less overhead
       bytes = null;
       bytesArray = new byte[(int) numBytes];
       in.readBytes(bytesArray, 0, bytesArray.length);
+      offHeapBytes = null;
+      numOffHeapBytes = 0;
     }
     
     cacheRootArcs();
@@ -382,13 +419,19 @@ public final class FST<T> implements Accountable {
     long size = BASE_RAM_BYTES_USED;
     if (bytesArray != null) {
       size += bytesArray.length;
-    } else {
+    } else if (bytes != null) {
       size += bytes.ramBytesUsed();
     }
     size += cachedArcsBytesUsed;
     return size;
   }
 
+  /** Returns true if the bytes of this FST are read from an
+   *  {@link IndexInput} rather than held on the heap. */
+  public boolean isOffHeap() {
+    return offHeapBytes != null;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "(input=" + inputType + ",output=" + outputs;
@@ -437,7 +480,8 @@ public final class FST<T> implements Accountable {
       int cacheRAM = (int) ramBytesUsed(arcs);
 
       // Don't cache if there are only a few arcs or if the cache would use > 20% RAM of the FST itself:
-      if (count >= FIXED_ARRAY_NUM_ARCS_SHALLOW && cacheRAM < ramBytesUsed()/5) {
+      final long fstBytesUsed = offHeapBytes != null ? BASE_RAM_BYTES_USED + numOffHeapBytes : ramBytesUsed();
+      if (count >= FIXED_ARRAY_NUM_ARCS_SHALLOW && cacheRAM < fstBytesUsed/5) {
         cachedRootArcs = arcs;
         cachedArcsBytesUsed = cacheRAM;
       }
@@ -502,6 +546,11 @@ public final class FST<T> implements Accountable {
       long numBytes = bytes.getPosition();
       out.writeVLong(numBytes);
       bytes.writeTo(out);
+    } else if (offHeapBytes != null) {
+      out.writeVLong(numOffHeapBytes);
+      final IndexInput in = offHeapBytes.clone();
+      in.seek(0);
+      out.copyBytes(in, numOffHeapBytes);
     } else {
       assert bytesArray != null;
       out.writeVLong(bytesArray.length);
@@ -1206,6 +1255,14 @@ public final class FST<T> implements Accountable {
   public BytesReader getBytesReader() {
     if (bytesArray != null) {
       return new ReverseBytesReader(bytesArray);
+    } else if (offHeapBytes != null) {
+      // each reader gets its own slice: the positional reads of
+      // buffered inputs seek shared state
+      try {
+        return new ReverseRandomAccessReader(offHeapBytes.randomAccessSlice(0, numOffHeapBytes));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     } else {
       return bytes.getReverseReader();
     }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.compressing;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.BytesRef;
+
+public class TestFastDecompressionSubBlocksMode extends AbstractTestCompressionMode {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    mode = CompressionMode.FAST_DECOMPRESSION_SUB_BLOCKS;
+  }
+
+  public void testOnlyDecompressesRequestedSubBlocks() throws IOException {
+    final byte[] decompressed = randomArray(60 * 1024, 3);
+    final byte[] compressed = compress(decompressed, 0, decompressed.length);
+
+    // a few bytes at the start of the data only need the dictionary and the first sub-block
+    final Decompressor decompressor = mode.newDecompressor();
+    final ByteArrayDataInput in = new ByteArrayDataInput(compressed);
+    final BytesRef bytes = new BytesRef();
+    final int offset = decompressed.length / (CompressionMode.NUM_SUB_BLOCKS * CompressionMode.SUB_BLOCK_DICTIONARY_FACTOR + 1);
+    decompressor.decompress(in, decompressed.length, offset, 10, bytes);
+    assertEquals(new BytesRef(decompressed, offset, 10), bytes);
+    assertTrue(in.getPosition() < compressed.length / 2);
+
+    // any range gets the right bytes
+    for (int i = 0; i < 20; ++i) {
+      final int start = random().nextInt(decompressed.length);
+      final int length = random().nextInt(decompressed.length - start);
+      final byte[] restored = decompress(compressed, decompressed.length, start, length);
+      assertArrayEquals(Arrays.copyOfRange(decompressed, start, start + length), restored);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.compressing;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.TestUtil;
+
+public class TestHighCompressionWithDictionaryMode extends AbstractTestCompressionMode {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    mode = CompressionMode.HIGH_COMPRESSION_WITH_DICTIONARY;
+  }
+
+  private static byte[] randomDocuments(int numDocs) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < numDocs; ++i) {
+      sb.append("{\"id\":\"").append(random().nextInt()).append("\",\"category\":\"electronics\",")
+        .append("\"title\":\"").append(random().nextLong()).append("\",\"in_stock\":").append(random().nextBoolean()).append("}");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public void testDictionary() throws IOException {
+    final byte[] sample = random().nextBoolean() ? randomArray() : randomDocuments(TestUtil.nextInt(random(), 1, 1000));
+    final byte[][] chunks = new byte[atLeast(5)][];
+    for (int i = 0; i < chunks.length; ++i) {
+      chunks[i] = random().nextBoolean() ? randomArray() : randomDocuments(TestUtil.nextInt(random(), 0, 10));
+    }
+
+    final Compressor compressor = mode.newCompressor();
+    final byte[] dictionary = new byte[sample.length + 16];
+    final ByteArrayDataOutput dictionaryOut = new ByteArrayDataOutput(dictionary);
+    compressor.writeDictionary(sample, 0, sample.length, dictionaryOut);
+    final byte[][] compressed = new byte[chunks.length][];
+    for (int i = 0; i < chunks.length; ++i) {
+      compressed[i] = compress(compressor, chunks[i], 0, chunks[i].length);
+    }
+
+    final Decompressor decompressor = mode.newDecompressor();
+    decompressor.readDictionary(new ByteArrayDataInput(dictionary, 0, dictionaryOut.getPosition()));
+    final Decompressor clone = decompressor.clone();
+    for (int i = 0; i < chunks.length; ++i) {
+      assertArrayEquals(chunks[i], decompress(random().nextBoolean() ? decompressor : clone, compressed[i], chunks[i].length));
+    }
+  }
+
+  public void testDictionaryHelpsSmallChunks() throws IOException {
+    final byte[] sample = randomDocuments(200);
+    final byte[] chunk = randomDocuments(5);
+
+    final Compressor withDictionary = mode.newCompressor();
+    withDictionary.writeDictionary(sample, 0, sample.length, new ByteArrayDataOutput(new byte[sample.length + 16]));
+    final byte[] compressedWithDictionary = compress(withDictionary, chunk, 0, chunk.length);
+    final byte[] compressedWithoutDictionary = compress(mode.newCompressor(), chunk, 0, chunk.length);
+    assertTrue(compressedWithDictionary.length < compressedWithoutDictionary.length);
+
+    // a decompressor without the dictionary can't make sense of the data
+    expectThrows(IOException.class, () -> {
+      byte[] restored = decompress(mode.newDecompressor(), compressedWithDictionary, chunk.length);
+      if (Arrays.equals(chunk, restored) == false) {
+        throw new IOException("wrong data");
+      }
+    });
+  }
+}
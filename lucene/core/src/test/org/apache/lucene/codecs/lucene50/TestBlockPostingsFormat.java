@@ -17,8 +17,13 @@
 package org.apache.lucene.codecs.lucene50;
 
 
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader;
 import org.apache.lucene.codecs.blocktree.FieldReader;
 import org.apache.lucene.codecs.blocktree.Stats;
 import org.apache.lucene.document.Document;
@@ -27,7 +32,11 @@ import org.apache.lucene.index.BasePostingsFormatTestCase;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
 
 /**
@@ -65,6 +74,106 @@ public class TestBlockPostingsFormat extends BasePostingsFormatTestCase {
     d.close();
   }
 
+  public void testOffHeapTermsIndex() throws Exception {
+    Directory d = newDirectory();
+    IndexWriter w = new IndexWriter(d, new IndexWriterConfig(new MockAnalyzer(random())).setCodec(codec));
+    final int numDocs = atLeast(1000);
+    for(int i=0;i<numDocs;i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    w.close();
+
+    final BlockTreeTermsReader.FSTLoadMode defaultMode = BlockTreeTermsReader.getDefaultFSTLoadMode();
+    final DirectoryReader onHeap;
+    final DirectoryReader offHeap;
+    try {
+      BlockTreeTermsReader.setDefaultFSTLoadMode(BlockTreeTermsReader.FSTLoadMode.ON_HEAP);
+      onHeap = DirectoryReader.open(d);
+      BlockTreeTermsReader.setDefaultFSTLoadMode(BlockTreeTermsReader.FSTLoadMode.OFF_HEAP);
+      offHeap = DirectoryReader.open(d);
+    } finally {
+      BlockTreeTermsReader.setDefaultFSTLoadMode(defaultMode);
+    }
+
+    FieldReader onHeapField = (FieldReader) onHeap.leaves().get(0).reader().fields().terms("id");
+    FieldReader offHeapField = (FieldReader) offHeap.leaves().get(0).reader().fields().terms("id");
+    assertTrue(offHeapField.ramBytesUsed() < onHeapField.ramBytesUsed());
+
+    TermsEnum termsEnum = offHeapField.iterator();
+    for(int i=0;i<numDocs;i++) {
+      assertTrue(termsEnum.seekExact(new BytesRef(Integer.toString(i))));
+    }
+    assertFalse(termsEnum.seekExact(new BytesRef("foo")));
+    assertEquals(TermsEnum.SeekStatus.NOT_FOUND, termsEnum.seekCeil(new BytesRef("10000000")));
+    assertEquals(numDocs, offHeapField.getStats().totalTermCount);
+
+    onHeap.close();
+    offHeap.close();
+    d.close();
+  }
+
+  public void testConcurrentOffHeapTermsIndex() throws Exception {
+    // buffered inputs, whose positional reads are not thread-safe
+    Directory d = random().nextBoolean() ? new NIOFSDirectory(createTempDir()) : new SimpleFSDirectory(createTempDir());
+    IndexWriter w = new IndexWriter(d, new IndexWriterConfig(new MockAnalyzer(random())).setCodec(codec));
+    final int numDocs = atLeast(2000);
+    for(int i=0;i<numDocs;i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    w.close();
+
+    final BlockTreeTermsReader.FSTLoadMode defaultMode = BlockTreeTermsReader.getDefaultFSTLoadMode();
+    final DirectoryReader r;
+    try {
+      BlockTreeTermsReader.setDefaultFSTLoadMode(BlockTreeTermsReader.FSTLoadMode.OFF_HEAP);
+      r = DirectoryReader.open(d);
+    } finally {
+      BlockTreeTermsReader.setDefaultFSTLoadMode(defaultMode);
+    }
+    final FieldReader field = (FieldReader) r.leaves().get(0).reader().fields().terms("id");
+
+    final CountDownLatch startingGun = new CountDownLatch(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[TestUtil.nextInt(random(), 2, 4)];
+    for(int t=0;t<threads.length;t++) {
+      final long seed = random().nextLong();
+      threads[t] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              Random random = new Random(seed);
+              startingGun.await();
+              for(int iter=0;iter<numDocs;iter++) {
+                TermsEnum termsEnum = field.iterator();
+                int id = random.nextInt(numDocs);
+                assertTrue(termsEnum.seekExact(new BytesRef(Integer.toString(id))));
+                assertFalse(termsEnum.seekExact(new BytesRef("x" + id)));
+              }
+            } catch (Throwable th) {
+              failure.compareAndSet(null, th);
+            }
+          }
+        };
+      threads[t].start();
+    }
+    startingGun.countDown();
+    for(Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+
+    r.close();
+    d.close();
+  }
+
   private void shouldFail(int minItemsInBlock, int maxItemsInBlock) {
     expectThrows(IllegalArgumentException.class, () -> {
       new Lucene50PostingsFormat(minItemsInBlock, maxItemsInBlock);
@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 import org.apache.lucene.analysis.MockAnalyzer;
@@ -33,6 +34,7 @@ import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.asserting.AssertingCodec;
 import org.apache.lucene.codecs.lucene70.Lucene70DocValuesFormat;
+import org.apache.lucene.codecs.perfield.PerFieldDocValuesFormat;
 import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -46,6 +48,7 @@ import org.apache.lucene.index.BaseCompressingDocValuesFormatTestCase;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -54,6 +57,9 @@ import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
@@ -62,7 +68,9 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.RAMFile;
 import org.apache.lucene.store.RAMInputStream;
 import org.apache.lucene.store.RAMOutputStream;
@@ -534,4 +542,112 @@ public class TestLucene70DocValuesFormat extends BaseCompressingDocValuesFormatT
       dir.close();
     }
   }
+
+  @Slow
+  public void testNumericBlocksMonotonic() throws IOException {
+    final long start = random().nextLong() >> 2;
+    final long[] value = new long[] {start};
+    doTestNumericBlocks(() -> value[0] += 1000 + random().nextInt(50), Lucene70DocValuesFormat.NUMERIC_BLOCK_LINEAR);
+  }
+
+  @Slow
+  public void testNumericBlocksOutliers() throws IOException {
+    // enough distinct values that the field does not get table-encoded
+    doTestNumericBlocks(() -> random().nextInt(1000) == 0 ? random().nextLong() >>> 16 : random().nextInt(1024),
+        Lucene70DocValuesFormat.NUMERIC_BLOCK_PATCHED);
+  }
+
+  @Slow
+  public void testNumericBlocksFrequentValue() throws IOException {
+    final long frequent = (long) random().nextInt(1 << 20) << 30;
+    doTestNumericBlocks(() -> random().nextInt(20) == 0 ? random().nextInt(1 << 20) : frequent,
+        Lucene70DocValuesFormat.NUMERIC_BLOCK_PATCHED);
+  }
+
+  @Slow
+  public void testNumericBlocksVaryingRanges() throws IOException {
+    final int[] upto = new int[1];
+    doTestNumericBlocks(() -> {
+      final int block = upto[0]++ >>> Lucene70DocValuesFormat.NUMERIC_BLOCK_SHIFT;
+      return block % 2 == 0 ? random().nextInt(4) : (long) block << 40 | random().nextInt(1 << 10);
+    }, Lucene70DocValuesFormat.NUMERIC_BLOCK_DELTA);
+  }
+
+  private void doTestNumericBlocks(LongSupplier values, byte expectedEncoding) throws IOException {
+    final Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(newLogMergePolicy());
+    iwc.setCodec(getCodec());
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(Lucene70DocValuesFormat.NUMERIC_BLOCK_SIZE * 3);
+    final boolean sparse = random().nextBoolean();
+    final long[] expected = new long[numDocs];
+    final boolean[] hasValue = new boolean[numDocs];
+    int numValues = 0;
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (sparse == false || random().nextInt(10) != 0) {
+        hasValue[i] = true;
+        numValues++;
+        expected[i] = values.getAsLong();
+        doc.add(new NumericDocValuesField("num", expected[i]));
+        doc.add(new SortedNumericDocValuesField("snum", expected[i]));
+      }
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    DirectoryReader r = DirectoryReader.open(w);
+    w.close();
+    LeafReader sr = getOnlyLeafReader(r);
+    assertEquals(numDocs, sr.maxDoc());
+    assertNumericBlockEncodings(dir, (SegmentReader) sr, "num", numValues, expectedEncoding);
+    assertNumericBlockEncodings(dir, (SegmentReader) sr, "snum", numValues, expectedEncoding);
+
+    // sequential access
+    NumericDocValues numeric = sr.getNumericDocValues("num");
+    SortedNumericDocValues sortedNumeric = sr.getSortedNumericDocValues("snum");
+    for (int i = 0; i < numDocs; ++i) {
+      if (hasValue[i]) {
+        assertEquals(i, numeric.nextDoc());
+        assertEquals(expected[i], numeric.longValue());
+        assertEquals(i, sortedNumeric.nextDoc());
+        assertEquals(1, sortedNumeric.docValueCount());
+        assertEquals(expected[i], sortedNumeric.nextValue());
+      }
+    }
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, numeric.nextDoc());
+
+    // random-access lookups that jump across blocks
+    numeric = sr.getNumericDocValues("num");
+    for (int i = 0; i < numDocs; i += 1 + random().nextInt(Lucene70DocValuesFormat.NUMERIC_BLOCK_SIZE)) {
+      assertEquals(hasValue[i], numeric.advanceExact(i));
+      if (hasValue[i]) {
+        assertEquals(expected[i], numeric.longValue());
+      }
+    }
+    r.close();
+    dir.close();
+  }
+
+  /**
+   * Check that the values of the given field have been compressed in blocks and that all blocks
+   * but the last one, which may hold few values, use the expected encoding.
+   */
+  private static void assertNumericBlockEncodings(Directory dir, SegmentReader reader, String field,
+      int numValues, byte expectedEncoding) throws IOException {
+    FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+    String segmentSuffix = fieldInfo.getAttribute(PerFieldDocValuesFormat.PER_FIELD_FORMAT_KEY)
+        + "_" + fieldInfo.getAttribute(PerFieldDocValuesFormat.PER_FIELD_SUFFIX_KEY);
+    SegmentInfo si = reader.getSegmentInfo().info;
+    try (Directory segmentDir = si.getUseCompoundFile() ? si.getCodec().compoundFormat().getCompoundReader(dir, si, IOContext.READ) : null) {
+      SegmentReadState state = new SegmentReadState(segmentDir == null ? dir : segmentDir, si, reader.getFieldInfos(), IOContext.READ, segmentSuffix);
+      try (Lucene70DocValuesProducer producer = (Lucene70DocValuesProducer) new Lucene70DocValuesFormat().fieldsProducer(state)) {
+        byte[] encodings = producer.getNumericBlockEncodings(fieldInfo);
+        assertNotNull("values of " + field + " are not compressed in blocks", encodings);
+        assertEquals((numValues + Lucene70DocValuesFormat.NUMERIC_BLOCK_MASK) >>> Lucene70DocValuesFormat.NUMERIC_BLOCK_SHIFT, encodings.length);
+        for (int block = 0; block < encodings.length - 1; ++block) {
+          assertEquals("encoding of block " + block + " of " + field, expectedEncoding, encodings[block]);
+        }
+      }
+    }
+  }
 }
@@ -22,12 +22,18 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.MockAnalyzer;
@@ -36,13 +42,16 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MockDirectoryWrapper;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
 import org.apache.lucene.util.TestUtil;
@@ -1400,4 +1409,118 @@ public class TestIndexWriterDelete extends LuceneTestCase {
     w.close();
     dir.close();
   }
+
+  public void testUpdateTimeOrderedIds() throws Exception {
+    final int[] counter = new int[1];
+    doTestUpdateDocuments(() -> String.format(Locale.ROOT, "%08d", random().nextInt(10) == 0 ? random().nextInt(counter[0] + 1) : counter[0]++));
+  }
+
+  public void testUpdateRandomIds() throws Exception {
+    // small alphabet, including the 0 byte, so that ids share prefixes and are prefixes of each other
+    final String[] alphabet = new String[] {"\u0000", "a", "b"};
+    doTestUpdateDocuments(() -> {
+      StringBuilder id = new StringBuilder();
+      for (int i = TestUtil.nextInt(random(), 1, 5); i > 0; --i) {
+        id.append(alphabet[random().nextInt(alphabet.length)]);
+      }
+      return id.toString();
+    });
+  }
+
+  public void testDeleteTermsSeeks() throws Exception {
+    final Pattern seeks = Pattern.compile("(\\d+) seekExact; (\\d+) seekCeil");
+    final long[] counts = new long[2];
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    // apply all delete terms as one packet
+    iwc.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwc.setMaxBufferedDeleteTerms(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwc.setRAMBufferSizeMB(16);
+    iwc.setInfoStream(new InfoStream() {
+      @Override
+      public void message(String component, String message) {
+        if (component.equals("BD") && message.startsWith("applyTermDeletes took")) {
+          Matcher m = seeks.matcher(message);
+          assertTrue(message, m.find());
+          counts[0] += Long.parseLong(m.group(1));
+          counts[1] += Long.parseLong(m.group(2));
+        }
+      }
+
+      @Override
+      public boolean isEnabled(String component) {
+        return component.equals("BD");
+      }
+
+      @Override
+      public void close() {}
+    });
+    IndexWriter w = new IndexWriter(dir, iwc);
+    for (String prefix : new String[] {"a", "b"}) {
+      for (int i = 0; i < 100; ++i) {
+        Document doc = new Document();
+        doc.add(new StringField("id", String.format(Locale.ROOT, "%s%04d", prefix, i), Field.Store.NO));
+        w.addDocument(doc);
+      }
+    }
+    w.forceMerge(1);
+    w.commit();
+    counts[0] = counts[1] = 0;
+
+    // a0003 is the first term of the field: seekCeil
+    // a0010 shares most of its bytes with the previous delete term: seekExact
+    // a0011 and a0012 are the next terms of the segment: no seek
+    // a0013x is missing but close to the previous delete term: seekExact
+    // b0005 shares no bytes with the previous delete term: seekCeil
+    // b0006 is the next term of the segment: no seek
+    for (String id : new String[] {"a0003", "a0010", "a0011", "a0012", "a0013x", "b0005", "b0006"}) {
+      w.deleteDocuments(new Term("id", id));
+    }
+    w.commit();
+    assertEquals(2, counts[0]);
+    assertEquals(2, counts[1]);
+
+    DirectoryReader r = DirectoryReader.open(w);
+    assertEquals(200 - 6, r.numDocs());
+    r.close();
+    w.close();
+    dir.close();
+  }
+
+  private void doTestUpdateDocuments(Supplier<String> ids) throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 2, 50));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final Map<String,Integer> versions = new HashMap<>();
+    final int numUpdates = atLeast(1000);
+    for (int i = 0; i < numUpdates; ++i) {
+      final String id = ids.get();
+      if (random().nextInt(10) == 0) {
+        w.deleteDocuments(new Term("id", id));
+        versions.remove(id);
+      } else {
+        Document doc = new Document();
+        doc.add(new StringField("id", id, Field.Store.NO));
+        doc.add(new StoredField("version", i));
+        w.updateDocument(new Term("id", id), doc);
+        versions.put(id, i);
+      }
+      if (random().nextInt(100) == 0) {
+        DirectoryReader.open(w).close();
+      }
+    }
+
+    DirectoryReader r = DirectoryReader.open(w);
+    w.close();
+    assertEquals(versions.size(), r.numDocs());
+    IndexSearcher searcher = newSearcher(r);
+    for (Map.Entry<String,Integer> entry : versions.entrySet()) {
+      TopDocs hits = searcher.search(new TermQuery(new Term("id", entry.getKey())), 2);
+      assertEquals(1, hits.totalHits);
+      assertEquals(entry.getValue().intValue(), searcher.doc(hits.scoreDocs[0].doc).getField("version").numericValue().intValue());
+    }
+    r.close();
+    dir.close();
+  }
 }
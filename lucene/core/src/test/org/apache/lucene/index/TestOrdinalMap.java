@@ -19,7 +19,11 @@ package org.apache.lucene.index;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
@@ -30,8 +34,10 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
+import org.apache.lucene.util.packed.PackedInts;
 
 public class TestOrdinalMap extends LuceneTestCase {
 
@@ -96,4 +102,134 @@ public class TestOrdinalMap extends LuceneTestCase {
     dir.close();
   }
 
+  private static void indexRandomTerms(IndexWriter iw, String field, int numDocs, int maxTermLength) throws IOException {
+    for (int i = 0; i < numDocs; ++i) {
+      Document d = new Document();
+      final int numValues = random().nextInt(3);
+      for (int j = 0; j < numValues; ++j) {
+        d.add(new SortedSetDocValuesField(field, new BytesRef(TestUtil.randomSimpleString(random(), maxTermLength))));
+      }
+      iw.addDocument(d);
+      if (random().nextInt(50) == 0) {
+        iw.commit();
+      }
+    }
+  }
+
+  private static SortedSetDocValues[] getValues(IndexReader r, String field) throws IOException {
+    final SortedSetDocValues[] values = new SortedSetDocValues[r.leaves().size()];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = DocValues.getSortedSet(r.leaves().get(i).reader(), field);
+    }
+    return values;
+  }
+
+  /** Check that the map is consistent with the terms of every segment. */
+  private static void assertMapping(OrdinalMap map, IndexReader r, String field) throws IOException {
+    final SortedSetDocValues[] values = getValues(r, field);
+    final BytesRef[] globalTerms = new BytesRef[Math.toIntExact(map.getValueCount())];
+    for (int i = 0; i < globalTerms.length; ++i) {
+      final int segment = map.getFirstSegmentNumber(i);
+      globalTerms[i] = BytesRef.deepCopyOf(values[segment].lookupOrd(map.getFirstSegmentOrd(i)));
+      if (i > 0) {
+        assertTrue(globalTerms[i - 1].compareTo(globalTerms[i]) < 0);
+      }
+    }
+    for (int i = 0; i < values.length; ++i) {
+      final LongValues globalOrds = map.getGlobalOrds(i);
+      for (long ord = 0; ord < values[i].getValueCount(); ++ord) {
+        final long globalOrd = globalOrds.get(ord);
+        assertEquals(globalTerms[Math.toIntExact(globalOrd)], values[i].lookupOrd(ord));
+      }
+    }
+  }
+
+  public void testParallelBuild() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig cfg = new IndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter iw = new IndexWriter(dir, cfg);
+    indexRandomTerms(iw, "ssdv", atLeast(500), TestUtil.nextInt(random(), 1, 4));
+    DirectoryReader r = DirectoryReader.open(iw);
+    iw.close();
+
+    OrdinalMap expected = OrdinalMap.build(null, getValues(r, "ssdv"), PackedInts.DEFAULT);
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4), new NamedThreadFactory("TestOrdinalMap"));
+    try {
+      OrdinalMap actual = OrdinalMap.build(null, r.leaves(), "ssdv", PackedInts.DEFAULT, executor, TestUtil.nextInt(random(), 1, 10));
+      assertEquals(expected.getValueCount(), actual.getValueCount());
+      for (long i = 0; i < expected.getValueCount(); ++i) {
+        assertEquals(expected.getFirstSegmentNumber(i), actual.getFirstSegmentNumber(i));
+        assertEquals(expected.getFirstSegmentOrd(i), actual.getFirstSegmentOrd(i));
+      }
+      for (int i = 0; i < r.leaves().size(); ++i) {
+        final long valueCount = DocValues.getSortedSet(r.leaves().get(i).reader(), "ssdv").getValueCount();
+        for (long ord = 0; ord < valueCount; ++ord) {
+          assertEquals(expected.getGlobalOrds(i).get(ord), actual.getGlobalOrds(i).get(ord));
+        }
+      }
+      assertMapping(actual, r, "ssdv");
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    r.close();
+    dir.close();
+  }
+
+  public void testParallelBuildNoSegments() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4), new NamedThreadFactory("TestOrdinalMap"));
+    try {
+      OrdinalMap map = OrdinalMap.build(null, Collections.<LeafReaderContext>emptyList(), "ssdv", PackedInts.DEFAULT,
+          executor, TestUtil.nextInt(random(), 1, 10));
+      assertEquals(0, map.getValueCount());
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  public void testIncrementalBuild() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig cfg = new IndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter iw = new IndexWriter(dir, cfg);
+    final int maxTermLength = TestUtil.nextInt(random(), 1, 4);
+    indexRandomTerms(iw, "ssdv", atLeast(200), maxTermLength);
+    DirectoryReader r1 = DirectoryReader.open(iw);
+    OrdinalMap previous = OrdinalMap.build(null, getValues(r1, "ssdv"), PackedInts.DEFAULT);
+    indexRandomTerms(iw, "ssdv", atLeast(100), maxTermLength);
+    DirectoryReader r2 = DirectoryReader.openIfChanged(r1);
+    iw.close();
+
+    final int[] previousSegments = new int[r2.leaves().size()];
+    for (int i = 0; i < previousSegments.length; ++i) {
+      previousSegments[i] = -1;
+      final Object coreCacheKey = r2.leaves().get(i).reader().getCoreCacheKey();
+      for (int j = 0; j < r1.leaves().size(); ++j) {
+        if (r1.leaves().get(j).reader().getCoreCacheKey() == coreCacheKey) {
+          previousSegments[i] = j;
+        }
+      }
+    }
+    OrdinalMap actual = OrdinalMap.build(null, getValues(r2, "ssdv"), previous, previousSegments, PackedInts.DEFAULT);
+    OrdinalMap expected = OrdinalMap.build(null, getValues(r2, "ssdv"), PackedInts.DEFAULT);
+    assertEquals(expected.getValueCount(), actual.getValueCount());
+    assertMapping(actual, r2, "ssdv");
+
+    // all previous segments must be present
+    if (r1.leaves().size() > 0) {
+      final int[] missingSegments = previousSegments.clone();
+      for (int i = 0; i < missingSegments.length; ++i) {
+        if (missingSegments[i] == 0) {
+          missingSegments[i] = -1;
+        }
+      }
+      expectThrows(IllegalArgumentException.class, () -> {
+        OrdinalMap.build(null, getValues(r2, "ssdv"), previous, missingSegments, PackedInts.DEFAULT);
+      });
+    }
+
+    r1.close();
+    r2.close();
+    dir.close();
+  }
 }
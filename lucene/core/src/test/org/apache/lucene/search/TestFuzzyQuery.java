@@ -24,6 +24,9 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.analysis.MockTokenizer;
@@ -41,6 +44,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.IntsRef;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.util.automaton.LevenshteinAutomata;
 
@@ -527,6 +531,8 @@ public class TestFuzzyQuery extends LuceneTestCase {
     DirectoryReader r = w.getReader();
     //System.out.println("TEST: reader=" + r);
     IndexSearcher s = newSearcher(r);
+    // collect top terms of every segment in parallel
+    ExecutorService executor = random().nextBoolean() ? null : Executors.newFixedThreadPool(2, new NamedThreadFactory("TestFuzzyQuery"));
     int iters = atLeast(1000);
     for(int iter=0;iter<iters;iter++) {
       String queryTerm = randomSimpleString(digits);
@@ -560,6 +566,9 @@ public class TestFuzzyQuery extends LuceneTestCase {
         }
         */
         FuzzyQuery query = new FuzzyQuery(new Term("field", queryTerm), ed, prefixLength, queueSize, true);
+        if (executor != null) {
+          query.setRewriteMethod(new MultiTermQuery.TopTermsBlendedFreqScoringRewrite(queueSize, executor));
+        }
         TopDocs hits = s.search(query, terms.size());
         Set<String> actual = new HashSet<>();
         for(ScoreDoc hit : hits.scoreDocs) {
@@ -602,6 +611,47 @@ public class TestFuzzyQuery extends LuceneTestCase {
       }
     }
     
+    if (executor != null) {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+    IOUtils.close(r, w, dir);
+  }
+
+  public void testAutomataCache() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (String term : new String[] {"lucene", "lucine", "lucenes", "solr"}) {
+      Document doc = new Document();
+      doc.add(new StringField("field", term, Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader r = w.getReader();
+    IndexSearcher s = newSearcher(r);
+    FuzzyTermsEnum.clearAutomataCache();
+
+    assertEquals(3, s.count(new FuzzyQuery(new Term("field", "lucene"))));
+    assertEquals(1, FuzzyTermsEnum.automataCacheSize());
+    // same term, other field: the automata are reused
+    assertEquals(0, s.count(new FuzzyQuery(new Term("other", "lucene"))));
+    assertEquals(3, s.count(new FuzzyQuery(new Term("field", "lucene"))));
+    assertEquals(1, FuzzyTermsEnum.automataCacheSize());
+    // other parameters build other automata
+    assertEquals(3, s.count(new FuzzyQuery(new Term("field", "lucene"), 1)));
+    assertEquals(2, FuzzyTermsEnum.automataCacheSize());
+    assertEquals(3, s.count(new FuzzyQuery(new Term("field", "lucene"), 2, 3)));
+    assertEquals(3, FuzzyTermsEnum.automataCacheSize());
+    assertEquals(3, s.count(new FuzzyQuery(new Term("field", "lucene"), 2, 0, 50, false)));
+    assertEquals(4, FuzzyTermsEnum.automataCacheSize());
+
+    // the cache is bounded
+    for (int i = 0; i < FuzzyTermsEnum.MAX_CACHED_AUTOMATA + 10; ++i) {
+      s.count(new FuzzyQuery(new Term("field", "term" + i), 1));
+    }
+    assertEquals(FuzzyTermsEnum.MAX_CACHED_AUTOMATA, FuzzyTermsEnum.automataCacheSize());
+    assertEquals(3, s.count(new FuzzyQuery(new Term("field", "lucene"), 1)));
+
+    FuzzyTermsEnum.clearAutomataCache();
     IOUtils.close(r, w, dir);
   }
 
@@ -18,6 +18,10 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
@@ -25,6 +29,7 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FilteredTermsEnum;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
@@ -34,6 +39,8 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.AttributeSource;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
+import org.apache.lucene.util.TestUtil;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 
@@ -42,6 +49,7 @@ public class TestMultiTermQueryRewrites extends LuceneTestCase {
   static Directory dir, sdir1, sdir2;
   static IndexReader reader, multiReader, multiReaderDupls;
   static IndexSearcher searcher, multiSearcher, multiSearcherDupls;
+  static ExecutorService executor;
 
   @BeforeClass
   public static void beforeClass() throws Exception {
@@ -73,10 +81,15 @@ public class TestMultiTermQueryRewrites extends LuceneTestCase {
       DirectoryReader.open(sdir1), DirectoryReader.open(dir) 
     }, true);
     multiSearcherDupls = newSearcher(multiReaderDupls);
+
+    executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("TestMultiTermQueryRewrites"));
   }
 
   @AfterClass
   public static void afterClass() throws Exception {
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.SECONDS);
+    executor = null;
     reader.close();
     multiReader.close();
     multiReaderDupls.close();
@@ -139,6 +152,12 @@ public class TestMultiTermQueryRewrites extends LuceneTestCase {
     // use a large PQ here to only test duplicate terms and dont mix up when all scores are equal
     checkDuplicateTerms(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(1024));
     checkDuplicateTerms(new MultiTermQuery.TopTermsBoostOnlyBooleanQueryRewrite(1024));
+
+    // collect the terms of each segment in parallel
+    checkDuplicateTerms(ScoringRewrite.scoringBooleanRewrite(executor));
+    checkDuplicateTerms(ScoringRewrite.constantScoreBooleanRewrite(executor));
+    checkDuplicateTerms(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(1024, executor));
+    checkDuplicateTerms(new MultiTermQuery.TopTermsBoostOnlyBooleanQueryRewrite(1024, executor));
   }
   
   private void checkBooleanQueryBoosts(BooleanQuery bq) {
@@ -212,6 +231,9 @@ public class TestMultiTermQueryRewrites extends LuceneTestCase {
 
     // use a large PQ here to only test boosts and dont mix up when all scores are equal
     checkBoosts(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(1024));
+
+    checkBoosts(ScoringRewrite.scoringBooleanRewrite(executor));
+    checkBoosts(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(1024, executor));
   }
   
   private void checkMaxClauseLimitation(MultiTermQuery.RewriteMethod method) throws Exception {
@@ -248,10 +270,127 @@ public class TestMultiTermQueryRewrites extends LuceneTestCase {
   public void testMaxClauseLimitations() throws Exception {
     checkMaxClauseLimitation(MultiTermQuery.SCORING_BOOLEAN_REWRITE);
     checkMaxClauseLimitation(MultiTermQuery.CONSTANT_SCORE_BOOLEAN_REWRITE);
+    checkMaxClauseLimitation(ScoringRewrite.scoringBooleanRewrite(executor));
     
     checkNoMaxClauseLimitation(MultiTermQuery.CONSTANT_SCORE_REWRITE);
     checkNoMaxClauseLimitation(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(1024));
     checkNoMaxClauseLimitation(new MultiTermQuery.TopTermsBoostOnlyBooleanQueryRewrite(1024));
+    checkNoMaxClauseLimitation(new MultiTermQuery.TopTermsBoostOnlyBooleanQueryRewrite(1024, executor));
+  }
+
+  public void testParallelConstantScoreRewrite() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("data", Integer.toString(random().nextInt(100)), Field.Store.NO));
+      w.addDocument(doc);
+      if (random().nextInt(20) == 0) {
+        w.commit();
+      }
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher sequential = new IndexSearcher(reader);
+    IndexSearcher parallel = new IndexSearcher(reader, executor);
+    parallel.setQueryCache(null);
+
+    for (int iter = 0; iter < 20; iter++) {
+      // both few terms, that are rewritten to a disjunction, and many terms, that fill a bit set
+      String lower = Integer.toString(random().nextInt(100));
+      String upper = Integer.toString(random().nextInt(100));
+      MultiTermQuery query = TermRangeQuery.newStringRange("data", lower, upper, random().nextBoolean(), random().nextBoolean());
+      assertEquals(sequential.count(query), parallel.count(query));
+      TopDocs expected = sequential.search(query, numDocs);
+      TopDocs actual = parallel.search(query, numDocs);
+      CheckHits.checkEqual(query, expected.scoreDocs, actual.scoreDocs);
+
+      // a weight may be used again on the same segment
+      Weight weight = parallel.createNormalizedWeight(query, false);
+      for (int i = 0; i < 2; i++) {
+        int count = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+          Scorer scorer = weight.scorer(context);
+          if (scorer != null) {
+            DocIdSetIterator it = scorer.iterator();
+            while (it.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+              count++;
+            }
+          }
+        }
+        assertEquals(expected.totalHits, count);
+      }
+    }
+    reader.close();
+    dir.close();
+  }
+
+  public void testParallelConstantScoreRewriteIsLazy() throws Exception {
+    final AtomicInteger termsEnums = new AtomicInteger();
+    final MultiTermQuery query = new TermRangeQuery("data", new BytesRef("0"), new BytesRef("9"), true, true) {
+      @Override
+      protected TermsEnum getTermsEnum(Terms terms, AttributeSource atts) throws IOException {
+        termsEnums.incrementAndGet();
+        return super.getTermsEnum(terms, atts);
+      }
+    };
+    IndexSearcher parallel = new IndexSearcher(multiReader, executor);
+    parallel.setQueryCache(null);
+    assertEquals(2, multiReader.leaves().size());
+    LeafReaderContext first = multiReader.leaves().get(0);
+    LeafReaderContext second = multiReader.leaves().get(1);
+
+    // pulling a scorer only rewrites its own segment
+    Weight weight = parallel.createNormalizedWeight(query, false);
+    assertNotNull(weight.scorer(first));
+    assertEquals(1, termsEnums.get());
+    // and so does a scorer supplier, only once the scorer is needed
+    ScorerSupplier supplier = weight.scorerSupplier(second);
+    assertEquals(1, termsEnums.get());
+    assertNotNull(supplier.get(false));
+    assertEquals(2, termsEnums.get());
+
+    // a full search rewrites all segments once
+    termsEnums.set(0);
+    assertEquals(10, parallel.count(query));
+    assertEquals(2, termsEnums.get());
+  }
+
+  public void testParallelConstantScoreRewritePrefetchesFewSegments() throws Exception {
+    final AtomicInteger termsEnums = new AtomicInteger();
+    final MultiTermQuery query = new TermRangeQuery("data", new BytesRef("0"), new BytesRef("9"), true, true) {
+      @Override
+      protected TermsEnum getTermsEnum(Terms terms, AttributeSource atts) throws IOException {
+        termsEnums.incrementAndGet();
+        return super.getTermsEnum(terms, atts);
+      }
+    };
+    final int numSegments = MultiTermQueryConstantScoreWrapper.PREFETCH_SEGMENT_COUNT + TestUtil.nextInt(random(), 2, 5);
+    final IndexReader[] subReaders = new IndexReader[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      subReaders[i] = DirectoryReader.open(sdir1);
+    }
+    try (IndexReader reader = new MultiReader(subReaders, true)) {
+      IndexSearcher parallel = new IndexSearcher(reader, executor);
+      parallel.setQueryCache(null);
+
+      // a search that stops after the first segment only rewrites the next few segments
+      Weight weight = parallel.createNormalizedWeight(query, false);
+      assertNotNull(weight.bulkScorer(reader.leaves().get(0)));
+      assertTrue(termsEnums.get() <= 1 + MultiTermQueryConstantScoreWrapper.PREFETCH_SEGMENT_COUNT);
+      // and the next segments are rewritten once as they are bulk-scored
+      for (LeafReaderContext context : reader.leaves()) {
+        if (context.ord > 0) {
+          assertNotNull(weight.bulkScorer(context));
+        }
+      }
+      assertEquals(numSegments, termsEnums.get());
+
+      termsEnums.set(0);
+      assertEquals(5 * numSegments, parallel.count(query));
+      assertEquals(numSegments, termsEnums.get());
+    }
   }
   
 }
@@ -19,8 +19,11 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CannedTokenStream;
@@ -691,6 +694,48 @@ public class TestPhraseQuery extends LuceneTestCase {
     dir.close();
   }
   
+  public void testRepeatedTermsMinFreqs() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig(new MockAnalyzer(random(), MockTokenizer.WHITESPACE, false)));
+    String[] docs = new String[] { "a b c", "a b a c", "a a", "a x y a", "x a y" };
+    for (String text : docs) {
+      Document doc = new Document();
+      doc.add(newTextField("f", text, Field.Store.YES));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    IndexSearcher s = newSearcher(reader);
+    w.close();
+
+    assertMatches(s, new PhraseQuery("f", "a", "b", "a"), "a b a c");
+    assertMatches(s, new PhraseQuery("f", "a", "a"), "a a");
+    assertMatches(s, new PhraseQuery(2, "f", "a", "a"), "a b a c", "a a", "a x y a");
+    assertMatches(s, new PhraseQuery(10, "f", "a", "b", "a"), "a b a c");
+    assertMatches(s, new PhraseQuery(10, "f", "a", "a", "a"));
+
+    // terms repeated at the same position, eg. duplicate tokens, may match the same document position
+    PhraseQuery.Builder builder = new PhraseQuery.Builder();
+    builder.add(new Term("f", "a"), 0);
+    builder.add(new Term("f", "a"), 0);
+    builder.add(new Term("f", "b"), 1);
+    assertMatches(s, builder.build(), "a b c", "a b a c");
+    builder.setSlop(1);
+    assertMatches(s, builder.build(), "a b c", "a b a c");
+
+    reader.close();
+    dir.close();
+  }
+
+  private static void assertMatches(IndexSearcher s, Query query, String... expected) throws IOException {
+    ScoreDoc[] hits = s.search(query, 10).scoreDocs;
+    Set<String> actual = new HashSet<>();
+    for (ScoreDoc hit : hits) {
+      actual.add(s.doc(hit.doc).get("f"));
+    }
+    assertEquals(query.toString(), new HashSet<>(Arrays.asList(expected)), actual);
+    QueryUtils.check(random(), query, s);
+  }
+
   public void testNegativeSlop() throws Exception {
     expectThrows(IllegalArgumentException.class, () -> {
       new PhraseQuery(-2, "field", "two", "one");
@@ -20,10 +20,18 @@ package org.apache.lucene.search;
 import java.io.IOException;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
@@ -33,6 +41,8 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.TestUtil;
 
+import com.carrotsearch.randomizedtesting.generators.RandomPicks;
+
 public class TestTopFieldCollector extends LuceneTestCase {
   private IndexSearcher is;
   private IndexReader ir;
@@ -259,4 +269,147 @@ public class TestTopFieldCollector extends LuceneTestCase {
     dir.close();
   }
 
+  public void testSkipNonCompetitiveDocsWithPoints() throws Exception {
+    Directory dir = newDirectory();
+    // default codec, so that the points tree is fine-grained enough to estimate competitive documents
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig()
+        .setCodec(TestUtil.getDefaultCodec())
+        .setMergePolicy(newLogMergePolicy()));
+    final int numDocs = 10000;
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new LongPoint("ts", i));
+      doc.add(new NumericDocValuesField("ts", i));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    IndexReader reader = DirectoryReader.open(w);
+    w.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+
+    SortField sortField = new SortField("ts", SortField.Type.LONG);
+    sortField.setMissingValue(Long.MAX_VALUE);
+    sortField.setCanUsePoints();
+    Sort sort = new Sort(sortField);
+
+    TopFieldCollector collector = TopFieldCollector.create(sort, 10, null, true, false, false, false);
+    searcher.search(new MatchAllDocsQuery(), collector);
+    TopFieldDocs topDocs = collector.topDocs();
+    assertEquals(10, topDocs.scoreDocs.length);
+    for (int i = 0; i < 10; ++i) {
+      assertEquals(i, topDocs.scoreDocs[i].doc);
+    }
+    // documents after the first ones that filled the queue are never competitive
+    assertTrue(topDocs.totalHits < numDocs);
+
+    // counting all hits disables skipping
+    collector = TopFieldCollector.create(sort, 10, null, true, false, false, true);
+    searcher.search(new MatchAllDocsQuery(), collector);
+    assertEquals(numDocs, collector.topDocs().totalHits);
+
+    // the missing value is competitive, so documents without points can't be skipped
+    sortField = new SortField("ts", SortField.Type.LONG);
+    sortField.setCanUsePoints();
+    collector = TopFieldCollector.create(new Sort(sortField), 10, null, true, false, false, false);
+    searcher.search(new MatchAllDocsQuery(), collector);
+    assertEquals(numDocs, collector.topDocs().totalHits);
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testRandomSkipNonCompetitiveDocsWithPoints() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final SortField.Type type = RandomPicks.randomFrom(random(),
+        new SortField.Type[] { SortField.Type.INT, SortField.Type.LONG, SortField.Type.FLOAT, SortField.Type.DOUBLE });
+    final int numDocs = atLeast(2000);
+    final int numValues = TestUtil.nextInt(random(), 10, 2000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        int value = random().nextInt(numValues) - numValues / 2;
+        switch (type) {
+          case INT:
+            doc.add(new IntPoint("f", value));
+            doc.add(new NumericDocValuesField("f", value));
+            break;
+          case LONG:
+            doc.add(new LongPoint("f", value));
+            doc.add(new NumericDocValuesField("f", value));
+            break;
+          case FLOAT:
+            doc.add(new FloatPoint("f", value / 3f));
+            doc.add(new FloatDocValuesField("f", value / 3f));
+            break;
+          case DOUBLE:
+            doc.add(new DoublePoint("f", value / 3d));
+            doc.add(new DoubleDocValuesField("f", value / 3d));
+            break;
+          default:
+            throw new AssertionError();
+        }
+      }
+      doc.add(new StringField("tag", random().nextBoolean() ? "a" : "b", Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    for (int iter = 0; iter < 20; ++iter) {
+      SortField sortField = new SortField("f", type, random().nextBoolean());
+      if (random().nextBoolean()) {
+        final int missing = random().nextInt(numValues) - numValues / 2;
+        switch (type) {
+          case INT:
+            sortField.setMissingValue(missing);
+            break;
+          case LONG:
+            sortField.setMissingValue((long) missing);
+            break;
+          case FLOAT:
+            sortField.setMissingValue(random().nextBoolean() ? Float.POSITIVE_INFINITY : missing / 3f);
+            break;
+          case DOUBLE:
+            sortField.setMissingValue(random().nextBoolean() ? Double.NEGATIVE_INFINITY : missing / 3d);
+            break;
+          default:
+            throw new AssertionError();
+        }
+      }
+      sortField.setCanUsePoints();
+      Sort sort = random().nextBoolean() ? new Sort(sortField) : new Sort(sortField, SortField.FIELD_DOC);
+      Query query = random().nextBoolean() ? new MatchAllDocsQuery() : new TermQuery(new Term("tag", "a"));
+      final int numHits = TestUtil.nextInt(random(), 1, 100);
+
+      FieldDoc after = null;
+      if (random().nextBoolean()) {
+        TopFieldDocs previousPage = searcher.search(query, TestUtil.nextInt(random(), 1, 200), sort, false, false);
+        if (previousPage.scoreDocs.length > 0) {
+          after = (FieldDoc) previousPage.scoreDocs[previousPage.scoreDocs.length - 1];
+        }
+      }
+
+      TopFieldCollector exact = TopFieldCollector.create(sort, numHits, after, true, false, false, true);
+      searcher.search(query, exact);
+      TopFieldDocs expected = exact.topDocs();
+      TopFieldCollector skipping = TopFieldCollector.create(sort, numHits, after, true, false, false, false);
+      searcher.search(query, skipping);
+      TopFieldDocs actual = skipping.topDocs();
+
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        FieldDoc expectedDoc = (FieldDoc) expected.scoreDocs[i];
+        FieldDoc actualDoc = (FieldDoc) actual.scoreDocs[i];
+        assertEquals(expectedDoc.doc, actualDoc.doc);
+        assertArrayEquals(expectedDoc.fields, actualDoc.fields);
+      }
+      assertTrue(actual.totalHits <= expected.totalHits);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
 }
@@ -23,6 +23,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
@@ -103,6 +105,54 @@ public class TestCompiledAutomaton extends LuceneTestCase {
     testTerms(numTerms * 100, terms.toArray(new String[terms.size()]));
   }
 
+  // compiled automata are shared across threads, eg. by FuzzyQuery
+  public void testConcurrentFloor() throws Exception {
+    final int numTerms = atLeast(400);
+    final Set<String> terms = new HashSet<>();
+    while(terms.size() != numTerms) {
+      terms.add(randomString());
+    }
+    final CompiledAutomaton c = build(numTerms * 100, terms.toArray(new String[terms.size()]));
+
+    final int numInputs = atLeast(200);
+    final BytesRef[] inputs = new BytesRef[numInputs];
+    final BytesRef[] expected = new BytesRef[numInputs];
+    for(int i=0;i<numInputs;i++) {
+      inputs[i] = new BytesRef(randomString());
+      final BytesRef floor = c.floor(inputs[i], new BytesRefBuilder());
+      expected[i] = floor == null ? null : BytesRef.deepCopyOf(floor);
+    }
+
+    final CountDownLatch startingGun = new CountDownLatch(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[TestUtil.nextInt(random(), 2, 4)];
+    for(int t=0;t<threads.length;t++) {
+      threads[t] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              startingGun.await();
+              for(int iter=0;iter<20;iter++) {
+                for(int i=0;i<numInputs;i++) {
+                  assertEquals(expected[i], c.floor(inputs[i], new BytesRefBuilder()));
+                }
+              }
+            } catch (Throwable th) {
+              failure.compareAndSet(null, th);
+            }
+          }
+        };
+      threads[t].start();
+    }
+    startingGun.countDown();
+    for(Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+
   private String randomString() {
     // return _TestUtil.randomSimpleString(random);
     return TestUtil.randomRealisticUnicodeString(random());
@@ -29,6 +29,7 @@ import org.apache.lucene.index.MergeState;
 import org.apache.lucene.index.PointValues.IntersectVisitor;
 import org.apache.lucene.index.PointValues.Relation;
 import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.CorruptingIndexOutput;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FilterDirectory;
@@ -537,6 +538,168 @@ public class TestBKD extends LuceneTestCase {
     verify(docValues, null, numDims, numBytesPerDim);
   }
 
+  public void testLowCardinality() throws Exception {
+    int numBytesPerDim = TestUtil.nextInt(random(), 2, 30);
+    int numDims = TestUtil.nextInt(random(), 1, 3);
+
+    int numDocs = atLeast(1000);
+    byte[][][] distinctValues = new byte[TestUtil.nextInt(random(), 2, 20)][numDims][numBytesPerDim];
+    for (byte[][] values : distinctValues) {
+      for (byte[] value : values) {
+        random().nextBytes(value);
+      }
+    }
+    byte[][][] docValues = new byte[numDocs][][];
+    for(int docID=0;docID<numDocs;docID++) {
+      docValues[docID] = distinctValues[random().nextInt(distinctValues.length)];
+    }
+
+    verify(docValues, null, numDims, numBytesPerDim);
+  }
+
+  public void testBulkVisits() throws Exception {
+    int numDocs = atLeast(1000);
+    int numValues = TestUtil.nextInt(random(), 2, 10);
+    try (Directory dir = getDirectory(numDocs)) {
+      BKDWriter w = new BKDWriter(numDocs, dir, "tmp", 1, Integer.BYTES, 128, 1.0f, numDocs, true);
+      int[] values = new int[numDocs];
+      byte[] scratch = new byte[Integer.BYTES];
+      for(int docID=0;docID<numDocs;docID++) {
+        values[docID] = random().nextInt(numValues);
+        NumericUtils.intToSortableBytes(values[docID], scratch, 0);
+        w.add(scratch, docID);
+      }
+
+      long indexFP;
+      try (IndexOutput out = dir.createOutput("bkd", IOContext.DEFAULT)) {
+        indexFP = w.finish(out);
+      }
+
+      try (IndexInput in = dir.openInput("bkd", IOContext.DEFAULT)) {
+        in.seek(indexFP);
+        BKDReader r = new BKDReader(in);
+
+        final int queryMin = random().nextInt(numValues);
+        final int queryMax = TestUtil.nextInt(random(), queryMin, numValues - 1);
+        final BitSet hits = new BitSet();
+        final int[] singleVisits = new int[1];
+        r.intersect(new IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+              singleVisits[0]++;
+              hits.set(docID);
+            }
+
+            @Override
+            public void visit(DocIdSetIterator iterator) throws IOException {
+              for (int docID = iterator.nextDoc(); docID != DocIdSetIterator.NO_MORE_DOCS; docID = iterator.nextDoc()) {
+                hits.set(docID);
+              }
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+              singleVisits[0]++;
+              int x = NumericUtils.sortableBytesToInt(packedValue, 0);
+              if (x >= queryMin && x <= queryMax) {
+                hits.set(docID);
+              }
+            }
+
+            @Override
+            public void visit(DocIdSetIterator iterator, byte[] packedValue) throws IOException {
+              int x = NumericUtils.sortableBytesToInt(packedValue, 0);
+              if (x >= queryMin && x <= queryMax) {
+                visit(iterator);
+              }
+            }
+
+            @Override
+            public Relation compare(byte[] minPacked, byte[] maxPacked) {
+              int min = NumericUtils.sortableBytesToInt(minPacked, 0);
+              int max = NumericUtils.sortableBytesToInt(maxPacked, 0);
+              if (max < queryMin || min > queryMax) {
+                return Relation.CELL_OUTSIDE_QUERY;
+              } else if (min >= queryMin && max <= queryMax) {
+                return Relation.CELL_INSIDE_QUERY;
+              } else {
+                return Relation.CELL_CROSSES_QUERY;
+              }
+            }
+          });
+
+        // low cardinality leaves are always visited in bulk
+        assertEquals(0, singleVisits[0]);
+        for(int docID=0;docID<numDocs;docID++) {
+          boolean expected = values[docID] >= queryMin && values[docID] <= queryMax;
+          assertEquals("docID=" + docID, expected, hits.get(docID));
+        }
+      }
+    }
+  }
+
+  public void testEstimatePointCount() throws Exception {
+    final int maxPointsInLeafNode = 128;
+    final int numDocs = maxPointsInLeafNode << TestUtil.nextInt(random(), 1, 5);
+    try (Directory dir = getDirectory(numDocs)) {
+      BKDWriter w = new BKDWriter(numDocs, dir, "tmp", 1, Integer.BYTES, maxPointsInLeafNode, 1.0f, numDocs, true);
+      byte[] scratch = new byte[Integer.BYTES];
+      for(int docID=0;docID<numDocs;docID++) {
+        NumericUtils.intToSortableBytes(docID, scratch, 0);
+        w.add(scratch, docID);
+      }
+
+      long indexFP;
+      try (IndexOutput out = dir.createOutput("bkd", IOContext.DEFAULT)) {
+        indexFP = w.finish(out);
+      }
+
+      try (IndexInput in = dir.openInput("bkd", IOContext.DEFAULT)) {
+        in.seek(indexFP);
+        BKDReader r = new BKDReader(in);
+
+        assertEquals(numDocs, r.estimatePointCount(rangeVisitor(-1, numDocs)));
+        assertEquals(0, r.estimatePointCount(rangeVisitor(numDocs, numDocs + 10)));
+
+        for (int iter = 0; iter < 100; ++iter) {
+          final int queryMin = random().nextInt(numDocs);
+          final int queryMax = TestUtil.nextInt(random(), queryMin, numDocs - 1);
+          final long actual = queryMax - queryMin + 1;
+          final long estimate = r.estimatePointCount(rangeVisitor(queryMin, queryMax));
+          // fully matching leaves are counted exactly and at most two leaves cross the range
+          assertTrue("estimate=" + estimate + " actual=" + actual, Math.abs(estimate - actual) <= maxPointsInLeafNode);
+        }
+      }
+    }
+  }
+
+  private static IntersectVisitor rangeVisitor(int queryMin, int queryMax) {
+    return new IntersectVisitor() {
+      @Override
+      public void visit(int docID) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public void visit(int docID, byte[] packedValue) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public Relation compare(byte[] minPacked, byte[] maxPacked) {
+        int min = NumericUtils.sortableBytesToInt(minPacked, 0);
+        int max = NumericUtils.sortableBytesToInt(maxPacked, 0);
+        if (max < queryMin || min > queryMax) {
+          return Relation.CELL_OUTSIDE_QUERY;
+        } else if (min >= queryMin && max <= queryMax) {
+          return Relation.CELL_INSIDE_QUERY;
+        } else {
+          return Relation.CELL_CROSSES_QUERY;
+        }
+      }
+    };
+  }
+
   public void testMultiValued() throws Exception {
     int numBytesPerDim = TestUtil.nextInt(random(), 2, 30);
     int numDims = TestUtil.nextInt(random(), 1, 5);
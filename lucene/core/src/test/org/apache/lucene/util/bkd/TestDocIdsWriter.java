@@ -57,6 +57,19 @@ public class TestDocIdsWriter extends LuceneTestCase {
     }
   }
 
+  public void testContinuous() throws Exception {
+    try (Directory dir = newDirectory()) {
+      for (int iter = 0; iter < 1000; ++iter) {
+        int[] docIDs = new int[1 + random().nextInt(5000)];
+        final int start = random().nextInt(1 << 24);
+        for (int i = 0; i < docIDs.length; ++i) {
+          docIDs[i] = start + i;
+        }
+        test(dir, docIDs);
+      }
+    }
+  }
+
   private void test(Directory dir, int[] ints) throws Exception {
     final long len;
     try(IndexOutput out = dir.createOutput("tmp", IOContext.DEFAULT)) {
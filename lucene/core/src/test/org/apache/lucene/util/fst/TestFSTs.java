@@ -1024,6 +1024,66 @@ public class TestFSTs extends LuceneTestCase {
   }
 
 
+  public void testOffHeap() throws Exception {
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+    final Set<String> termSet = new TreeSet<>();
+    final int numTerms = atLeast(1000);
+    while (termSet.size() < numTerms) {
+      termSet.add(simpleRandomString(random()));
+    }
+    final List<String> terms = new ArrayList<>(termSet);
+    final IntsRefBuilder scratch = new IntsRefBuilder();
+    for (int i = 0; i < terms.size(); i++) {
+      builder.add(Util.toIntsRef(new BytesRef(terms.get(i)), scratch), (long) i);
+    }
+    final FST<Long> fst = builder.finish();
+
+    Directory dir = newDirectory();
+    IndexOutput out = dir.createOutput("fst", IOContext.DEFAULT);
+    // the FST does not start at the beginning of the file:
+    out.writeVInt(42);
+    fst.save(out);
+    out.writeVInt(17);
+    out.close();
+
+    IndexInput in = dir.openInput("fst", IOContext.DEFAULT);
+    assertEquals(42, in.readVInt());
+    final FST<Long> offHeap = new FST<>(in, outputs, true);
+    assertEquals(17, in.readVInt());
+    assertTrue(offHeap.isOffHeap());
+    assertFalse(fst.isOffHeap());
+    assertTrue(offHeap.ramBytesUsed() < fst.ramBytesUsed());
+
+    for (int i = 0; i < terms.size(); i++) {
+      assertEquals(Long.valueOf(i), Util.get(offHeap, new BytesRef(terms.get(i))));
+    }
+    // the greatest term plus a suffix is not in the FST
+    assertNull(Util.get(offHeap, new BytesRef(terms.get(terms.size() - 1) + "x")));
+
+    final BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<>(offHeap);
+    for (int i = 0; i < terms.size(); i++) {
+      final InputOutput<Long> io = fstEnum.next();
+      assertEquals(new BytesRef(terms.get(i)), io.input);
+      assertEquals(Long.valueOf(i), io.output);
+    }
+    assertNull(fstEnum.next());
+
+    // saving an off-heap FST copies its bytes
+    out = dir.createOutput("fst2", IOContext.DEFAULT);
+    offHeap.save(out);
+    out.close();
+    in.close();
+
+    in = dir.openInput("fst2", IOContext.DEFAULT);
+    final FST<Long> reloaded = new FST<>(in, outputs);
+    in.close();
+    for (int i = 0; i < terms.size(); i++) {
+      assertEquals(Long.valueOf(i), Util.get(reloaded, new BytesRef(terms.get(i))));
+    }
+    dir.close();
+  }
+
   /**
    * Test state expansion (array format) on close-to-root states. Creates
    * synthetic input that has one expanded state on each level.
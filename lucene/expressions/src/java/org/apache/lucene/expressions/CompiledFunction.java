@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.expressions;
+
+import java.io.IOException;
+
+import org.apache.lucene.queries.function.FunctionValues;
+
+/**
+ * Base class of the classes generated by {@link ValueSourceCompiler}: computes
+ * the value of a compiled {@link org.apache.lucene.queries.function.ValueSource}
+ * tree from the values of its leaves and its constants.
+ *
+ * @lucene.internal
+ */
+public abstract class CompiledFunction {
+
+  /** The shape of the compiled tree, with leaves and constants left out. */
+  public final String shape;
+
+  /**
+   * Creates a new {@code CompiledFunction}.
+   *
+   * @param shape The shape of the compiled tree: e.g. {@code sum(v,product(v,c))}
+   */
+  protected CompiledFunction(String shape) {
+    this.shape = shape;
+  }
+
+  /**
+   * Evaluates the compiled tree for the given document.
+   *
+   * @param document <code>docId</code> of the document to compute a value for
+   * @param leaves {@link FunctionValues} of the leaves of the tree, in depth-first order
+   * @param constants the constants of the tree, in depth-first order
+   * @return The computed value of the tree for the given document.
+   */
+  public abstract float evaluate(int document, FunctionValues[] leaves, float[] constants) throws IOException;
+
+  @Override
+  public String toString() {
+    return shape;
+  }
+}
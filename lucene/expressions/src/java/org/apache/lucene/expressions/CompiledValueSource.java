@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.expressions;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.docvalues.FloatDocValues;
+import org.apache.lucene.queries.function.valuesource.MultiFunction;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * A {@link ValueSource} which evaluates a tree compiled by {@link ValueSourceCompiler}.
+ * It describes itself, explains its values and compares like the tree it was
+ * compiled from.
+ */
+@SuppressWarnings("rawtypes")
+final class CompiledValueSource extends ValueSource {
+  final ValueSource source;
+  final CompiledFunction function;
+  final ValueSource[] leaves;
+  final float[] constants;
+  final int numOperations;
+
+  CompiledValueSource(ValueSource source, CompiledFunction function, ValueSource[] leaves, float[] constants, int numOperations) {
+    this.source = source;
+    this.function = function;
+    this.leaves = leaves;
+    this.constants = constants;
+    this.numOperations = numOperations;
+  }
+
+  @Override
+  public FunctionValues getValues(final Map context, final LeafReaderContext readerContext) throws IOException {
+    final FunctionValues[] leafValues = new FunctionValues[leaves.length];
+    for (int i = 0; i < leaves.length; i++) {
+      leafValues[i] = leaves[i].getValues(context, readerContext);
+    }
+    return new FloatDocValues(this) {
+      FunctionValues interpreted;
+
+      @Override
+      public float floatVal(int doc) throws IOException {
+        return function.evaluate(doc, leafValues, constants);
+      }
+
+      /**
+       * All compiled nodes exist if and only if all of their children exist,
+       * and constants always exist.
+       */
+      @Override
+      public boolean exists(int doc) throws IOException {
+        return MultiFunction.allExists(doc, leafValues);
+      }
+
+      @Override
+      public float cost() {
+        float cost = numOperations;
+        for (FunctionValues values : leafValues) {
+          cost += values.cost();
+        }
+        return cost;
+      }
+
+      @Override
+      public String toString(int doc) throws IOException {
+        if (interpreted == null) {
+          interpreted = source.getValues(context, readerContext);
+        }
+        return interpreted.toString(doc);
+      }
+    };
+  }
+
+  @Override
+  public void createWeight(Map context, IndexSearcher searcher) throws IOException {
+    source.createWeight(context, searcher);
+  }
+
+  @Override
+  public String description() {
+    return source.description();
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * CompiledValueSource.class.hashCode() + source.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null || getClass() != obj.getClass()) return false;
+    return source.equals(((CompiledValueSource) obj).source);
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.expressions;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.valuesource.ConstValueSource;
+import org.apache.lucene.queries.function.valuesource.DivFloatFunction;
+import org.apache.lucene.queries.function.valuesource.DoubleConstValueSource;
+import org.apache.lucene.queries.function.valuesource.DualFloatFunction;
+import org.apache.lucene.queries.function.valuesource.LinearFloatFunction;
+import org.apache.lucene.queries.function.valuesource.MultiFloatFunction;
+import org.apache.lucene.queries.function.valuesource.PowFloatFunction;
+import org.apache.lucene.queries.function.valuesource.ProductFloatFunction;
+import org.apache.lucene.queries.function.valuesource.ReciprocalFloatFunction;
+import org.apache.lucene.queries.function.valuesource.SumFloatFunction;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+
+/**
+ * Compiles the arithmetic of a {@link ValueSource} tree to bytecode, so that
+ * evaluating it no longer walks the tree through one virtual
+ * {@link FunctionValues#floatVal(int)} call per node.
+ * <p>
+ * {@link SumFloatFunction}, {@link ProductFloatFunction},
+ * {@link DivFloatFunction}, {@link PowFloatFunction},
+ * {@link LinearFloatFunction}, {@link ReciprocalFloatFunction} and constants
+ * are compiled into a single method which computes exactly the same floats as
+ * the interpreted tree. Any other source, such as a field source, is a leaf of
+ * the compiled tree whose values are read through its own {@link FunctionValues}.
+ * <p>
+ * Constants are not part of the generated code, so that all trees of the
+ * same shape share a single class: for instance {@code sum(popularity,2)} and
+ * {@code sum(price,3)} are evaluated by the same {@link CompiledFunction}.
+ * Generated classes are cached, up to {@link #MAX_CACHED_SHAPES} shapes.
+ * <p>
+ * Example usage:
+ * <pre class="prettyprint">
+ *   ValueSource boost = new SumFloatFunction(new ValueSource[] {
+ *       new FloatFieldSource("popularity"), new ConstValueSource(1f) });
+ *   Query query = new FunctionQuery(ValueSourceCompiler.compile(boost));
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public final class ValueSourceCompiler {
+  static final class Loader extends ClassLoader {
+    Loader(ClassLoader parent) {
+      super(parent);
+    }
+
+    public Class<? extends CompiledFunction> define(String className, byte[] bytecode) {
+      return defineClass(className, bytecode, 0, bytecode.length).asSubclass(CompiledFunction.class);
+    }
+  }
+
+  /** Trees with more nodes than this are not compiled. */
+  public static final int MAX_NODES = 256;
+
+  /** Maximum number of shapes whose generated classes are cached, trees of other shapes are not compiled. */
+  public static final int MAX_CACHED_SHAPES = 512;
+
+  private static final int CLASSFILE_VERSION = Opcodes.V1_8;
+
+  // We use the same class name for all generated classes as they all have their own class loader.
+  // The shape is displayed as "source file name" in stack trace.
+  private static final String COMPILED_FUNCTION_CLASS = ValueSourceCompiler.class.getName() + "$GeneratedFunction";
+  private static final String COMPILED_FUNCTION_INTERNAL = COMPILED_FUNCTION_CLASS.replace('.', '/');
+
+  private static final Type COMPILED_FUNCTION_TYPE = Type.getType(CompiledFunction.class);
+  private static final Type FUNCTION_VALUES_TYPE = Type.getType(FunctionValues.class);
+  private static final Type MATH_TYPE = Type.getType(Math.class);
+
+  private static final org.objectweb.asm.commons.Method
+    COMPILED_FUNCTION_CTOR = getAsmMethod(void.class, "<init>", String.class),
+    EVALUATE_METHOD = getAsmMethod(float.class, "evaluate", int.class, FunctionValues[].class, float[].class),
+    FLOAT_VAL_METHOD = getAsmMethod(float.class, "floatVal", int.class),
+    POW_METHOD = getAsmMethod(double.class, "pow", double.class, double.class);
+
+  private static final ConcurrentMap<String,CompiledFunction> CACHE = new ConcurrentHashMap<>();
+
+  /** create an ASM Method object from return type, method name, and parameters. */
+  private static org.objectweb.asm.commons.Method getAsmMethod(Class<?> rtype, String name, Class<?>... ptypes) {
+    return new org.objectweb.asm.commons.Method(name, MethodType.methodType(rtype, ptypes).toMethodDescriptorString());
+  }
+
+  private ValueSourceCompiler() {}
+
+  // for testing
+  static void clearCache() {
+    CACHE.clear();
+  }
+
+  /**
+   * Returns a {@link ValueSource} which computes the same values as the given
+   * one by running compiled code, or the given source itself if its root is
+   * not arithmetic or if it is too large to be compiled.
+   *
+   * @param source The tree to compile
+   * @return A compiled equivalent of the given tree, or the tree itself
+   */
+  public static ValueSource compile(ValueSource source) {
+    if (isArithmetic(source) == false) {
+      return source;
+    }
+    final TreeWalker walker = new TreeWalker(null);
+    walker.walk(source);
+    if (walker.nodes > MAX_NODES) {
+      return source;
+    }
+    final String shape = walker.shape.toString();
+    CompiledFunction function = CACHE.get(shape);
+    if (function == null) {
+      if (CACHE.size() >= MAX_CACHED_SHAPES) {
+        return source;
+      }
+      function = CACHE.computeIfAbsent(shape, s -> generate(s, source));
+    }
+    final float[] constants = new float[walker.constants.size()];
+    for (int i = 0; i < constants.length; i++) {
+      constants[i] = walker.constants.get(i);
+    }
+    return new CompiledValueSource(source, function,
+        walker.leaves.toArray(new ValueSource[walker.leaves.size()]), constants, walker.nodes - walker.leaves.size());
+  }
+
+  /** Returns true if the given source is an arithmetic node, which is compiled along with its children. */
+  private static boolean isArithmetic(ValueSource source) {
+    // exact classes only: subclasses may override the function
+    final Class<?> clazz = source.getClass();
+    return clazz == SumFloatFunction.class || clazz == ProductFloatFunction.class
+        || clazz == DivFloatFunction.class || clazz == PowFloatFunction.class
+        || clazz == LinearFloatFunction.class || clazz == ReciprocalFloatFunction.class;
+  }
+
+  /** Generates the class evaluating trees of the given shape. */
+  private static CompiledFunction generate(String shape, ValueSource source) {
+    final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    classWriter.visit(CLASSFILE_VERSION,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_FINAL,
+        COMPILED_FUNCTION_INTERNAL,
+        null, COMPILED_FUNCTION_TYPE.getInternalName(), null);
+    classWriter.visitSource(shape, null);
+
+    final GeneratorAdapter constructor = new GeneratorAdapter(Opcodes.ACC_PUBLIC,
+        COMPILED_FUNCTION_CTOR, null, null, classWriter);
+    constructor.loadThis();
+    constructor.loadArgs();
+    constructor.invokeConstructor(COMPILED_FUNCTION_TYPE, COMPILED_FUNCTION_CTOR);
+    constructor.returnValue();
+    constructor.endMethod();
+
+    final GeneratorAdapter gen = new GeneratorAdapter(Opcodes.ACC_PUBLIC,
+        EVALUATE_METHOD, null, null, classWriter);
+    new TreeWalker(gen).walk(source);
+    gen.returnValue();
+    gen.endMethod();
+
+    classWriter.visitEnd();
+
+    try {
+      final Class<? extends CompiledFunction> functionClass = new Loader(ValueSourceCompiler.class.getClassLoader())
+        .define(COMPILED_FUNCTION_CLASS, classWriter.toByteArray());
+      final Constructor<? extends CompiledFunction> ctor = functionClass.getConstructor(String.class);
+      return ctor.newInstance(shape);
+    } catch (ReflectiveOperationException exception) {
+      throw new IllegalStateException("An internal error occurred attempting to compile the function (" + shape + ").", exception);
+    }
+  }
+
+  /**
+   * Walks a tree depth-first, recording its shape, leaves and constants, and
+   * emitting the bytecode that evaluates it when a generator is given. Leaves
+   * and constants are numbered in the order they are visited, which is the
+   * same for all trees of a shape.
+   */
+  private static final class TreeWalker {
+    final GeneratorAdapter gen;
+    final StringBuilder shape = new StringBuilder();
+    final List<ValueSource> leaves = new ArrayList<>();
+    final List<Float> constants = new ArrayList<>();
+    int nodes;
+
+    TreeWalker(GeneratorAdapter gen) {
+      this.gen = gen;
+    }
+
+    void walk(ValueSource source) {
+      nodes++;
+      final Class<?> clazz = source.getClass();
+      if (clazz == SumFloatFunction.class || clazz == ProductFloatFunction.class) {
+        final boolean sum = clazz == SumFloatFunction.class;
+        shape.append(sum ? "sum(" : "product(");
+        if (gen != null) {
+          gen.push(sum ? 0f : 1f);
+        }
+        final ValueSource[] sources = ((MultiFloatFunction) source).getSources();
+        for (int i = 0; i < sources.length; i++) {
+          if (i > 0) {
+            shape.append(',');
+          }
+          walk(sources[i]);
+          if (gen != null) {
+            gen.math(sum ? GeneratorAdapter.ADD : GeneratorAdapter.MUL, Type.FLOAT_TYPE);
+          }
+        }
+        shape.append(')');
+      } else if (clazz == DivFloatFunction.class || clazz == PowFloatFunction.class) {
+        final boolean div = clazz == DivFloatFunction.class;
+        final DualFloatFunction dual = (DualFloatFunction) source;
+        shape.append(div ? "div(" : "pow(");
+        walkOperand(dual.getA(), div == false);
+        shape.append(',');
+        walkOperand(dual.getB(), div == false);
+        shape.append(')');
+        if (gen != null) {
+          if (div) {
+            gen.math(GeneratorAdapter.DIV, Type.FLOAT_TYPE);
+          } else {
+            gen.invokeStatic(MATH_TYPE, POW_METHOD);
+            gen.cast(Type.DOUBLE_TYPE, Type.FLOAT_TYPE);
+          }
+        }
+      } else if (clazz == LinearFloatFunction.class) {
+        // x*slope+intercept
+        final LinearFloatFunction linear = (LinearFloatFunction) source;
+        shape.append("linear(");
+        walk(linear.getSource());
+        shape.append(',');
+        constant(linear.getSlope());
+        if (gen != null) {
+          gen.math(GeneratorAdapter.MUL, Type.FLOAT_TYPE);
+        }
+        shape.append(',');
+        constant(linear.getIntercept());
+        if (gen != null) {
+          gen.math(GeneratorAdapter.ADD, Type.FLOAT_TYPE);
+        }
+        shape.append(')');
+      } else if (clazz == ReciprocalFloatFunction.class) {
+        // a/(m*x+b)
+        final ReciprocalFloatFunction recip = (ReciprocalFloatFunction) source;
+        shape.append("recip(");
+        constant(recip.getA());
+        shape.append(',');
+        constant(recip.getM());
+        shape.append(',');
+        walk(recip.getSource());
+        if (gen != null) {
+          gen.math(GeneratorAdapter.MUL, Type.FLOAT_TYPE);
+        }
+        shape.append(',');
+        constant(recip.getB());
+        if (gen != null) {
+          gen.math(GeneratorAdapter.ADD, Type.FLOAT_TYPE);
+          gen.math(GeneratorAdapter.DIV, Type.FLOAT_TYPE);
+        }
+        shape.append(')');
+      } else if (clazz == ConstValueSource.class) {
+        constant(((ConstValueSource) source).getFloat());
+      } else if (clazz == DoubleConstValueSource.class) {
+        constant(((DoubleConstValueSource) source).getFloat());
+      } else {
+        shape.append('v');
+        if (gen != null) {
+          gen.loadArg(1);
+          gen.push(leaves.size());
+          gen.arrayLoad(FUNCTION_VALUES_TYPE);
+          gen.loadArg(0);
+          gen.invokeVirtual(FUNCTION_VALUES_TYPE, FLOAT_VAL_METHOD);
+        }
+        leaves.add(source);
+      }
+    }
+
+    /** Walks an operand of div or pow, widening it to a double for the latter. */
+    private void walkOperand(ValueSource source, boolean toDouble) {
+      walk(source);
+      if (gen != null && toDouble) {
+        gen.cast(Type.FLOAT_TYPE, Type.DOUBLE_TYPE);
+      }
+    }
+
+    private void constant(float value) {
+      shape.append('c');
+      if (gen != null) {
+        gen.loadArg(2);
+        gen.push(constants.size());
+        gen.arrayLoad(Type.FLOAT_TYPE);
+      }
+      constants.add(value);
+    }
+  }
+}
@@ -31,5 +31,10 @@
  * <p>
  * {@link org.apache.lucene.expressions.SimpleBindings} - default implementation of bindings which provide easy ways to bind sort fields and other expressions to external variables
  * </p>
+ * 
+ * <p>
+ * {@link org.apache.lucene.expressions.ValueSourceCompiler} - compiles the arithmetic of function query
+ * {@link org.apache.lucene.queries.function.ValueSource} trees to bytecode
+ * </p>
  */
 package org.apache.lucene.expressions;
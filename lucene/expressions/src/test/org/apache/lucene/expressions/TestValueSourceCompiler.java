@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.expressions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.valuesource.ConstValueSource;
+import org.apache.lucene.queries.function.valuesource.DivFloatFunction;
+import org.apache.lucene.queries.function.valuesource.DoubleConstValueSource;
+import org.apache.lucene.queries.function.valuesource.FloatFieldSource;
+import org.apache.lucene.queries.function.valuesource.IntFieldSource;
+import org.apache.lucene.queries.function.valuesource.LinearFloatFunction;
+import org.apache.lucene.queries.function.valuesource.MaxFloatFunction;
+import org.apache.lucene.queries.function.valuesource.PowFloatFunction;
+import org.apache.lucene.queries.function.valuesource.ProductFloatFunction;
+import org.apache.lucene.queries.function.valuesource.ReciprocalFloatFunction;
+import org.apache.lucene.queries.function.valuesource.SumFloatFunction;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestValueSourceCompiler extends LuceneTestCase {
+  DirectoryReader reader;
+  Directory dir;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    ValueSourceCompiler.clearCache();
+    dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        doc.add(new FloatDocValuesField("f1", random().nextFloat() * 100 - 50));
+      }
+      if (random().nextInt(3) != 0) {
+        doc.add(new FloatDocValuesField("f2", random().nextFloat()));
+      }
+      doc.add(new NumericDocValuesField("i1", random().nextInt(1000)));
+      iw.addDocument(doc);
+    }
+    reader = iw.getReader();
+    iw.close();
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    reader.close();
+    dir.close();
+    super.tearDown();
+  }
+
+  public void testRandomTrees() throws Exception {
+    for (int iter = 0; iter < 50; iter++) {
+      ValueSource source = randomArithmetic(3);
+      ValueSource compiled = ValueSourceCompiler.compile(source);
+      assertSameValues(source, compiled);
+    }
+  }
+
+  public void testAllNodes() throws Exception {
+    ValueSource f1 = new FloatFieldSource("f1");
+    ValueSource f2 = new FloatFieldSource("f2");
+    ValueSource i1 = new IntFieldSource("i1");
+    ValueSource source = new SumFloatFunction(new ValueSource[] {
+        new ProductFloatFunction(new ValueSource[] { f1, new ConstValueSource(3f), i1 }),
+        new DivFloatFunction(f2, new LinearFloatFunction(i1, 0.5f, 1f)),
+        new PowFloatFunction(f2, new DoubleConstValueSource(0.3)),
+        new ReciprocalFloatFunction(i1, 3.16e-11f, 1f, 1f),
+        new MaxFloatFunction(new ValueSource[] { f1, f2 })
+    });
+    ValueSource compiled = ValueSourceCompiler.compile(source);
+    assertEquals("sum(product(v,c,v),div(v,linear(v,c,c)),pow(v,c),recip(c,c,v,c),v)",
+        ((CompiledValueSource) compiled).function.shape);
+    assertSameValues(source, compiled);
+  }
+
+  public void testSameShapeSharesClass() throws Exception {
+    ValueSource a = new SumFloatFunction(new ValueSource[] { new FloatFieldSource("f1"), new ConstValueSource(2f) });
+    ValueSource b = new SumFloatFunction(new ValueSource[] { new IntFieldSource("i1"), new ConstValueSource(5f) });
+    ValueSource c = new SumFloatFunction(new ValueSource[] { new ConstValueSource(5f), new IntFieldSource("i1") });
+    CompiledValueSource compiledA = (CompiledValueSource) ValueSourceCompiler.compile(a);
+    CompiledValueSource compiledB = (CompiledValueSource) ValueSourceCompiler.compile(b);
+    CompiledValueSource compiledC = (CompiledValueSource) ValueSourceCompiler.compile(c);
+    assertSame(compiledA.function, compiledB.function);
+    assertNotSame(compiledA.function, compiledC.function);
+    assertSameValues(a, compiledA);
+    assertSameValues(b, compiledB);
+    assertSameValues(c, compiledC);
+  }
+
+  public void testCacheFull() throws Exception {
+    ValueSource first = null;
+    for (int i = 0; i < ValueSourceCompiler.MAX_CACHED_SHAPES; i++) {
+      // one distinct shape per i, each child is a field or a constant depending on a bit of i
+      ValueSource[] sources = new ValueSource[10];
+      for (int j = 0; j < sources.length; j++) {
+        sources[j] = (i & (1 << j)) != 0 ? new IntFieldSource("i1") : new ConstValueSource(j);
+      }
+      ValueSource source = new SumFloatFunction(sources);
+      assertTrue(ValueSourceCompiler.compile(source) instanceof CompiledValueSource);
+      if (first == null) {
+        first = source;
+      }
+    }
+    // already cached shapes are still compiled, new ones are not
+    assertTrue(ValueSourceCompiler.compile(first) instanceof CompiledValueSource);
+    ValueSource notCached = new ProductFloatFunction(new ValueSource[] { new FloatFieldSource("f1") });
+    assertSame(notCached, ValueSourceCompiler.compile(notCached));
+  }
+
+  public void testNotCompiled() {
+    ValueSource field = new FloatFieldSource("f1");
+    assertSame(field, ValueSourceCompiler.compile(field));
+    ValueSource constant = new ConstValueSource(1f);
+    assertSame(constant, ValueSourceCompiler.compile(constant));
+    ValueSource max = new MaxFloatFunction(new ValueSource[] {
+        new SumFloatFunction(new ValueSource[] { field, constant }), constant });
+    assertSame(max, ValueSourceCompiler.compile(max));
+  }
+
+  public void testEqualsAndDescription() {
+    ValueSource source = new LinearFloatFunction(new FloatFieldSource("f1"), 2f, 3f);
+    ValueSource compiled = ValueSourceCompiler.compile(source);
+    assertEquals(source.description(), compiled.description());
+    assertEquals(source.toString(), compiled.toString());
+    ValueSource other = ValueSourceCompiler.compile(new LinearFloatFunction(new FloatFieldSource("f1"), 2f, 3f));
+    assertEquals(compiled, other);
+    assertEquals(compiled.hashCode(), other.hashCode());
+    assertFalse(compiled.equals(ValueSourceCompiler.compile(new LinearFloatFunction(new FloatFieldSource("f1"), 2f, 4f))));
+    assertFalse(compiled.equals(source));
+  }
+
+  private ValueSource randomArithmetic(int depth) {
+    switch (random().nextInt(6)) {
+      case 0:
+        return new SumFloatFunction(randomSources(depth));
+      case 1:
+        return new ProductFloatFunction(randomSources(depth));
+      case 2:
+        return new DivFloatFunction(randomSource(depth), randomSource(depth));
+      case 3:
+        return new PowFloatFunction(randomSource(depth), randomSource(depth));
+      case 4:
+        return new LinearFloatFunction(randomSource(depth), randomFloat(), randomFloat());
+      default:
+        return new ReciprocalFloatFunction(randomSource(depth), randomFloat(), randomFloat(), randomFloat());
+    }
+  }
+
+  private ValueSource[] randomSources(int depth) {
+    ValueSource[] sources = new ValueSource[1 + random().nextInt(4)];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = randomSource(depth);
+    }
+    return sources;
+  }
+
+  private ValueSource randomSource(int depth) {
+    if (depth > 0 && random().nextBoolean()) {
+      return randomArithmetic(depth - 1);
+    }
+    switch (random().nextInt(6)) {
+      case 0:
+        return new FloatFieldSource("f1");
+      case 1:
+        return new FloatFieldSource("f2");
+      case 2:
+        return new IntFieldSource("i1");
+      case 3:
+        return new ConstValueSource(randomFloat());
+      case 4:
+        return new DoubleConstValueSource(random().nextDouble() * 10);
+      default:
+        return new MaxFloatFunction(new ValueSource[] { new FloatFieldSource("f1"), new ConstValueSource(randomFloat()) });
+    }
+  }
+
+  private float randomFloat() {
+    return random().nextFloat() * 20 - 10;
+  }
+
+  private void assertSameValues(ValueSource expected, ValueSource actual) throws Exception {
+    for (LeafReaderContext context : reader.leaves()) {
+      Map<Object,Object> expectedContext = new HashMap<>();
+      Map<Object,Object> actualContext = new HashMap<>();
+      FunctionValues expectedValues = expected.getValues(expectedContext, context);
+      FunctionValues actualValues = actual.getValues(actualContext, context);
+      for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+        assertEquals(expectedValues.floatVal(doc), actualValues.floatVal(doc), 0f);
+        assertEquals(expectedValues.exists(doc), actualValues.exists(doc));
+        assertEquals(expectedValues.toString(doc), actualValues.toString(doc));
+      }
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.lucene.search.grouping.term.TermAllGroupHeadsCollector;
 import org.apache.lucene.search.grouping.term.TermAllGroupsCollector;
 import org.apache.lucene.search.grouping.term.TermFirstPassGroupingCollector;
 import org.apache.lucene.search.grouping.term.TermSecondPassGroupingCollector;
+import org.apache.lucene.search.grouping.term.TermSinglePassGroupingCollector;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.mutable.MutableValue;
@@ -68,6 +69,7 @@ public class GroupingSearch {
   private Double maxCacheRAMMB;
   private Integer maxDocsToCache;
   private boolean cacheScores;
+  private boolean singlePass;
   private boolean allGroups;
   private boolean allGroupHeads;
   private int initialSize = 128;
@@ -136,6 +138,9 @@ public class GroupingSearch {
 
   @SuppressWarnings({"unchecked", "rawtypes"})
   protected TopGroups groupByFieldOrFunction(IndexSearcher searcher, Query query, int groupOffset, int groupLimit) throws IOException {
+    if (singlePass && groupFunction == null) {
+      return groupByFieldInSinglePass(searcher, query, groupOffset, groupLimit);
+    }
     int topN = groupOffset + groupLimit;
     final AbstractFirstPassGroupingCollector firstPassCollector;
     final AbstractAllGroupsCollector allGroupsCollector;
@@ -230,6 +235,38 @@ public class GroupingSearch {
     }
   }
 
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  protected TopGroups<BytesRef> groupByFieldInSinglePass(IndexSearcher searcher, Query query, int groupOffset, int groupLimit) throws IOException {
+    int topN = groupOffset + groupLimit;
+    int topNInsideGroup = groupDocsOffset + groupDocsLimit;
+    TermSinglePassGroupingCollector groupingCollector = new TermSinglePassGroupingCollector(groupField, groupSort, sortWithinGroup,
+        topN, topNInsideGroup, includeScores, includeMaxScore, fillSortFields);
+    TermAllGroupsCollector allGroupsCollector = allGroups ? new TermAllGroupsCollector(groupField, initialSize) : null;
+    AbstractAllGroupHeadsCollector<?> allGroupHeadsCollector = allGroupHeads
+        ? TermAllGroupHeadsCollector.create(groupField, sortWithinGroup, initialSize) : null;
+    searcher.search(query, MultiCollector.wrap(groupingCollector, allGroupsCollector, allGroupHeadsCollector));
+
+    if (allGroups) {
+      matchingGroups = allGroupsCollector.getGroups();
+    } else {
+      matchingGroups = Collections.emptyList();
+    }
+    if (allGroupHeads) {
+      matchingGroupHeads = allGroupHeadsCollector.retrieveGroupHeads(searcher.getIndexReader().maxDoc());
+    } else {
+      matchingGroupHeads = new Bits.MatchNoBits(searcher.getIndexReader().maxDoc());
+    }
+
+    TopGroups<BytesRef> topGroups = groupingCollector.getTopGroups(groupOffset, groupDocsOffset);
+    if (topGroups == null) {
+      return new TopGroups<>(new SortField[0], new SortField[0], 0, 0, new GroupDocs[0], Float.NaN);
+    } else if (allGroups) {
+      return new TopGroups<>(topGroups, matchingGroups.size());
+    } else {
+      return topGroups;
+    }
+  }
+
   protected TopGroups<?> groupByDocBlock(IndexSearcher searcher, Query query, int groupOffset, int groupLimit) throws IOException {
     int topN = groupOffset + groupLimit;
     final Weight groupEndDocs = searcher.createNormalizedWeight(this.groupEndDocs, false);
@@ -282,6 +319,20 @@ public class GroupingSearch {
     return this;
   }
 
+  /**
+   * Whether to collect the top groups and their documents in a single search
+   * with a {@link TermSinglePassGroupingCollector} rather than running a first
+   * and a second pass. The caching options are not used in that case. This
+   * option only applies when grouping by field.
+   *
+   * @param singlePass Whether to group in a single pass
+   * @return <code>this</code>
+   */
+  public GroupingSearch setSinglePass(boolean singlePass) {
+    this.singlePass = singlePass;
+    return this;
+  }
+
   /**
    * Specifies how groups are sorted.
    * Defaults to {@link Sort#RELEVANCE}.
@@ -0,0 +1,573 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search.grouping.term;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.LeafFieldComparator;
+import org.apache.lucene.search.ScoreCachingWrappingScorer;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.grouping.AbstractFirstPassGroupingCollector;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.SearchGroup;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * Groups documents by the {@link SortedDocValues} of a field and computes
+ * both the top groups and the top documents within each of these groups in a
+ * single pass. This gives the same results as running a {@link TermFirstPassGroupingCollector}
+ * followed by a {@link TermSecondPassGroupingCollector}, but neither requires
+ * the query to be executed twice nor hits to be cached in between.
+ * <p>
+ * Within a segment the state of a group is looked up by segment ordinal. The
+ * first time a group is seen in a segment, its value is looked up and used to
+ * find the state that was collected for this group in previous segments, so
+ * that this costs one hash lookup per matching group and segment, whatever the
+ * number of unique values of the field. If an {@link MultiDocValues.OrdinalMap}
+ * of the field is already available, for instance because it is cached, it can
+ * be given to this collector: groups are then identified by their global
+ * ordinals rather than by their values, which saves hashing the values.
+ * <p>
+ * Since a group that drops out of the top groups can come back later on, with
+ * the documents it collected before dropping out still among its top documents,
+ * no group can be evicted and the top documents of every group that matched are
+ * kept until the end: in the worst case, when every hit is in its own group,
+ * memory usage grows with the number of hits times {@code maxDocsPerGroup}. Use
+ * {@link TermFirstPassGroupingCollector} and {@link TermSecondPassGroupingCollector}
+ * to bound memory usage by {@code topNGroups} when there may be many matching groups.
+ * <p>
+ * The top documents of groups are ranked with comparators that are shared by
+ * chunks of groups, whose sizes double up to a few thousand documents, so that
+ * the number of {@link LeafFieldComparator}s pulled per segment grows with the
+ * number of chunks rather than with the number of groups.
+ *
+ * @lucene.experimental
+ */
+public class TermSinglePassGroupingCollector extends SimpleCollector {
+
+  // maximum number of documents of the groups of a chunk
+  private static final int MAX_CHUNK_SLOTS = 4096;
+
+  private final String groupField;
+  private final Sort groupSort;
+  private final Sort withinGroupSort;
+  private final int maxDocsPerGroup;
+  private final boolean getScores;
+  private final boolean getMaxScores;
+  private final boolean fillSortFields;
+  private final boolean needsScores;
+  private final SortField[] withinGroupSortFields;
+  private final int[] reverseMul;
+  private final boolean withinGroupRelevance;
+  private final boolean trackDocScores;
+  private final boolean trackMaxScore;
+  private final GroupRanker ranker;
+  private final MultiDocValues.OrdinalMap ordinalMap;
+
+  // groups of all segments, keyed by global ordinal if there is an ordinal map, by value otherwise
+  private final Map<Long,CollectedGroup> groupsByOrd = new HashMap<>();
+  private final Map<BytesRef,CollectedGroup> groupsByValue = new HashMap<>();
+  // the group of documents that have no value
+  private CollectedGroup missingGroup;
+  private final List<CollectedGroup> groups = new ArrayList<>();
+  // the chunk new groups are added to
+  private GroupChunk lastChunk;
+  // indexed by segment ordinal + 1, reset on every segment
+  private CollectedGroup[] leafGroups = new CollectedGroup[0];
+  // chunks whose leaf comparators have been pulled for the current segment
+  private final List<GroupChunk> activeChunks = new ArrayList<>();
+
+  private LeafReaderContext context;
+  private SortedDocValues index;
+  private LongValues segmentToGlobalOrds;
+  private Scorer scorer;
+  private CollectedGroup currentGroup;
+  private int totalHitCount;
+
+  /**
+   * Create the single pass collector.
+   *
+   *  @param groupField The field used to group
+   *    documents. This field must be single-valued and
+   *    indexed (DocValues is used to access its value
+   *    per-document).
+   *  @param groupSort The {@link Sort} used to sort the
+   *    groups, see {@link TermFirstPassGroupingCollector}.
+   *  @param withinGroupSort The {@link Sort} used to sort
+   *    documents within a group.
+   *  @param topNGroups How many top groups to keep.
+   *  @param maxDocsPerGroup How many top documents to keep
+   *    per group.
+   *  @param getScores Whether to compute the score of the
+   *    documents within groups.
+   *  @param getMaxScores Whether to compute the max score of
+   *    groups.
+   *  @param fillSortFields Whether to fill the sort values of
+   *    groups and of the documents within groups.
+   *  @throws IOException When I/O related errors occur
+   */
+  public TermSinglePassGroupingCollector(String groupField, Sort groupSort, Sort withinGroupSort, int topNGroups,
+                                         int maxDocsPerGroup, boolean getScores, boolean getMaxScores, boolean fillSortFields)
+      throws IOException {
+    this(groupField, null, groupSort, withinGroupSort, topNGroups, maxDocsPerGroup, getScores, getMaxScores, fillSortFields);
+  }
+
+  /**
+   * Create the single pass collector with an existing {@link MultiDocValues.OrdinalMap}
+   * of the group field, which must have been built over the leaves of the
+   * top-level reader that is searched, in the same order.
+   *
+   * @see #TermSinglePassGroupingCollector(String, Sort, Sort, int, int, boolean, boolean, boolean)
+   */
+  public TermSinglePassGroupingCollector(String groupField, MultiDocValues.OrdinalMap ordinalMap, Sort groupSort,
+                                         Sort withinGroupSort, int topNGroups, int maxDocsPerGroup, boolean getScores,
+                                         boolean getMaxScores, boolean fillSortFields) throws IOException {
+    if (maxDocsPerGroup < 1) {
+      throw new IllegalArgumentException("maxDocsPerGroup must be >= 1 (got " + maxDocsPerGroup + ")");
+    }
+    this.groupField = Objects.requireNonNull(groupField);
+    this.groupSort = Objects.requireNonNull(groupSort);
+    this.withinGroupSort = Objects.requireNonNull(withinGroupSort);
+    this.maxDocsPerGroup = maxDocsPerGroup;
+    this.getScores = getScores;
+    this.getMaxScores = getMaxScores;
+    this.fillSortFields = fillSortFields;
+    this.needsScores = getScores || getMaxScores || groupSort.needsScores() || withinGroupSort.needsScores();
+    this.withinGroupSortFields = withinGroupSort.getSort();
+    this.reverseMul = new int[withinGroupSortFields.length];
+    for (int i = 0; i < withinGroupSortFields.length; ++i) {
+      reverseMul[i] = withinGroupSortFields[i].getReverse() ? -1 : 1;
+    }
+    // like the second pass, rank documents by relevance like TopScoreDocCollector and by
+    // fields like TopFieldCollector
+    this.withinGroupRelevance = withinGroupSort.equals(Sort.RELEVANCE);
+    this.trackDocScores = getScores || withinGroupRelevance;
+    this.trackMaxScore = getMaxScores || withinGroupRelevance;
+    this.ranker = new GroupRanker(groupSort, topNGroups);
+    this.ordinalMap = ordinalMap;
+  }
+
+  @Override
+  public boolean needsScores() {
+    return needsScores;
+  }
+
+  @Override
+  protected void doSetNextReader(LeafReaderContext readerContext) throws IOException {
+    context = readerContext;
+    index = DocValues.getSorted(readerContext.reader(), groupField);
+    segmentToGlobalOrds = ordinalMap == null ? null : ordinalMap.getGlobalOrds(readerContext.ord);
+
+    final int numLeafGroups = index.getValueCount() + 1;
+    if (leafGroups.length < numLeafGroups) {
+      leafGroups = new CollectedGroup[ArrayUtil.oversize(numLeafGroups, RamUsageEstimator.NUM_BYTES_OBJECT_REF)];
+    } else {
+      Arrays.fill(leafGroups, 0, numLeafGroups, null);
+    }
+    activeChunks.clear();
+
+    ranker.getLeafCollector(readerContext);
+  }
+
+  @Override
+  public void setScorer(Scorer scorer) throws IOException {
+    if (needsScores && scorer instanceof ScoreCachingWrappingScorer == false) {
+      // scores may be needed by the group sort, the within group sort and this collector
+      scorer = new ScoreCachingWrappingScorer(scorer);
+    }
+    this.scorer = scorer;
+    ranker.setScorer(scorer);
+    for (GroupChunk chunk : activeChunks) {
+      chunk.setScorer(scorer);
+    }
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    totalHitCount++;
+
+    if (doc > index.docID()) {
+      index.advance(doc);
+    }
+    final int segmentOrd = doc == index.docID() ? index.ordValue() : -1;
+
+    CollectedGroup group = leafGroups[segmentOrd + 1];
+    if (group == null) {
+      // first time we see this group in the current segment
+      group = getOrCreateGroup(segmentOrd);
+      leafGroups[segmentOrd + 1] = group;
+      if (group.chunk.leafContext != context) {
+        // first time we see a group of this chunk in the current segment
+        group.chunk.setNextReader(context);
+        group.chunk.setScorer(scorer);
+        activeChunks.add(group.chunk);
+      }
+    }
+
+    currentGroup = group;
+    ranker.collect(doc);
+    collectInGroup(group, doc);
+  }
+
+  private void collectInGroup(CollectedGroup group, int doc) throws IOException {
+    final GroupChunk chunk = group.chunk;
+    float score = Float.NaN;
+    if (trackMaxScore) {
+      score = scorer.score();
+      if (score > group.maxScore) {
+        group.maxScore = score;
+      }
+    }
+
+    group.totalHits++;
+    if (group.size == maxDocsPerGroup) {
+      final int bottom = chunk.heap[group.base];
+      chunk.setBottom(bottom);
+      if (chunk.compareBottom(doc) <= 0) {
+        // since docs are visited in doc Id order, if compare is 0, it means
+        // this document is larger than anything else in the group, and
+        // therefore not competitive.
+        return;
+      }
+      if (trackDocScores && !trackMaxScore) {
+        score = scorer.score();
+      }
+      // This hit is competitive - replace the bottom of the group
+      chunk.copy(bottom, doc, score);
+      chunk.downHeap(chunk.heap, group.base, group.size);
+    } else {
+      if (trackDocScores && !trackMaxScore) {
+        score = scorer.score();
+      }
+      final int slot = group.base + group.size;
+      chunk.copy(slot, doc, score);
+      chunk.heap[slot] = slot;
+      chunk.upHeap(chunk.heap, group.base, group.size);
+      group.size++;
+    }
+  }
+
+  private CollectedGroup getOrCreateGroup(int segmentOrd) throws IOException {
+    if (segmentOrd == -1) {
+      if (missingGroup == null) {
+        missingGroup = newGroup(null);
+      }
+      return missingGroup;
+    } else if (segmentToGlobalOrds != null) {
+      final long globalOrd = segmentToGlobalOrds.get(segmentOrd);
+      CollectedGroup group = groupsByOrd.get(globalOrd);
+      if (group == null) {
+        group = newGroup(BytesRef.deepCopyOf(index.lookupOrd(segmentOrd)));
+        groupsByOrd.put(globalOrd, group);
+      }
+      return group;
+    } else {
+      final BytesRef value = index.lookupOrd(segmentOrd);
+      CollectedGroup group = groupsByValue.get(value);
+      if (group == null) {
+        group = newGroup(BytesRef.deepCopyOf(value));
+        groupsByValue.put(group.groupValue, group);
+      }
+      return group;
+    }
+  }
+
+  private CollectedGroup newGroup(BytesRef groupValue) throws IOException {
+    if (lastChunk == null || lastChunk.numGroups == lastChunk.maxGroups) {
+      final int maxGroups = lastChunk == null
+          ? 1 : Math.min(2 * lastChunk.maxGroups, Math.max(1, MAX_CHUNK_SLOTS / maxDocsPerGroup));
+      lastChunk = new GroupChunk(maxGroups);
+    }
+    final CollectedGroup group = new CollectedGroup(groups.size(), groupValue, lastChunk,
+                                                    lastChunk.numGroups++ * maxDocsPerGroup);
+    groups.add(group);
+    return group;
+  }
+
+  private TopDocs topDocs(CollectedGroup group, int start) throws IOException {
+    final GroupChunk chunk = group.chunk;
+    if (start < 0 || start >= group.size) {
+      if (withinGroupRelevance) {
+        // like TopScoreDocCollector, which does not report hits in that case
+        return new TopDocs(0, new ScoreDoc[0], Float.NaN);
+      } else {
+        return new TopFieldDocs(group.totalHits, new ScoreDoc[0], withinGroupSortFields, Float.NaN);
+      }
+    }
+
+    // pop a copy of the heap of the group, from the least to the most competitive hit
+    final int[] heap = Arrays.copyOfRange(chunk.heap, group.base, group.base + group.size);
+    final int[] slots = new int[group.size];
+    for (int size = group.size; size > 0; --size) {
+      slots[size - 1] = heap[0];
+      heap[0] = heap[size - 1];
+      chunk.downHeap(heap, 0, size - 1);
+    }
+
+    final ScoreDoc[] results = new ScoreDoc[group.size - start];
+    for (int i = 0; i < results.length; ++i) {
+      final int slot = slots[start + i];
+      if (withinGroupRelevance) {
+        results[i] = new ScoreDoc(chunk.docs[slot], chunk.scores[slot]);
+      } else if (fillSortFields) {
+        final Object[] fields = new Object[chunk.comparators.length];
+        for (int j = 0; j < fields.length; ++j) {
+          fields[j] = chunk.comparators[j].value(slot);
+        }
+        results[i] = new FieldDoc(chunk.docs[slot], chunk.scores[slot], fields);
+      } else {
+        results[i] = new FieldDoc(chunk.docs[slot], chunk.scores[slot]);
+      }
+    }
+
+    if (withinGroupRelevance) {
+      return new TopDocs(group.totalHits, results, chunk.scores[slots[0]]);
+    } else {
+      return new TopFieldDocs(group.totalHits, results, withinGroupSortFields, trackMaxScore ? group.maxScore : Float.NaN);
+    }
+  }
+
+  /**
+   * Returns the top groups, starting from {@code groupOffset}, with their top
+   * documents, starting from {@code withinGroupOffset}. This may return null,
+   * if no groups were collected, or if the number of unique groups collected
+   * is &lt;= groupOffset.
+   *
+   * @param groupOffset The offset in the collected groups
+   * @param withinGroupOffset The offset in the documents of each group
+   * @return top groups, starting from offset
+   */
+  public TopGroups<BytesRef> getTopGroups(int groupOffset, int withinGroupOffset) throws IOException {
+    final Collection<SearchGroup<Integer>> topGroups = ranker.getTopGroups(groupOffset, fillSortFields);
+    if (topGroups == null) {
+      return null;
+    }
+
+    @SuppressWarnings({"unchecked","rawtypes"})
+    final GroupDocs<BytesRef>[] groupDocsResult = (GroupDocs<BytesRef>[]) new GroupDocs[topGroups.size()];
+
+    int groupIDX = 0;
+    int totalGroupedHitCount = 0;
+    float maxScore = Float.MIN_VALUE;
+    for (SearchGroup<Integer> group : topGroups) {
+      final CollectedGroup collectedGroup = groups.get(group.groupValue);
+      final TopDocs topDocs = topDocs(collectedGroup, withinGroupOffset);
+      final BytesRef groupValue = collectedGroup.groupValue;
+      groupDocsResult[groupIDX++] = new GroupDocs<>(Float.NaN,
+                                                    topDocs.getMaxScore(),
+                                                    topDocs.totalHits,
+                                                    topDocs.scoreDocs,
+                                                    groupValue,
+                                                    group.sortValues);
+      totalGroupedHitCount += collectedGroup.totalHits;
+      maxScore = Math.max(maxScore, topDocs.getMaxScore());
+    }
+
+    return new TopGroups<>(groupSort.getSort(),
+                           withinGroupSort.getSort(),
+                           totalHitCount, totalGroupedHitCount, groupDocsResult,
+                           maxScore);
+  }
+
+  /** The top documents of a group, stored in {@code maxDocsPerGroup} slots of a {@link GroupChunk}. */
+  private static class CollectedGroup {
+
+    // index in the list of collected groups
+    final int id;
+    final BytesRef groupValue;
+    final GroupChunk chunk;
+    // first slot of the group in its chunk
+    final int base;
+    // number of slots used by the group
+    int size;
+    int totalHits;
+    float maxScore = Float.NEGATIVE_INFINITY;
+
+    CollectedGroup(int id, BytesRef groupValue, GroupChunk chunk, int base) {
+      this.id = id;
+      this.groupValue = groupValue;
+      this.chunk = chunk;
+      this.base = base;
+    }
+  }
+
+  /**
+   * The slots of the top documents of a chunk of groups, and the comparators
+   * of the within group sort that they share.
+   */
+  private class GroupChunk {
+
+    final int maxGroups;
+    int numGroups;
+    final FieldComparator<?>[] comparators;
+    final LeafFieldComparator[] leafComparators;
+    // the segment leafComparators were pulled for
+    LeafReaderContext leafContext;
+    // the slot leafComparators are set to compare against, or -1
+    int bottomSlot = -1;
+    // global doc ids and scores of the slots
+    final int[] docs;
+    final float[] scores;
+    // for each group, a heap of its slots whose top is the least competitive document
+    final int[] heap;
+
+    GroupChunk(int maxGroups) throws IOException {
+      this.maxGroups = maxGroups;
+      final int numSlots = maxGroups * maxDocsPerGroup;
+      comparators = new FieldComparator<?>[withinGroupSortFields.length];
+      for (int i = 0; i < comparators.length; ++i) {
+        comparators[i] = withinGroupSortFields[i].getComparator(numSlots, i);
+      }
+      leafComparators = new LeafFieldComparator[comparators.length];
+      docs = new int[numSlots];
+      scores = new float[numSlots];
+      heap = new int[numSlots];
+    }
+
+    void setNextReader(LeafReaderContext context) throws IOException {
+      for (int i = 0; i < comparators.length; ++i) {
+        leafComparators[i] = comparators[i].getLeafComparator(context);
+      }
+      leafContext = context;
+      bottomSlot = -1;
+    }
+
+    void setScorer(Scorer scorer) throws IOException {
+      for (LeafFieldComparator comparator : leafComparators) {
+        comparator.setScorer(scorer);
+      }
+    }
+
+    void setBottom(int slot) throws IOException {
+      if (bottomSlot != slot) {
+        for (LeafFieldComparator comparator : leafComparators) {
+          comparator.setBottom(slot);
+        }
+        bottomSlot = slot;
+      }
+    }
+
+    int compareBottom(int doc) throws IOException {
+      for (int i = 0; i < leafComparators.length; ++i) {
+        final int cmp = reverseMul[i] * leafComparators[i].compareBottom(doc);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    }
+
+    void copy(int slot, int doc, float score) throws IOException {
+      for (LeafFieldComparator comparator : leafComparators) {
+        comparator.copy(slot, doc);
+      }
+      docs[slot] = context.docBase + doc;
+      scores[slot] = score;
+      if (slot == bottomSlot) {
+        bottomSlot = -1;
+      }
+    }
+
+    /** Whether the document in slot {@code a} is less competitive than the one in slot {@code b}. */
+    boolean lessThan(int a, int b) {
+      for (int i = 0; i < comparators.length; ++i) {
+        final int c = reverseMul[i] * comparators[i].compare(a, b);
+        if (c != 0) {
+          return c > 0;
+        }
+      }
+      return docs[a] > docs[b];
+    }
+
+    /** Restore the heap property of {@code heap[base:base+last+1]} after its last entry was set. */
+    void upHeap(int[] heap, int base, int last) {
+      int i = last;
+      final int node = heap[base + i];
+      while (i > 0) {
+        final int parent = (i - 1) >>> 1;
+        if (lessThan(node, heap[base + parent]) == false) {
+          break;
+        }
+        heap[base + i] = heap[base + parent];
+        i = parent;
+      }
+      heap[base + i] = node;
+    }
+
+    /** Restore the heap property of {@code heap[base:base+size]} after its top entry was updated. */
+    void downHeap(int[] heap, int base, int size) {
+      int i = 0;
+      final int node = heap[base];
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && lessThan(heap[base + child + 1], heap[base + child])) {
+          child++;
+        }
+        if (lessThan(heap[base + child], node) == false) {
+          break;
+        }
+        heap[base + i] = heap[base + child];
+        i = child;
+      }
+      heap[base + i] = node;
+    }
+  }
+
+  /** Ranks groups by their id, like the first pass would. */
+  private class GroupRanker extends AbstractFirstPassGroupingCollector<Integer> {
+
+    GroupRanker(Sort groupSort, int topNGroups) throws IOException {
+      super(groupSort, topNGroups);
+    }
+
+    @Override
+    protected Integer getDocGroupValue(int doc) {
+      return currentGroup.id;
+    }
+
+    @Override
+    protected Integer copyDocGroupValue(Integer groupValue, Integer reuse) {
+      return groupValue;
+    }
+  }
+}
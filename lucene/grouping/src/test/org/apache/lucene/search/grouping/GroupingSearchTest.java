@@ -214,6 +214,7 @@ public class GroupingSearchTest extends LuceneTestCase {
     if (random().nextBoolean()) {
       groupingSearch.setCachingInMB(4.0, true);
     }
+    groupingSearch.setSinglePass(random().nextBoolean());
 
     return groupingSearch;
   }
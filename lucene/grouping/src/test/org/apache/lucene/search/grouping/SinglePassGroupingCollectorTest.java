@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search.grouping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.grouping.term.TermFirstPassGroupingCollector;
+import org.apache.lucene.search.grouping.term.TermSecondPassGroupingCollector;
+import org.apache.lucene.search.grouping.term.TermSinglePassGroupingCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class SinglePassGroupingCollectorTest extends LuceneTestCase {
+
+  public void testBasic() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    String[] groups = new String[] {"a", "b", "a", null, "c", "b", "a"};
+    for (int i = 0; i < groups.length; i++) {
+      Document doc = new Document();
+      if (groups[i] != null) {
+        doc.add(new SortedDocValuesField("group", new BytesRef(groups[i])));
+      }
+      doc.add(new NumericDocValuesField("sort", i));
+      w.addDocument(doc);
+      if (i == 3) {
+        w.commit();
+      }
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    Sort sort = new Sort(new SortField("sort", SortField.Type.INT, true));
+    TermSinglePassGroupingCollector c = new TermSinglePassGroupingCollector("group", sort, sort, 2, 2, false, false, true);
+    searcher.search(new MatchAllDocsQuery(), c);
+    TopGroups<BytesRef> topGroups = c.getTopGroups(0, 0);
+
+    assertEquals(7, topGroups.totalHitCount);
+    assertEquals(5, topGroups.totalGroupedHitCount);
+    assertEquals(2, topGroups.groups.length);
+
+    GroupDocs<BytesRef> group = topGroups.groups[0];
+    assertEquals(new BytesRef("a"), group.groupValue);
+    assertEquals(3, group.totalHits);
+    assertEquals(2, group.scoreDocs.length);
+    assertEquals(6, ((FieldDoc) group.scoreDocs[0]).fields[0]);
+    assertEquals(2, ((FieldDoc) group.scoreDocs[1]).fields[0]);
+    assertEquals(6, group.groupSortValues[0]);
+
+    group = topGroups.groups[1];
+    assertEquals(new BytesRef("b"), group.groupValue);
+    assertEquals(2, group.totalHits);
+    assertEquals(5, ((FieldDoc) group.scoreDocs[0]).fields[0]);
+    assertEquals(1, ((FieldDoc) group.scoreDocs[1]).fields[0]);
+
+    // offsets
+    c = new TermSinglePassGroupingCollector("group", sort, sort, 4, 2, false, false, true);
+    searcher.search(new MatchAllDocsQuery(), c);
+    topGroups = c.getTopGroups(2, 1);
+    assertEquals(2, topGroups.groups.length);
+    assertEquals(new BytesRef("c"), topGroups.groups[0].groupValue);
+    assertEquals(0, topGroups.groups[0].scoreDocs.length);
+    assertNull(topGroups.groups[1].groupValue);
+    assertEquals(1, topGroups.groups[1].totalHits);
+    assertEquals(0, topGroups.groups[1].scoreDocs.length);
+    assertNull(c.getTopGroups(4, 0));
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testGroupComesBack() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    // group x drops out of the top group, and comes back with a document that
+    // ranks after the one it collected before dropping out
+    String[] groups = new String[] {"a", "x", "x"};
+    int[] groupSortValues = new int[] {5, 0, 10};
+    int[] withinGroupSortValues = new int[] {1, 0, 5};
+    List<Document> docs = new ArrayList<>();
+    for (int i = 0; i < groups.length; i++) {
+      Document doc = new Document();
+      doc.add(new SortedDocValuesField("group", new BytesRef(groups[i])));
+      doc.add(new NumericDocValuesField("sort1", groupSortValues[i]));
+      doc.add(new NumericDocValuesField("sort2", withinGroupSortValues[i]));
+      docs.add(doc);
+    }
+    // keep the order of documents
+    w.addDocuments(docs);
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    Sort groupSort = new Sort(new SortField("sort1", SortField.Type.INT, true));
+    Sort withinGroupSort = new Sort(new SortField("sort2", SortField.Type.INT));
+    TermSinglePassGroupingCollector c = new TermSinglePassGroupingCollector("group", groupSort, withinGroupSort, 1, 2, false, false, true);
+    searcher.search(new MatchAllDocsQuery(), c);
+    TopGroups<BytesRef> topGroups = c.getTopGroups(0, 0);
+
+    assertEquals(1, topGroups.groups.length);
+    GroupDocs<BytesRef> group = topGroups.groups[0];
+    assertEquals(new BytesRef("x"), group.groupValue);
+    assertEquals(2, group.totalHits);
+    assertEquals(2, group.scoreDocs.length);
+    assertEquals(1, group.scoreDocs[0].doc);
+    assertEquals(0, ((FieldDoc) group.scoreDocs[0]).fields[0]);
+    assertEquals(2, group.scoreDocs[1].doc);
+    assertEquals(5, ((FieldDoc) group.scoreDocs[1]).fields[0]);
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testSameResultsAsTwoPasses() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(500);
+    // sometimes most documents have their own group, the worst case for memory usage
+    final int numGroups = random().nextBoolean() ? TestUtil.nextInt(random(), 1, 50) : numDocs;
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        doc.add(new SortedDocValuesField("group", new BytesRef("group" + random().nextInt(numGroups))));
+      }
+      doc.add(new NumericDocValuesField("sort1", random().nextInt(100)));
+      doc.add(new NumericDocValuesField("sort2", random().nextInt(10)));
+      doc.add(new StringField("content", random().nextBoolean() ? "a" : "b", Field.Store.NO));
+      if (random().nextBoolean()) {
+        doc.add(new StringField("content", "c", Field.Store.NO));
+      }
+      w.addDocument(doc);
+      if (random().nextInt(100) == 0) {
+        w.commit();
+      }
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    Sort[] sorts = new Sort[] {
+        Sort.RELEVANCE,
+        new Sort(new SortField("sort1", SortField.Type.INT)),
+        new Sort(new SortField("sort2", SortField.Type.INT, true), SortField.FIELD_SCORE),
+        new Sort(new SortField("sort2", SortField.Type.INT), new SortField("sort1", SortField.Type.INT, true))
+    };
+    Query[] queries = new Query[] {
+        new MatchAllDocsQuery(),
+        new TermQuery(new Term("content", "a")),
+        new TermQuery(new Term("content", "c"))
+    };
+
+    // the global ordinals of the group field, that the collector may reuse
+    SortedDocValues globalValues = MultiDocValues.getSortedValues(searcher.getIndexReader(), "group");
+    MultiDocValues.OrdinalMap ordinalMap = globalValues instanceof MultiDocValues.MultiSortedDocValues
+        ? ((MultiDocValues.MultiSortedDocValues) globalValues).mapping : null;
+
+    final int iters = atLeast(20);
+    for (int iter = 0; iter < iters; iter++) {
+      Sort groupSort = sorts[random().nextInt(sorts.length)];
+      Sort withinGroupSort = sorts[random().nextInt(sorts.length)];
+      Query query = queries[random().nextInt(queries.length)];
+      int groupOffset = random().nextInt(5);
+      int topNGroups = groupOffset + TestUtil.nextInt(random(), 1, 10);
+      int docOffset = random().nextInt(3);
+      int maxDocsPerGroup = docOffset + TestUtil.nextInt(random(), 1, 5);
+      boolean getScores = random().nextBoolean();
+      boolean getMaxScores = random().nextBoolean();
+      boolean fillSortFields = random().nextBoolean();
+
+      TermSinglePassGroupingCollector singlePass = new TermSinglePassGroupingCollector("group",
+          random().nextBoolean() ? ordinalMap : null, groupSort, withinGroupSort,
+          topNGroups, maxDocsPerGroup, getScores, getMaxScores, fillSortFields);
+      searcher.search(query, singlePass);
+      TopGroups<BytesRef> actual = singlePass.getTopGroups(groupOffset, docOffset);
+
+      TermFirstPassGroupingCollector firstPass = new TermFirstPassGroupingCollector("group", groupSort, topNGroups);
+      searcher.search(query, firstPass);
+      Collection<SearchGroup<BytesRef>> searchGroups = firstPass.getTopGroups(groupOffset, fillSortFields);
+      if (searchGroups == null) {
+        assertNull(actual);
+        continue;
+      }
+      TermSecondPassGroupingCollector secondPass = new TermSecondPassGroupingCollector("group", searchGroups, groupSort,
+          withinGroupSort, maxDocsPerGroup, getScores, getMaxScores, fillSortFields);
+      searcher.search(query, secondPass);
+      TopGroups<BytesRef> expected = secondPass.getTopGroups(docOffset);
+
+      assertEquals(expected.totalHitCount, actual.totalHitCount);
+      assertEquals(expected.totalGroupedHitCount, actual.totalGroupedHitCount);
+      assertEquals(expected.maxScore, actual.maxScore, 0f);
+      assertEquals(expected.groups.length, actual.groups.length);
+      for (int i = 0; i < expected.groups.length; i++) {
+        GroupDocs<BytesRef> expectedGroup = expected.groups[i];
+        GroupDocs<BytesRef> actualGroup = actual.groups[i];
+        assertEquals(expectedGroup.groupValue, actualGroup.groupValue);
+        assertArrayEquals(expectedGroup.groupSortValues, actualGroup.groupSortValues);
+        assertEquals(expectedGroup.totalHits, actualGroup.totalHits);
+        assertEquals(expectedGroup.maxScore, actualGroup.maxScore, 0f);
+        assertEquals(expectedGroup.scoreDocs.length, actualGroup.scoreDocs.length);
+        for (int j = 0; j < expectedGroup.scoreDocs.length; j++) {
+          assertEquals(expectedGroup.scoreDocs[j].doc, actualGroup.scoreDocs[j].doc);
+          assertEquals(expectedGroup.scoreDocs[j].score, actualGroup.scoreDocs[j].score, 0f);
+          if (expectedGroup.scoreDocs[j] instanceof FieldDoc) {
+            assertArrayEquals(((FieldDoc) expectedGroup.scoreDocs[j]).fields, ((FieldDoc) actualGroup.scoreDocs[j]).fields);
+          }
+        }
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
+}
@@ -136,6 +136,20 @@ public abstract class FunctionValues {
   // TODO: should we make a termVal, fills BytesRef[]?
   public void strVal(int doc, String [] vals) throws IOException { throw new UnsupportedOperationException(); }
 
+  /**
+   * Returns an estimate of the number of operations needed to compute the
+   * value of a document: about one per arithmetic operation of a function,
+   * plus the costs of its arguments, and a few more for a doc values lookup.
+   * This is the match cost of the {@link org.apache.lucene.search.TwoPhaseIterator}
+   * of {@link ValueSourceScorer}s, which lets conjunctions evaluate expensive
+   * functions only on the documents that their cheaper clauses match.
+   * <p>
+   * The default implementation returns a pessimistic 100.
+   */
+  public float cost() {
+    return 100;
+  }
+
   public Explanation explain(int doc) throws IOException {
     return Explanation.match(floatVal(doc), toString(doc));
   }
@@ -150,6 +164,11 @@ public abstract class FunctionValues {
       public boolean matches(int doc) {
         return true;
       }
+
+      @Override
+      protected float matchCost() {
+        return 0;
+      }
     };
   }
 
@@ -55,7 +55,7 @@ public abstract class ValueSourceScorer extends Scorer {
 
       @Override
       public float matchCost() {
-        return 100; // TODO: use cost of ValueSourceScorer.this.matches()
+        return ValueSourceScorer.this.matchCost();
       }
     };
     this.disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseIterator);
@@ -64,6 +64,15 @@ public abstract class ValueSourceScorer extends Scorer {
   /** Override to decide if this document matches. It's called by {@link TwoPhaseIterator#matches()}. */
   public abstract boolean matches(int doc) throws IOException;
 
+  /**
+   * Returns the cost of {@link #matches(int)}, which is the match cost of the
+   * {@link TwoPhaseIterator}. Defaults to the {@link FunctionValues#cost() cost}
+   * of computing the value of a document.
+   */
+  protected float matchCost() {
+    return values.cost();
+  }
+
   @Override
   public DocIdSetIterator iterator() {
     return disi;
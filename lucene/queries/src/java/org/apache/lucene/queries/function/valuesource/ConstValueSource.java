@@ -60,6 +60,10 @@ public class ConstValueSource extends ConstNumberSource {
         return dv;
       }
       @Override
+      public float cost() {
+        return 1;
+      }
+      @Override
       public String toString(int doc) {
         return description();
       }
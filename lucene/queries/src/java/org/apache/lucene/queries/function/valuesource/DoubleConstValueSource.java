@@ -75,6 +75,11 @@ public class DoubleConstValueSource extends ConstNumberSource {
         return constant;
       }
 
+      @Override
+      public float cost() {
+        return 1;
+      }
+
       @Override
       public String toString(int doc) {
         return description();
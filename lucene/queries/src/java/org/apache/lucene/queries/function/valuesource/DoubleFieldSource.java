@@ -84,6 +84,11 @@ public class DoubleFieldSource extends FieldCacheSource {
         return doc == values.docID();
       }
 
+      @Override
+      public float cost() {
+        return 5; // one doc values lookup
+      }
+
       @Override
       public ValueFiller getValueFiller() {
         return new ValueFiller() {
@@ -42,6 +42,16 @@ public abstract class DualFloatFunction extends ValueSource {
     this.b = b;
   }
 
+  /** Returns the first wrapped source. */
+  public ValueSource getA() {
+    return a;
+  }
+
+  /** Returns the second wrapped source. */
+  public ValueSource getB() {
+    return b;
+  }
+
   protected abstract String name();
   protected abstract float func(int doc, FunctionValues aVals, FunctionValues bVals) throws IOException;
 
@@ -68,6 +78,10 @@ public abstract class DualFloatFunction extends ValueSource {
         return MultiFunction.allExists(doc, aVals, bVals);
       }
       @Override
+      public float cost() {
+        return 1 + aVals.cost() + bVals.cost();
+      }
+      @Override
       public String toString(int doc) throws IOException {
         return name() + '(' + aVals.toString(doc) + ',' + bVals.toString(doc) + ')';
       }
@@ -84,6 +84,11 @@ public class FloatFieldSource extends FieldCacheSource {
         return arr.docID() == doc;
       }
 
+      @Override
+      public float cost() {
+        return 5; // one doc values lookup
+      }
+
       @Override
       public ValueFiller getValueFiller() {
         return new ValueFiller() {
@@ -91,6 +91,11 @@ public class IntFieldSource extends FieldCacheSource {
         return arr.docID() == doc;
       }
 
+      @Override
+      public float cost() {
+        return 5; // one doc values lookup
+      }
+
       @Override
       public ValueFiller getValueFiller() {
         return new ValueFiller() {
@@ -43,6 +43,21 @@ public class LinearFloatFunction extends ValueSource {
     this.slope = slope;
     this.intercept = intercept;
   }
+
+  /** Returns the wrapped source. */
+  public ValueSource getSource() {
+    return source;
+  }
+
+  /** Returns the slope. */
+  public float getSlope() {
+    return slope;
+  }
+
+  /** Returns the intercept. */
+  public float getIntercept() {
+    return intercept;
+  }
   
   @Override
   public String description() {
@@ -62,6 +77,10 @@ public class LinearFloatFunction extends ValueSource {
         return vals.exists(doc);
       }
       @Override
+      public float cost() {
+        return 2 + vals.cost();
+      }
+      @Override
       public String toString(int doc) throws IOException {
         return slope + "*float(" + vals.toString(doc) + ")+" + intercept;
       }
@@ -121,6 +121,11 @@ public class LongFieldSource extends FieldCacheSource {
         return LongFieldSource.this.externalToLong(extVal);
       }
 
+      @Override
+      public float cost() {
+        return 5; // one doc values lookup
+      }
+
       @Override
       public ValueFiller getValueFiller() {
         return new ValueFiller() {
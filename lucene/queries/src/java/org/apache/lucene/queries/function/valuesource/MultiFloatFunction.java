@@ -37,6 +37,11 @@ public abstract class MultiFloatFunction extends ValueSource {
     this.sources = sources;
   }
 
+  /** Returns a copy of the wrapped sources. */
+  public ValueSource[] getSources() {
+    return sources.clone();
+  }
+
   abstract protected String name();
   abstract protected float func(int doc, FunctionValues[] valsArr) throws IOException;
   /** 
@@ -85,6 +90,14 @@ public abstract class MultiFloatFunction extends ValueSource {
         return MultiFloatFunction.this.exists(doc, valsArr);
       }
       @Override
+      public float cost() {
+        float cost = valsArr.length;
+        for (FunctionValues vals : valsArr) {
+          cost += vals.cost();
+        }
+        return cost;
+      }
+      @Override
       public String toString(int doc) throws IOException {
         return MultiFunction.toString(name(), valsArr, doc);
       }
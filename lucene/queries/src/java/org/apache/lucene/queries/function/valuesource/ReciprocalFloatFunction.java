@@ -59,6 +59,26 @@ public class ReciprocalFloatFunction extends ValueSource {
     this.b=b;
   }
 
+  /** Returns the wrapped source. */
+  public ValueSource getSource() {
+    return source;
+  }
+
+  /** Returns the multiplier <code>m</code>. */
+  public float getM() {
+    return m;
+  }
+
+  /** Returns the numerator <code>a</code>. */
+  public float getA() {
+    return a;
+  }
+
+  /** Returns the addend <code>b</code>. */
+  public float getB() {
+    return b;
+  }
+
   @Override
   public FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
     final FunctionValues vals = source.getValues(context, readerContext);
@@ -72,6 +92,10 @@ public class ReciprocalFloatFunction extends ValueSource {
         return vals.exists(doc);
       }
       @Override
+      public float cost() {
+        return 3 + vals.cost();
+      }
+      @Override
       public String toString(int doc) throws IOException {
         return Float.toString(a) + "/("
                 + m + "*float(" + vals.toString(doc) + ')'
@@ -42,6 +42,10 @@ import java.util.Map;
         return func(doc, vals);
       }
       @Override
+      public float cost() {
+        return 1 + vals.cost();
+      }
+      @Override
       public String toString(int doc) throws IOException {
         return name() + '(' + vals.toString(doc) + ')';
       }
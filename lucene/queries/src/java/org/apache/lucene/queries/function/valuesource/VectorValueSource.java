@@ -96,6 +96,10 @@ public class VectorValueSource extends MultiValueSource {
           vals[1] = y.strVal(doc);
         }
         @Override
+        public float cost() {
+          return x.cost() + y.cost();
+        }
+        @Override
         public String toString(int doc) throws IOException {
           return name() + "(" + x.toString(doc) + "," + y.toString(doc) + ")";
         }
@@ -158,6 +162,15 @@ public class VectorValueSource extends MultiValueSource {
         }
       }
 
+      @Override
+      public float cost() {
+        float cost = 0;
+        for (FunctionValues vals : valsArr) {
+          cost += vals.cost();
+        }
+        return cost;
+      }
+
       @Override
       public String toString(int doc) throws IOException {
         StringBuilder sb = new StringBuilder();
@@ -22,10 +22,14 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.valuesource.ConstValueSource;
+import org.apache.lucene.queries.function.valuesource.SumFloatFunction;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TopDocs;
 import org.junit.After;
 import org.junit.Before;
@@ -104,6 +108,18 @@ public class TestFunctionRangeQuery extends FunctionTestSetup {
         explain.toString());
   }
 
+  @Test
+  public void testMatchCost() throws IOException {
+    ValueSource sum = new SumFloatFunction(new ValueSource[] { INT_VALUESOURCE, new ConstValueSource(1f) });
+    for (LeafReaderContext context : indexReader.leaves()) {
+      Scorer scorer = indexSearcher.createNormalizedWeight(new FunctionRangeQuery(INT_VALUESOURCE, 2, 4, true, true), true).scorer(context);
+      assertEquals(5f, scorer.twoPhaseIterator().matchCost(), 0f);
+      // one addition, plus the costs of a doc values lookup and of a constant
+      scorer = indexSearcher.createNormalizedWeight(new FunctionRangeQuery(sum, 2, 4, true, true), true).scorer(context);
+      assertEquals(8f, scorer.twoPhaseIterator().matchCost(), 0f);
+    }
+  }
+
   private void expectScores(ScoreDoc[] scoreDocs, int... docScores) {
     assertEquals(docScores.length, scoreDocs.length);
     for (int i = 0; i < docScores.length; i++) {
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+
+/**
+ * A range query on a numeric doc-values field that takes advantage of
+ * {@link IndexWriterConfig#setIndexSort index sorting}: on segments whose
+ * primary sort is a {@link SortField.Type#LONG} or {@link SortField.Type#INT}
+ * sort on this field, matching documents form a contiguous range of doc
+ * ids, whose bounds are found with a binary search on doc values. Segments
+ * that are not sorted this way are searched with the provided fallback
+ * query, which must match the same documents, for instance a
+ * {@link DocValuesRangeQuery} or a {@link PointRangeQuery}.
+ * <p>
+ * This query always produces constant scores, so the fallback query should
+ * produce constant scores too.
+ *
+ * @lucene.experimental
+ */
+public final class IndexSortDocValuesRangeQuery extends Query {
+
+  private final String field;
+  private final long lowerValue, upperValue;
+  private final Query fallbackQuery;
+
+  /**
+   * Create a new range query.
+   * @param field the name of a field that has {@link NumericDocValues}
+   * @param lowerValue the lower bound, inclusive
+   * @param upperValue the upper bound, inclusive
+   * @param fallbackQuery the query to run on segments that are not sorted on {@code field}
+   */
+  public IndexSortDocValuesRangeQuery(String field, long lowerValue, long upperValue, Query fallbackQuery) {
+    this.field = Objects.requireNonNull(field);
+    this.lowerValue = lowerValue;
+    this.upperValue = upperValue;
+    this.fallbackQuery = Objects.requireNonNull(fallbackQuery);
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  public long getLowerValue() {
+    return lowerValue;
+  }
+
+  public long getUpperValue() {
+    return upperValue;
+  }
+
+  /** Returns the query that is used on segments that are not sorted on the field. */
+  public Query getFallbackQuery() {
+    return fallbackQuery;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) &&
+           equalsTo(getClass().cast(other));
+  }
+
+  private boolean equalsTo(IndexSortDocValuesRangeQuery other) {
+    return field.equals(other.field) &&
+           lowerValue == other.lowerValue &&
+           upperValue == other.upperValue &&
+           fallbackQuery.equals(other.fallbackQuery);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * classHash() + Objects.hash(field, lowerValue, upperValue, fallbackQuery);
+  }
+
+  @Override
+  public String toString(String field) {
+    StringBuilder sb = new StringBuilder();
+    if (this.field.equals(field) == false) {
+      sb.append(this.field).append(':');
+    }
+    return sb.append('[')
+        .append(lowerValue)
+        .append(" TO ")
+        .append(upperValue)
+        .append(']')
+        .toString();
+  }
+
+  @Override
+  public Query rewrite(IndexReader reader) throws IOException {
+    if (lowerValue > upperValue) {
+      return new MatchNoDocsQuery("empty range");
+    }
+    Query rewrittenFallback = fallbackQuery.rewrite(reader);
+    if (rewrittenFallback != fallbackQuery) {
+      return new IndexSortDocValuesRangeQuery(field, lowerValue, upperValue, rewrittenFallback);
+    }
+    return super.rewrite(reader);
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost) throws IOException {
+    final Weight fallbackWeight = fallbackQuery.createWeight(searcher, needsScores, boost);
+    return new ConstantScoreWeight(this, boost) {
+
+      @Override
+      public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+        final SortField sortField = primarySortField(context.reader());
+        if (sortField == null) {
+          return fallbackWeight.scorerSupplier(context);
+        }
+        final DocIdSetIterator iterator = getDocIdSetIterator(context.reader(), sortField);
+        final Weight weight = this;
+        return new ScorerSupplier() {
+          @Override
+          public Scorer get(boolean randomAccess) {
+            return new ConstantScoreScorer(weight, score(), iterator);
+          }
+
+          @Override
+          public long cost() {
+            return iterator.cost();
+          }
+        };
+      }
+
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        final ScorerSupplier scorerSupplier = scorerSupplier(context);
+        if (scorerSupplier == null) {
+          return null;
+        }
+        return scorerSupplier.get(false);
+      }
+
+      @Override
+      public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+        if (primarySortField(context.reader()) == null) {
+          return fallbackWeight.bulkScorer(context);
+        }
+        return super.bulkScorer(context);
+      }
+    };
+  }
+
+  /** Return the primary sort field of the segment if it sorts on this query's field, or null otherwise. */
+  private SortField primarySortField(LeafReader reader) {
+    final Sort indexSort = reader.getIndexSort();
+    if (indexSort == null) {
+      return null;
+    }
+    final SortField sortField = indexSort.getSort()[0];
+    // SortedNumericSortField and other subclasses do not sort on the raw value
+    if (sortField.getClass() != SortField.class || field.equals(sortField.getField()) == false) {
+      return null;
+    }
+    if (sortField.getType() != SortField.Type.LONG && sortField.getType() != SortField.Type.INT) {
+      return null;
+    }
+    return sortField;
+  }
+
+  private DocIdSetIterator getDocIdSetIterator(LeafReader reader, SortField sortField) throws IOException {
+    final long missingValue = sortField.getMissingValue() == null ? 0L : ((Number) sortField.getMissingValue()).longValue();
+    final boolean reverse = sortField.getReverse();
+
+    // matching docs are between the first doc that is not below the range
+    // and the first doc that is above it
+    final int minDoc, maxDoc;
+    if (reverse == false) {
+      minDoc = firstDoc(reader, missingValue, v -> v >= lowerValue);
+      maxDoc = firstDoc(reader, missingValue, v -> v > upperValue);
+    } else {
+      minDoc = firstDoc(reader, missingValue, v -> v <= upperValue);
+      maxDoc = firstDoc(reader, missingValue, v -> v < lowerValue);
+    }
+    if (minDoc >= maxDoc) {
+      return DocIdSetIterator.empty();
+    }
+
+    if (missingValue >= lowerValue && missingValue <= upperValue) {
+      // documents without a value are sorted among matches, so only those that have a value may match
+      return new BoundedDocIdSetIterator(minDoc, maxDoc, DocValues.getNumeric(reader, field));
+    }
+    return new BoundedDocIdSetIterator(minDoc, maxDoc, null);
+  }
+
+  /** Value predicate that is monotonic in the index sort order. */
+  private interface DocValuePredicate {
+    boolean test(long value);
+  }
+
+  /**
+   * Binary search for the first document whose value matches the given
+   * predicate, or maxDoc if there is no such document. Doc values can only
+   * be advanced forward, so every probe pulls a new iterator.
+   */
+  private int firstDoc(LeafReader reader, long missingValue, DocValuePredicate predicate) throws IOException {
+    int low = 0;
+    int high = reader.maxDoc();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      final NumericDocValues values = DocValues.getNumeric(reader, field);
+      final long value = values.advanceExact(mid) ? values.longValue() : missingValue;
+      if (predicate.test(value)) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Iterates over a contiguous range of doc ids, optionally restricted to
+   * the documents that are matched by another iterator.
+   */
+  private static final class BoundedDocIdSetIterator extends DocIdSetIterator {
+
+    private final int firstDoc, lastDoc;
+    private final DocIdSetIterator delegate;
+    private int doc = -1;
+
+    BoundedDocIdSetIterator(int firstDoc, int lastDoc, DocIdSetIterator delegate) {
+      this.firstDoc = firstDoc;
+      this.lastDoc = lastDoc;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      if (doc == NO_MORE_DOCS) {
+        return doc;
+      }
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      if (target < firstDoc) {
+        target = firstDoc;
+      }
+      if (target >= lastDoc) {
+        return doc = NO_MORE_DOCS;
+      }
+      if (delegate == null) {
+        return doc = target;
+      }
+      final int next = delegate.advance(target);
+      return doc = next < lastDoc ? next : NO_MORE_DOCS;
+    }
+
+    @Override
+    public long cost() {
+      return lastDoc - firstDoc;
+    }
+  }
+}
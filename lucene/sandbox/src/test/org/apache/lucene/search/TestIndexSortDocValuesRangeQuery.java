@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestIndexSortDocValuesRangeQuery extends LuceneTestCase {
+
+  public void testSameHitsAsDocValuesRangeQuery() throws IOException {
+    final int iters = atLeast(10);
+    for (int iter = 0; iter < iters; ++iter) {
+      final boolean reverse = random().nextBoolean();
+      final boolean useInt = random().nextBoolean();
+      final SortField sortField = new SortField("dv", useInt ? SortField.Type.INT : SortField.Type.LONG, reverse);
+      if (random().nextBoolean()) {
+        final int missingValue = TestUtil.nextInt(random(), -10, 110);
+        sortField.setMissingValue(useInt ? (Object) missingValue : (Object) (long) missingValue);
+      }
+      Directory dir = newDirectory();
+      IndexWriterConfig iwc = newIndexWriterConfig();
+      iwc.setIndexSort(new Sort(sortField));
+      RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+      final int numDocs = atLeast(100);
+      for (int i = 0; i < numDocs; ++i) {
+        Document doc = new Document();
+        if (random().nextInt(10) != 0) {
+          doc.add(new NumericDocValuesField("dv", TestUtil.nextInt(random(), 0, 100)));
+        }
+        iw.addDocument(doc);
+        if (i == numDocs / 2) {
+          iw.commit();
+        }
+      }
+      if (random().nextBoolean()) {
+        // merged segments are sorted
+        iw.forceMerge(1);
+      }
+      if (random().nextBoolean()) {
+        iw.deleteDocuments(DocValuesRangeQuery.newLongRange("dv", 0L, 10L, true, true));
+      }
+      final IndexReader reader = iw.getReader();
+      final IndexSearcher searcher = newSearcher(reader, false);
+      iw.close();
+
+      for (int i = 0; i < 50; ++i) {
+        final long min = TestUtil.nextInt(random(), -10, 110);
+        final long max = TestUtil.nextInt(random(), -10, 110);
+        final Query fallback = DocValuesRangeQuery.newLongRange("dv", min, max, true, true);
+        final Query q1 = new IndexSortDocValuesRangeQuery("dv", min, max, fallback);
+        assertSameHits(searcher, fallback, q1);
+      }
+
+      reader.close();
+      dir.close();
+    }
+  }
+
+  public void testFallbackOnUnsortedSegments() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("dv", TestUtil.nextInt(random(), 0, 100)));
+      iw.addDocument(doc);
+    }
+    final IndexReader reader = iw.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    iw.close();
+
+    final Query fallback = DocValuesRangeQuery.newLongRange("dv", 20L, 40L, true, true);
+    assertSameHits(searcher, fallback, new IndexSortDocValuesRangeQuery("dv", 20, 40, fallback));
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testContiguousDocIds() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setIndexSort(new Sort(new SortField("dv", SortField.Type.LONG)));
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+    for (int i = 0; i < 100; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("dv", 99 - i));
+      iw.addDocument(doc);
+      if (i == 50) {
+        // flushed segments are only sorted when merged
+        iw.commit();
+      }
+    }
+    iw.forceMerge(1);
+    final IndexReader reader = iw.getReader();
+    final IndexSearcher searcher = newSearcher(reader, false);
+    iw.close();
+
+    // the fallback query would not match anything, so this checks it is not used
+    final Query q = new IndexSortDocValuesRangeQuery("dv", 30, 59, new MatchNoDocsQuery());
+    final LeafReaderContext context = reader.leaves().get(0);
+    final Scorer scorer = searcher.createNormalizedWeight(q, false).scorer(context);
+    assertEquals(30, scorer.iterator().cost());
+    assertEquals(30, searcher.count(q));
+
+    reader.close();
+    dir.close();
+  }
+
+  private static void assertSameHits(IndexSearcher searcher, Query q1, Query q2) throws IOException {
+    final int maxDoc = searcher.getIndexReader().maxDoc();
+    final TopDocs td1 = searcher.search(q1, maxDoc, Sort.INDEXORDER);
+    final TopDocs td2 = searcher.search(q2, maxDoc, Sort.INDEXORDER);
+    assertEquals(td1.totalHits, td2.totalHits);
+    for (int i = 0; i < td1.scoreDocs.length; ++i) {
+      assertEquals(td1.scoreDocs[i].doc, td2.scoreDocs[i].doc);
+    }
+  }
+
+  public void testEqualsAndHashCode() {
+    final Query fallback = DocValuesRangeQuery.newLongRange("dv", 1L, 10L, true, true);
+    final Query q1 = new IndexSortDocValuesRangeQuery("dv", 1, 10, fallback);
+    QueryUtils.checkEqual(q1, new IndexSortDocValuesRangeQuery("dv", 1, 10, fallback));
+    QueryUtils.checkUnequal(q1, new IndexSortDocValuesRangeQuery("dv", 1, 11, fallback));
+    QueryUtils.checkUnequal(q1, new IndexSortDocValuesRangeQuery("dv", 1, 10, new MatchNoDocsQuery()));
+  }
+}
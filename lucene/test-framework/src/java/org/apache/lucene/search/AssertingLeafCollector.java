@@ -53,5 +53,10 @@ class AssertingLeafCollector extends FilterLeafCollector {
     lastCollected = doc;
   }
 
+  @Override
+  public DocIdSetIterator competitiveIterator() throws IOException {
+    return in.competitiveIterator();
+  }
+
 }
 
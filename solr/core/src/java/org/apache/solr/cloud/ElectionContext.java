@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.fs.Path;
@@ -412,6 +414,20 @@ final class ShardLeaderElectionContext extends ShardLeaderElectionContextBase {
           rejoinLeaderElection(core);
           return;
         }
+
+        if (ulog != null && zkController.getClusterState().getCollection(collection).getOnlyLeaderIndexes()) {
+          // we only logged updates so far, they must be in our index before we can lead
+          zkController.stopReplicationFromLeader(coreName);
+          Future<UpdateLog.RecoveryInfo> recoveryFuture = ulog.recoverFromCurrentLog();
+          if (recoveryFuture != null) {
+            log.info("Replaying tlog for " + coreName + " before becoming the leader");
+            try {
+              recoveryFuture.get();
+            } catch (ExecutionException e) {
+              throw new SolrException(ErrorCode.SERVER_ERROR, "Could not replay the tlog before becoming the leader", e);
+            }
+          }
+        }
         
       }
       
@@ -238,6 +238,9 @@ public class RecoveryStrategy extends Thread implements Closeable {
     boolean replayed = false;
     boolean successfulRecovery = false;
 
+    // the index must not be copied from the leader behind the back of the recovery process
+    zkController.stopReplicationFromLeader(coreName);
+
     UpdateLog ulog;
     ulog = core.getUpdateHandler().getUpdateLog();
     if (ulog == null) {
@@ -452,6 +455,11 @@ public class RecoveryStrategy extends Thread implements Closeable {
         if (successfulRecovery) {
           LOG.info("Registering as Active after recovery.");
           try {
+            CloudDescriptor cloudDesc = core.getCoreDescriptor().getCloudDescriptor();
+            if (!cloudDesc.isLeader() && zkStateReader.getClusterState()
+                .getCollection(cloudDesc.getCollectionName()).getOnlyLeaderIndexes()) {
+              zkController.startReplicationFromLeader(coreName);
+            }
             zkController.publish(core.getCoreDescriptor(), Replica.State.ACTIVE);
           } catch (Exception e) {
             LOG.error("Could not publish as ACTIVE after succesful recovery", e);
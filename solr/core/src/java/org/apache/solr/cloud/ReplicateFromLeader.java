@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.IndexCommit;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
+import org.apache.solr.common.cloud.ZkCoreNodeProps;
+import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.IndexDeletionPolicyWrapper;
+import org.apache.solr.core.SolrConfig;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.ReplicationHandler;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.UpdateLog;
+import org.apache.solr.util.DefaultSolrThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically copies the index of the shard leader to a replica of a collection created with
+ * {@link org.apache.solr.common.cloud.ZkStateReader#ONLY_LEADER_INDEXES}.  Such replicas only
+ * write updates to their transaction log; every time a newer commit has been copied over, the
+ * log is switched so that it only keeps the updates which are not part of the copied index yet.
+ */
+public class ReplicateFromLeader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final long DEFAULT_POLL_INTERVAL_MS = 3000;
+
+  private final CoreContainer cc;
+  private final String coreName;
+
+  private ScheduledExecutorService executor;
+
+  public ReplicateFromLeader(CoreContainer cc, String coreName) {
+    this.cc = cc;
+    this.coreName = coreName;
+  }
+
+  public synchronized void startReplication() {
+    if (executor != null) return;
+
+    long pollIntervalMs;
+    try (SolrCore core = cc.getCore(coreName)) {
+      if (core == null) {
+        throw new SolrException(ErrorCode.SERVER_ERROR, "SolrCore not found:" + coreName + " in " + cc.getCoreNames());
+      }
+      pollIntervalMs = getPollInterval(core.getSolrConfig().getUpdateHandlerInfo());
+    }
+
+    LOG.info("Will copy the index from the leader every {}ms for core={}", pollIntervalMs, coreName);
+    executor = new ScheduledThreadPoolExecutor(1, new DefaultSolrThreadFactory("replicateFromLeader"));
+    executor.scheduleWithFixedDelay(this::fetchFromLeader, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The leader only has something new to copy after a hard commit, so poll at half the auto
+   * commit interval, falling back to the soft commit interval and then to a fixed default.
+   */
+  static long getPollInterval(SolrConfig.UpdateHandlerInfo uinfo) {
+    if (uinfo.autoCommmitMaxTime > 0) {
+      return Math.max(1, uinfo.autoCommmitMaxTime / 2);
+    }
+    if (uinfo.autoSoftCommmitMaxTime > 0) {
+      return Math.max(1, uinfo.autoSoftCommmitMaxTime / 2);
+    }
+    return DEFAULT_POLL_INTERVAL_MS;
+  }
+
+  private void fetchFromLeader() {
+    try (SolrCore core = cc.getCore(coreName)) {
+      if (core == null || core.isClosed()) return;
+
+      CloudDescriptor cloudDesc = core.getCoreDescriptor().getCloudDescriptor();
+      if (cloudDesc.isLeader()) return;
+
+      ZkNodeProps leaderProps = cc.getZkController().getZkStateReader()
+          .getLeaderRetry(cloudDesc.getCollectionName(), cloudDesc.getShardId());
+      String leaderUrl = new ZkCoreNodeProps(leaderProps).getCoreUrl();
+
+      ReplicationHandler replicationHandler = (ReplicationHandler) core.getRequestHandler(ReplicationHandler.PATH);
+      if (replicationHandler == null) {
+        LOG.warn("Can not copy the index from the leader, no {} handler found for core={}", ReplicationHandler.PATH, coreName);
+        return;
+      }
+
+      long commitTimestamp = getLatestCommitTimestamp(core);
+
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.set(ReplicationHandler.MASTER_URL, leaderUrl);
+      params.set(ReplicationHandler.FETCH_FROM_LEADER, true);
+      if (!replicationHandler.doFetch(params, false)) {
+        return;
+      }
+
+      if (getLatestCommitTimestamp(core) != commitTimestamp) {
+        UpdateLog ulog = core.getUpdateHandler().getUpdateLog();
+        if (ulog != null) {
+          SolrQueryRequest req = new LocalSolrQueryRequest(core, new ModifiableSolrParams());
+          try {
+            ulog.switchToNewTlog(new CommitUpdateCommand(req, false));
+          } finally {
+            req.close();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      SolrException.log(LOG, "Error copying the index from the leader for core=" + coreName, e);
+    }
+  }
+
+  private static long getLatestCommitTimestamp(SolrCore core) throws IOException {
+    IndexCommit commit = core.getDeletionPolicy().getLatestCommit();
+    return commit == null ? 0L : IndexDeletionPolicyWrapper.getCommitTimestamp(commit);
+  }
+
+  public synchronized void stopReplication() {
+    if (executor == null) return;
+    ExecutorUtil.shutdownAndAwaitTermination(executor);
+    executor = null;
+  }
+}
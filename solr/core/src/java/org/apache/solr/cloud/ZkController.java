@@ -172,6 +172,9 @@ public class ZkController {
 
   private final Map<ContextKey, ElectionContext> electionContexts = Collections.synchronizedMap(new HashMap<>());
 
+  // replicas of onlyLeaderIndexes collections hosted on this node, keyed by core name
+  private final Map<String, ReplicateFromLeader> replicateFromLeaders = new ConcurrentHashMap<>();
+
   private final SolrZkClient zkClient;
   private final ZkCmdExecutor cmdExecutor;
   private final ZkStateReader zkStateReader;
@@ -521,6 +524,9 @@ public class ZkController {
    */
   public void close() {
     this.isClosed = true;
+    for (String coreName : new ArrayList<>(replicateFromLeaders.keySet())) {
+      stopReplicationFromLeader(coreName);
+    }
     try {
       for (ElectionContext context : electionContexts.values()) {
         try {
@@ -932,6 +938,9 @@ public class ZkController {
         boolean didRecovery
             = checkRecovery(recoverReloadedCores, isLeader, skipRecovery, collection, coreZkNodeName, core, cc, afterExpiration);
         if (!didRecovery) {
+          if (!isLeader && getClusterState().getCollection(collection).getOnlyLeaderIndexes()) {
+            startReplicationFromLeader(coreName);
+          }
           publish(desc, Replica.State.ACTIVE);
         }
         
@@ -1248,6 +1257,8 @@ public class ZkController {
       context.cancelElection();
     }
 
+    stopReplicationFromLeader(coreName);
+
     CloudDescriptor cloudDescriptor = cd.getCloudDescriptor();
     zkStateReader.unregisterCore(cloudDescriptor.getCollectionName());
 
@@ -1259,6 +1270,24 @@ public class ZkController {
     overseerJobQueue.offer(Utils.toJSON(m));
   }
 
+  /**
+   * Starts periodically copying the index from the shard leader, for a replica of a collection
+   * where only the leader indexes.  Does nothing if replication is already running for the core.
+   */
+  public void startReplicationFromLeader(String coreName) {
+    ReplicateFromLeader replicateFromLeader = new ReplicateFromLeader(cc, coreName);
+    if (replicateFromLeaders.putIfAbsent(coreName, replicateFromLeader) == null) {
+      replicateFromLeader.startReplication();
+    }
+  }
+
+  public void stopReplicationFromLeader(String coreName) {
+    ReplicateFromLeader replicateFromLeader = replicateFromLeaders.remove(coreName);
+    if (replicateFromLeader != null) {
+      replicateFromLeader.stopReplication();
+    }
+  }
+
   public void createCollection(String collection) throws KeeperException,
       InterruptedException {
     ZkNodeProps m = new ZkNodeProps(Overseer.QUEUE_OPERATION,
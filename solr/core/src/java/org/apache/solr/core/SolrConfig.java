@@ -251,6 +251,7 @@ public class SolrConfig extends Config implements MapSerializable {
     enableLazyFieldLoading = getBool("query/enableLazyFieldLoading", false);
     
     useRangeVersionsForPeerSync = getBool("peerSync/useRangeVersions", true);
+    useFingerprintRangesForPeerSync = getBool("peerSync/useFingerprintRanges", false);
 
     filterCacheConfig = CacheConfig.getConfig(this, "query/filterCache");
     queryResultCacheConfig = CacheConfig.getConfig(this, "query/queryResultCache");
@@ -491,6 +492,7 @@ public class SolrConfig extends Config implements MapSerializable {
   public final boolean enableLazyFieldLoading;
   
   public final boolean useRangeVersionsForPeerSync;
+  public final boolean useFingerprintRangesForPeerSync;
   
   // DocSet
   public final float hashSetInverseLoadFactor;
@@ -895,6 +897,7 @@ public class SolrConfig extends Config implements MapSerializable {
     m = new LinkedHashMap();
     result.put("peerSync", m);
     m.put("useRangeVersions", useRangeVersionsForPeerSync);
+    m.put("useFingerprintRanges", useFingerprintRangesForPeerSync);
 
     //TODO there is more to add
 
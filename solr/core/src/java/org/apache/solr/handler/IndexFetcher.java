@@ -158,6 +158,8 @@ public class IndexFetcher {
 
   private Integer soTimeout;
 
+  private boolean fetchFromLeader = false;
+
   private static HttpClient createHttpClient(SolrCore core, String httpBasicAuthUser, String httpBasicAuthPassword, boolean useCompression) {
     final ModifiableSolrParams httpClientParams = new ModifiableSolrParams();
     httpClientParams.set(HttpClientUtil.PROP_BASIC_AUTH_USER, httpBasicAuthUser);
@@ -179,6 +181,7 @@ public class IndexFetcher {
     }
     this.masterUrl = masterUrl;
 
+    this.fetchFromLeader = Boolean.parseBoolean(String.valueOf(initArgs.get(FETCH_FROM_LEADER)));
     this.replicationHandler = handler;
     String compress = (String) initArgs.get(COMPRESSION);
     useInternalCompression = INTERNAL.equals(compress);
@@ -403,8 +406,10 @@ public class IndexFetcher {
           // a searcher might be using some flushed but not committed segments
           // because of soft commits (which open a searcher on IW's data)
           // so we need to close the existing searcher on the last commit
-          // and wait until we are able to clean up all unused lucene files
-          if (solrCore.getCoreDescriptor().getCoreContainer().isZooKeeperAware()) {
+          // and wait until we are able to clean up all unused lucene files.
+          // A replica fetching from its leader never writes to its index, so its searcher
+          // only ever sees committed segments and can stay open.
+          if (solrCore.getCoreDescriptor().getCoreContainer().isZooKeeperAware() && !fetchFromLeader) {
             solrCore.closeSearcher();
           }
 
@@ -113,6 +113,7 @@ import static org.apache.solr.common.cloud.DocCollection.STATE_FORMAT;
 import static org.apache.solr.common.cloud.ZkStateReader.AUTO_ADD_REPLICAS;
 import static org.apache.solr.common.cloud.ZkStateReader.COLLECTION_PROP;
 import static org.apache.solr.common.cloud.ZkStateReader.MAX_SHARDS_PER_NODE;
+import static org.apache.solr.common.cloud.ZkStateReader.ONLY_LEADER_INDEXES;
 import static org.apache.solr.common.cloud.ZkStateReader.PROPERTY_PROP;
 import static org.apache.solr.common.cloud.ZkStateReader.PROPERTY_VALUE_PROP;
 import static org.apache.solr.common.cloud.ZkStateReader.REPLICATION_FACTOR;
@@ -386,6 +387,7 @@ public class CollectionsHandler extends RequestHandlerBase implements Permission
           SHARDS_PROP,
           STATE_FORMAT,
           AUTO_ADD_REPLICAS,
+          ONLY_LEADER_INDEXES,
           RULE,
           SNITCH);
 
@@ -117,6 +117,12 @@ public class RealTimeGetComponent extends SearchComponent
       processGetFingeprint(rb);
       return;
     }
+
+    val = params.get("getFingerprintRanges");
+    if (val != null) {
+      processGetFingerprintRanges(rb);
+      return;
+    }
     
     val = params.get("getVersions");
     if (val != null) {
@@ -613,6 +619,23 @@ public class RealTimeGetComponent extends SearchComponent
     IndexFingerprint fingerprint = IndexFingerprint.getFingerprint(req.getCore(), Math.abs(maxVersion));
     rb.rsp.add("fingerprint", fingerprint);
   }
+
+  /**
+   * Returns a fingerprint for each of the version ranges in the "getFingerprintRanges" param,
+   * given as comma separated "min...max" pairs sorted by min.
+   */
+  public void processGetFingerprintRanges(ResponseBuilder rb) throws IOException {
+    SolrQueryRequest req = rb.req;
+    SolrParams params = req.getParams();
+
+    List<long[]> ranges = new ArrayList<>();
+    for (String range : StrUtils.splitSmart(params.get("getFingerprintRanges"), ",", true)) {
+      String[] rangeBounds = range.split("\\.{3}");
+      ranges.add(new long[] {Long.parseLong(rangeBounds[0]), Long.parseLong(rangeBounds[1])});
+    }
+    List<IndexFingerprint> fingerprints = IndexFingerprint.getFingerprints(req.getCore(), ranges);
+    rb.rsp.add("fingerprints", fingerprints);
+  }
   
 
   ///////////////////////////////////////////////////////////////////////////////////
@@ -709,7 +732,7 @@ public class RealTimeGetComponent extends SearchComponent
 
     // find fingerprint for max version for which updates are requested
     boolean doFingerprint = params.getBool("fingerprint", false);
-    if (doFingerprint) {
+    if (doFingerprint && !versions.isEmpty()) {
       long maxVersionForUpdate = Collections.min(versions, PeerSync.absComparator);
       IndexFingerprint fingerprint = IndexFingerprint.getFingerprint(req.getCore(), Math.abs(maxVersionForUpdate));
       rb.rsp.add("fingerprint", fingerprint);
@@ -772,7 +795,10 @@ public class RealTimeGetComponent extends SearchComponent
       String[] rangeBounds = range.split("\\.{3}");
       int indexStart = Collections.binarySearch(versionAvailable, Long.valueOf(rangeBounds[1]), PeerSync.absComparator);
       int indexEnd = Collections.binarySearch(versionAvailable, Long.valueOf(rangeBounds[0]), PeerSync.absComparator); 
-      if(indexStart >=0 && indexEnd >= 0) {
+      // bounds that are not versions themselves (as used by fingerprint range syncs) still delimit the range
+      if (indexStart < 0) indexStart = -indexStart - 1;
+      if (indexEnd < 0) indexEnd = -indexEnd - 2;
+      if (indexStart <= indexEnd) {
         versionsToRet.addAll(versionAvailable.subList(indexStart, indexEnd + 1)); // indexEnd is exclusive
       }
     }
@@ -24,12 +24,14 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.params.UpdateParams;
 import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.handler.RequestHandlerUtils;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
+import org.apache.solr.util.ConcurrentLRUCache;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -46,6 +48,11 @@ import java.util.Set;
  */
 public class JavabinLoader extends ContentStreamLoader {
 
+  // field names are the same across most update requests, so they are shared by all the requests of this loader
+  private static final int FIELD_NAME_CACHE_SIZE = 10000;
+  private final JavaBinCodec.StringCache fieldNameCache = new JavaBinCodec.StringCache(
+      new ConcurrentLRUCache<>(FIELD_NAME_CACHE_SIZE, FIELD_NAME_CACHE_SIZE * 3 / 4));
+
   @Override
   public void load(SolrQueryRequest req, SolrQueryResponse rsp, ContentStream stream, UpdateRequestProcessor processor) throws Exception {
     InputStream is = null;
@@ -102,9 +109,10 @@ public class JavabinLoader extends ContentStreamLoader {
       }
     };
     FastInputStream in = FastInputStream.wrap(stream);
+    JavaBinUpdateRequestCodec codec = new JavaBinUpdateRequestCodec().setStringCache(fieldNameCache);
     for (; ; ) {
       try {
-        update = new JavaBinUpdateRequestCodec().unmarshal(in, handler);
+        update = codec.unmarshal(in, handler);
       } catch (EOFException e) {
         break; // this is expected
       }
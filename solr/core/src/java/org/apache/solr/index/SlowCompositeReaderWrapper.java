@@ -18,6 +18,7 @@ package org.apache.solr.index;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.index.*;
@@ -26,6 +27,7 @@ import org.apache.lucene.index.MultiDocValues.OrdinalMap;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.packed.PackedInts;
 
 /**
  * This class forces a composite reader (eg a {@link
@@ -198,7 +200,82 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
   
   // TODO: this could really be a weak map somewhere else on the coreCacheKey,
   // but do we really need to optimize slow-wrapper any more?
-  private final Map<String,OrdinalMap> cachedOrdMaps = new HashMap<>();
+  // package-private for testing
+  final Map<String,OrdinalMap> cachedOrdMaps = new HashMap<>();
+
+  /**
+   * Build ordinal maps for the fields that had one cached on {@code previous},
+   * typically the wrapper of the reader that this one was reopened from.
+   * As long as all segments of the previous reader are still present, maps are
+   * updated with the terms of new segments rather than rebuilt from scratch.
+   * Other maps are left to be built on demand.
+   */
+  public void warmOrdinalMaps(LeafReader previous) throws IOException {
+    ensureOpen();
+    if (merging || previous instanceof SlowCompositeReaderWrapper == false) {
+      return;
+    }
+    final SlowCompositeReaderWrapper previousWrapper = (SlowCompositeReaderWrapper) previous;
+    final Map<String,OrdinalMap> previousOrdMaps;
+    synchronized (previousWrapper.cachedOrdMaps) {
+      previousOrdMaps = new HashMap<>(previousWrapper.cachedOrdMaps);
+    }
+    if (previousOrdMaps.isEmpty()) {
+      return;
+    }
+
+    final List<LeafReaderContext> leaves = in.leaves();
+    final List<LeafReaderContext> previousLeaves = previousWrapper.in.leaves();
+    final Map<Object,Integer> previousCores = new HashMap<>();
+    for (LeafReaderContext context : previousLeaves) {
+      previousCores.put(context.reader().getCoreCacheKey(), context.ord);
+    }
+    final int[] previousSegments = new int[leaves.size()];
+    int numPreviousSegments = 0;
+    for (LeafReaderContext context : leaves) {
+      final Integer previousSegment = previousCores.get(context.reader().getCoreCacheKey());
+      previousSegments[context.ord] = previousSegment == null ? -1 : previousSegment;
+      if (previousSegment != null) {
+        numPreviousSegments++;
+      }
+    }
+    if (numPreviousSegments != previousLeaves.size()) {
+      // some segments have been merged away
+      return;
+    }
+
+    for (Map.Entry<String,OrdinalMap> entry : previousOrdMaps.entrySet()) {
+      final String field = entry.getKey();
+      final FieldInfo fieldInfo = getFieldInfos().fieldInfo(field);
+      if (fieldInfo == null
+          || (fieldInfo.getDocValuesType() != DocValuesType.SORTED && fieldInfo.getDocValuesType() != DocValuesType.SORTED_SET)) {
+        continue;
+      }
+      synchronized (cachedOrdMaps) {
+        if (cachedOrdMaps.containsKey(field)) {
+          continue;
+        }
+      }
+      final SortedSetDocValues[] values = new SortedSetDocValues[leaves.size()];
+      boolean sameType = true;
+      for (int i = 0; i < values.length && sameType; i++) {
+        final LeafReader reader = leaves.get(i).reader();
+        final FieldInfo leafFieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (leafFieldInfo != null && leafFieldInfo.getDocValuesType() != fieldInfo.getDocValuesType()) {
+          sameType = false;
+        } else {
+          values[i] = DocValues.getSortedSet(reader, field);
+        }
+      }
+      if (sameType == false) {
+        continue;
+      }
+      final OrdinalMap map = OrdinalMap.build(getCoreCacheKey(), values, entry.getValue(), previousSegments, PackedInts.DEFAULT);
+      synchronized (cachedOrdMaps) {
+        cachedOrdMaps.putIfAbsent(field, map);
+      }
+    }
+  }
 
   @Override
   public NumericDocValues getNormValues(String field) throws IOException {
@@ -44,9 +44,12 @@ import org.slf4j.LoggerFactory;
 public class BinaryResponseWriter implements BinaryQueryResponseWriter {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  private boolean writeStoredFieldsDirectly = true;
+
   @Override
   public void write(OutputStream out, SolrQueryRequest req, SolrQueryResponse response) throws IOException {
     Resolver resolver = new Resolver(req, response.getReturnFields());
+    resolver.setWriteStoredFieldsDirectly(writeStoredFieldsDirectly);
     if (req.getParams().getBool(CommonParams.OMIT_HEADER, false)) response.removeResponseHeader();
     new JavaBinCodec(resolver).setWritableDocFields(resolver).marshal(response.getValues(), out);
   }
@@ -63,19 +66,37 @@ public class BinaryResponseWriter implements BinaryQueryResponseWriter {
 
   @Override
   public void init(NamedList args) {
-    /* NOOP */
+    if (args != null) {
+      Object val = args.get("writeStoredFieldsDirectly");
+      if (val != null) {
+        writeStoredFieldsDirectly = Boolean.parseBoolean(val.toString());
+      }
+    }
   }
 
   public static class Resolver implements JavaBinCodec.ObjectResolver , JavaBinCodec.WritableDocFields {
     protected final SolrQueryRequest solrQueryRequest;
     protected IndexSchema schema;
     protected ReturnFields returnFields;
+    protected boolean writeStoredFieldsDirectly;
 
     public Resolver(SolrQueryRequest req, ReturnFields returnFields) {
       solrQueryRequest = req;
       this.returnFields = returnFields;
     }
 
+    /**
+     * If true, documents that need no transformation are written straight from their stored fields instead of
+     * going through {@link JavaBinCodec#writeSolrDocument(SolrDocument)}.  Only enable this if the codec does not
+     * override how documents are written.
+     *
+     * @see DocsStreamer#writeRemaining(JavaBinCodec)
+     */
+    public Resolver setWriteStoredFieldsDirectly(boolean writeStoredFieldsDirectly) {
+      this.writeStoredFieldsDirectly = writeStoredFieldsDirectly;
+      return this;
+    }
+
     @Override
     public Object resolve(Object o, JavaBinCodec codec) throws IOException {
       if (o instanceof ResultContext) {
@@ -120,6 +141,11 @@ public class BinaryResponseWriter implements BinaryQueryResponseWriter {
     protected void writeResultsBody( ResultContext res, JavaBinCodec codec ) throws IOException {
       codec.writeTag(JavaBinCodec.ARR, res.getDocList().size());
       Iterator<SolrDocument> docStreamer = res.getProcessedDocuments();
+      if (writeStoredFieldsDirectly && docStreamer instanceof DocsStreamer
+          && ((DocsStreamer) docStreamer).canWriteStoredFieldsDirectly()) {
+        ((DocsStreamer) docStreamer).writeRemaining(codec);
+        return;
+      }
       while (docStreamer.hasNext()) {
         SolrDocument doc = docStreamer.next();
         codec.writeSolrDocument(doc);
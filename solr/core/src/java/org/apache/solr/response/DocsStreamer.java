@@ -17,17 +17,26 @@
 package org.apache.solr.response;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.response.transform.DocTransformer;
 import org.apache.solr.schema.BinaryField;
 import org.apache.solr.schema.BoolField;
@@ -44,6 +53,8 @@ import org.apache.solr.schema.TrieIntField;
 import org.apache.solr.schema.TrieLongField;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
+import org.apache.solr.search.ReturnFields;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
 
 /**
@@ -63,6 +74,14 @@ public class DocsStreamer implements Iterator<SolrDocument> {
   private Set<String> dvFieldsToReturn;
   private int idx = -1;
 
+  // documents are fetched in batches so that the ones stored close to each other are decompressed together
+  static final int FETCH_BATCH_SIZE = 512;
+  private int[] batchIds;
+  private float[] batchScores;
+  private Document[] batchDocs;
+  private int batchPos;
+  private int batchSize;
+
   public DocsStreamer(ResultContext rctx) {
     this.rctx = rctx;
     this.docs = rctx.getDocList();
@@ -115,11 +134,51 @@ public class DocsStreamer implements Iterator<SolrDocument> {
   }
 
   public boolean hasNext() {
-    return docIterator.hasNext();
+    return batchPos < batchSize || docIterator.hasNext();
+  }
+
+  private void fetchBatch() {
+    if (batchIds == null) {
+      int size = Math.max(1, Math.min(docs.size(), FETCH_BATCH_SIZE));
+      batchIds = new int[size];
+      batchScores = new float[size];
+    }
+    boolean wantsScores = rctx.wantsScores();
+    batchSize = 0;
+    while (batchSize < batchIds.length && docIterator.hasNext()) {
+      batchIds[batchSize] = docIterator.nextDoc();
+      if (wantsScores) {
+        batchScores[batchSize] = docIterator.score();
+      }
+      batchSize++;
+    }
+    batchPos = 0;
+    try {
+      batchDocs = rctx.getSearcher().docs(batchSize == batchIds.length ? batchIds : Arrays.copyOf(batchIds, batchSize), fnames);
+    } catch (IOException e) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error reading documents " + Arrays.toString(Arrays.copyOf(batchIds, batchSize)), e);
+    }
   }
 
   public SolrDocument next() {
-    int id = docIterator.nextDoc();
+    int id;
+    float score = 0;
+    Document doc = null;
+    if (onlyPseudoFields) {
+      id = docIterator.nextDoc();
+      if (rctx.wantsScores()) {
+        score = docIterator.score();
+      }
+    } else {
+      if (batchPos == batchSize) {
+        fetchBatch();
+      }
+      id = batchIds[batchPos];
+      score = batchScores[batchPos];
+      doc = batchDocs[batchPos];
+      batchDocs[batchPos] = null;
+      batchPos++;
+    }
     idx++;
     SolrDocument sdoc = null;
 
@@ -128,7 +187,6 @@ public class DocsStreamer implements Iterator<SolrDocument> {
       sdoc = new SolrDocument();
     } else {
       try {
-        Document doc = rctx.getSearcher().doc(id, fnames);
         sdoc = getDoc(doc, rctx.getSearcher().getSchema()); // make sure to use the schema from the searcher and not the request (cross-core)
 
         // decorate the document with non-stored docValues fields
@@ -141,9 +199,8 @@ public class DocsStreamer implements Iterator<SolrDocument> {
     }
 
     if (transformer != null) {
-      boolean doScore = rctx.wantsScores();
       try {
-        transformer.transform(sdoc, id, doScore ? docIterator.score() : 0);
+        transformer.transform(sdoc, id, score);
       } catch (IOException e) {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error applying transformer", e);
       }
@@ -152,6 +209,164 @@ public class DocsStreamer implements Iterator<SolrDocument> {
 
   }
 
+  /**
+   * Returns true if the remaining documents can be written with {@link #writeRemaining(JavaBinCodec)}, which is the
+   * case when no transformer needs the {@link SolrDocument}s.
+   */
+  public boolean canWriteStoredFieldsDirectly() {
+    return transformer == null && !onlyPseudoFields && batchPos == batchSize;
+  }
+
+  /**
+   * Writes the remaining documents in the same format as {@link JavaBinCodec#writeSolrDocument(SolrDocument)} but
+   * without building a {@link SolrDocument} first. Documents that are not in the document cache are written straight
+   * from the stored fields, String values being copied as UTF-8 bytes, and cached from the same read.
+   */
+  public void writeRemaining(JavaBinCodec codec) throws IOException {
+    SolrIndexSearcher searcher = rctx.getSearcher();
+    ReturnFields returnFields = rctx.getReturnFields();
+    StoredFieldsCollector collector = new StoredFieldsCollector(searcher.getSchema(), returnFields);
+    SolrDocument dvDoc = dvFieldsToReturn == null ? null : new SolrDocument();
+
+    while (docIterator.hasNext()) {
+      int id = docIterator.nextDoc();
+      idx++;
+      collector.reset();
+      searcher.doc(id, fnames, collector);
+
+      int numFields = collector.size();
+      if (dvDoc != null) {
+        dvDoc.clear();
+        searcher.decorateDocValueFields(dvDoc, id, dvFieldsToReturn);
+        numFields += dvDoc.size();
+      }
+
+      codec.writeTag(JavaBinCodec.SOLRDOC);
+      codec.writeTag(JavaBinCodec.ORDERED_MAP, numFields);
+      collector.write(codec);
+      if (dvDoc != null) {
+        for (Map.Entry<String, Object> entry : dvDoc) {
+          codec.writeExternString(entry.getKey());
+          codec.writeVal(entry.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the requested stored fields of a document. Values of types that {@link #getValue(SchemaField,
+   * IndexableField)} would only unwrap are kept as is, strings as their UTF-8 bytes, anything else as a
+   * {@link StoredField} so that the codec's resolver converts it like it does for the fields of a {@link Document}.
+   */
+  private static class StoredFieldsCollector extends StoredFieldVisitor {
+    private final IndexSchema schema;
+    private final ReturnFields returnFields;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, List<Object>> values = new HashMap<>();
+
+    StoredFieldsCollector(IndexSchema schema, ReturnFields returnFields) {
+      this.schema = schema;
+      this.returnFields = returnFields;
+    }
+
+    void reset() {
+      for (String name : names) {
+        values.get(name).clear();
+      }
+      names.clear();
+    }
+
+    int size() {
+      return names.size();
+    }
+
+    private void add(String name, Object value) {
+      List<Object> vals = values.get(name);
+      if (vals == null) {
+        vals = new ArrayList<>();
+        values.put(name, vals);
+      }
+      if (vals.isEmpty()) {
+        names.add(name);
+      }
+      vals.add(value);
+    }
+
+    private FieldType getType(String name) {
+      SchemaField sf = schema.getFieldOrNull(name);
+      return sf == null ? null : sf.getType();
+    }
+
+    void write(JavaBinCodec codec) throws IOException {
+      for (String name : names) {
+        List<Object> vals = values.get(name);
+        SchemaField sf = schema.getFieldOrNull(name);
+        codec.writeExternString(name);
+        if ((sf != null && sf.multiValued()) || vals.size() > 1) {
+          codec.writeTag(JavaBinCodec.ARR, vals.size());
+        }
+        for (Object val : vals) {
+          if (val instanceof byte[]) {
+            byte[] utf8 = (byte[]) val;
+            codec.writeUTF8Str(utf8, 0, utf8.length);
+          } else {
+            codec.writeVal(val);
+          }
+        }
+      }
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) throws IOException {
+      return returnFields.wantsField(fieldInfo.name) ? Status.YES : Status.NO;
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      FieldType ft = getType(fieldInfo.name);
+      if (ft == null || ft.getClass() == StrField.class || ft.getClass() == TextField.class) {
+        add(fieldInfo.name, value);
+      } else {
+        add(fieldInfo.name, new StoredField(fieldInfo.name, new String(value, StandardCharsets.UTF_8)));
+      }
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      add(fieldInfo.name, new StoredField(fieldInfo.name, value));
+    }
+
+    @Override
+    public void intField(FieldInfo fieldInfo, int value) throws IOException {
+      FieldType ft = getType(fieldInfo.name);
+      add(fieldInfo.name, ft != null && ft.getClass() == TrieIntField.class ? value : new StoredField(fieldInfo.name, value));
+    }
+
+    @Override
+    public void longField(FieldInfo fieldInfo, long value) throws IOException {
+      FieldType ft = getType(fieldInfo.name);
+      if (ft != null && ft.getClass() == TrieLongField.class) {
+        add(fieldInfo.name, value);
+      } else if (ft != null && ft.getClass() == TrieDateField.class) {
+        add(fieldInfo.name, new Date(value));
+      } else {
+        add(fieldInfo.name, new StoredField(fieldInfo.name, value));
+      }
+    }
+
+    @Override
+    public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+      FieldType ft = getType(fieldInfo.name);
+      add(fieldInfo.name, ft != null && ft.getClass() == TrieFloatField.class ? value : new StoredField(fieldInfo.name, value));
+    }
+
+    @Override
+    public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+      FieldType ft = getType(fieldInfo.name);
+      add(fieldInfo.name, ft != null && ft.getClass() == TrieDoubleField.class ? value : new StoredField(fieldInfo.name, value));
+    }
+  }
+
   public static SolrDocument getDoc(Document doc, final IndexSchema schema) {
     SolrDocument out = new SolrDocument();
     for (IndexableField f : doc.getFields()) {
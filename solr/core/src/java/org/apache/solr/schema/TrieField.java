@@ -44,7 +44,10 @@ import org.apache.lucene.queries.function.valuesource.FloatFieldSource;
 import org.apache.lucene.queries.function.valuesource.IntFieldSource;
 import org.apache.lucene.queries.function.valuesource.LongFieldSource;
 import org.apache.lucene.search.DocValuesRangeQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.IndexSortDocValuesRangeQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.SortedSetSelector;
 import org.apache.lucene.util.BytesRef;
@@ -58,6 +61,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.response.TextResponseWriter;
 import org.apache.solr.search.FunctionRangeQuery;
 import org.apache.solr.search.QParser;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.function.ValueSourceRangeFilter;
 import org.apache.solr.uninverting.UninvertingReader.Type;
 import org.apache.solr.util.DateMathParser;
@@ -372,71 +376,106 @@ public class TrieField extends PrimitiveFieldType {
     }
     int ps = precisionStep;
     Query query;
+    Query dvQuery = null;
+    // bounds of the doc values of INTEGER, LONG and DATE fields
+    boolean longValues = false;
+    Long lowerValue = null, upperValue = null;
     final boolean matchOnly = field.hasDocValues() && !field.indexed();
+    // single-valued fields that have both points in the index and doc values
+    // can use the latter to verify matches when another clause leads iteration
+    final boolean indexOrDocValues = field.hasDocValues() && field.indexed() && !field.multiValued();
     switch (type) {
-      case INTEGER:
-        if (matchOnly) {
-          query = DocValuesRangeQuery.newLongRange(field.getName(),
-                min == null ? null : (long) Integer.parseInt(min),
-                max == null ? null : (long) Integer.parseInt(max),
+      case INTEGER: {
+        final Integer minVal = min == null ? null : Integer.parseInt(min);
+        final Integer maxVal = max == null ? null : Integer.parseInt(max);
+        longValues = true;
+        lowerValue = minVal == null ? null : (long) minVal.intValue();
+        upperValue = maxVal == null ? null : (long) maxVal.intValue();
+        if (matchOnly || indexOrDocValues) {
+          dvQuery = DocValuesRangeQuery.newLongRange(field.getName(),
+                minVal == null ? null : (long) minVal.intValue(),
+                maxVal == null ? null : (long) maxVal.intValue(),
                 minInclusive, maxInclusive);
-        } else {
-          query = LegacyNumericRangeQuery.newIntRange(field.getName(), ps,
-              min == null ? null : Integer.parseInt(min),
-              max == null ? null : Integer.parseInt(max),
-              minInclusive, maxInclusive);
         }
+        query = LegacyNumericRangeQuery.newIntRange(field.getName(), ps,
+            minVal, maxVal, minInclusive, maxInclusive);
         break;
+      }
       case FLOAT:
-        if (matchOnly) {
-          return getRangeQueryForFloatDoubleDocValues(field, min, max, minInclusive, maxInclusive);
-        } else {
-          query = LegacyNumericRangeQuery.newFloatRange(field.getName(), ps,
-              min == null ? null : Float.parseFloat(min),
-              max == null ? null : Float.parseFloat(max),
-              minInclusive, maxInclusive);
+        if (matchOnly || indexOrDocValues) {
+          dvQuery = getRangeQueryForFloatDoubleDocValues(field, min, max, minInclusive, maxInclusive);
         }
+        query = LegacyNumericRangeQuery.newFloatRange(field.getName(), ps,
+            min == null ? null : Float.parseFloat(min),
+            max == null ? null : Float.parseFloat(max),
+            minInclusive, maxInclusive);
         break;
-      case LONG:
-        if (matchOnly) {
-          query = DocValuesRangeQuery.newLongRange(field.getName(),
-                min == null ? null : Long.parseLong(min),
-                max == null ? null : Long.parseLong(max),
-                minInclusive, maxInclusive);
-        } else {
-          query = LegacyNumericRangeQuery.newLongRange(field.getName(), ps,
-              min == null ? null : Long.parseLong(min),
-              max == null ? null : Long.parseLong(max),
-              minInclusive, maxInclusive);
+      case LONG: {
+        final Long minVal = min == null ? null : Long.parseLong(min);
+        final Long maxVal = max == null ? null : Long.parseLong(max);
+        longValues = true;
+        lowerValue = minVal;
+        upperValue = maxVal;
+        if (matchOnly || indexOrDocValues) {
+          dvQuery = DocValuesRangeQuery.newLongRange(field.getName(), minVal, maxVal, minInclusive, maxInclusive);
         }
+        query = LegacyNumericRangeQuery.newLongRange(field.getName(), ps,
+            minVal, maxVal, minInclusive, maxInclusive);
         break;
+      }
       case DOUBLE:
-        if (matchOnly) {
-          return getRangeQueryForFloatDoubleDocValues(field, min, max, minInclusive, maxInclusive);
-        } else {
-          query = LegacyNumericRangeQuery.newDoubleRange(field.getName(), ps,
-              min == null ? null : Double.parseDouble(min),
-              max == null ? null : Double.parseDouble(max),
-              minInclusive, maxInclusive);
+        if (matchOnly || indexOrDocValues) {
+          dvQuery = getRangeQueryForFloatDoubleDocValues(field, min, max, minInclusive, maxInclusive);
         }
+        query = LegacyNumericRangeQuery.newDoubleRange(field.getName(), ps,
+            min == null ? null : Double.parseDouble(min),
+            max == null ? null : Double.parseDouble(max),
+            minInclusive, maxInclusive);
         break;
-      case DATE:
-        if (matchOnly) {
-          query = DocValuesRangeQuery.newLongRange(field.getName(),
-                min == null ? null : DateMathParser.parseMath(null, min).getTime(),
-                max == null ? null : DateMathParser.parseMath(null, max).getTime(),
-                minInclusive, maxInclusive);
-        } else {
-          query = LegacyNumericRangeQuery.newLongRange(field.getName(), ps,
-              min == null ? null : DateMathParser.parseMath(null, min).getTime(),
-              max == null ? null : DateMathParser.parseMath(null, max).getTime(),
-              minInclusive, maxInclusive);
+      case DATE: {
+        final Long minVal = min == null ? null : DateMathParser.parseMath(null, min).getTime();
+        final Long maxVal = max == null ? null : DateMathParser.parseMath(null, max).getTime();
+        longValues = true;
+        lowerValue = minVal;
+        upperValue = maxVal;
+        if (matchOnly || indexOrDocValues) {
+          dvQuery = DocValuesRangeQuery.newLongRange(field.getName(), minVal, maxVal, minInclusive, maxInclusive);
         }
+        query = LegacyNumericRangeQuery.newLongRange(field.getName(), ps,
+            minVal, maxVal, minInclusive, maxInclusive);
         break;
+      }
       default:
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Unknown type for trie field");
     }
 
+    if (matchOnly) {
+      query = dvQuery;
+    } else if (indexOrDocValues && dvQuery instanceof FunctionRangeQuery == false) {
+      // function range queries also match documents that have no value, so
+      // they can only be used when doc values are the only option
+      query = new IndexOrDocValuesQuery(query, dvQuery);
+    }
+
+    if (longValues && field.hasDocValues() && !field.multiValued()
+        && isPrimaryIndexSortField(parser, field.getName())) {
+      // on segments that are sorted by this field, matches are a contiguous range of doc ids
+      long lower = lowerValue == null ? Long.MIN_VALUE : lowerValue;
+      long upper = upperValue == null ? Long.MAX_VALUE : upperValue;
+      if (lowerValue != null && !minInclusive) {
+        if (lower == Long.MAX_VALUE) {
+          return query;
+        }
+        lower++;
+      }
+      if (upperValue != null && !maxInclusive) {
+        if (upper == Long.MIN_VALUE) {
+          return query;
+        }
+        upper--;
+      }
+      query = new IndexSortDocValuesRangeQuery(field.getName(), lower, upper, query);
+    }
     return query;
   }
 
@@ -486,9 +525,31 @@ public class TrieField extends PrimitiveFieldType {
     return query;
   }
 
+  /**
+   * Returns true if the index config sorts segments by the given field first, see
+   * {@link org.apache.solr.index.SortingMergePolicy}. This does not depend on the live
+   * segments so that parsing the same query always gives the same result.
+   */
+  private static boolean isPrimaryIndexSortField(QParser parser, String fieldName) {
+    if (parser == null || parser.getReq() == null) {
+      return false;
+    }
+    final SolrIndexSearcher searcher = parser.getReq().getSearcher();
+    if (searcher == null) {
+      return false;
+    }
+    final Sort indexSort = searcher.getIndexSort();
+    return indexSort != null && fieldName.equals(indexSort.getSort()[0].getField());
+  }
+
   @Override
   public Query getFieldQuery(QParser parser, SchemaField field, String externalVal) {
-    if (!field.indexed() && field.hasDocValues()) {
+    if (field.hasDocValues() && !field.multiValued()
+        && (type == TrieTypes.INTEGER || type == TrieTypes.LONG || type == TrieTypes.DATE)
+        && isPrimaryIndexSortField(parser, field.getName())) {
+      // a singleton range can be answered from the index sort
+      return getRangeQuery(parser, field, externalVal, externalVal, true, true);
+    } else if (!field.indexed() && field.hasDocValues()) {
       // currently implemented as singleton range
       return getRangeQuery(parser, field, externalVal, externalVal, true, true);
     } else {
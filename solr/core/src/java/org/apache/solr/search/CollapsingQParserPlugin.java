@@ -16,7 +16,9 @@
  */
 package org.apache.solr.search;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -468,8 +470,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private SortedDocValues segmentValues;
     private LongValues segmentOrdinalMap;
     private MultiDocValues.MultiSortedDocValues multiSortedDocValues;
-    private int[] ords;
-    private float[] scores;
+    private OrdScoreGroupHeads groupHeads;
     private int maxDoc;
     private int nullPolicy;
     private float nullScore = -Float.MAX_VALUE;
@@ -496,10 +497,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues)collapseValues;
         this.ordinalMap = multiSortedDocValues.mapping;
       }
-      this.ords = new int[valueCount];
-      Arrays.fill(this.ords, -1);
-      this.scores = new float[valueCount];
-      Arrays.fill(this.scores, -Float.MAX_VALUE);
+      this.groupHeads = new OrdScoreGroupHeads(valueCount);
       this.nullPolicy = nullPolicy;
       if(nullPolicy == CollapsingPostFilter.NULL_POLICY_EXPAND) {
         nullScores = new FloatArrayList();
@@ -570,11 +568,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
 
       if(ord > -1) {
-        float score = scorer.score();
-        if(score > scores[ord]) {
-          ords[ord] = globalDoc;
-          scores[ord] = score;
-        }
+        groupHeads.collect(ord, globalDoc, scorer.score());
       } else if(nullPolicy == CollapsingPostFilter.NULL_POLICY_COLLAPSE) {
         float score = scorer.score();
         if(score > nullScore) {
@@ -604,7 +598,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
           int ord = this.boostOrds.get(i);
           if(ord > -1) {
             //Remove any group heads that are in the same groups as boosted documents.
-            ords[ord] = -1;
+            groupHeads.removeHead(ord);
           }
           //Add the boosted docs to the collapsedSet
           this.collapsedSet.set(boostDocs.get(i));
@@ -613,12 +607,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
 
       //Build the sorted DocSet of group heads.
-      for(int i=0; i<ords.length; i++) {
-        int doc = ords[i];
-        if(doc > -1) {
-          collapsedSet.set(doc);
-        }
-      }
+      groupHeads.addHeads(collapsedSet);
 
       int currentContext = 0;
       int currentDocBase = 0;
@@ -679,7 +668,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
 
         if(ord > -1) {
-          dummy.score = scores[ord];
+          dummy.score = groupHeads.score(ord);
         } else if(boosts && mergeBoost.boost(docId)) {
           //Ignore so it doesn't mess up the null scoring.
         } else if(this.nullPolicy == CollapsingPostFilter.NULL_POLICY_COLLAPSE) {
@@ -698,6 +687,183 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     }
   }
 
+  /*
+  * The group heads of the OrdScoreCollector: the top scoring doc and its score per global ordinal.
+  * Heads start out in a hash map, so that queries that only hit a few groups don't allocate arrays
+  * sized to the number of unique values of the collapse field. Once more than 1/DENSE_RATIO of the
+  * ordinals have a head, the map would use more memory than arrays, so heads move to arrays indexed
+  * by ordinal. These are borrowed from a small pool and given back when the request is closed (the
+  * collector may be used for several searches, eg. by grouping), so that dense collapses don't
+  * allocate them on every request. The pool is bounded by MAX_POOLED_BYTES, so the arrays of very
+  * high cardinality fields are never kept, and it only hands out arrays that are at most twice as
+  * large as needed.
+  */
+
+  static final class OrdScoreGroupHeads implements Closeable {
+
+    private static final int DENSE_RATIO = 8;
+    static final long MAX_POOLED_BYTES = 64 * 1024 * 1024;
+    private static final ArrayDeque<DenseHeads> POOL = new ArrayDeque<>();
+    private static long pooledBytes;
+
+    private final int valueCount;
+    private IntLongHashMap sparseHeads = new IntLongHashMap();
+    private DenseHeads denseHeads;
+
+    OrdScoreGroupHeads(int valueCount) {
+      this.valueCount = valueCount;
+    }
+
+    boolean isDense() {
+      return denseHeads != null;
+    }
+
+    int denseCapacity() {
+      return denseHeads == null ? 0 : denseHeads.docs.length;
+    }
+
+    /** Makes doc the head of its group if its score is greater than the score of the current head. */
+    void collect(int ord, int doc, float score) {
+      if(denseHeads != null) {
+        if(score > denseHeads.scores[ord]) {
+          denseHeads.docs[ord] = doc;
+          denseHeads.scores[ord] = score;
+        }
+      } else {
+        int index = sparseHeads.indexOf(ord);
+        if(sparseHeads.indexExists(index)) {
+          if(score > headScore(sparseHeads.indexGet(index))) {
+            sparseHeads.indexReplace(index, pack(doc, score));
+          }
+        } else if(score > -Float.MAX_VALUE) {
+          sparseHeads.indexInsert(index, ord, pack(doc, score));
+          if(sparseHeads.size() > valueCount / DENSE_RATIO) {
+            toDense();
+          }
+        }
+      }
+    }
+
+    /** Removes the head of a group, but keeps its score. */
+    void removeHead(int ord) {
+      if(denseHeads != null) {
+        denseHeads.docs[ord] = -1;
+      } else {
+        int index = sparseHeads.indexOf(ord);
+        if(sparseHeads.indexExists(index)) {
+          sparseHeads.indexReplace(index, pack(-1, headScore(sparseHeads.indexGet(index))));
+        }
+      }
+    }
+
+    /** Returns the score of the head of a group, or -Float.MAX_VALUE if the group has no head. */
+    float score(int ord) {
+      if(denseHeads != null) {
+        return denseHeads.scores[ord];
+      }
+      int index = sparseHeads.indexOf(ord);
+      return sparseHeads.indexExists(index) ? headScore(sparseHeads.indexGet(index)) : -Float.MAX_VALUE;
+    }
+
+    /** Sets the docs of all the group heads in the given set. */
+    void addHeads(FixedBitSet collapsedSet) {
+      if(denseHeads != null) {
+        int[] docs = denseHeads.docs;
+        for(int i=0; i<valueCount; i++) {
+          int doc = docs[i];
+          if(doc > -1) {
+            collapsedSet.set(doc);
+          }
+        }
+      } else {
+        for(IntLongCursor cursor : sparseHeads) {
+          int doc = headDoc(cursor.value);
+          if(doc > -1) {
+            collapsedSet.set(doc);
+          }
+        }
+      }
+    }
+
+    /** Gives the arrays back to the pool, the heads can't be used anymore after this call. */
+    @Override
+    public void close() {
+      if(denseHeads != null) {
+        synchronized(POOL) {
+          if(pooledBytes + denseHeads.bytes() <= MAX_POOLED_BYTES) {
+            POOL.push(denseHeads);
+            pooledBytes += denseHeads.bytes();
+          }
+        }
+        denseHeads = null;
+      }
+      sparseHeads = null;
+    }
+
+    private void toDense() {
+      denseHeads = borrow(valueCount);
+      SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+      if(info != null) {
+        info.addCloseHook(this);
+      }
+      Arrays.fill(denseHeads.docs, 0, valueCount, -1);
+      Arrays.fill(denseHeads.scores, 0, valueCount, -Float.MAX_VALUE);
+      for(IntLongCursor cursor : sparseHeads) {
+        denseHeads.docs[cursor.key] = headDoc(cursor.value);
+        denseHeads.scores[cursor.key] = headScore(cursor.value);
+      }
+      sparseHeads = null;
+    }
+
+    private static DenseHeads borrow(int size) {
+      synchronized(POOL) {
+        Iterator<DenseHeads> it = POOL.iterator();
+        while(it.hasNext()) {
+          DenseHeads heads = it.next();
+          // don't hand out arrays that would mostly be unused
+          if(heads.docs.length >= size && heads.docs.length / 2 <= size) {
+            it.remove();
+            pooledBytes -= heads.bytes();
+            return heads;
+          }
+        }
+      }
+      return new DenseHeads(size);
+    }
+
+    static long pooledBytes() {
+      synchronized(POOL) {
+        return pooledBytes;
+      }
+    }
+
+    private static long pack(int doc, float score) {
+      return ((long) Float.floatToRawIntBits(score)) << 32 | (doc & 0xFFFFFFFFL);
+    }
+
+    private static int headDoc(long head) {
+      return (int) head;
+    }
+
+    private static float headScore(long head) {
+      return Float.intBitsToFloat((int) (head >>> 32));
+    }
+
+    private static final class DenseHeads {
+      final int[] docs;
+      final float[] scores;
+
+      DenseHeads(int size) {
+        this.docs = new int[size];
+        this.scores = new float[size];
+      }
+
+      long bytes() {
+        return (long) docs.length * (Integer.BYTES + Float.BYTES);
+      }
+    }
+  }
+
   /*
   * Collapses on an integer field using the score to select the group head.
   */
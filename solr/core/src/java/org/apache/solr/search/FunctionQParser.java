@@ -16,6 +16,7 @@
  */
 package org.apache.solr.search;
 
+import org.apache.lucene.expressions.ValueSourceCompiler;
 import org.apache.lucene.queries.function.FunctionQuery;
 import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.queries.function.valuesource.*;
@@ -39,6 +40,8 @@ public class FunctionQParser extends QParser {
   public StrParser sp;
   boolean parseMultipleSources = true;
   boolean parseToEnd = true;
+  /** the parsed function before compilation, so that it can be nested in other functions */
+  ValueSource parsedValueSource;
 
   public FunctionQParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
     super(qstr, localParams, params, req);
@@ -108,8 +111,10 @@ public class FunctionQParser extends QParser {
     if (lst != null) {
       vs = new VectorValueSource(lst);
     }
+    parsedValueSource = vs;
 
-    return new FunctionQuery(vs);
+    // evaluate the arithmetic of the function with generated code instead of walking the tree
+    return new FunctionQuery(ValueSourceCompiler.compile(vs));
   }
 
   /**
@@ -319,7 +324,10 @@ public class FunctionQParser extends QParser {
         ((FunctionQParser)subParser).setParseMultipleSources(true);
       }
       Query subQuery = subParser.getQuery();
-      if (subQuery instanceof FunctionQuery) {
+      if (subParser instanceof FunctionQParser && ((FunctionQParser) subParser).parsedValueSource != null) {
+        // nest the function as parsed, it is compiled along with this one
+        valueSource = ((FunctionQParser) subParser).parsedValueSource;
+      } else if (subQuery instanceof FunctionQuery) {
         valueSource = ((FunctionQuery) subQuery).getValueSource();
       } else {
         valueSource = new QueryValueSource(subQuery, 0.0f);
@@ -23,11 +23,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.Fields;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiPostingsEnum;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.ConstantScoreScorer;
@@ -42,6 +45,7 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.StringHelper;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
@@ -52,6 +56,7 @@ import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.request.LocalSolrQueryRequest;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.schema.SchemaField;
 import org.apache.solr.schema.TrieField;
 import org.apache.solr.search.join.ScoreJoinQParserPlugin;
 import org.apache.solr.util.RTimer;
@@ -59,6 +64,16 @@ import org.apache.solr.util.RefCounted;
 
 public class JoinQParserPlugin extends QParserPlugin {
   public static final String NAME = "join";
+  /** Local param to choose how the join is computed */
+  public static final String METHOD = "method";
+  /** Joins by enumerating the terms of the from field and seeking them in the to field (default) */
+  public static final String METHOD_INDEX = "index";
+  /**
+   * Joins by collecting the global ordinals of the from field for the docs matching the from query
+   * and then selecting the docs whose to field has one of the matching global ordinals. Both fields
+   * must be string fields. Global ordinals come from per-searcher cached ordinal maps.
+   */
+  public static final String METHOD_GLOBAL_ORDS = "globalOrds";
 
   @Override
   public QParser createParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
@@ -78,8 +93,14 @@ public class JoinQParserPlugin extends QParserPlugin {
         final String fromIndex = getParam("fromIndex");
         final String toField = getParam("to");
         final String v = localParams.get("v");
+        final String method = getParam(METHOD);
         final String coreName;
 
+        if (method != null && !METHOD_INDEX.equals(method) && !METHOD_GLOBAL_ORDS.equals(method)) {
+          throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+              "Unknown join method " + method + ", expected " + METHOD_INDEX + " or " + METHOD_GLOBAL_ORDS);
+        }
+
         Query fromQuery;
         long fromCoreOpenTime = 0;
 
@@ -116,6 +137,7 @@ public class JoinQParserPlugin extends QParserPlugin {
 
         JoinQuery jq = new JoinQuery(fromField, toField, coreName == null ? fromIndex : coreName, fromQuery);
         jq.fromCoreOpenTime = fromCoreOpenTime;
+        jq.useGlobalOrds = METHOD_GLOBAL_ORDS.equals(method);
         return jq;
       }
     };
@@ -130,6 +152,7 @@ class JoinQuery extends Query {
   String fromIndex;
   Query q;
   long fromCoreOpenTime;
+  boolean useGlobalOrds;
 
   public JoinQuery(String fromField, String toField, String fromIndex, Query subQuery) {
     this.fromField = fromField;
@@ -245,6 +268,11 @@ class JoinQuery extends Query {
           dbg.add("smallSetsDeferred", smallSetsDeferred);
           dbg.add("toSetDocsAdded", resultListDocs);
 
+          if (useGlobalOrds) {
+            dbg.add("fromOrdCount", fromOrdCount);
+            dbg.add("toOrdCount", toOrdCount);
+          }
+
           // TODO: perhaps synchronize  addDebug in the future...
           rb.addDebug(dbg, "join", JoinQuery.this.toString());
         }
@@ -276,9 +304,15 @@ class JoinQuery extends Query {
     long toTermHitsTotalDf;   // sum of the df for the toTermHits
     int toTermDirectCount;    // number of toTerms that we set directly on a bitset rather than doing set intersections
     int smallSetsDeferred;    // number of small sets collected to be used later to intersect w/ bitset or create another small set
+    long fromOrdCount;        // number of global ords of the from field that matched the from query
+    long toOrdCount;          // number of global ords of the to field that these were mapped to
 
 
     public DocSet getDocSet() throws IOException {
+      if (useGlobalOrds) {
+        return getDocSetFromGlobalOrds();
+      }
+
       FixedBitSet resultBits = null;
 
       // minimum docFreq to use the cache
@@ -496,12 +530,99 @@ class JoinQuery extends Query {
       return new SortedIntDocSet(dedup, dedup.length);
     }
 
+    private DocSet getDocSetFromGlobalOrds() throws IOException {
+      DocSet fromSet = fromSearcher.getDocSet(q);
+      fromSetSize = fromSet.size();
+
+      // mark the global ords of the from values of the docs matching the from query
+      SortedSetDocValues fromValues = getGlobalValues(fromSearcher, fromField);
+      LongBitSet fromOrds = new LongBitSet(fromValues.getValueCount());
+      DocIterator it = fromSet.iterator();
+      while (it.hasNext()) {
+        int doc = it.nextDoc();
+        if (doc > fromValues.docID()) {
+          fromValues.advance(doc);
+        }
+        if (doc == fromValues.docID()) {
+          for (long ord = fromValues.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = fromValues.nextOrd()) {
+            fromOrds.set(ord);
+          }
+        }
+      }
+      fromOrdCount = fromOrds.cardinality();
+      if (fromOrdCount == 0) {
+        return DocSet.EMPTY;
+      }
+
+      // map them to the global ords of the to field, unless both are the same
+      LongBitSet toOrds;
+      if (fromSearcher == toSearcher && fromField.equals(toField)) {
+        toOrds = fromOrds;
+      } else {
+        SortedSetDocValues toValues = getGlobalValues(toSearcher, toField);
+        toOrds = new LongBitSet(toValues.getValueCount());
+        TermsEnum toTermsEnum = toValues.termsEnum();
+        for (long ord = fromOrds.nextSetBit(0); ord != -1; ord = ord + 1 < fromOrds.length() ? fromOrds.nextSetBit(ord + 1) : -1) {
+          // from terms are visited in order, so seeks in the to terms only move forward
+          TermsEnum.SeekStatus status = toTermsEnum.seekCeil(fromValues.lookupOrd(ord));
+          if (status == TermsEnum.SeekStatus.END) {
+            break;
+          } else if (status == TermsEnum.SeekStatus.FOUND) {
+            toOrds.set(toTermsEnum.ord());
+          }
+        }
+      }
+      toOrdCount = toOrds.cardinality();
+      if (toOrdCount == 0) {
+        return DocSet.EMPTY;
+      }
+
+      // select the live docs of the to side that have one of these ords
+      SortedSetDocValues toValues = getGlobalValues(toSearcher, toField);
+      Bits toLiveDocs = toSearcher.getSlowAtomicReader().getLiveDocs();
+      FixedBitSet resultBits = new FixedBitSet(toSearcher.maxDoc());
+      for (int doc = toValues.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = toValues.nextDoc()) {
+        if (toLiveDocs != null && !toLiveDocs.get(doc)) {
+          continue;
+        }
+        for (long ord = toValues.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = toValues.nextOrd()) {
+          if (toOrds.get(ord)) {
+            resultBits.set(doc);
+            resultListDocs++;
+            break;
+          }
+        }
+      }
+      return new BitDocSet(resultBits);
+    }
+
+    /** Returns the doc values of a string field over the whole index, whose ordinal map is cached by the searcher. */
+    private SortedSetDocValues getGlobalValues(SolrIndexSearcher searcher, String field) throws IOException {
+      SchemaField sf = searcher.getSchema().getField(field);
+      if (sf.getType().getNumericType() != null) {
+        throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+            "Join method " + JoinQParserPlugin.METHOD_GLOBAL_ORDS + " requires string fields, got numeric field " + field);
+      }
+      LeafReader reader = searcher.getSlowAtomicReader();
+      try {
+        if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+          return DocValues.getSortedSet(reader, field);
+        } else {
+          return DocValues.singleton(DocValues.getSorted(reader, field));
+        }
+      } catch (IllegalStateException e) {
+        throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
+            "Join method " + JoinQParserPlugin.METHOD_GLOBAL_ORDS + " can't be used on field " + field + ": " + e.getMessage(), e);
+      }
+    }
+
   }
 
   @Override
   public String toString(String field) {
     return "{!join from="+fromField+" to="+toField
         + (fromIndex != null ? " fromIndex="+fromIndex : "")
+        + (useGlobalOrds ? " method="+JoinQParserPlugin.METHOD_GLOBAL_ORDS : "")
         +"}"+q.toString();
   }
 
@@ -516,7 +637,8 @@ class JoinQuery extends Query {
         && this.toField.equals(other.toField)
         && this.q.equals(other.q)
         && Objects.equals(fromIndex, other.fromIndex)
-        && this.fromCoreOpenTime == other.fromCoreOpenTime;
+        && this.fromCoreOpenTime == other.fromCoreOpenTime
+        && this.useGlobalOrds == other.useGlobalOrds;
   }
 
   @Override
@@ -527,6 +649,7 @@ class JoinQuery extends Query {
     h = h * 31 + q.hashCode();
     h = h * 31 + Objects.hashCode(fromIndex);
     h = h * 31 + (int) fromCoreOpenTime;
+    h = h * 31 + Boolean.hashCode(useGlobalOrds);
     return h;
   }
 
@@ -23,6 +23,8 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.IndexSortDocValuesRangeQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
@@ -324,6 +326,12 @@ public class QueryParsing {
       }
 
       out.append(q.includesMax() ? ']' : '}');
+    } else if (query instanceof IndexSortDocValuesRangeQuery) {
+      // matches the same documents as its fallback query, which is more readable
+      toString(((IndexSortDocValuesRangeQuery) query).getFallbackQuery(), schema, out, flags);
+    } else if (query instanceof IndexOrDocValuesQuery) {
+      // both queries match the same documents, the index one is more readable
+      toString(((IndexOrDocValuesQuery) query).getIndexQuery(), schema, out, flags);
     } else if (query instanceof BooleanQuery) {
       BooleanQuery q = (BooleanQuery) query;
       boolean needParens = false;
@@ -29,6 +29,7 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
 import org.apache.lucene.search.Weight;
 
 /**
@@ -101,6 +102,11 @@ public class SolrConstantScoreQuery extends Query implements ExtendedQuery {
       if (iterator == null) {
         return null;
       }
+      // keep two-phase iteration, eg. of function range filters, so that conjunctions only verify their candidates
+      TwoPhaseIterator twoPhase = TwoPhaseIterator.unwrap(iterator);
+      if (twoPhase != null) {
+        return new ConstantScoreScorer(this, score(), twoPhase);
+      }
       return new ConstantScoreScorer(this, score(), iterator);
     }
 
@@ -18,6 +18,7 @@ package org.apache.solr.search;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -39,6 +40,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.LazyDocument;
@@ -50,11 +52,13 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.ConstantScoreScorer;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.EarlyTerminatingSortingCollector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.FilterWeight;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -62,6 +66,7 @@ import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.SimpleCollector;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
@@ -130,6 +135,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private static final Map<String,SolrCache> NO_GENERIC_CACHES = Collections.emptyMap();
   private static final SolrCache[] NO_CACHES = new SolrCache[0];
 
+  // stored documents that are at most this many ids apart are likely to be in the same compressed block
+  private static final int MAX_SHARED_BLOCK_DOC_GAP = 16;
+
   private final SolrCore core;
   private final IndexSchema schema;
 
@@ -145,6 +153,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final int queryResultMaxDocsCached;
   private final boolean useFilterForSortedQuery;
   public final boolean enableLazyFieldLoading;
+  private final Sort indexSort;
 
   private final boolean cachingEnabled;
   private final SolrCache<Query,DocSet> filterCache;
@@ -303,6 +312,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.queryResultMaxDocsCached = solrConfig.queryResultMaxDocsCached;
     this.useFilterForSortedQuery = solrConfig.useFilterForSortedQuery;
     this.enableLazyFieldLoading = solrConfig.enableLazyFieldLoading;
+    this.indexSort = solrConfig.indexConfig.getIndexSort(schema);
 
     this.cachingEnabled = enableCache;
     if (cachingEnabled) {
@@ -520,6 +530,14 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return schema;
   }
 
+  /**
+   * Returns the sort that the index config sorts new segments by, or null. Segments written
+   * before the sort was configured may not be sorted.
+   */
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
   /**
    * Returns a collection of all field names the index reader knows about.
    */
@@ -699,6 +717,90 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     getIndexReader().document(n, visitor);
   }
 
+  /**
+   * Visit a document's fields using a {@link StoredFieldVisitor}. Unlike {@link #doc(int, StoredFieldVisitor)}, this
+   * adds to the Solr document cache the {@link Document} that {@link #doc(int, Set)} would cache, which is loaded
+   * while the stored fields are read for the visitor.
+   */
+  public void doc(int n, Set<String> fields, StoredFieldVisitor visitor) throws IOException {
+    if (documentCache == null) {
+      getIndexReader().document(n, visitor);
+      return;
+    }
+    final Document cached = documentCache.get(n);
+    if (cached != null) {
+      visitFromCached(cached, visitor);
+      return;
+    }
+    final DocumentStoredFieldVisitor documentVisitor = newDocumentVisitor(n, fields);
+    getIndexReader().document(n, new TeeStoredFieldVisitor(documentVisitor, visitor));
+    documentCache.put(n, documentVisitor.getDocument());
+  }
+
+  /** Visits the stored fields of a document with two visitors, so that they are read once. */
+  private static class TeeStoredFieldVisitor extends StoredFieldVisitor {
+    private final StoredFieldVisitor first;
+    private final StoredFieldVisitor second;
+    // the status of each visitor for the current field, STOP once it stopped
+    private Status firstStatus = Status.NO;
+    private Status secondStatus = Status.NO;
+
+    TeeStoredFieldVisitor(StoredFieldVisitor first, StoredFieldVisitor second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) throws IOException {
+      if (firstStatus != Status.STOP) {
+        firstStatus = first.needsField(fieldInfo);
+      }
+      if (secondStatus != Status.STOP) {
+        secondStatus = second.needsField(fieldInfo);
+      }
+      if (firstStatus == Status.YES || secondStatus == Status.YES) {
+        return Status.YES;
+      }
+      return firstStatus == Status.STOP && secondStatus == Status.STOP ? Status.STOP : Status.NO;
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      if (firstStatus == Status.YES) first.binaryField(fieldInfo, value);
+      if (secondStatus == Status.YES) second.binaryField(fieldInfo, value);
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      if (firstStatus == Status.YES) first.stringField(fieldInfo, value);
+      if (secondStatus == Status.YES) second.stringField(fieldInfo, value);
+    }
+
+    @Override
+    public void intField(FieldInfo fieldInfo, int value) throws IOException {
+      if (firstStatus == Status.YES) first.intField(fieldInfo, value);
+      if (secondStatus == Status.YES) second.intField(fieldInfo, value);
+    }
+
+    @Override
+    public void longField(FieldInfo fieldInfo, long value) throws IOException {
+      if (firstStatus == Status.YES) first.longField(fieldInfo, value);
+      if (secondStatus == Status.YES) second.longField(fieldInfo, value);
+    }
+
+    @Override
+    public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+      if (firstStatus == Status.YES) first.floatField(fieldInfo, value);
+      if (secondStatus == Status.YES) second.floatField(fieldInfo, value);
+    }
+
+    @Override
+    public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+      if (firstStatus == Status.YES) first.doubleField(fieldInfo, value);
+      if (secondStatus == Status.YES) second.doubleField(fieldInfo, value);
+    }
+  }
+
   /** Executes a stored field visitor against a hit from the document cache */
   private void visitFromCached(Document document, StoredFieldVisitor visitor) throws IOException {
     for (IndexableField f : document) {
@@ -885,8 +987,163 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
    */
   public void readDocs(Document[] docs, DocList ids, Set<String> fields) throws IOException {
     final DocIterator iter = ids.iterator();
+    final int[] docIds = new int[docs.length];
     for (int i = 0; i < docs.length; i++) {
-      docs[i] = doc(iter.nextDoc(), fields);
+      docIds[i] = iter.nextDoc();
+    }
+    System.arraycopy(docs(docIds, fields), 0, docs, 0, docs.length);
+  }
+
+  /**
+   * Retrieves the {@link Document}s of the given doc ids, in the same order.
+   * <p>
+   * Documents that are not in the document cache are read segment by segment in increasing doc id order. When
+   * the documents to read from a segment are close to each other, so that they likely share compressed blocks, a
+   * stored fields reader that decompresses each block of documents once is used, instead of decompressing the block
+   * again for every document it contains. The documents are otherwise the same as the ones returned by
+   * {@link #doc(int, Set)}.
+   *
+   * @param docIds the ids of the documents to retrieve, in any order
+   * @param fields the fields to load, or null for all fields
+   */
+  public Document[] docs(int[] docIds, Set<String> fields) throws IOException {
+    final Document[] docs = new Document[docIds.length];
+
+    // (docId, position) pairs of the documents to read, sorted by docId
+    long[] toRead = new long[docIds.length];
+    int numToRead = 0;
+    for (int i = 0; i < docIds.length; i++) {
+      if (documentCache != null) {
+        docs[i] = documentCache.get(docIds[i]);
+        if (docs[i] != null) continue;
+      }
+      toRead[numToRead++] = ((long) docIds[i] << 32) | i;
+    }
+    Arrays.sort(toRead, 0, numToRead);
+
+    int start = 0;
+    while (start < numToRead) {
+      final int firstDocId = (int) (toRead[start] >>> 32);
+      final LeafReaderContext leaf = leafContexts.get(ReaderUtil.subIndex(firstDocId, leafContexts));
+      final int leafEnd = leaf.docBase + leaf.reader().maxDoc();
+      int end = start + 1;
+      while (end < numToRead && (int) (toRead[end] >>> 32) < leafEnd) {
+        end++;
+      }
+
+      final StoredFieldsReader fieldsReader = shareBlocks(toRead, start, end) ? getSequentialFieldsReader(leaf.reader()) : null;
+      final FieldInfos leafFieldInfos = leaf.reader().getFieldInfos();
+      for (int i = start; i < end; i++) {
+        final int docId = (int) (toRead[i] >>> 32);
+        final int pos = (int) toRead[i];
+        if (fieldsReader == null) {
+          docs[pos] = doc(docId, fields);
+        } else {
+          final DocumentStoredFieldVisitor visitor = newDocumentVisitor(docId, fields);
+          fieldsReader.visitDocument(docId - leaf.docBase, new LeafFieldInfosVisitor(leafFieldInfos, visitor));
+          docs[pos] = visitor.getDocument();
+          if (documentCache != null) {
+            documentCache.put(docId, docs[pos]);
+          }
+        }
+      }
+      start = end;
+    }
+
+    return docs;
+  }
+
+  /** Returns a visitor that loads the same fields as {@link #doc(int, Set)} would. */
+  private DocumentStoredFieldVisitor newDocumentVisitor(int docId, Set<String> fields) {
+    if (fields == null) {
+      return new DocumentStoredFieldVisitor();
+    } else if (enableLazyFieldLoading) {
+      return new SetNonLazyFieldSelector(fields, getIndexReader(), docId);
+    } else if (documentCache == null) {
+      return new DocumentStoredFieldVisitor(fields);
+    } else {
+      return new DocumentStoredFieldVisitor();
+    }
+  }
+
+  /**
+   * Returns true if most of the sorted documents between {@code start} and {@code end} are close enough to the
+   * previous one to be in the same compressed block of stored fields. Decompressing whole blocks only pays off in
+   * that case: scattered documents are cheaper to read one by one.
+   */
+  private static boolean shareBlocks(long[] sortedDocs, int start, int end) {
+    int close = 0;
+    for (int i = start + 1; i < end; i++) {
+      if ((int) (sortedDocs[i] >>> 32) - (int) (sortedDocs[i - 1] >>> 32) <= MAX_SHARED_BLOCK_DOC_GAP) {
+        close++;
+      }
+    }
+    return close > 0 && close * 2 >= end - start;
+  }
+
+  /**
+   * Returns a stored fields reader of the given segment that is optimized for reading documents in increasing doc id
+   * order, or null if the segment is not backed by a codec. Filter readers, such as the uninverting and exitable
+   * readers Solr wraps every segment with, are unwrapped: stored fields must then be visited with the field infos of
+   * the wrapper, see {@link LeafFieldInfosVisitor}.
+   */
+  static StoredFieldsReader getSequentialFieldsReader(LeafReader reader) throws IOException {
+    final LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+    if (unwrapped instanceof CodecReader) {
+      final StoredFieldsReader fieldsReader = ((CodecReader) unwrapped).getFieldsReader();
+      return fieldsReader == null ? null : fieldsReader.getMergeInstance();
+    }
+    return null;
+  }
+
+  /** Passes the {@link FieldInfo}s of a wrapping reader, rather than the ones of the segment, to a visitor. */
+  private static class LeafFieldInfosVisitor extends StoredFieldVisitor {
+    private final FieldInfos fieldInfos;
+    private final StoredFieldVisitor in;
+
+    LeafFieldInfosVisitor(FieldInfos fieldInfos, StoredFieldVisitor in) {
+      this.fieldInfos = fieldInfos;
+      this.in = in;
+    }
+
+    private FieldInfo map(FieldInfo fieldInfo) {
+      final FieldInfo mapped = fieldInfos.fieldInfo(fieldInfo.name);
+      return mapped == null ? fieldInfo : mapped;
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      in.binaryField(map(fieldInfo), value);
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      in.stringField(map(fieldInfo), value);
+    }
+
+    @Override
+    public void intField(FieldInfo fieldInfo, int value) throws IOException {
+      in.intField(map(fieldInfo), value);
+    }
+
+    @Override
+    public void longField(FieldInfo fieldInfo, long value) throws IOException {
+      in.longField(map(fieldInfo), value);
+    }
+
+    @Override
+    public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+      in.floatField(map(fieldInfo), value);
+    }
+
+    @Override
+    public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+      in.doubleField(map(fieldInfo), value);
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) throws IOException {
+      return in.needsField(map(fieldInfo));
     }
   }
 
@@ -2378,8 +2635,16 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
    * Warm this searcher based on an old one (primarily for auto-cache warming).
    */
   public void warm(SolrIndexSearcher old) {
-    // Make sure this is first! filters can help queryResults execute!
     long warmingStartTime = System.nanoTime();
+    // update ordinal maps from the previous reader so that the first facet request doesn't need to build them
+    if (leafReader instanceof SlowCompositeReaderWrapper) {
+      try {
+        ((SlowCompositeReaderWrapper) leafReader).warmOrdinalMaps(old.leafReader);
+      } catch (IOException e) {
+        SolrException.log(log, "Error warming ordinal maps", e);
+      }
+    }
+    // Make sure this is first! filters can help queryResults execute!
     // warm the caches in order...
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.add("warming", "true");
@@ -2560,6 +2825,48 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       return "SolrFilter";
     }
 
+    @Override
+    public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost) throws IOException {
+      final Weight weight = super.createWeight(searcher, needsScores, boost);
+      return new FilterWeight(weight) {
+        @Override
+        public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+          final DocIdSet set = getDocIdSet(context, null);
+          if (set instanceof FilterSet == false) {
+            return super.scorerSupplier(context);
+          }
+          final FilterSet filterSet = (FilterSet) set;
+          final List<ScorerSupplier> scorerSuppliers = filterSet.scorerSuppliers();
+          if (scorerSuppliers == null) {
+            return null;
+          }
+          // the filters are only executed once we know whether they lead
+          // iteration, so that uncached range filters can use doc values
+          // to verify the matches of a more selective main query
+          final Weight filterWeight = this;
+          return new ScorerSupplier() {
+            @Override
+            public Scorer get(boolean randomAccess) throws IOException {
+              DocIdSetIterator iterator = filterSet.iterator(scorerSuppliers, randomAccess);
+              if (iterator == null) {
+                iterator = DocIdSetIterator.empty();
+              }
+              return new ConstantScoreScorer(filterWeight, 0f, iterator);
+            }
+
+            @Override
+            public long cost() {
+              try {
+                return filterSet.cost(scorerSuppliers);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            }
+          };
+        }
+      };
+    }
+
     private class FilterSet extends DocIdSet {
       private final DocIdSet docIdSet;
       private final LeafReaderContext context;
@@ -2571,19 +2878,65 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
       @Override
       public DocIdSetIterator iterator() throws IOException {
-        List<DocIdSetIterator> iterators = new ArrayList<>(weights.size() + 1);
+        final List<ScorerSupplier> scorerSuppliers = scorerSuppliers();
+        if (scorerSuppliers == null) return null;
+        return iterator(scorerSuppliers, false);
+      }
+
+      /** Returns the suppliers of the uncached filters, or null if one of them does not match any document. */
+      List<ScorerSupplier> scorerSuppliers() throws IOException {
+        List<ScorerSupplier> scorerSuppliers = new ArrayList<>(weights.size());
+        for (Weight w : weights) {
+          final ScorerSupplier scorerSupplier = w.scorerSupplier(context);
+          if (scorerSupplier == null) return null;
+          scorerSuppliers.add(scorerSupplier);
+        }
+        return scorerSuppliers;
+      }
+
+      /** Returns the estimated number of documents that match all filters. */
+      long cost(List<ScorerSupplier> scorerSuppliers) throws IOException {
+        long cost = Long.MAX_VALUE;
+        if (docIdSet != null) {
+          final DocIdSetIterator iter = docIdSet.iterator();
+          if (iter == null) return 0L;
+          cost = iter.cost();
+        }
+        for (ScorerSupplier scorerSupplier : scorerSuppliers) {
+          cost = Math.min(cost, scorerSupplier.cost());
+        }
+        return cost == Long.MAX_VALUE ? 0L : cost;
+      }
+
+      /**
+       * Intersects the cached filter with the uncached ones. Only the
+       * cheapest of them leads iteration, the others are only used to verify
+       * matches, unless {@code randomAccess} is true in which case none of
+       * them is expected to lead.
+       */
+      DocIdSetIterator iterator(List<ScorerSupplier> scorerSuppliers, boolean randomAccess) throws IOException {
+        List<DocIdSetIterator> iterators = new ArrayList<>(scorerSuppliers.size() + 1);
+        long leadCost = Long.MAX_VALUE;
         if (docIdSet != null) {
           final DocIdSetIterator iter = docIdSet.iterator();
           if (iter == null) return null;
           iterators.add(iter);
+          leadCost = iter.cost();
         }
-        for (Weight w : weights) {
-          final Scorer scorer = w.scorer(context);
-          if (scorer == null) return null;
-          iterators.add(scorer.iterator());
+        final boolean conjunction = iterators.size() + scorerSuppliers.size() > 1;
+        if (conjunction) {
+          for (ScorerSupplier scorerSupplier : scorerSuppliers) {
+            leadCost = Math.min(leadCost, scorerSupplier.cost());
+          }
+        }
+        for (ScorerSupplier scorerSupplier : scorerSuppliers) {
+          final boolean leads = conjunction == false || scorerSupplier.cost() <= leadCost;
+          iterators.add(scorerSupplier.get(randomAccess || leads == false).iterator());
         }
         if (iterators.isEmpty()) return null;
         if (iterators.size() == 1) return iterators.get(0);
+        // the first iterator leads, the others are advanced to its matches
+        iterators.sort(Comparator.comparingLong(DocIdSetIterator::cost));
         if (iterators.size() == 2) return new DualFilterIterator(iterators.get(0), iterators.get(1));
         return new FilterIterator(iterators.toArray(new DocIdSetIterator[iterators.size()]));
       }
@@ -41,6 +41,8 @@ public class HaversineConstFunction extends ValueSource {
 
   private final double latCenterRad_cos; // cos(latCenter)
   private static final double EARTH_MEAN_DIAMETER = DistanceUtils.EARTH_MEAN_RADIUS_KM * 2;
+  /** rough number of operations of the trigonometry of one distance: two sines, a cosine, an arctangent and two square roots */
+  static final float TRIG_COST = 60;
 
   public HaversineConstFunction(double latCenter, double lonCenter, VectorValueSource vs) {
     this.latCenter = latCenter;
@@ -77,6 +79,10 @@ public class HaversineConstFunction extends ValueSource {
         return (EARTH_MEAN_DIAMETER * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h)));
       }
       @Override
+      public float cost() {
+        return TRIG_COST + latVals.cost() + lonVals.cost();
+      }
+      @Override
       public String toString(int doc) throws IOException {
         return name() + '(' + latVals.toString(doc) + ',' + lonVals.toString(doc) + ',' + latCenter + ',' + lonCenter + ')';
       }
@@ -103,6 +103,10 @@ public class HaversineFunction extends ValueSource {
         return distance(doc, vals1, vals2);
       }
       @Override
+      public float cost() {
+        return HaversineConstFunction.TRIG_COST + vals1.cost() + vals2.cost();
+      }
+      @Override
       public String toString(int doc) throws IOException {
         StringBuilder sb = new StringBuilder();
         sb.append(name()).append('(');
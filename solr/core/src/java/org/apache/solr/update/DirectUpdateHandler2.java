@@ -192,6 +192,11 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
     addCommands.increment();
     addCommandsCumulative.increment();
 
+    if ((cmd.getFlags() & UpdateCommand.IGNORE_INDEXWRITER) != 0) {
+      if (ulog != null) ulog.add(cmd);
+      return 1;
+    }
+
     // if there is no ID field, don't overwrite
     if (idField == null) {
       cmd.overwrite = false;
@@ -368,6 +373,11 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
     deleteByIdCommands.increment();
     deleteByIdCommandsCumulative.increment();
 
+    if ((cmd.getFlags() & UpdateCommand.IGNORE_INDEXWRITER) != 0) {
+      if (ulog != null) ulog.delete(cmd);
+      return;
+    }
+
     Term deleteTerm = new Term(idField.getName(), cmd.getIndexedId());
     // SolrCore.verbose("deleteDocuments",deleteTerm,writer);
     RefCounted<IndexWriter> iw = solrCoreState.getIndexWriter(core);
@@ -425,6 +435,16 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
   public void deleteByQuery(DeleteUpdateCommand cmd) throws IOException {
     deleteByQueryCommands.increment();
     deleteByQueryCommandsCumulative.increment();
+
+    if ((cmd.getFlags() & UpdateCommand.IGNORE_INDEXWRITER) != 0) {
+      if (ulog != null) {
+        synchronized (solrCoreState.getUpdateLock()) {
+          ulog.deleteByQuery(cmd);
+        }
+      }
+      return;
+    }
+
     boolean madeIt=false;
     try {
       Query q = getQuery(cmd);
@@ -19,7 +19,9 @@ package org.apache.solr.update;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.index.LeafReaderContext;
@@ -135,6 +137,70 @@ public class IndexFingerprint implements MapSerializable {
   }
   
   
+  /**
+   * Opens a new realtime searcher and returns a fingerprint for each of the given version ranges.
+   *
+   * @param ranges inclusive {@code [min, max]} version ranges, sorted by min and not overlapping
+   */
+  public static List<IndexFingerprint> getFingerprints(SolrCore core, List<long[]> ranges) throws IOException {
+    RTimer timer = new RTimer();
+    core.getUpdateHandler().getUpdateLog().openRealtimeSearcher();
+    RefCounted<SolrIndexSearcher> newestSearcher = core.getRealtimeSearcher();
+    try {
+      List<IndexFingerprint> fingerprints = getFingerprints(newestSearcher.get(), ranges);
+      log.debug("IndexFingerprint millis:{} ranges:{}", timer.stop(), ranges.size());
+      return fingerprints;
+    } finally {
+      newestSearcher.decref();
+    }
+  }
+
+  /**
+   * Computes a fingerprint for each of the given version ranges in a single pass over the index.
+   * The fingerprint of a range only covers the versions within it, and has its upper bound as
+   * {@link #getMaxVersionSpecified()}, so fingerprints of the same range can be compared with
+   * {@link #compare(IndexFingerprint, IndexFingerprint)}.
+   *
+   * @param ranges inclusive {@code [min, max]} version ranges, sorted by min and not overlapping
+   */
+  public static List<IndexFingerprint> getFingerprints(SolrIndexSearcher searcher, List<long[]> ranges) throws IOException {
+    long[] mins = new long[ranges.size()];
+    long[] maxs = new long[ranges.size()];
+    IndexFingerprint[] fingerprints = new IndexFingerprint[ranges.size()];
+    for (int i = 0; i < ranges.size(); i++) {
+      mins[i] = ranges.get(i)[0];
+      maxs[i] = ranges.get(i)[1];
+      fingerprints[i] = new IndexFingerprint(maxs[i]);
+    }
+
+    SchemaField versionField = VersionInfo.getAndCheckVersionField(searcher.getSchema());
+    ValueSource vs = versionField.getType().getValueSource(versionField, null);
+    Map funcContext = ValueSource.newContext(searcher);
+    vs.createWeight(funcContext, searcher);
+
+    for (LeafReaderContext ctx : searcher.getTopReaderContext().leaves()) {
+      int maxDoc = ctx.reader().maxDoc();
+      Bits liveDocs = ctx.reader().getLiveDocs();
+      FunctionValues fv = vs.getValues(funcContext, ctx);
+      for (int doc = 0; doc < maxDoc; doc++) {
+        if (liveDocs != null && !liveDocs.get(doc)) continue;
+        long v = fv.longVal(doc);
+        int idx = Arrays.binarySearch(mins, v);
+        if (idx < 0) idx = -idx - 2;  // the range with the greatest min below v
+        if (idx < 0 || v > maxs[idx]) continue;
+
+        IndexFingerprint f = fingerprints[idx];
+        f.maxVersionEncountered = Math.max(v, f.maxVersionEncountered);
+        f.maxInHash = Math.max(v, f.maxInHash);
+        f.versionsHash += Hash.fmix64(v);
+        f.numVersions++;
+        f.numDocs++;
+      }
+    }
+
+    return Arrays.asList(fingerprints);
+  }
+
   public static IndexFingerprint reduce(IndexFingerprint acc, IndexFingerprint f2) {
     // acc should have maxVersionSpecified already set in it using IndexFingerprint(long maxVersionSpecified) constructor
     acc.maxDoc = Math.max(acc.maxDoc, f2.maxDoc);
@@ -87,6 +87,13 @@ public class PeerSync  {
   private final boolean onlyIfActive;
   private SolrCore core;
 
+  // number of sub ranges a mismatching version range is split into when comparing range fingerprints
+  static final int FINGERPRINT_RANGE_SPLITS = 16;
+  // mismatching ranges with at most this many versions are requested as a whole
+  static final int FINGERPRINT_RANGE_LEAF_SIZE = 1000;
+  // maximum number of ranges to compare in one round trip, this keeps fingerprint requests to a few KB
+  static final int MAX_FINGERPRINT_RANGES = 256;
+
   // comparator that sorts by absolute value, putting highest first
   public static Comparator<Long> absComparator = (o1, o2) -> {
     long l1 = Math.abs(o1);
@@ -542,6 +549,9 @@ public class PeerSync  {
 
     if (totalRequestedVersions > maxUpdates) {
       log.info(msg() + " Failing due to needing too many updates:" + maxUpdates);
+      if (useFingerprintRanges()) {
+        return handleVersionsWithFingerprintRanges(srsp, sreq, otherHighest);
+      }
       return false;
     }
 
@@ -587,6 +597,9 @@ public class PeerSync  {
       // Since there exists just one replica that is so much newer, we must
       // fail the sync.
       log.info(msg() + " Our versions are too old. ourHighThreshold="+ourHighThreshold + " otherLowThreshold="+otherLow + " ourHighest=" + ourHighest + " otherHighest=" + otherHighest);
+      if (useFingerprintRanges()) {
+        return handleVersionsWithFingerprintRanges(srsp, sreq, otherHighest);
+      }
       return false;
     }
 
@@ -646,12 +659,146 @@ public class PeerSync  {
     
     if (toRequest.size() > maxUpdates) {
       log.info(msg() + " Failing due to needing too many updates:" + maxUpdates);
+      if (useFingerprintRanges()) {
+        requestedUpdateSet.removeAll(toRequest);
+        return handleVersionsWithFingerprintRanges(srsp, sreq, otherHighest);
+      }
       return false;
     }
 
     return requestUpdates(srsp, StrUtils.join(toRequest, ','), toRequest.size());
   }
 
+  private boolean useFingerprintRanges() {
+    return doFingerprint && core.getSolrConfig().useFingerprintRangesForPeerSync;
+  }
+
+  /**
+   * Used when the replica is too far ahead of us for the last N versions to be enough. Instead of giving up
+   * (and falling back to full replication), the version space up to the highest version of the replica is
+   * compared by fingerprints of version ranges. Ranges whose fingerprints differ are split and compared again
+   * until they are small enough, and then all updates in them are requested. The fingerprint check done once
+   * the updates are applied makes sure we did not miss anything.
+   */
+  private boolean handleVersionsWithFingerprintRanges(ShardResponse srsp, SyncShardRequest sreq, long otherHighest) {
+    String replica = sreq.shards[0];
+    List<long[]> ranges = new ArrayList<>();
+    ranges.add(new long[] {1, Math.abs(otherHighest)});
+
+    List<long[]> rangesToRequest = new ArrayList<>();
+    long totalRequestedVersions = 0;
+    while (!ranges.isEmpty()) {
+      List<IndexFingerprint> otherFingerprints = requestFingerprintRanges(replica, ranges);
+      if (otherFingerprints == null) return false;
+      List<IndexFingerprint> ourFingerprints;
+      try {
+        ourFingerprints = IndexFingerprint.getFingerprints(core, ranges);
+      } catch (IOException e) {
+        log.error(msg() + "Error getting index fingerprints", e);
+        return false;
+      }
+
+      List<long[]> mismatching = new ArrayList<>();
+      for (int i = 0; i < ranges.size(); i++) {
+        IndexFingerprint other = otherFingerprints.get(i);
+        IndexFingerprint ours = ourFingerprints.get(i);
+        if (IndexFingerprint.compare(other, ours) == 0) continue;
+
+        long[] range = ranges.get(i);
+        if (Math.max(other.getNumVersions(), ours.getNumVersions()) <= FINGERPRINT_RANGE_LEAF_SIZE
+            || range[1] - range[0] < FINGERPRINT_RANGE_SPLITS) {
+          rangesToRequest.add(range);
+          totalRequestedVersions += other.getNumVersions();
+        } else {
+          mismatching.add(range);
+        }
+      }
+      if (mismatching.isEmpty()) break;
+
+      // split fewer ways when many ranges mismatch so that the next round trip stays under the limit,
+      // and give up if the differences are spread so widely that a full replication is cheaper
+      mismatching = coalesceRanges(mismatching);
+      int splits = Math.min(FINGERPRINT_RANGE_SPLITS, MAX_FINGERPRINT_RANGES / mismatching.size());
+      if (splits < 2) {
+        log.info(msg() + " Failing due to too many mismatching version ranges with " + replica + ": " + mismatching.size());
+        return false;
+      }
+      ranges = new ArrayList<>();
+      for (long[] range : mismatching) {
+        ranges.addAll(splitRange(range[0], range[1], splits));
+      }
+    }
+
+    if (rangesToRequest.isEmpty()) {
+      log.info(msg() + " No mismatching version ranges with " + replica + " otherHighest=" + otherHighest);
+      sreq.doFingerprintComparison = true;
+      return true;
+    }
+
+    rangesToRequest.sort(Comparator.comparingLong(r -> r[0]));
+    rangesToRequest = coalesceRanges(rangesToRequest);
+    sreq.requestedUpdates = null;
+    sreq.requestedRanges = rangesToRequest.stream().map(r -> r[0] + "..." + r[1]).collect(Collectors.toList());
+    sreq.totalRequestedUpdates = totalRequestedVersions;
+    return requestUpdates(srsp, String.join(",", sreq.requestedRanges), totalRequestedVersions);
+  }
+
+  /** Splits the inclusive range {@code [min, max]} into {@code n} contiguous, non empty sub ranges */
+  static List<long[]> splitRange(long min, long max, int n) {
+    long span = max - min + 1;
+    List<long[]> ranges = new ArrayList<>(n);
+    long start = min;
+    for (int i = 1; i <= n; i++) {
+      long end = i == n ? max : min + (span / n) * i + (span % n) * i / n - 1;
+      if (end >= start) {
+        ranges.add(new long[] {start, end});
+        start = end + 1;
+      }
+    }
+    return ranges;
+  }
+
+  /** Merges adjacent ranges of a list of inclusive ranges sorted by their lower bound */
+  static List<long[]> coalesceRanges(List<long[]> ranges) {
+    List<long[]> coalesced = new ArrayList<>(ranges.size());
+    long[] last = null;
+    for (long[] range : ranges) {
+      if (last != null && last[1] + 1 == range[0]) {
+        last = new long[] {last[0], range[1]};
+        coalesced.set(coalesced.size() - 1, last);
+      } else {
+        last = range;
+        coalesced.add(range);
+      }
+    }
+    return coalesced;
+  }
+
+  private List<IndexFingerprint> requestFingerprintRanges(String replica, List<long[]> ranges) {
+    SyncShardRequest sreq = new SyncShardRequest();
+    sreq.shards = new String[] {replica};
+    sreq.actualShards = sreq.shards;
+    sreq.params = new ModifiableSolrParams();
+    sreq.params.set("qt", "/get");
+    sreq.params.set("distrib", false);
+    sreq.params.set("getFingerprintRanges", ranges.stream().map(r -> r[0] + "..." + r[1]).collect(Collectors.joining(",")));
+
+    ShardHandler sh = shardHandlerFactory.getShardHandler(client);
+    sh.submit(sreq, replica, sreq.params);
+
+    ShardResponse srsp = sh.takeCompletedIncludingErrors();
+    if (srsp.getException() != null) {
+      log.warn(msg() + " exception getting fingerprint ranges from " + replica, srsp.getException());
+      return null;
+    }
+    List<Object> fingerprints = (List<Object>) srsp.getSolrResponse().getResponse().get("fingerprints");
+    if (fingerprints == null || fingerprints.size() != ranges.size()) {
+      log.info(msg() + " " + replica + " did not return fingerprints for " + ranges.size() + " version ranges");
+      return null;
+    }
+    return fingerprints.stream().map(IndexFingerprint::fromObject).collect(Collectors.toList());
+  }
+
   private boolean compareFingerprint(SyncShardRequest sreq) {
     if (sreq.fingerprint == null) return true;
     try {
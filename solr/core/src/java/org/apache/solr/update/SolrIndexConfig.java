@@ -262,6 +262,19 @@ public class SolrIndexConfig implements MapSerializable {
     return iwc;
   }
 
+  /**
+   * Returns the sort that flushed and merged segments get sorted by, or null if segments
+   * are not sorted, see {@link org.apache.solr.index.SortingMergePolicyFactory}.
+   */
+  public Sort getIndexSort(IndexSchema schema) {
+    if (useMergePolicyInfo()) {
+      // only merge policy factories may sort segments
+      return null;
+    }
+    MergePolicy mergePolicy = buildMergePolicy(schema);
+    return mergePolicy instanceof SortingMergePolicy ? ((SortingMergePolicy) mergePolicy).getSort() : null;
+  }
+
   private boolean useMergePolicyInfo() {
     return mergePolicyInfo != null || maxMergeDocs != -1 || mergeFactor != -1;
   }
@@ -1209,6 +1209,146 @@ public class UpdateLog implements PluginInfoInitialized {
     return cs.submit(replayer, recoveryInfo);
   }
 
+  /**
+   * Caps the current log and starts a new one after a newer index has been copied from the leader,
+   * carrying over the updates that are not part of that index yet.  Replicas that only log updates
+   * (see {@link UpdateCommand#IGNORE_INDEXWRITER}) never commit, so this is what keeps their logs
+   * from growing without bounds, while their current log still holds every update their index misses.
+   */
+  public void switchToNewTlog(CommitUpdateCommand cmd) {
+    versionInfo.blockUpdates();
+    try {
+      TransactionLog oldTlog;
+      synchronized (this) {
+        if (state != State.ACTIVE || tlog == null) return;
+        oldTlog = tlog;
+        oldTlog.incref();
+      }
+
+      try {
+        preCommit(cmd);
+        postCommit(cmd);
+        copyOverUnindexedUpdates(oldTlog, cmd.getReq());
+      } finally {
+        oldTlog.decref();
+      }
+    } finally {
+      versionInfo.unblockUpdates();
+    }
+  }
+
+  private void copyOverUnindexedUpdates(TransactionLog oldTlog, SolrQueryRequest req) {
+    long maxVersionFromIndex;
+    RefCounted<SolrIndexSearcher> searcher = uhandler.core.getRealtimeSearcher();
+    try {
+      maxVersionFromIndex = versionInfo.getMaxVersionFromIndex(searcher.get());
+    } catch (IOException e) {
+      // keep everything rather than risk dropping an update the index doesn't have
+      log.warn("Could not determine the max version in the index, copying over all updates", e);
+      maxVersionFromIndex = 0;
+    } finally {
+      searcher.decref();
+    }
+
+    int copied = 0;
+    TransactionLog.LogReader reader = oldTlog.getReader(0);
+    try {
+      for (;;) {
+        Object o = reader.next();
+        if (o == null) break;
+
+        List entry = (List) o;
+        int oper = (Integer) entry.get(0) & OPERATION_MASK;
+        long version = (Long) entry.get(1);
+
+        switch (oper) {
+          case UpdateLog.ADD: {
+            AddUpdateCommand cmd = new AddUpdateCommand(req);
+            cmd.solrDoc = (SolrInputDocument) entry.get(entry.size() - 1);
+            cmd.setVersion(version);
+            Long versionInIndex = versionInfo.getVersionFromIndex(cmd.getIndexedId());
+            if (versionInIndex == null || Math.abs(versionInIndex) < version) {
+              add(cmd);
+              copied++;
+            }
+            break;
+          }
+          case UpdateLog.DELETE: {
+            DeleteUpdateCommand cmd = new DeleteUpdateCommand(req);
+            cmd.setIndexedId(new BytesRef((byte[]) entry.get(2)));
+            cmd.setVersion(version);
+            Long versionInIndex = versionInfo.getVersionFromIndex(cmd.getIndexedId());
+            if (Math.abs(version) > maxVersionFromIndex
+                || (versionInIndex != null && Math.abs(versionInIndex) < Math.abs(version))) {
+              delete(cmd);
+              copied++;
+            }
+            break;
+          }
+          case UpdateLog.DELETE_BY_QUERY: {
+            if (Math.abs(version) > maxVersionFromIndex) {
+              DeleteUpdateCommand cmd = new DeleteUpdateCommand(req);
+              cmd.query = (String) entry.get(2);
+              cmd.setVersion(version);
+              synchronized (this) {
+                ensureLog();
+                tlog.writeDeleteByQuery(cmd, operationFlags);
+              }
+              copied++;
+            }
+            break;
+          }
+          case UpdateLog.COMMIT:
+            break;
+          default:
+            throw new SolrException(ErrorCode.SERVER_ERROR, "Unknown Operation! " + oper);
+        }
+      }
+    } catch (IOException e) {
+      throw new SolrException(ErrorCode.SERVER_ERROR, "Error copying over updates from " + oldTlog, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(ErrorCode.SERVER_ERROR, "Interrupted while copying over updates from " + oldTlog, e);
+    } finally {
+      reader.close();
+    }
+
+    log.debug("Copied over {} updates newer than the index from {}", copied, oldTlog);
+  }
+
+  /**
+   * Replays the current log into the index.  This is used when a replica that only logged updates
+   * (see {@link UpdateCommand#IGNORE_INDEXWRITER}) takes over as leader: its index was copied from the
+   * previous leader and misses the updates in its current log (see {@link #switchToNewTlog}).
+   *
+   * @return the Future to wait on, or null if no replay was needed
+   */
+  public Future<RecoveryInfo> recoverFromCurrentLog() {
+    versionInfo.blockUpdates();
+    try {
+      if (state != State.ACTIVE) {
+        log.warn("Unexpected state for recoverFromCurrentLog: " + state + ", Ignoring request.");
+        return null;
+      }
+      synchronized (this) {
+        if (tlog == null) return null;
+        tlog.incref();
+      }
+
+      // drop the cached versions so that replayed updates are checked against the index only
+      openRealtimeSearcher();
+
+      recoveryInfo = new RecoveryInfo();
+      state = State.REPLAYING;
+    } finally {
+      versionInfo.unblockUpdates();
+    }
+
+    ExecutorCompletionService<RecoveryInfo> cs = new ExecutorCompletionService<>(recoveryExecutor);
+    LogReplayer replayer = new LogReplayer(Arrays.asList(new TransactionLog[]{tlog}), true);
+    return cs.submit(replayer, recoveryInfo);
+  }
+
   public State getState() {
     return state;
   }
@@ -253,6 +253,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
   private CloudDescriptor cloudDesc;
   private final String collection;
   private final ZkController zkController;
+  private final boolean onlyLeaderIndexes;
   
   // these are setup at the start of each request processing
   // method in this update processor
@@ -319,6 +320,13 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       collection = null;
     }
 
+    if (zkEnabled && collection != null) {
+      DocCollection coll = zkController.getClusterState().getCollectionOrNull(collection);
+      onlyLeaderIndexes = coll != null && coll.getOnlyLeaderIndexes();
+    } else {
+      onlyLeaderIndexes = false;
+    }
+
     boolean shouldClone = false;
     UpdateRequestProcessor nextInChain = next;
     while (nextInChain != null)  {
@@ -952,14 +960,30 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
  
   // must be synchronized by bucket
   private void doLocalAdd(AddUpdateCommand cmd) throws IOException {
+    if (isLogOnly(cmd)) {
+      cmd.setFlags(cmd.getFlags() | UpdateCommand.IGNORE_INDEXWRITER);
+    }
     super.processAdd(cmd);
   }
 
   // must be synchronized by bucket
   private void doLocalDelete(DeleteUpdateCommand cmd) throws IOException {
+    if (isLogOnly(cmd)) {
+      cmd.setFlags(cmd.getFlags() | UpdateCommand.IGNORE_INDEXWRITER);
+    }
     super.processDelete(cmd);
   }
 
+  /**
+   * In a collection where only the leader indexes, the other replicas just add updates to their
+   * update log and copy the index from the leader (see {@link org.apache.solr.cloud.ReplicateFromLeader}).
+   * Updates replayed from a log are still indexed, so that a replica taking over as leader can
+   * bring its index up to date.
+   */
+  private boolean isLogOnly(UpdateCommand cmd) {
+    return onlyLeaderIndexes && !cloudDesc.isLeader() && (cmd.getFlags() & UpdateCommand.REPLAY) == 0;
+  }
+
   /**
    * @return whether or not to drop this cmd
    * @throws IOException If there is a low-level I/O error.
@@ -1653,6 +1677,12 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
   }
 
   private void doLocalCommit(CommitUpdateCommand cmd) throws IOException {
+    if (isLogOnly(cmd)) {
+      // our index only changes when a newer commit is copied from the leader
+      log.debug("Ignoring commit on replica that copies its index from the leader: {}", cmd);
+      return;
+    }
+
     if (vinfo != null) {
       vinfo.lockForUpdate();
     }
@@ -78,6 +78,11 @@ public class TestCrossCoreJoin extends SolrTestCaseJ4 {
     doTestJoin("{!join");
   }
 
+  @Test
+  public void testGlobalOrdsJoin() throws Exception {
+    doTestJoin("{!join method=globalOrds");
+  }
+
   @Test
   public void testScoreJoin() throws Exception {
     doTestJoin("{!join " + TestScoreJoinQPNoScore.whateverScore());
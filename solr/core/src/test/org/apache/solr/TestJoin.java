@@ -16,6 +16,7 @@
  */
 package org.apache.solr;
 
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.noggit.JSONUtil;
 import org.noggit.ObjectBuilder;
@@ -141,6 +142,61 @@ public class TestJoin extends SolrTestCaseJ4 {
 
   }
 
+  @Test
+  public void testGlobalOrdsJoin() throws Exception {
+    clearIndex();
+    assertU(add(doc("id", "1","name", "john", "title", "Director", "dept_s","Engineering")));
+    assertU(add(doc("id", "2","name", "mark", "title", "VP", "dept_s","Marketing")));
+    assertU(commit());
+    assertU(add(doc("id", "3","name", "nancy", "title", "MTS", "dept_s","Sales")));
+    assertU(add(doc("id", "4","name", "dave", "title", "MTS", "dept_s","Support", "dept_s","Engineering")));
+    assertU(add(doc("id", "5","name", "tina", "title", "VP", "dept_s","Engineering")));
+    assertU(commit());
+
+    assertU(add(doc("id","10", "dept_id_s", "Engineering", "text","These guys develop stuff")));
+    assertU(add(doc("id","11", "dept_id_s", "Marketing", "text","These guys make you look good")));
+    assertU(add(doc("id","12", "dept_id_s", "Sales", "text","These guys sell stuff")));
+    assertU(add(doc("id","13", "dept_id_s", "Support", "text","These guys help customers")));
+    assertU(commit());
+
+    ModifiableSolrParams p = params("sort","id asc");
+
+    assertJQ(req(p, "q","{!join from=dept_s to=dept_id_s method=globalOrds}title:MTS", "fl","id", "debugQuery","true")
+        ,"/response=={'numFound':3,'start':0,'docs':[{'id':'10'},{'id':'12'},{'id':'13'}]}"
+        ,"/debug/join/{!join from=dept_s to=dept_id_s method=globalOrds}title:MTS=={'_MATCH_':'fromSetSize,toSetSize,fromOrdCount,toOrdCount', 'fromSetSize':2, 'toSetSize':3, 'fromOrdCount':3, 'toOrdCount':3}"
+    );
+
+    // find people that develop stuff
+    assertJQ(req(p, "q","{!join from=dept_id_s to=dept_s method=globalOrds}text:develop", "fl","id")
+        ,"/response=={'numFound':3,'start':0,'docs':[{'id':'1'},{'id':'4'},{'id':'5'}]}"
+    );
+
+    // self join... return everyone in the same departments as nancy
+    assertJQ(req(p, "q","{!join from=dept_s to=dept_s method=globalOrds}name:nancy", "fl","id")
+        ,"/response=={'numFound':1,'start':0,'docs':[{'id':'3'}]}"
+    );
+
+    // deleted docs are not joined to
+    assertU(delI("13"));
+    assertU(commit());
+    assertJQ(req(p, "q","{!join from=dept_s to=dept_id_s method=globalOrds}name:dave", "fl","id")
+        ,"/response=={'numFound':1,'start':0,'docs':[{'id':'10'}]}"
+    );
+
+    // empty from and to
+    assertJQ(req(p, "q","{!join from=noexist_s to=dept_id_s method=globalOrds}*:*", "fl","id")
+        ,"/response=={'numFound':0,'start':0,'docs':[]}"
+    );
+    assertJQ(req(p, "q","{!join from=dept_s to=noexist_s method=globalOrds}*:*", "fl","id")
+        ,"/response=={'numFound':0,'start':0,'docs':[]}"
+    );
+
+    assertQEx("numeric fields are not supported", req("q", "{!join from=small_i to=small_i method=globalOrds}*:*"),
+        SolrException.ErrorCode.BAD_REQUEST);
+    assertQEx("unknown methods are rejected", req("q", "{!join from=dept_s to=dept_id_s method=foo}*:*"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
 
   @Test
   public void testRandomJoin() throws Exception {
@@ -216,6 +272,7 @@ public class TestJoin extends SolrTestCaseJ4 {
         SolrQueryRequest req = req("wt","json","indent","true", "echoParams","all",
             "q","{!join from="+fromField+" to="+toField
                 + (random().nextInt(4)==0 ? " fromIndex=collection1" : "")
+                + (isStringField(fromField) && isStringField(toField) && random().nextBoolean() ? " method=globalOrds" : "")
                 +"}*:*"
         );
 
@@ -242,6 +299,10 @@ public class TestJoin extends SolrTestCaseJ4 {
   }
 
 
+  private static boolean isStringField(String field) {
+    return field.equals("id") || field.endsWith("_s") || field.endsWith("_ss");
+  }
+
   Map<Comparable, Set<Comparable>> createJoinMap(Map<Comparable, Doc> model, String fromField, String toField) {
     Map<Comparable, Set<Comparable>> id_to_id = new HashMap<>();
 
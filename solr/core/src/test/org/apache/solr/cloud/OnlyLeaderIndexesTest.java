@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.util.TimeOut;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class OnlyLeaderIndexesTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "collection1";
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    System.setProperty("solr.directoryFactory", "solr.StandardDirectoryFactory");
+    System.setProperty("solr.ulog.numRecordsToKeep", "1000");
+
+    configureCluster(3)
+        .addConfig("config", TEST_PATH().resolve("configsets").resolve("cloud-minimal").resolve("conf"))
+        .configure();
+
+    CollectionAdminRequest
+        .createCollection(COLLECTION, "config", 1, 3)
+        .setOnlyLeaderIndexes(true)
+        .process(cluster.getSolrClient());
+    AbstractDistribZkTestBase.waitForRecoveriesToFinish(COLLECTION, cluster.getSolrClient().getZkStateReader(),
+        false, true, 30);
+  }
+
+  @Before
+  public void resetCollection() throws Exception {
+    cluster.getSolrClient().deleteByQuery(COLLECTION, "*:*");
+    cluster.getSolrClient().commit(COLLECTION);
+  }
+
+  @Test
+  public void testCollectionProperty() throws Exception {
+    assertTrue(getCollectionState(COLLECTION).getOnlyLeaderIndexes());
+  }
+
+  @Test
+  public void testReplicasCopyIndexFromLeader() throws Exception {
+    CloudSolrClient cloudClient = cluster.getSolrClient();
+    cloudClient.add(COLLECTION, sdoc("id", "1"));
+    cloudClient.add(COLLECTION, sdoc("id", "2"));
+    cloudClient.add(COLLECTION, sdoc("id", "3"));
+
+    // uncommitted updates are in the log of every replica
+    for (Replica replica : getCollectionState(COLLECTION).getReplicas()) {
+      try (HttpSolrClient client = getHttpSolrClient(replica.getCoreUrl())) {
+        SolrDocument doc = client.getById("2");
+        assertNotNull("Realtime get failed on " + replica.getName(), doc);
+      }
+    }
+
+    cloudClient.commit(COLLECTION);
+    assertNumDocsOnAllReplicas(3);
+
+    cloudClient.deleteById(COLLECTION, "1");
+    cloudClient.add(COLLECTION, sdoc("id", "4"));
+    cloudClient.commit(COLLECTION);
+    assertNumDocsOnAllReplicas(3);
+  }
+
+  @Test
+  public void testLeaderFailover() throws Exception {
+    CloudSolrClient cloudClient = cluster.getSolrClient();
+    cloudClient.add(COLLECTION, sdoc("id", "1"));
+    cloudClient.commit(COLLECTION);
+    assertNumDocsOnAllReplicas(1);
+
+    // these are only in the logs of the replicas when the leader goes away
+    cloudClient.add(COLLECTION, sdoc("id", "2"));
+    cloudClient.add(COLLECTION, sdoc("id", "3"));
+
+    Replica oldLeader = getCollectionState(COLLECTION).getLeader("shard1");
+    JettySolrRunner oldLeaderJetty = null;
+    for (JettySolrRunner jetty : cluster.getJettySolrRunners()) {
+      if (jetty.getNodeName().equals(oldLeader.getNodeName())) {
+        oldLeaderJetty = jetty;
+      }
+    }
+    assertNotNull(oldLeaderJetty);
+    ChaosMonkey.stop(oldLeaderJetty);
+
+    waitForState("Expected a new leader", COLLECTION, (liveNodes, collectionState) -> {
+      Replica leader = collectionState.getLeader("shard1");
+      return leader != null && !leader.getName().equals(oldLeader.getName()) && leader.isActive(liveNodes);
+    });
+
+    cloudClient.commit(COLLECTION);
+    assertNumDocsOnAllReplicas(3);
+
+    ChaosMonkey.start(oldLeaderJetty);
+  }
+
+  private void assertNumDocsOnAllReplicas(long numDocs) throws Exception {
+    DocCollection collection = getCollectionState(COLLECTION);
+    Set<String> liveNodes = cluster.getSolrClient().getZkStateReader().getClusterState().getLiveNodes();
+    for (Replica replica : collection.getReplicas()) {
+      if (!replica.isActive(liveNodes)) continue;
+      try (HttpSolrClient client = getHttpSolrClient(replica.getCoreUrl())) {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set("q", "*:*");
+        params.set("distrib", false);
+        TimeOut timeOut = new TimeOut(30, TimeUnit.SECONDS);
+        long found = -1;
+        while (!timeOut.hasTimedOut()) {
+          found = client.query(params).getResults().getNumFound();
+          if (found == numDocs) break;
+          Thread.sleep(200);
+        }
+        assertEquals("Unexpected number of docs on " + replica.getName(), numDocs, found);
+      }
+    }
+  }
+}
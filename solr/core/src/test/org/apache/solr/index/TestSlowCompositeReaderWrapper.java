@@ -23,10 +23,22 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.TestUtil;
 
@@ -75,6 +87,126 @@ public class TestSlowCompositeReaderWrapper extends LuceneTestCase {
     w.w.getDirectory().close();
   }
 
+  public void testWarmOrdinalMaps() throws IOException {
+    final Directory dir = newDirectory();
+    final IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    // at least two segments, so that the reader is wrapped
+    addRandomDocs(w);
+    addRandomDocs(w);
+    final DirectoryReader reader1 = DirectoryReader.open(w);
+    final SlowCompositeReaderWrapper leafReader1 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader1);
+    // populate the cache of ordinal maps
+    leafReader1.getSortedDocValues("sorted");
+    leafReader1.getSortedSetDocValues("sorted_set");
+    final OrdinalMap sortedMap1 = leafReader1.cachedOrdMaps.get("sorted");
+    final OrdinalMap sortedSetMap1 = leafReader1.cachedOrdMaps.get("sorted_set");
+    assertNotNull(sortedMap1);
+    assertNotNull(sortedSetMap1);
+
+    addRandomDocs(w);
+    final DirectoryReader reader2 = DirectoryReader.openIfChanged(reader1);
+    w.close();
+    final SlowCompositeReaderWrapper leafReader2 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader2);
+    leafReader2.warmOrdinalMaps(leafReader1);
+
+    // maps were updated from the previous ones before any lookup
+    final OrdinalMap sortedMap2 = leafReader2.cachedOrdMaps.get("sorted");
+    final OrdinalMap sortedSetMap2 = leafReader2.cachedOrdMaps.get("sorted_set");
+    assertNotNull(sortedMap2);
+    assertNotNull(sortedSetMap2);
+    assertNotSame(sortedMap1, sortedMap2);
+    assertNotSame(sortedSetMap1, sortedSetMap2);
+    assertSame(leafReader2.getCoreCacheKey(), sortedMap2.owner);
+    assertSame(leafReader2.getCoreCacheKey(), sortedSetMap2.owner);
+    // and are the ones that lookups use
+    assertSame(sortedMap2, ((MultiDocValues.MultiSortedDocValues) leafReader2.getSortedDocValues("sorted")).mapping);
+    assertSame(sortedSetMap2, ((MultiDocValues.MultiSortedSetDocValues) leafReader2.getSortedSetDocValues("sorted_set")).mapping);
+
+    assertSameValues(singleton(MultiDocValues.getSortedValues(reader2, "sorted")),
+        singleton(leafReader2.getSortedDocValues("sorted")));
+    assertSameValues(MultiDocValues.getSortedSetValues(reader2, "sorted_set"),
+        leafReader2.getSortedSetDocValues("sorted_set"));
+
+    reader1.close();
+    reader2.close();
+    dir.close();
+  }
+
+  public void testWarmOrdinalMapsAfterMerge() throws IOException {
+    final Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    addRandomDocs(w);
+    addRandomDocs(w);
+    w.close();
+    final DirectoryReader reader1 = DirectoryReader.open(dir);
+    final SlowCompositeReaderWrapper leafReader1 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader1);
+    leafReader1.getSortedDocValues("sorted");
+    leafReader1.getSortedSetDocValues("sorted_set");
+    assertEquals(2, leafReader1.cachedOrdMaps.size());
+
+    // merge away the segments of the previous reader, and add new ones
+    w = new IndexWriter(dir, newIndexWriterConfig());
+    w.forceMerge(1);
+    w.close();
+    w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    addRandomDocs(w);
+    w.close();
+    final DirectoryReader reader2 = DirectoryReader.openIfChanged(reader1);
+    final SlowCompositeReaderWrapper leafReader2 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader2);
+    leafReader2.warmOrdinalMaps(leafReader1);
+
+    // maps can't be updated, they are built from scratch on demand
+    assertTrue(leafReader2.cachedOrdMaps.isEmpty());
+    assertSameValues(singleton(MultiDocValues.getSortedValues(reader2, "sorted")),
+        singleton(leafReader2.getSortedDocValues("sorted")));
+    assertSameValues(MultiDocValues.getSortedSetValues(reader2, "sorted_set"),
+        leafReader2.getSortedSetDocValues("sorted_set"));
+    assertEquals(2, leafReader2.cachedOrdMaps.size());
+
+    reader1.close();
+    reader2.close();
+    dir.close();
+  }
+
+  private static void addRandomDocs(IndexWriter w) throws IOException {
+    final int numDocs = atLeast(50);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextBoolean()) {
+        doc.add(new SortedDocValuesField("sorted", new BytesRef(TestUtil.randomSimpleString(random(), 2))));
+      }
+      for (int j = random().nextInt(3); j > 0; --j) {
+        doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef(TestUtil.randomSimpleString(random(), 2))));
+      }
+      w.addDocument(doc);
+      if (random().nextInt(10) == 0) {
+        w.commit();
+      }
+    }
+    w.commit();
+  }
+
+  private static SortedSetDocValues singleton(SortedDocValues values) {
+    return values == null ? null : DocValues.singleton(values);
+  }
+
+  private static void assertSameValues(SortedSetDocValues expected, SortedSetDocValues actual) throws IOException {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    assertEquals(expected.getValueCount(), actual.getValueCount());
+    for (int doc = expected.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = expected.nextDoc()) {
+      assertEquals(doc, actual.nextDoc());
+      for (long ord = expected.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = expected.nextOrd()) {
+        assertEquals(ord, actual.nextOrd());
+        assertEquals(expected.lookupOrd(ord), actual.lookupOrd(ord));
+      }
+      assertEquals(SortedSetDocValues.NO_MORE_ORDS, actual.nextOrd());
+    }
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, actual.nextDoc());
+  }
+
   private static final class CountCoreListener implements LeafReader.CoreClosedListener {
 
     private final AtomicInteger count;
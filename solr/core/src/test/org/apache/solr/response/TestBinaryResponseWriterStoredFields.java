@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.core.SolrInfoMBean;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.BinaryResponseWriter.Resolver;
+
+/**
+ * Tests that documents written straight from their stored fields are encoded exactly like the
+ * {@link org.apache.solr.common.SolrDocument}s returned by {@link DocsStreamer}
+ */
+public class TestBinaryResponseWriterStoredFields extends SolrTestCaseJ4 {
+
+  // with and without a document cache and lazy field loading
+  private static final String[] CONFIGS = new String[] {"solrconfig.xml", "solrconfig-basic.xml"};
+
+  private static final String[][] QUERIES = new String[][] {
+      {"q", "*:*", "sort", "id asc"},
+      {"q", "*:*", "sort", "id asc", "fl", "id,cat,foo_*"},
+      {"q", "*:*", "sort", "id asc", "fl", "subject,intRemove,uuid,foo_idv"},
+      {"q", "id:1", "fl", "*,foo_idv"}
+  };
+
+  private static void initCore(String config) throws Exception {
+    initCore(config, "schema.xml");
+
+    assertU(adoc("id", "1", "name", "one", "subject", "été 中文", "cat", "a", "cat", "b",
+        "foo_i", "42", "foo_l", "-7", "foo_f", "1.5", "foo_d", "2.25", "foo_dt", "2017-01-02T03:04:05Z",
+        "foo_b", "true", "foo_ti", "9", "foo_tdt", "1999-12-31T23:59:59Z", "uuid", "7a4f3c2e-1b7d-4e41-9d3f-0c1f1a2b3c4d",
+        "intRemove", "1", "intRemove", "2"));
+    assertU(adoc("id", "2", "name", "two", "foo_s", "bar", "foo_idv", "11"));
+    assertU(adoc("id", "3"));
+    assertU(commit());
+  }
+
+  public void testSameOutput() throws Exception {
+    byte[][] expected = null;
+    for (String config : CONFIGS) {
+      initCore(config);
+      try {
+        byte[][] outputs = new byte[QUERIES.length][];
+        for (int i = 0; i < QUERIES.length; i++) {
+          outputs[i] = assertSameOutput(QUERIES[i]);
+        }
+        if (expected == null) {
+          expected = outputs;
+        } else {
+          for (int i = 0; i < QUERIES.length; i++) {
+            if (includesVersion(QUERIES[i]) == false) {
+              assertTrue("Different output with " + config + " for " + Arrays.toString(QUERIES[i]),
+                  Arrays.equals(expected[i], outputs[i]));
+            }
+          }
+        }
+      } finally {
+        deleteCore();
+      }
+    }
+  }
+
+  public void testDocumentCache() throws Exception {
+    initCore("solrconfig.xml");
+    try {
+      SolrInfoMBean documentCacheStats = h.getCore().getInfoRegistry().get("documentCache");
+      assertNotNull(documentCacheStats);
+
+      // no fl, so that the documents are not prefetched
+      SolrQueryRequest req = req("q", "*:*", "sort", "id asc");
+      try {
+        SolrQueryResponse rsp = h.queryAndResponse(req.getParams().get(CommonParams.QT), req);
+        long inserts = (Long) documentCacheStats.getStatistics().get("inserts");
+        long hits = (Long) documentCacheStats.getStatistics().get("hits");
+        // the documents read from their stored fields are cached
+        byte[] direct = write(req, rsp, true);
+        inserts += 3;
+        assertEquals(inserts, ((Long) documentCacheStats.getStatistics().get("inserts")).longValue());
+        assertEquals(hits, ((Long) documentCacheStats.getStatistics().get("hits")).longValue());
+        // and then written from the cache
+        assertTrue(Arrays.equals(direct, write(req, rsp, true)));
+        hits += 3;
+        assertEquals(inserts, ((Long) documentCacheStats.getStatistics().get("inserts")).longValue());
+        assertEquals(hits, ((Long) documentCacheStats.getStatistics().get("hits")).longValue());
+      } finally {
+        req.close();
+      }
+    } finally {
+      deleteCore();
+    }
+  }
+
+  public void testTransformersAreNotBypassed() throws Exception {
+    initCore(CONFIGS[random().nextInt(CONFIGS.length)]);
+    try {
+      SolrQueryRequest req = req("q", "*:*", "fl", "id,score");
+      try {
+        SolrQueryResponse rsp = h.queryAndResponse(req.getParams().get(CommonParams.QT), req);
+        ResultContext ctx = (ResultContext) rsp.getValues().get("response");
+        assertFalse(new DocsStreamer(ctx).canWriteStoredFieldsDirectly());
+      } finally {
+        req.close();
+      }
+    } finally {
+      deleteCore();
+    }
+  }
+
+  /** Returns the output once checked that it is the same when written directly, before and after caching. */
+  private byte[] assertSameOutput(String... params) throws Exception {
+    SolrQueryRequest req = req(params);
+    try {
+      SolrQueryResponse rsp = h.queryAndResponse(req.getParams().get(CommonParams.QT), req);
+      ResultContext ctx = (ResultContext) rsp.getValues().get("response");
+      assertTrue(new DocsStreamer(ctx).canWriteStoredFieldsDirectly());
+
+      byte[] direct = write(req, rsp, true);
+      byte[] viaDocuments = write(req, rsp, false);
+      assertTrue("Different output for " + Arrays.toString(params), Arrays.equals(viaDocuments, direct));
+      // documents may now be in the document cache
+      assertTrue("Different output for " + Arrays.toString(params), Arrays.equals(viaDocuments, write(req, rsp, true)));
+      return direct;
+    } finally {
+      req.close();
+    }
+  }
+
+  /** Whether the output of a query includes the _version_ field, which differs between indexes. */
+  private static boolean includesVersion(String[] params) {
+    for (int i = 0; i < params.length; i += 2) {
+      if (params[i].equals("fl")) {
+        return Arrays.asList(params[i + 1].split(",")).contains("*");
+      }
+    }
+    return true;
+  }
+
+  /** Writes the documents of the response, but not its header which has the query time. */
+  private static byte[] write(SolrQueryRequest req, SolrQueryResponse rsp, boolean direct) throws Exception {
+    Resolver resolver = new Resolver(req, rsp.getReturnFields()).setWriteStoredFieldsDirectly(direct);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new JavaBinCodec(resolver).setWritableDocFields(resolver).marshal(rsp.getValues().get("response"), out);
+    return out.toByteArray();
+  }
+}
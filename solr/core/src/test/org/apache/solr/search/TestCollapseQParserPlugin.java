@@ -23,6 +23,7 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.Iterator;
 
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
@@ -879,6 +880,57 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
     }
   }
 
+  public void testOrdScoreGroupHeads() {
+    for(int iter=0; iter<10; iter++) {
+      int valueCount = 1 + random().nextInt(2000);
+      int numDocs = random().nextInt(valueCount / 4 + 1) + (random().nextBoolean() ? 0 : valueCount);
+      int[] docs = new int[valueCount];
+      float[] scores = new float[valueCount];
+      Arrays.fill(docs, -1);
+      Arrays.fill(scores, -Float.MAX_VALUE);
+      Set<Integer> ords = new HashSet<>();
+
+      CollapsingQParserPlugin.OrdScoreGroupHeads groupHeads = new CollapsingQParserPlugin.OrdScoreGroupHeads(valueCount);
+      for(int doc=0; doc<numDocs; doc++) {
+        int ord = random().nextInt(valueCount);
+        float score = random().nextFloat();
+        groupHeads.collect(ord, doc, score);
+        ords.add(ord);
+        if(score > scores[ord]) {
+          docs[ord] = doc;
+          scores[ord] = score;
+        }
+        assertEquals(ords.size() > valueCount / 8, groupHeads.isDense());
+      }
+      if(groupHeads.isDense()) {
+        // pooled arrays are reused only if they are not too large
+        assertTrue(groupHeads.denseCapacity() >= valueCount);
+        assertTrue(groupHeads.denseCapacity() <= 2 * valueCount);
+      }
+
+      for(int ord=0; ord<valueCount; ord++) {
+        if(random().nextInt(10) == 0) {
+          groupHeads.removeHead(ord);
+          docs[ord] = -1;
+        }
+        assertEquals(scores[ord], groupHeads.score(ord), 0f);
+      }
+
+      FixedBitSet expected = new FixedBitSet(Math.max(1, numDocs));
+      for(int doc : docs) {
+        if(doc > -1) {
+          expected.set(doc);
+        }
+      }
+      FixedBitSet actual = new FixedBitSet(Math.max(1, numDocs));
+      groupHeads.addHeads(actual);
+      assertEquals(expected, actual);
+
+      groupHeads.close();
+      assertTrue(CollapsingQParserPlugin.OrdScoreGroupHeads.pooledBytes() <= CollapsingQParserPlugin.OrdScoreGroupHeads.MAX_POOLED_BYTES);
+    }
+  }
+
   public void testGroupHeadSelector() {
     GroupHeadSelector s;
     
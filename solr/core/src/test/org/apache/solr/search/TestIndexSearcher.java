@@ -17,8 +17,10 @@
 package org.apache.solr.search;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +28,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReaderContext;
@@ -203,6 +206,40 @@ public class TestIndexSearcher extends SolrTestCaseJ4 {
 
   }
   
+  public void testDocs() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      assertU(adoc("id", Integer.toString(i), "v_t", "text " + i, "v_s1", "string" + i));
+      if (i % 40 == 39) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    SolrQueryRequest req = req("q", "*:*");
+    try {
+      SolrIndexSearcher searcher = req.getSearcher();
+      // segments are wrapped, but documents that share blocks are still read from the codec sequentially
+      for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+        assertNotNull(SolrIndexSearcher.getSequentialFieldsReader(leaf.reader()));
+      }
+      int[] docIds = new int[60];
+      for (int i = 0; i < docIds.length; i++) {
+        docIds[i] = random().nextInt(searcher.maxDoc());
+      }
+
+      Set<String> fields = random().nextBoolean() ? null : Collections.singleton("v_s1");
+      Document[] docs = searcher.docs(docIds, fields);
+      assertEquals(docIds.length, docs.length);
+      for (int i = 0; i < docIds.length; i++) {
+        Document expected = searcher.getIndexReader().document(docIds[i]);
+        assertEquals(expected.get("v_s1"), docs[i].get("v_s1"));
+        assertEquals(expected.get("id"), docs[i].get("id"));
+      }
+    } finally {
+      req.close();
+    }
+  }
+
   public void testSearcherListeners() throws Exception {
     MockSearchComponent.registerSlowSearcherListener = false;
         
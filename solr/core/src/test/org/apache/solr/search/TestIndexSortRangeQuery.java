@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Locale;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSortDocValuesRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.request.SolrQueryRequest;
+import org.junit.BeforeClass;
+
+/**
+ * Tests that range filters on the field that segments are sorted by are answered from the index sort.
+ */
+public class TestIndexSortRangeQuery extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // segments are sorted by timestamp desc
+    initCore("solrconfig-sortingmergepolicyfactory.xml", "schema.xml");
+  }
+
+  public void testRangeFilters() throws Exception {
+    final int numDocs = atLeast(50);
+    int id = 0;
+    for (int i = 0; i < numDocs; ++i) {
+      // day i of january 2017, in random order of days across commits
+      assertU(adoc("id", Integer.toString(id++), "timestamp", String.format(Locale.ROOT, "2017-01-%02dT00:00:00Z", 1 + (i * 7) % 28)));
+      if (random().nextInt(10) == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+    // merged segments are sorted
+    assertU(optimize());
+
+    SolrQueryRequest req = req("q", "*:*");
+    try {
+      boolean sorted = false;
+      for (LeafReaderContext context : req.getSearcher().getTopReaderContext().leaves()) {
+        sorted |= context.reader().getIndexSort() != null;
+      }
+      assertTrue(sorted);
+      Query q = QParser.getParser("timestamp:[2017-01-05T00:00:00Z TO 2017-01-10T00:00:00Z}", req).getQuery();
+      assertTrue(q.toString(), q instanceof IndexSortDocValuesRangeQuery);
+      q = QParser.getParser("timestamp:\"2017-01-05T00:00:00Z\"", req).getQuery();
+      assertTrue(q.toString(), q instanceof IndexSortDocValuesRangeQuery);
+    } finally {
+      req.close();
+    }
+
+    for (String fq : new String[] {
+        "timestamp:[2017-01-05T00:00:00Z TO 2017-01-10T00:00:00Z}",
+        "timestamp:{2017-01-05T00:00:00Z TO 2017-01-10T00:00:00Z]",
+        "timestamp:[* TO 2017-01-10T00:00:00Z]",
+        "timestamp:[2017-01-20T00:00:00Z TO *]",
+        "timestamp:\"2017-01-05T00:00:00Z\""}) {
+      int expected = 0;
+      for (int i = 0; i < numDocs; ++i) {
+        final int day = 1 + (i * 7) % 28;
+        if (matches(fq, day)) {
+          expected++;
+        }
+      }
+      assertJQ(req("q", "*:*", "fq", fq, "rows", "0"), "/response/numFound==" + expected);
+      // same results without the filter cache
+      assertJQ(req("q", "*:*", "fq", "{!cache=false}" + fq, "rows", "0"), "/response/numFound==" + expected);
+    }
+  }
+
+  public void testParsingDoesNotDependOnSegments() throws Exception {
+    final String fq = "timestamp:[2017-01-05T00:00:00Z TO 2017-01-10T00:00:00Z]";
+    assertU(delQ("*:*"));
+    assertU(commit());
+    Query emptyIndexQuery = parse(fq);
+    assertTrue(emptyIndexQuery.toString(), emptyIndexQuery instanceof IndexSortDocValuesRangeQuery);
+
+    // an unsorted flushed segment next to a sorted merged one
+    assertU(adoc("id", "0", "timestamp", "2017-01-06T00:00:00Z"));
+    assertU(adoc("id", "1", "timestamp", "2017-01-02T00:00:00Z"));
+    assertU(commit());
+    assertU(optimize());
+    assertU(adoc("id", "2", "timestamp", "2017-01-07T00:00:00Z"));
+    assertU(commit());
+    assertEquals(emptyIndexQuery, parse(fq));
+    assertJQ(req("q", "*:*", "fq", fq, "rows", "0"), "/response/numFound==2");
+  }
+
+  private static Query parse(String q) throws Exception {
+    SolrQueryRequest req = req("q", "*:*");
+    try {
+      return QParser.getParser(q, req).getQuery();
+    } finally {
+      req.close();
+    }
+  }
+
+  private static boolean matches(String fq, int day) {
+    switch (fq) {
+      case "timestamp:[2017-01-05T00:00:00Z TO 2017-01-10T00:00:00Z}":
+        return day >= 5 && day < 10;
+      case "timestamp:{2017-01-05T00:00:00Z TO 2017-01-10T00:00:00Z]":
+        return day > 5 && day <= 10;
+      case "timestamp:[* TO 2017-01-10T00:00:00Z]":
+        return day <= 10;
+      case "timestamp:[2017-01-20T00:00:00Z TO *]":
+        return day >= 20;
+      case "timestamp:\"2017-01-05T00:00:00Z\"":
+        return day == 5;
+      default:
+        throw new AssertionError(fq);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.BaseDistributedSearchTestCase;
+import org.apache.solr.SolrTestCaseJ4.SuppressSSL;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.StrUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.apache.solr.update.processor.DistributedUpdateProcessor.DistribPhase;
+import static org.apache.solr.update.processor.DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM;
+
+/**
+ * Tests that PeerSync can catch up with a replica that is many more updates ahead than the number of
+ * versions exchanged, by comparing fingerprints of version ranges.
+ */
+@SuppressSSL(bugUrl = "https://issues.apache.org/jira/browse/SOLR-5776")
+public class PeerSyncWithFingerprintRangesTest extends BaseDistributedSearchTestCase {
+  private static int numVersions = 100;  // number of versions to use when syncing
+  private final String FROM_LEADER = DistribPhase.FROMLEADER.toString();
+
+  private ModifiableSolrParams seenLeader =
+      params(DISTRIB_UPDATE_PARAM, FROM_LEADER);
+
+  @BeforeClass
+  public static void beforeFingerprintRangesTest() {
+    System.setProperty("solr.peerSync.useFingerprintRanges", "true");
+    System.setProperty("solr.ulog.numRecordsToKeep", "5000");
+  }
+
+  @AfterClass
+  public static void afterFingerprintRangesTest() {
+    System.clearProperty("solr.peerSync.useFingerprintRanges");
+    System.clearProperty("solr.ulog.numRecordsToKeep");
+  }
+
+  public PeerSyncWithFingerprintRangesTest() {
+    stress = 0;
+
+    configString = "solrconfig-tlog.xml";
+    schemaString = "schema.xml";
+  }
+
+  @Test
+  @ShardsFixed(num = 2)
+  public void test() throws Exception {
+    handle.clear();
+    handle.put("timestamp", SKIPVAL);
+    handle.put("score", SKIPVAL);
+    handle.put("maxScore", SKIPVAL);
+
+    SolrClient client0 = clients.get(0);
+    SolrClient client1 = clients.get(1);
+
+    long v = 0;
+    for (int i = 1; i <= 10; i++) {
+      ++v;
+      add(client0, seenLeader, sdoc("id", Integer.toString(i), "_version_", v));
+      add(client1, seenLeader, sdoc("id", Integer.toString(i), "_version_", v));
+    }
+    assertSync(client1, numVersions, true, shardsArr[0]);
+
+    // client1 misses many more updates than the number of versions exchanged
+    int toAdd = numVersions * 30;
+    for (int i = 0; i < toAdd; i++) {
+      add(client0, seenLeader, sdoc("id", Integer.toString(i + 11), "_version_", ++v));
+    }
+    // overwrite and delete some of the missed documents
+    add(client0, seenLeader, sdoc("id", "20", "_version_", ++v));
+    del(client0, params(DISTRIB_UPDATE_PARAM, FROM_LEADER, "_version_", Long.toString(-++v)), "500");
+    del(client0, params(DISTRIB_UPDATE_PARAM, FROM_LEADER, "_version_", Long.toString(-++v)), "2000");
+
+    assertSync(client1, numVersions, true, shardsArr[0]);
+    client0.commit(); client1.commit();
+    queryAndCompare(params("q", "*:*", "sort", "_version_ desc", "rows", "10000"), client0, client1);
+
+    // a replica in sync gets nothing new
+    assertSync(client1, numVersions, true, shardsArr[0]);
+
+    // client1 only misses a few updates in the middle of a large gap
+    for (int i = 0; i < toAdd; i++) {
+      ++v;
+      String id = Integer.toString(i + 10000);
+      add(client0, seenLeader, sdoc("id", id, "_version_", v));
+      if (i % 1000 != 7) {
+        add(client1, seenLeader, sdoc("id", id, "_version_", v));
+      }
+    }
+    for (int i = 0; i < numVersions * 2; i++) {
+      add(client0, seenLeader, sdoc("id", Integer.toString(i + 20000), "_version_", ++v));
+    }
+
+    assertSync(client1, numVersions, true, shardsArr[0]);
+    client0.commit(); client1.commit();
+    queryAndCompare(params("q", "*:*", "sort", "_version_ desc", "rows", "10000"), client0, client1);
+  }
+
+  @Test
+  public void testSplitRange() {
+    List<long[]> ranges = PeerSync.splitRange(1, 100, 16);
+    assertEquals(16, ranges.size());
+    assertEquals(1, ranges.get(0)[0]);
+    assertEquals(100, ranges.get(15)[1]);
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1)[1] + 1, ranges.get(i)[0]);
+    }
+
+    // fewer values than splits
+    ranges = PeerSync.splitRange(5, 7, 16);
+    assertEquals(3, ranges.size());
+    assertEquals(5, ranges.get(0)[0]);
+    assertEquals(7, ranges.get(2)[1]);
+
+    // no overflow close to the largest version
+    ranges = PeerSync.splitRange(1, Long.MAX_VALUE, 16);
+    assertEquals(16, ranges.size());
+    assertEquals(Long.MAX_VALUE, ranges.get(15)[1]);
+  }
+
+  @Test
+  public void testCoalesceRanges() {
+    List<long[]> ranges = PeerSync.coalesceRanges(Arrays.asList(
+        new long[] {1, 10}, new long[] {11, 20}, new long[] {21, 30}, new long[] {40, 50}, new long[] {51, 60}, new long[] {70, 70}));
+    assertEquals(3, ranges.size());
+    assertArrayEquals(new long[] {1, 30}, ranges.get(0));
+    assertArrayEquals(new long[] {40, 60}, ranges.get(1));
+    assertArrayEquals(new long[] {70, 70}, ranges.get(2));
+
+    // every sub range of a split mismatches
+    ranges = PeerSync.coalesceRanges(PeerSync.splitRange(1, Long.MAX_VALUE, 16));
+    assertEquals(1, ranges.size());
+    assertArrayEquals(new long[] {1, Long.MAX_VALUE}, ranges.get(0));
+  }
+
+  void assertSync(SolrClient client, int numVersions, boolean expectedResult, String... syncWith) throws IOException, SolrServerException {
+    QueryRequest qr = new QueryRequest(params("qt","/get", "getVersions",Integer.toString(numVersions), "sync", StrUtils.join(Arrays.asList(syncWith), ',')));
+    NamedList rsp = client.request(qr);
+    assertEquals(expectedResult, (Boolean) rsp.get("sync"));
+  }
+
+}
@@ -364,6 +364,7 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
 
     private Properties properties;
     protected Boolean autoAddReplicas;
+    protected Boolean onlyLeaderIndexes;
     protected Integer stateFormat;
     private String[] rule , snitch;
 
@@ -405,6 +406,7 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
     public Create setNumShards(Integer numShards) {this.numShards = numShards; return this; }
     public Create setMaxShardsPerNode(Integer numShards) { this.maxShardsPerNode = numShards; return this; }
     public Create setAutoAddReplicas(boolean autoAddReplicas) { this.autoAddReplicas = autoAddReplicas; return this; }
+    public Create setOnlyLeaderIndexes(boolean onlyLeaderIndexes) { this.onlyLeaderIndexes = onlyLeaderIndexes; return this; }
     @Deprecated
     public Create setReplicationFactor(Integer repl) { this.replicationFactor = repl; return this; }
     public Create setStateFormat(Integer stateFormat) { this.stateFormat = stateFormat; return this; }
@@ -419,6 +421,7 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
     public Integer getMaxShardsPerNode() { return maxShardsPerNode; }
     public Integer getReplicationFactor() { return replicationFactor; }
     public Boolean getAutoAddReplicas() { return autoAddReplicas; }
+    public Boolean getOnlyLeaderIndexes() { return onlyLeaderIndexes; }
     public Integer getStateFormat() { return stateFormat; }
     
     /**
@@ -505,6 +508,9 @@ public abstract class CollectionAdminRequest<T extends CollectionAdminResponse>
       if (autoAddReplicas != null) {
         params.set(ZkStateReader.AUTO_ADD_REPLICAS, autoAddReplicas);
       }
+      if (onlyLeaderIndexes != null) {
+        params.set(ZkStateReader.ONLY_LEADER_INDEXES, onlyLeaderIndexes);
+      }
       if(properties != null) {
         addProperties(params, properties);
       }
@@ -43,6 +43,17 @@ import org.apache.solr.common.util.NamedList;
  */
 public class JavaBinUpdateRequestCodec {
 
+  private JavaBinCodec.StringCache stringCache;
+
+  /**
+   * Sets a cache used to resolve the field names (and other extern strings) of the documents being
+   * unmarshalled, so that repeated names do not have to be decoded and allocated again.
+   */
+  public JavaBinUpdateRequestCodec setStringCache(JavaBinCodec.StringCache cache) {
+    this.stringCache = cache;
+    return this;
+  }
+
   /**
    * Converts an UpdateRequest to a NamedList which can be serialized to the given OutputStream in the javabin format
    *
@@ -102,7 +113,7 @@ public class JavaBinUpdateRequestCodec {
     Map<String,Map<String,Object>> delByIdMap;
     List<String> delByQ;
     final NamedList[] namedList = new NamedList[1];
-    JavaBinCodec codec = new JavaBinCodec() {
+    JavaBinCodec codec = new JavaBinCodec(null, stringCache) {
 
       // NOTE: this only works because this is an anonymous inner class 
       // which will only ever be used on a single stream -- if this class 
@@ -33,6 +33,7 @@ import org.noggit.JSONWriter;
 
 import static org.apache.solr.common.cloud.ZkStateReader.AUTO_ADD_REPLICAS;
 import static org.apache.solr.common.cloud.ZkStateReader.MAX_SHARDS_PER_NODE;
+import static org.apache.solr.common.cloud.ZkStateReader.ONLY_LEADER_INDEXES;
 import static org.apache.solr.common.cloud.ZkStateReader.REPLICATION_FACTOR;
 
 /**
@@ -59,6 +60,7 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
   private final Integer replicationFactor;
   private final Integer maxShardsPerNode;
   private final Boolean autoAddReplicas;
+  private final Boolean onlyLeaderIndexes;
 
 
   public DocCollection(String name, Map<String, Slice> slices, Map<String, Object> props, DocRouter router) {
@@ -84,6 +86,8 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
     this.maxShardsPerNode = (Integer) verifyProp(props, MAX_SHARDS_PER_NODE);
     Boolean autoAddReplicas = (Boolean) verifyProp(props, AUTO_ADD_REPLICAS);
     this.autoAddReplicas = autoAddReplicas == null ? false : autoAddReplicas;
+    Boolean onlyLeaderIndexes = (Boolean) verifyProp(props, ONLY_LEADER_INDEXES);
+    this.onlyLeaderIndexes = onlyLeaderIndexes == null ? false : onlyLeaderIndexes;
     verifyProp(props, RULE);
     verifyProp(props, SNITCH);
     Iterator<Map.Entry<String, Slice>> iter = slices.entrySet().iterator();
@@ -128,6 +132,7 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
       case REPLICATION_FACTOR:
         return Integer.parseInt(o.toString());
       case AUTO_ADD_REPLICAS:
+      case ONLY_LEADER_INDEXES:
         return Boolean.parseBoolean(o.toString());
       case "snitch":
       case "rule":
@@ -218,7 +223,15 @@ public class DocCollection extends ZkNodeProps implements Iterable<Slice> {
   public boolean getAutoAddReplicas() {
     return autoAddReplicas;
   }
-  
+
+  /**
+   * @return true if only the shard leader indexes documents; other replicas only log
+   *         updates in their transaction log and copy index segments from the leader.
+   */
+  public boolean getOnlyLeaderIndexes() {
+    return onlyLeaderIndexes;
+  }
+
   public int getMaxShardsPerNode() {
     if (maxShardsPerNode == null) {
       throw new SolrException(ErrorCode.BAD_REQUEST, MAX_SHARDS_PER_NODE + " is not in the cluster state.");
@@ -555,7 +555,8 @@ public class JavaBinCodec implements PushWriter {
   public SolrInputDocument readSolrInputDocument(DataInputInputStream dis) throws IOException {
     int sz = readVInt(dis);
     float docBoost = (Float)readVal(dis);
-    SolrInputDocument sdoc = new SolrInputDocument();
+    // size the field map up front, sz also counts child documents so this may be slightly larger than needed
+    SolrInputDocument sdoc = new SolrInputDocument(new LinkedHashMap<>((int) (sz / 0.75f) + 1));
     sdoc.setDocumentBoost(docBoost);
     for (int i = 0; i < sz; i++) {
       float boost = 1.0f;
@@ -814,6 +815,14 @@ public class JavaBinCodec implements PushWriter {
     }
   }
 
+  /**
+   * Writes a string that is already encoded as UTF-8, without decoding it first.
+   */
+  public void writeUTF8Str(byte[] utf8, int offset, int len) throws IOException {
+    writeTag(STR, len);
+    daos.write(utf8, offset, len);
+  }
+
   byte[] bytes;
   CharArr arr = new CharArr();
   private StringBytes bytesRef = new StringBytes(bytes,0,0);
@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -32,6 +33,8 @@ import junit.framework.Assert;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.MapBackedCache;
 import org.junit.Test;
 
 /**
@@ -229,7 +232,30 @@ public class TestUpdateRequestCodec extends LuceneTestCase {
     is.close();
   }
 
+  @Test
+  public void testStringCache() throws IOException {
+    UpdateRequest updateRequest = new UpdateRequest();
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField("id", 1);
+    doc.addField("desc", "one");
+    updateRequest.add(doc);
 
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new JavaBinUpdateRequestCodec().marshal(updateRequest, baos);
+
+    JavaBinUpdateRequestCodec codec = new JavaBinUpdateRequestCodec()
+        .setStringCache(new JavaBinCodec.StringCache(new MapBackedCache<>(new HashMap<>())));
+    final List<SolrInputDocument> docs = new ArrayList<>();
+    JavaBinUpdateRequestCodec.StreamingUpdateHandler handler = (document, req, commitWithin, overwrite) -> docs.add(document);
+    codec.unmarshal(new ByteArrayInputStream(baos.toByteArray()), handler);
+    codec.unmarshal(new ByteArrayInputStream(baos.toByteArray()), handler);
+
+    assertEquals(2, docs.size());
+    compareDocs("doc#0", doc, docs.get(0));
+    compareDocs("doc#1", doc, docs.get(1));
+    // field names of both requests are resolved from the cache
+    assertSame(docs.get(0).getField("desc").getName(), docs.get(1).getField("desc").getName());
+  }
 
   private void compareDocs(String m, 
                            SolrInputDocument expectedDoc, 